@@ -0,0 +1,96 @@
+package com.urutte.service;
+
+import com.urutte.UrutteApplication;
+import com.urutte.model.Follow;
+import com.urutte.model.User;
+import com.urutte.repository.FollowRepository;
+import com.urutte.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Random;
+
+/**
+ * Spring context shared by the benchmarks of one JMH fork: the full application on an in-memory H2
+ * database (PostgreSQL mode, with H2ConflictTargetStripper for the upserts), seeded with a small
+ * social graph.
+ *
+ *   - USER_COUNT users; "viewer" follows every other user
+ *   - THREAD_COUNT threads with hashtags and mentions, created through ThreadService so that the
+ *     tag tables and the home timeline store are filled the same way as in production
+ */
+final class BenchmarkContext {
+
+    static final String VIEWER = "viewer";
+    static final int USER_COUNT = 200;
+    static final int THREAD_COUNT = 2000;
+
+    // Passed as command-line arguments so they override application.properties
+    private static final String[] ARGS = {
+        "--server.port=0",
+        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "--spring.datasource.driver-class-name=org.h2.Driver",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--spring.jpa.properties.hibernate.dialect=",
+        "--spring.jpa.hibernate.ddl-auto=create-drop",
+        "--spring.jpa.show-sql=false",
+        "--spring.main.banner-mode=off",
+        "--logging.level.root=WARN",
+        "--app.ai.content.generation.enabled=false",
+        "--app.search.engine=memory",
+        "--app.feed.timeline.mode=memory"
+    };
+
+    private static ConfigurableApplicationContext context;
+
+    private BenchmarkContext() {
+    }
+
+    static synchronized ConfigurableApplicationContext get() {
+        if (context == null) {
+            context = new SpringApplicationBuilder(UrutteApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new H2ConflictTargetStripper()))
+                .run(ARGS);
+            seed(context);
+        }
+        return context;
+    }
+
+    static synchronized void close() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    static String userId(int index) {
+        return "user" + index;
+    }
+
+    private static void seed(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        FollowRepository followRepository = context.getBean(FollowRepository.class);
+        ThreadService threadService = context.getBean(ThreadService.class);
+
+        User viewer = newUser(VIEWER);
+        userRepository.save(viewer);
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = userRepository.save(newUser(userId(i)));
+            followRepository.save(new Follow(viewer, user));
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            String content = "Benchmark thread " + i + " about #topic" + random.nextInt(50)
+                + " and #news" + random.nextInt(20) + " cc @" + userId(random.nextInt(USER_COUNT));
+            threadService.createThread(content, userId(random.nextInt(USER_COUNT)), null, null, null, "ANYONE");
+        }
+    }
+
+    private static User newUser(String id) {
+        User user = new User(id, "Name " + id, id + "@example.com", null);
+        user.setUsername(id);
+        return user;
+    }
+}
@@ -0,0 +1,58 @@
+package com.urutte.service;
+
+import com.urutte.dto.CursorPageDto;
+import com.urutte.dto.ThreadDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feed assembly end to end against the seeded H2 database: the first page of the viewer's home feed
+ * (offset and cursor variants), an anonymous public feed page, and a single thread by ID.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedBenchmark {
+
+    @Param({ "20" })
+    private int pageSize;
+
+    private ThreadService threadService;
+    private Long threadId;
+
+    @Setup
+    public void setUp() {
+        threadService = BenchmarkContext.get().getBean(ThreadService.class);
+        threadId = threadService.getMainThreads(null, 0, 1).getContent().get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public Page<ThreadDto> homeFeedPage() {
+        return threadService.getMainThreads(BenchmarkContext.VIEWER, 0, pageSize);
+    }
+
+    @Benchmark
+    public CursorPageDto<ThreadDto> homeFeedCursor() {
+        return threadService.getMainThreadsByCursor(BenchmarkContext.VIEWER, null, pageSize);
+    }
+
+    @Benchmark
+    public Page<ThreadDto> publicFeedPage() {
+        return threadService.getMainThreads(null, 0, pageSize);
+    }
+
+    @Benchmark
+    public ThreadDto threadById() {
+        return threadService.getThreadById(threadId, BenchmarkContext.VIEWER);
+    }
+}
@@ -0,0 +1,58 @@
+package com.urutte.service;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.regex.Pattern;
+
+/**
+ * Lets the benchmark H2 database run the PostgreSQL upserts of the services. H2's PostgreSQL mode
+ * accepts "ON CONFLICT DO NOTHING" but not with a conflict target, so the target is dropped from
+ * statements before they are prepared. Each of those tables has a single unique key, so on H2 the
+ * statements behave as they do on PostgreSQL. Benchmark-only: production SQL is never rewritten.
+ */
+final class H2ConflictTargetStripper implements BeanPostProcessor {
+
+    private static final Pattern CONFLICT_TARGET = Pattern.compile("ON CONFLICT \\([^)]*\\) DO NOTHING");
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource)) {
+            return bean;
+        }
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return wrap(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return wrap(super.getConnection(username, password));
+            }
+        };
+    }
+
+    static String rewrite(String sql) {
+        return CONFLICT_TARGET.matcher(sql).replaceAll("ON CONFLICT DO NOTHING");
+    }
+
+    private static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String sql) {
+                    args[0] = rewrite(sql);
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+}
@@ -0,0 +1,54 @@
+package com.urutte.service;
+
+import com.urutte.service.ContentGenerationService.NewsItem;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NewsScrapingService.getNewsByCategory("Global") with every feed answered locally by a 50-item feed
+ * with CDATA descriptions and inline HTML, the shape of the news feeds the AI content scheduler
+ * scrapes. Each invocation parses one feed per Global source (five), so the score is dominated by
+ * parsing rather than by the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RssParseBenchmark {
+
+    private NewsScrapingService newsScrapingService;
+
+    @Setup
+    public void setUp() {
+        StringBuilder feed = new StringBuilder("<?xml version=\"1.0\"?><rss version=\"2.0\"><channel><title>Feed</title>");
+        for (int i = 0; i < 50; i++) {
+            feed.append("<item>")
+                .append("<title><![CDATA[Global headline ").append(i).append(" about AI and cloud]]></title>")
+                .append("<description><![CDATA[<p>Paragraph ").append(i)
+                .append(" with <a href=\"https://example.com\">a link</a> &amp; some <b>global</b> news.</p>]]></description>")
+                .append("<link>https://example.com/articles/").append(i).append("</link>")
+                .append("<pubDate>Mon, 06 Oct 2025 10:00:00 GMT</pubDate>")
+                .append("</item>");
+        }
+        String rss = feed.append("</channel></rss>").toString();
+
+        newsScrapingService = new NewsScrapingService();
+        ReflectionTestUtils.setField(newsScrapingService, "restTemplate", new RestTemplate() {
+            @Override
+            public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+                return responseType.cast(rss);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<NewsItem> globalNews() {
+        return newsScrapingService.getNewsByCategory("Global");
+    }
+}
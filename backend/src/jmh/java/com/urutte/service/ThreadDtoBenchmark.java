@@ -0,0 +1,56 @@
+package com.urutte.service;
+
+import com.urutte.dto.ThreadDto;
+import com.urutte.model.User;
+import com.urutte.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ThreadService.getUserThreads for an author whose threads are all fully loaded (a video, three
+ * hashtags, a mention and a quoted thread), read by the author so the viewer state is hydrated too.
+ * The page query is small next to building the DTOs, so this tracks the per-row cost of every
+ * feed page through the public API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadDtoBenchmark {
+
+    private static final String AUTHOR = "dto-author";
+
+    @Param({ "20" })
+    private int pageSize;
+
+    private ThreadService threadService;
+
+    @Setup
+    public void setUp() {
+        threadService = BenchmarkContext.get().getBean(ThreadService.class);
+
+        User author = new User(AUTHOR, "Author", AUTHOR + "@example.com", "/avatars/author.png");
+        author.setUsername(AUTHOR);
+        BenchmarkContext.get().getBean(UserRepository.class).save(author);
+
+        Long quotedId = threadService.createThread("The quoted thread #java", AUTHOR, null, null, null, "ANYONE").getId();
+        for (int i = 0; i < pageSize; i++) {
+            threadService.createQuoteRepost("Thread " + i + " with #java #spring #performance and @" + BenchmarkContext.userId(i),
+                AUTHOR, quotedId, "/uploads/videos/" + i + ".mp4", "video");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public Page<ThreadDto> userThreadsPage() {
+        return threadService.getUserThreads(AUTHOR, 0, pageSize);
+    }
+}
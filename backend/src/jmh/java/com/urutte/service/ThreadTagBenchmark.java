@@ -0,0 +1,61 @@
+package com.urutte.service;
+
+import com.urutte.model.User;
+import com.urutte.repository.ThreadRepository;
+import com.urutte.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ThreadTagService.processHashtagsAndMentions for a thread with eight hashtags (half of them new on
+ * the first pass) and three mentions, against H2. Each invocation tags the next thread of a pool,
+ * so the join-table inserts are real inserts until the pool wraps around.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadTagBenchmark {
+
+    private static final int POOL_SIZE = 500;
+
+    private ThreadTagService threadTagService;
+    private List<com.urutte.model.Thread> threads;
+    private String content;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        threadTagService = BenchmarkContext.get().getBean(ThreadTagService.class);
+        ThreadRepository threadRepository = BenchmarkContext.get().getBean(ThreadRepository.class);
+        User author = BenchmarkContext.get().getBean(UserRepository.class)
+            .findById(BenchmarkContext.userId(0)).orElseThrow();
+
+        threads = new ArrayList<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            com.urutte.model.Thread thread = new com.urutte.model.Thread("tag benchmark " + i, author);
+            thread.setIsPublic(true);
+            threads.add(threadRepository.save(thread));
+        }
+
+        content = "#topic1 #topic2 #news3 #news4 #fresh1 #fresh2 #fresh3 #fresh4 with @"
+            + BenchmarkContext.userId(1) + " @" + BenchmarkContext.userId(2) + " @" + BenchmarkContext.userId(3);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public void processHashtagsAndMentions() {
+        com.urutte.model.Thread thread = threads.get(next);
+        next = (next + 1) % POOL_SIZE;
+        threadTagService.processHashtagsAndMentions(thread, content);
+    }
+}
@@ -0,0 +1,61 @@
+package com.urutte.util;
+
+import com.urutte.service.TokenVerificationService;
+import com.urutte.service.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checks done on every authenticated request.
+ *
+ * Before JwtUtil built its key and parser once, the suite's first run (recorded as
+ * benchmarks/baseline.json, since replaced by benchmarks/first-run.json) measured extractUserId at
+ * 577 us/op and validateToken at 634 us/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private TokenVerificationService tokenVerificationService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "benchmark-secret-key-that-is-long-enough");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86400000L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken("user-123", "user@example.com");
+
+        tokenVerificationService = new TokenVerificationService();
+        ReflectionTestUtils.setField(tokenVerificationService, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(tokenVerificationService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tokenVerificationService, "maxSize", 10000L);
+        ReflectionTestUtils.setField(tokenVerificationService, "ttlSeconds", 300L);
+        tokenVerificationService.initCache();
+    }
+
+    @Benchmark
+    public String extractUserId() {
+        return jwtUtil.extractUserId(token);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    // What JwtAuthenticationFilter does per request: a token seen before is a hash and a cache lookup
+    @Benchmark
+    public VerifiedToken verifyCached() {
+        return tokenVerificationService.verify(token);
+    }
+}
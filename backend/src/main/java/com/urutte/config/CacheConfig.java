@@ -0,0 +1,109 @@
+package com.urutte.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urutte.dto.UserDto;
+import com.urutte.model.User;
+import com.urutte.service.HotDataCache;
+import com.urutte.service.SharedCacheStore;
+import com.urutte.service.ThreadSnapshot;
+import com.urutte.service.TwoTierCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read-through caches for hot threads and user profiles (see HotDataCache).
+ *
+ * Each cache is a bounded Caffeine cache weighed by estimated bytes, so the memory budget holds
+ * whatever the size of the cached values. Hit, miss, eviction and size metrics are published as
+ * cache.gets / cache.evictions / cache.size with a cache tag (/actuator/metrics). A SharedCacheStore
+ * bean, when present, adds a second tier shared across nodes; authenticatedUsers holds JPA entities
+ * and stays local to the node.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Value("${app.cache.thread-snapshots.max-bytes:67108864}")
+    private long threadSnapshotsMaxBytes;
+
+    @Value("${app.cache.thread-snapshots.ttl-seconds:300}")
+    private long threadSnapshotsTtlSeconds;
+
+    @Value("${app.cache.user-summaries.max-bytes:16777216}")
+    private long userSummariesMaxBytes;
+
+    @Value("${app.cache.user-summaries.ttl-seconds:600}")
+    private long userSummariesTtlSeconds;
+
+    @Value("${app.cache.user-counts.max-bytes:8388608}")
+    private long userCountsMaxBytes;
+
+    @Value("${app.cache.user-counts.ttl-seconds:300}")
+    private long userCountsTtlSeconds;
+
+    @Value("${app.cache.authenticated-users.max-bytes:8388608}")
+    private long authenticatedUsersMaxBytes;
+
+    @Value("${app.cache.authenticated-users.ttl-seconds:30}")
+    private long authenticatedUsersTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager(MeterRegistry meterRegistry, ObjectProvider<SharedCacheStore> sharedCacheStore) {
+        SharedCacheStore shared = sharedCacheStore.getIfAvailable();
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+            cache(HotDataCache.THREAD_SNAPSHOTS, threadSnapshotsMaxBytes, threadSnapshotsTtlSeconds, shared, meterRegistry),
+            cache(HotDataCache.USER_SUMMARIES, userSummariesMaxBytes, userSummariesTtlSeconds, shared, meterRegistry),
+            cache(HotDataCache.USER_COUNTS, userCountsMaxBytes, userCountsTtlSeconds, shared, meterRegistry),
+            cache(HotDataCache.AUTHENTICATED_USERS, authenticatedUsersMaxBytes, authenticatedUsersTtlSeconds, null, meterRegistry)
+        ));
+        return cacheManager;
+    }
+
+    private TwoTierCache cache(String name, long maxBytes, long ttlSeconds, SharedCacheStore shared,
+                               MeterRegistry meterRegistry) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        Cache<Object, Object> local = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Object key, Object value) -> estimateBytes(value))
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name);
+        return new TwoTierCache(name, local, shared, ttl);
+    }
+
+    // Approximate heap footprint of a cached value
+    static int estimateBytes(Object value) {
+        if (value instanceof ThreadSnapshot snapshot) {
+            return snapshot.getEstimatedBytes();
+        }
+        if (value instanceof UserDto user) {
+            return 256 + chars(user.getId()) + chars(user.getName()) + chars(user.getEmail())
+                + chars(user.getUsername()) + chars(user.getPicture()) + chars(user.getCoverPhoto())
+                + chars(user.getBio()) + chars(user.getLocation()) + chars(user.getWebsite())
+                + chars(user.getPhoneNumber()) + chars(user.getDateOfBirth()) + chars(user.getGender());
+        }
+        if (value instanceof User user) {
+            return 512 + chars(user.getId()) + chars(user.getName()) + chars(user.getEmail())
+                + chars(user.getUsername()) + chars(user.getPicture()) + chars(user.getCoverPhoto())
+                + chars(user.getBio()) + chars(user.getPassword());
+        }
+        return 64;
+    }
+
+    private static int chars(String value) {
+        return value != null ? value.length() * 2 : 0;
+    }
+}
@@ -37,8 +37,10 @@ public class CorsFilter implements Filter {
         
         response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS, PATCH, HEAD");
         response.setHeader("Access-Control-Max-Age", "3600");
-        response.setHeader("Access-Control-Allow-Headers", "Authorization, Content-Type, Accept, Origin");
-        response.setHeader("Access-Control-Expose-Headers", "Authorization, Content-Type");
+        response.setHeader("Access-Control-Allow-Headers", "Authorization, Content-Type, Accept, Origin, " +
+            "Tus-Resumable, Upload-Length, Upload-Offset, Upload-Metadata, Upload-Checksum");
+        response.setHeader("Access-Control-Expose-Headers", "Authorization, Content-Type, Location, " +
+            "Tus-Resumable, Upload-Offset, Upload-Length, Upload-Expires, Video-Url");
 
         if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
             response.setStatus(HttpServletResponse.SC_OK);
@@ -1,6 +1,7 @@
 package com.urutte.config;
 
-import com.urutte.util.JwtUtil;
+import com.urutte.service.TokenVerificationService;
+import com.urutte.service.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,8 +9,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -21,7 +20,7 @@ import java.util.ArrayList;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     @Autowired
-    private JwtUtil jwtUtil;
+    private TokenVerificationService tokenVerificationService;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -29,25 +28,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authorizationHeader = request.getHeader("Authorization");
         
-        String userId = null;
-        String jwt = null;
-        
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            try {
-                userId = jwtUtil.extractUserId(jwt);
-            } catch (Exception e) {
-                logger.warn("JWT token is invalid: " + e.getMessage());
-            }
-        }
-        
-        if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(jwt)) {
-                // Create a simple authentication token
-                UsernamePasswordAuthenticationToken authToken = 
-                    new UsernamePasswordAuthenticationToken(userId, null, new ArrayList<>());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            // One verification per request (usually a cache hit); the result is published for the
+            // controllers so they do not parse the token again
+            VerifiedToken verified = tokenVerificationService.verify(authorizationHeader.substring(7));
+            if (verified == null) {
+                logger.warn("JWT token is invalid or expired");
+            } else {
+                request.setAttribute(TokenVerificationService.REQUEST_ATTRIBUTE, verified);
+                if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                    // Create a simple authentication token
+                    UsernamePasswordAuthenticationToken authToken = 
+                        new UsernamePasswordAuthenticationToken(verified.getUserId(), null, new ArrayList<>());
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                }
             }
         }
         
@@ -1,12 +1,15 @@
 package com.urutte.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -17,6 +20,15 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${app.upload.profile-dir:./uploads/profiles}")
     private String profileUploadDir;
     
+    @Autowired
+    private CurrentUserArgumentResolver currentUserArgumentResolver;
+    
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        // @CurrentUser User parameters
+        resolvers.add(currentUserArgumentResolver);
+    }
+    
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Serve uploaded files
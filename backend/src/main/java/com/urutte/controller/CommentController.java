@@ -1,14 +1,12 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
 import com.urutte.dto.CommentDto;
 import com.urutte.model.User;
 import com.urutte.service.CommentService;
-import com.urutte.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Base64;
@@ -22,29 +20,13 @@ public class CommentController {
     @Autowired
     private CommentService commentService;
     
-    @Autowired
-    private UserService userService;
-    
-    // Helper method to get user from either token or OAuth
-    private User getCurrentUser(String authHeader, OidcUser principal) {
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            return userService.getUserFromToken(token);
-        } else if (principal != null) {
-            return userService.getOrCreateUser(principal);
-        }
-        return null;
-    }
-    
     @GetMapping("/{postId}/comments")
     public ResponseEntity<Page<CommentDto>> getComments(
             @PathVariable Long postId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -57,10 +39,8 @@ public class CommentController {
     public ResponseEntity<CommentDto> createComment(
             @PathVariable Long postId,
             @RequestBody CreateCommentRequest request,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -73,11 +53,9 @@ public class CommentController {
     public ResponseEntity<CommentDto> createReply(
             @PathVariable Long commentId,
             @RequestBody CreateCommentRequest request,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
         try {
-            User user = getCurrentUser(authHeader, principal);
             if (user == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -94,10 +72,8 @@ public class CommentController {
     @GetMapping("/comments/{commentId}/replies")
     public ResponseEntity<List<CommentDto>> getReplies(
             @PathVariable Long commentId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -109,11 +85,9 @@ public class CommentController {
     @DeleteMapping("/comments/{commentId}")
     public ResponseEntity<Map<String, Object>> deleteComment(
             @PathVariable Long commentId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
         try {
-            User user = getCurrentUser(authHeader, principal);
             if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
             }
@@ -134,11 +108,9 @@ public class CommentController {
     @PostMapping("/comments/{commentId}/like")
     public ResponseEntity<CommentDto> likeComment(
             @PathVariable Long commentId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
         try {
-            User user = getCurrentUser(authHeader, principal);
             if (user == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -1,15 +1,13 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
 import com.urutte.dto.CreateEventDto;
 import com.urutte.dto.EventDto;
 import com.urutte.model.User;
 import com.urutte.service.EventService;
-import com.urutte.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -19,13 +17,9 @@ public class EventController {
     @Autowired
     private EventService eventService;
 
-    @Autowired
-    private UserService userService;
-
     @PostMapping
     public ResponseEntity<EventDto> createEvent(@RequestBody CreateEventDto createEventDto,
-                                             @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                             @CurrentUser User user) {
         EventDto event = eventService.createEvent(createEventDto, user.getId());
         return ResponseEntity.ok(event);
     }
@@ -33,16 +27,14 @@ public class EventController {
     @GetMapping
     public ResponseEntity<Page<EventDto>> getAllEvents(@RequestParam(defaultValue = "0") int page,
                                                      @RequestParam(defaultValue = "20") int size,
-                                                     @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                     @CurrentUser User user) {
         Page<EventDto> events = eventService.getAllEvents(user.getId(), page, size);
         return ResponseEntity.ok(events);
     }
 
     @GetMapping("/{eventId}")
     public ResponseEntity<EventDto> getEventById(@PathVariable Long eventId,
-                                               @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                               @CurrentUser User user) {
         EventDto event = eventService.getEventById(eventId, user.getId());
         return ResponseEntity.ok(event);
     }
@@ -50,8 +42,7 @@ public class EventController {
     @GetMapping("/upcoming")
     public ResponseEntity<Page<EventDto>> getUpcomingEvents(@RequestParam(defaultValue = "0") int page,
                                                          @RequestParam(defaultValue = "20") int size,
-                                                         @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                         @CurrentUser User user) {
         Page<EventDto> events = eventService.getUpcomingEvents(user.getId(), page, size);
         return ResponseEntity.ok(events);
     }
@@ -60,8 +51,7 @@ public class EventController {
     public ResponseEntity<Page<EventDto>> getEventsByCategory(@PathVariable String category,
                                                            @RequestParam(defaultValue = "0") int page,
                                                            @RequestParam(defaultValue = "20") int size,
-                                                           @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                           @CurrentUser User user) {
         Page<EventDto> events = eventService.getEventsByCategory(category, user.getId(), page, size);
         return ResponseEntity.ok(events);
     }
@@ -69,8 +59,7 @@ public class EventController {
     @GetMapping("/free")
     public ResponseEntity<Page<EventDto>> getFreeEvents(@RequestParam(defaultValue = "0") int page,
                                                      @RequestParam(defaultValue = "20") int size,
-                                                     @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                     @CurrentUser User user) {
         Page<EventDto> events = eventService.getFreeEvents(user.getId(), page, size);
         return ResponseEntity.ok(events);
     }
@@ -78,8 +67,7 @@ public class EventController {
     @GetMapping("/paid")
     public ResponseEntity<Page<EventDto>> getPaidEvents(@RequestParam(defaultValue = "0") int page,
                                                       @RequestParam(defaultValue = "20") int size,
-                                                      @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                      @CurrentUser User user) {
         Page<EventDto> events = eventService.getPaidEvents(user.getId(), page, size);
         return ResponseEntity.ok(events);
     }
@@ -88,8 +76,7 @@ public class EventController {
     public ResponseEntity<Page<EventDto>> searchEvents(@RequestParam String q,
                                                      @RequestParam(defaultValue = "0") int page,
                                                      @RequestParam(defaultValue = "20") int size,
-                                                     @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                     @CurrentUser User user) {
         Page<EventDto> events = eventService.searchEvents(q, user.getId(), page, size);
         return ResponseEntity.ok(events);
     }
@@ -97,16 +84,14 @@ public class EventController {
     @GetMapping("/trending")
     public ResponseEntity<Page<EventDto>> getTrendingEvents(@RequestParam(defaultValue = "0") int page,
                                                          @RequestParam(defaultValue = "20") int size,
-                                                         @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                         @CurrentUser User user) {
         Page<EventDto> events = eventService.getTrendingEvents(user.getId(), page, size);
         return ResponseEntity.ok(events);
     }
 
     @PostMapping("/{eventId}/attend")
     public ResponseEntity<EventDto> toggleAttendance(@PathVariable Long eventId,
-                                                   @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                   @CurrentUser User user) {
         EventDto event = eventService.toggleAttendance(eventId, user.getId());
         return ResponseEntity.ok(event);
     }
@@ -1,11 +1,11 @@
 package com.urutte.controller;
 
 import com.urutte.service.FileUploadService;
+import com.urutte.service.MediaFile;
+import com.urutte.service.MediaFileSender;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
@@ -23,6 +23,9 @@ public class FileUploadController {
     @Autowired
     private FileUploadService fileUploadService;
     
+    @Autowired
+    private MediaFileSender mediaFileSender;
+    
     @PostMapping("/video")
     public ResponseEntity<Map<String, String>> uploadVideo(
             @RequestParam("video") MultipartFile file,
@@ -57,34 +60,29 @@ public class FileUploadController {
     }
     
     @GetMapping("/images/{filename:.+}")
-    public ResponseEntity<Resource> getImage(@PathVariable String filename) {
+    public void getImage(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        MediaFile image;
         try {
-            byte[] imageData = fileUploadService.getImage(filename);
-            ByteArrayResource resource = new ByteArrayResource(imageData);
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("image/jpeg"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(resource);
-                    
+            image = fileUploadService.getImageFile(filename);
         } catch (IOException e) {
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        mediaFileSender.send(image, request, response);
     }
     
+    // Supports Range requests, so players can seek without downloading the whole video
     @GetMapping("/videos/{filename:.+}")
-    public ResponseEntity<Resource> getVideo(@PathVariable String filename) {
+    public void getVideo(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        MediaFile video;
         try {
-            byte[] videoData = fileUploadService.getVideo(filename);
-            ByteArrayResource resource = new ByteArrayResource(videoData);
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("video/mp4"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(resource);
-                    
+            video = fileUploadService.getVideoFile(filename);
         } catch (IOException e) {
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        mediaFileSender.send(video, request, response);
     }
 }
@@ -2,6 +2,8 @@ package com.urutte.controller;
 
 import com.urutte.model.Hashtag;
 import com.urutte.repository.HashtagRepository;
+import com.urutte.service.TrendingService;
+import com.urutte.service.TrendingWindow;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,6 +20,9 @@ public class HashtagController {
 
     @Autowired
     private HashtagRepository hashtagRepository;
+    
+    @Autowired
+    private TrendingService trendingService;
 
     // Get hashtag suggestions based on partial input
     @GetMapping("/suggestions")
@@ -30,12 +35,7 @@ public class HashtagController {
         try {
             if (query == null || query.trim().isEmpty()) {
                 // Return trending hashtags if no query
-                List<Hashtag> trendingHashtags = hashtagRepository.findTrendingHashtags();
-                List<String> suggestions = trendingHashtags.stream()
-                    .limit(limit)
-                    .map(Hashtag::getTag)
-                    .collect(Collectors.toList());
-                return ResponseEntity.ok(suggestions);
+                return ResponseEntity.ok(trendingHashtags(TrendingWindow.DAY, limit));
             }
             
             // Search for hashtags containing the query
@@ -57,17 +57,14 @@ public class HashtagController {
     @GetMapping("/trending")
     public ResponseEntity<List<String>> getTrendingHashtags(
             @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "window", required = false) String window,
             @RequestHeader(value = "Authorization", required = false) String authHeader,
             @AuthenticationPrincipal OidcUser principal) {
         
         try {
-            List<Hashtag> trendingHashtags = hashtagRepository.findTrendingHashtags();
-            List<String> suggestions = trendingHashtags.stream()
-                .limit(limit)
-                .map(Hashtag::getTag)
-                .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(suggestions);
+            return ResponseEntity.ok(trendingHashtags(TrendingWindow.fromParam(window), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             System.err.println("Error getting trending hashtags: " + e.getMessage());
             e.printStackTrace();
@@ -96,4 +93,15 @@ public class HashtagController {
             return ResponseEntity.status(500).build();
         }
     }
+
+    // Hashtags with the highest decayed usage in the window; all-time usage until any is recorded
+    private List<String> trendingHashtags(TrendingWindow window, int limit) {
+        if (trendingService.hasHashtagScores(window)) {
+            return trendingService.getTrendingHashtags(window, limit);
+        }
+        return hashtagRepository.findTrendingHashtags().stream()
+            .limit(limit)
+            .map(Hashtag::getTag)
+            .collect(Collectors.toList());
+    }
 }
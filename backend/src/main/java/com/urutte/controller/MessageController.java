@@ -1,18 +1,17 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
+import com.urutte.dto.ConversationDto;
+import com.urutte.dto.CursorPageDto;
 import com.urutte.dto.MessageDto;
 import com.urutte.dto.UserDto;
 import com.urutte.model.Message;
 import com.urutte.model.User;
 import com.urutte.service.MessageService;
-import com.urutte.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,29 +23,13 @@ public class MessageController {
     @Autowired
     private MessageService messageService;
 
-    @Autowired
-    private UserService userService;
-
-    // Helper method to get user from either token or OAuth
-    private User getCurrentUser(String authHeader, OidcUser principal) {
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            return userService.getUserFromToken(token);
-        } else if (principal != null) {
-            return userService.getOrCreateUser(principal);
-        }
-        return null;
-    }
-
     @GetMapping("/conversation/{userId}")
     public ResponseEntity<List<MessageDto>> getConversation(
             @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
-        User currentUser = getCurrentUser(authHeader, principal);
         if (currentUser == null) {
             return ResponseEntity.status(401).build();
         }
@@ -55,28 +38,55 @@ public class MessageController {
         return ResponseEntity.ok(messages);
     }
 
+    @GetMapping("/conversation/{userId}/cursor")
+    public ResponseEntity<CursorPageDto<MessageDto>> getConversationByCursor(
+            @PathVariable String userId,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(defaultValue = "50") int size,
+            @CurrentUser User currentUser) {
+        
+        if (currentUser == null) {
+            return ResponseEntity.status(401).build();
+        }
+        
+        return ResponseEntity.ok(messageService.getConversationBefore(currentUser.getId(), userId, before, size));
+    }
+
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         return ResponseEntity.ok("Test endpoint working");
     }
 
     @GetMapping("/conversations")
-    public ResponseEntity<List<UserDto>> getConversationPartners() {
+    public ResponseEntity<List<UserDto>> getConversationPartners(
+            @CurrentUser User user) {
         
-        // TEMPORARY FIX: Return empty list to avoid Hibernate ClassCastException
-        // ISSUE: Hibernate ClassCastException when loading User entity
-        // ROOT CAUSE: Conflicting entity mappings between old and new schema
-        // TODO: Fix the Hibernate mapping issue by cleaning up entity relationships
-        List<UserDto> partners = new ArrayList<>();
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        
+        List<UserDto> partners = messageService.getConversationPartners(user.getId());
         return ResponseEntity.ok(partners);
     }
 
+    @GetMapping("/inbox")
+    public ResponseEntity<List<ConversationDto>> getInbox(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @CurrentUser User user) {
+        
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        
+        List<ConversationDto> inbox = messageService.getInbox(user.getId(), page, size);
+        return ResponseEntity.ok(inbox);
+    }
+
     @GetMapping("/unread")
     public ResponseEntity<List<MessageDto>> getUnreadMessages(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -87,10 +97,8 @@ public class MessageController {
 
     @GetMapping({"/unread/count", "/unread-count"})
     public ResponseEntity<Map<String, Long>> getUnreadMessageCount(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -104,27 +112,24 @@ public class MessageController {
     }
 
     @PutMapping("/mark-read/{senderId}")
-    public ResponseEntity<Void> markMessagesAsRead(
+    public ResponseEntity<Map<String, Long>> markMessagesAsRead(
             @PathVariable String senderId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @RequestParam(required = false) Long upTo,
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
         
-        messageService.markMessagesAsRead(user.getId(), senderId);
-        return ResponseEntity.ok().build();
+        long marked = messageService.markMessagesAsRead(user.getId(), senderId, upTo);
+        return ResponseEntity.ok(Map.of("marked", marked));
     }
 
     @PostMapping
     public ResponseEntity<MessageDto> sendMessage(
             @RequestBody SendMessageRequest request,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -1,15 +1,17 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
 import com.urutte.dto.NotificationDto;
 import com.urutte.model.User;
 import com.urutte.service.NotificationService;
-import com.urutte.service.UserService;
+import com.urutte.service.PushHub;
+import com.urutte.service.UnreadNotificationCounter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Base64;
 import java.util.HashMap;
@@ -24,27 +26,31 @@ public class NotificationController {
     private NotificationService notificationService;
 
     @Autowired
-    private UserService userService;
+    private PushHub pushHub;
 
-    // Helper method to get user from either token or OAuth
-    private User getCurrentUser(String authHeader, OidcUser principal) {
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            return userService.getUserFromToken(token);
-        } else if (principal != null) {
-            return userService.getOrCreateUser(principal);
+    // Replaces polling /unread-count: "notification" events carry new notifications, "unread" events
+    // the unread count (the full count on connect, then deltas with the new count). Reconnecting
+    // clients send Last-Event-ID to get what they missed
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @CurrentUser User user) {
+        
+        if (user == null) {
+            return null;
         }
-        return null;
+        
+        return pushHub.subscribe(PushHub.NOTIFICATIONS, user.getId(), lastEventId,
+            UnreadNotificationCounter.UNREAD_EVENT,
+            () -> Map.of("count", notificationService.getUnreadNotificationCount(user.getId())));
     }
 
     @GetMapping
     public ResponseEntity<Page<NotificationDto>> getNotifications(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -55,10 +61,8 @@ public class NotificationController {
 
     @GetMapping("/unread")
     public ResponseEntity<List<NotificationDto>> getUnreadNotifications(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -70,10 +74,8 @@ public class NotificationController {
     // Support both /unread/count and /unread-count endpoints
     @GetMapping({"/unread/count", "/unread-count"})
     public ResponseEntity<Map<String, Long>> getUnreadNotificationCount(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -90,10 +92,8 @@ public class NotificationController {
     @PutMapping("/{notificationId}/read")
     public ResponseEntity<NotificationDto> markAsRead(
             @PathVariable Long notificationId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -103,16 +103,15 @@ public class NotificationController {
     }
 
     @PutMapping("/mark-all-read")
-    public ResponseEntity<Void> markAllAsRead(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+    public ResponseEntity<Map<String, Long>> markAllAsRead(
+            @RequestParam(required = false) Long upTo,
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
         
-        notificationService.markAllAsRead(user.getId());
-        return ResponseEntity.ok().build();
+        long marked = notificationService.markAllAsRead(user.getId(), upTo);
+        return ResponseEntity.ok(Map.of("marked", marked));
     }
 }
@@ -1,17 +1,15 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
 import com.urutte.dto.CreatePostDto;
 import com.urutte.dto.PostDto;
 import com.urutte.dto.QuoteRepostRequest;
 import com.urutte.model.User;
 import com.urutte.service.PostService;
-import com.urutte.service.UserService;
 import com.urutte.service.FileUploadService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -27,23 +25,9 @@ public class PostController {
     @Autowired
     private PostService postService;
     
-    @Autowired
-    private UserService userService;
-    
     @Autowired
     private FileUploadService fileUploadService;
     
-    // Helper method to get user from either token or OAuth
-    private User getCurrentUser(String authHeader, OidcUser principal) {
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            return userService.getUserFromToken(token);
-        } else if (principal != null) {
-            return userService.getOrCreateUser(principal);
-        }
-        return null;
-    }
-
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         System.out.println("=== TEST ENDPOINT CALLED ===");
@@ -53,13 +37,11 @@ public class PostController {
     @PostMapping
     public ResponseEntity<PostDto> createPost(
             @RequestBody CreatePostDto createPostDto,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
         System.out.println("=== POST REQUEST RECEIVED ===");
         System.out.println("Content: " + createPostDto.getContent());
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             System.out.println("ERROR: No authentication found!");
             return ResponseEntity.status(401).build();
@@ -78,10 +60,8 @@ public class PostController {
             @RequestParam("content") String content,
             @RequestParam(value = "media", required = false) MultipartFile media,
             @RequestParam(value = "parentPostId", required = false) Long parentPostId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -146,8 +126,7 @@ public class PostController {
     @GetMapping
     public ResponseEntity<Page<PostDto>> getAllPosts(@RequestParam(defaultValue = "0") int page,
                                                    @RequestParam(defaultValue = "20") int size,
-                                                   @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                   @CurrentUser User user) {
         Page<PostDto> posts = postService.getAllPosts(user.getId(), page, size);
         return ResponseEntity.ok(posts);
     }
@@ -156,10 +135,8 @@ public class PostController {
     public ResponseEntity<Page<PostDto>> getFeed(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -171,10 +148,8 @@ public class PostController {
     @GetMapping("/{postId}")
     public ResponseEntity<PostDto> getPostById(
             @PathVariable Long postId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -185,9 +160,7 @@ public class PostController {
     
     @GetMapping("/{postId}/replies")
     public ResponseEntity<List<PostDto>> getReplies(@PathVariable Long postId,
-                                                  @RequestHeader(value = "Authorization", required = false) String authHeader,
-                                                  @AuthenticationPrincipal OidcUser principal) {
-        User user = getCurrentUser(authHeader, principal);
+                                                  @CurrentUser User user) {
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -199,10 +172,8 @@ public class PostController {
     @PostMapping("/{postId}/like")
     public ResponseEntity<PostDto> likePost(
             @PathVariable Long postId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -213,9 +184,7 @@ public class PostController {
     
     @PostMapping("/{postId}/repost")
     public ResponseEntity<PostDto> repost(@PathVariable Long postId,
-                                        @RequestHeader(value = "Authorization", required = false) String authHeader,
-                                        @AuthenticationPrincipal OidcUser principal) {
-        User user = getCurrentUser(authHeader, principal);
+                                        @CurrentUser User user) {
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -228,18 +197,15 @@ public class PostController {
     public ResponseEntity<Page<PostDto>> searchPosts(@RequestParam String q,
                                                    @RequestParam(defaultValue = "0") int page,
                                                    @RequestParam(defaultValue = "20") int size,
-                                                   @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                   @CurrentUser User user) {
         Page<PostDto> posts = postService.searchPosts(q, user.getId(), page, size);
         return ResponseEntity.ok(posts);
     }
     
     @DeleteMapping("/{postId}")
     public ResponseEntity<Map<String, Object>> deletePost(@PathVariable Long postId,
-                                                         @RequestHeader(value = "Authorization", required = false) String authHeader,
-                                                         @AuthenticationPrincipal OidcUser principal) {
+                                                         @CurrentUser User currentUser) {
         try {
-            User currentUser = getCurrentUser(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
             }
@@ -258,10 +224,8 @@ public class PostController {
     @PostMapping("/quote-repost")
     public ResponseEntity<PostDto> createQuoteRepost(
             @RequestBody QuoteRepostRequest request,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -279,10 +243,8 @@ public class PostController {
     
     @PostMapping("/migrate-thread-hierarchy")
     public ResponseEntity<Map<String, String>> migrateThreadHierarchy(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -1,15 +1,13 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
 import com.urutte.dto.CreateProductDto;
 import com.urutte.dto.ProductDto;
 import com.urutte.model.User;
 import com.urutte.service.ProductService;
-import com.urutte.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -22,13 +20,9 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
-    @Autowired
-    private UserService userService;
-
     @PostMapping
     public ResponseEntity<ProductDto> createProduct(@RequestBody CreateProductDto createProductDto,
-                                                  @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                  @CurrentUser User user) {
         ProductDto product = productService.createProduct(createProductDto, user.getId());
         return ResponseEntity.ok(product);
     }
@@ -36,16 +30,14 @@ public class ProductController {
     @GetMapping
     public ResponseEntity<Page<ProductDto>> getAllProducts(@RequestParam(defaultValue = "0") int page,
                                                          @RequestParam(defaultValue = "20") int size,
-                                                         @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                         @CurrentUser User user) {
         Page<ProductDto> products = productService.getAllProducts(user.getId(), page, size);
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/{productId}")
     public ResponseEntity<ProductDto> getProductById(@PathVariable Long productId,
-                                                   @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                   @CurrentUser User user) {
         ProductDto product = productService.getProductById(productId, user.getId());
         return ResponseEntity.ok(product);
     }
@@ -54,8 +46,7 @@ public class ProductController {
     public ResponseEntity<Page<ProductDto>> getProductsByCategory(@PathVariable String category,
                                                                 @RequestParam(defaultValue = "0") int page,
                                                                 @RequestParam(defaultValue = "20") int size,
-                                                                @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                                @CurrentUser User user) {
         Page<ProductDto> products = productService.getProductsByCategory(category, user.getId(), page, size);
         return ResponseEntity.ok(products);
     }
@@ -64,8 +55,7 @@ public class ProductController {
     public ResponseEntity<Page<ProductDto>> searchProducts(@RequestParam String q,
                                                          @RequestParam(defaultValue = "0") int page,
                                                          @RequestParam(defaultValue = "20") int size,
-                                                         @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                         @CurrentUser User user) {
         Page<ProductDto> products = productService.searchProducts(q, user.getId(), page, size);
         return ResponseEntity.ok(products);
     }
@@ -75,8 +65,7 @@ public class ProductController {
                                                                   @RequestParam Double maxPrice,
                                                                   @RequestParam(defaultValue = "0") int page,
                                                                   @RequestParam(defaultValue = "20") int size,
-                                                                  @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                                  @CurrentUser User user) {
         Page<ProductDto> products = productService.getProductsByPriceRange(minPrice, maxPrice, user.getId(), page, size);
         return ResponseEntity.ok(products);
     }
@@ -84,16 +73,14 @@ public class ProductController {
     @GetMapping("/trending")
     public ResponseEntity<Page<ProductDto>> getTrendingProducts(@RequestParam(defaultValue = "0") int page,
                                                               @RequestParam(defaultValue = "20") int size,
-                                                              @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                              @CurrentUser User user) {
         Page<ProductDto> products = productService.getTrendingProducts(user.getId(), page, size);
         return ResponseEntity.ok(products);
     }
 
     @PostMapping("/{productId}/favorite")
     public ResponseEntity<ProductDto> toggleFavorite(@PathVariable Long productId,
-                                                   @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                   @CurrentUser User user) {
         ProductDto product = productService.toggleFavorite(productId, user.getId());
         return ResponseEntity.ok(product);
     }
@@ -102,8 +89,7 @@ public class ProductController {
     public ResponseEntity<Map<String, Object>> addReview(@PathVariable Long productId,
                                                        @RequestParam Integer rating,
                                                        @RequestParam String comment,
-                                                       @AuthenticationPrincipal OidcUser principal) {
-        User user = userService.getOrCreateUser(principal);
+                                                       @CurrentUser User user) {
         Map<String, Object> response = new HashMap<>();
         
         try {
@@ -0,0 +1,201 @@
+package com.urutte.controller;
+
+import com.urutte.config.CurrentUser;
+import com.urutte.exception.UploadProtocolException;
+import com.urutte.model.UploadSession;
+import com.urutte.model.User;
+import com.urutte.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * tus 1.0 endpoints for resumable video uploads: POST creates an upload, HEAD reports its offset,
+ * PATCH appends a chunk (Content-Type application/offset+octet-stream) and DELETE abandons it.
+ * When the last chunk lands the response carries Video-Url, served by GET /api/upload/videos/{filename}.
+ * If storing the finished video fails, the client repeats the PATCH with an empty body at the final offset.
+ * OPTIONS is answered by CorsFilter, so capability discovery is not offered.
+ */
+@RestController
+@RequestMapping("/api/upload/resumable")
+public class ResumableUploadController {
+
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String OFFSET_CONTENT_TYPE = "application/offset+octet-stream";
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public ResponseEntity<Map<String, String>> create(
+            @RequestHeader(value = "Tus-Resumable", required = false) String tusResumable,
+            @RequestHeader(value = "Upload-Length", required = false) Long uploadLength,
+            @RequestHeader(value = "Upload-Metadata", required = false) String uploadMetadata,
+            @CurrentUser User user) {
+
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+
+        try {
+            checkVersion(tusResumable);
+            if (uploadLength == null) {
+                throw new UploadProtocolException(400, "Upload-Length is required");
+            }
+            Map<String, String> metadata = parseMetadata(uploadMetadata);
+            UploadSession session = resumableUploadService.create(user.getId(), uploadLength,
+                metadata.get("filename"), metadata.get("filetype"));
+
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}").buildAndExpand(session.getId()).toUri();
+            return ResponseEntity.created(location).headers(headers(session)).build();
+
+        } catch (UploadProtocolException e) {
+            return error(e);
+        }
+    }
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Map<String, String>> offset(
+            @PathVariable String id,
+            @RequestHeader(value = "Tus-Resumable", required = false) String tusResumable,
+            @CurrentUser User user) {
+
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+
+        try {
+            checkVersion(tusResumable);
+            UploadSession session = resumableUploadService.get(id, user.getId());
+            HttpHeaders headers = headers(session);
+            headers.set("Upload-Length", String.valueOf(session.getUploadLength()));
+            headers.setCacheControl("no-store");
+            return ResponseEntity.ok().headers(headers).build();
+
+        } catch (UploadProtocolException e) {
+            return error(e);
+        }
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<Map<String, String>> append(
+            @PathVariable String id,
+            @RequestHeader(value = "Tus-Resumable", required = false) String tusResumable,
+            @RequestHeader(value = "Upload-Offset", required = false) Long uploadOffset,
+            @RequestHeader(value = "Upload-Checksum", required = false) String uploadChecksum,
+            HttpServletRequest request,
+            @CurrentUser User user) {
+
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+
+        try {
+            checkVersion(tusResumable);
+            String contentType = request.getContentType();
+            if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith(OFFSET_CONTENT_TYPE)) {
+                throw new UploadProtocolException(415, "Content-Type must be " + OFFSET_CONTENT_TYPE);
+            }
+            if (uploadOffset == null) {
+                throw new UploadProtocolException(400, "Upload-Offset is required");
+            }
+            long contentLength = request.getContentLengthLong();
+            UploadSession session = resumableUploadService.writeChunk(id, user.getId(), uploadOffset,
+                contentLength >= 0 ? contentLength : null, uploadChecksum, request.getInputStream());
+            return ResponseEntity.noContent().headers(headers(session)).build();
+
+        } catch (UploadProtocolException e) {
+            return error(e);
+
+        } catch (IOException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Failed to receive chunk");
+            return ResponseEntity.status(500).header("Tus-Resumable", TUS_VERSION).body(response);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, String>> terminate(
+            @PathVariable String id,
+            @RequestHeader(value = "Tus-Resumable", required = false) String tusResumable,
+            @CurrentUser User user) {
+
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+
+        try {
+            checkVersion(tusResumable);
+            resumableUploadService.terminate(id, user.getId());
+            return ResponseEntity.noContent().header("Tus-Resumable", TUS_VERSION).build();
+
+        } catch (UploadProtocolException e) {
+            return error(e);
+
+        } catch (IOException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Failed to delete upload");
+            return ResponseEntity.status(500).header("Tus-Resumable", TUS_VERSION).body(response);
+        }
+    }
+
+    private static void checkVersion(String tusResumable) {
+        if (!TUS_VERSION.equals(tusResumable)) {
+            throw new UploadProtocolException(412, "Tus-Resumable must be " + TUS_VERSION);
+        }
+    }
+
+    private static HttpHeaders headers(UploadSession session) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Tus-Resumable", TUS_VERSION);
+        headers.set("Upload-Offset", String.valueOf(session.getUploadOffset()));
+        headers.set("Upload-Expires", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+            session.getExpiresAt().atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneId.of("GMT"))));
+        if (session.isComplete()) {
+            headers.set("Video-Url", "/api/upload/" + session.getVideoPath());
+        }
+        return headers;
+    }
+
+    private static ResponseEntity<Map<String, String>> error(UploadProtocolException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(e.getStatus()).header("Tus-Resumable", TUS_VERSION).body(response);
+    }
+
+    // Upload-Metadata is a comma-separated list of "key base64(value)" pairs
+    static Map<String, String> parseMetadata(String header) {
+        Map<String, String> metadata = new HashMap<>();
+        if (header == null || header.isBlank()) {
+            return metadata;
+        }
+        for (String pair : header.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            if (parts[0].isEmpty()) {
+                continue;
+            }
+            try {
+                String value = parts.length == 2
+                    ? new String(Base64.getDecoder().decode(parts[1].trim()), StandardCharsets.UTF_8) : "";
+                metadata.put(parts[0], value);
+            } catch (IllegalArgumentException e) {
+                throw new UploadProtocolException(400, "Invalid Upload-Metadata value for " + parts[0]);
+            }
+        }
+        return metadata;
+    }
+}
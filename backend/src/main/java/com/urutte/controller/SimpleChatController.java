@@ -1,23 +1,24 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
+import com.urutte.dto.ConversationDto;
+import com.urutte.dto.CursorPageDto;
 import com.urutte.dto.MessageDto;
 import com.urutte.dto.UserDto;
 import com.urutte.model.Message;
 import com.urutte.model.User;
 import com.urutte.service.MessageService;
+import com.urutte.service.PushHub;
 import com.urutte.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -29,28 +30,15 @@ public class SimpleChatController {
     @Autowired
     private UserService userService;
 
-    // Store active SSE connections for each user
-    private final Map<String, List<SseEmitter>> userConnections = new ConcurrentHashMap<>();
-
-    // Helper method to get user from auth
-    private User getCurrentUser(String authHeader, OidcUser principal) {
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            return userService.getUserFromToken(token);
-        } else if (principal != null) {
-            return userService.getOrCreateUser(principal);
-        }
-        return null;
-    }
+    @Autowired
+    private PushHub pushHub;
 
     // Send message via REST API
     @PostMapping("/send")
     public ResponseEntity<MessageDto> sendMessage(
             @RequestBody SendMessageRequest request,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User sender) {
         
-        User sender = getCurrentUser(authHeader, principal);
         if (sender == null) {
             return ResponseEntity.status(401).build();
         }
@@ -69,8 +57,8 @@ public class SimpleChatController {
                 request.getMediaUrl()
             );
 
-            // Send real-time notification via SSE
-            sendSSENotification(receiver.getId(), message);
+            // Send real-time notification via SSE (queued, delivered on whichever node the receiver is connected to)
+            pushHub.publish(PushHub.CHAT, receiver.getId(), "message", message);
 
             return ResponseEntity.ok(message);
         } catch (Exception e) {
@@ -86,10 +74,8 @@ public class SimpleChatController {
             @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
-        User currentUser = getCurrentUser(authHeader, principal);
         if (currentUser == null) {
             return ResponseEntity.status(401).build();
         }
@@ -98,13 +84,44 @@ public class SimpleChatController {
         return ResponseEntity.ok(messages);
     }
 
+    // Get conversation messages before a message ID (newest first); pass nextCursor back as before
+    @GetMapping("/conversation/{userId}/cursor")
+    public ResponseEntity<CursorPageDto<MessageDto>> getConversationByCursor(
+            @PathVariable String userId,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(defaultValue = "50") int size,
+            @CurrentUser User currentUser) {
+        
+        if (currentUser == null) {
+            return ResponseEntity.status(401).build();
+        }
+        
+        return ResponseEntity.ok(messageService.getConversationBefore(currentUser.getId(), userId, before, size));
+    }
+
+    // Export a whole conversation as NDJSON, oldest first, streamed from a database cursor
+    @GetMapping("/conversation/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> exportConversation(
+            @PathVariable String userId,
+            @CurrentUser User currentUser) {
+        
+        if (currentUser == null) {
+            return ResponseEntity.status(401).build();
+        }
+        
+        String currentUserId = currentUser.getId();
+        StreamingResponseBody body = outputStream -> messageService.exportConversation(currentUserId, userId, outputStream);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"conversation.ndjson\"")
+            .body(body);
+    }
+
     // Get conversation partners
     @GetMapping("/conversations")
     public ResponseEntity<List<UserDto>> getConversationPartners(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -113,45 +130,39 @@ public class SimpleChatController {
         return ResponseEntity.ok(partners);
     }
 
-    // SSE endpoint for real-time notifications
-    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamMessages(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+    // Inbox: conversations with last message and unread count, most recent first
+    @GetMapping("/inbox")
+    public ResponseEntity<List<ConversationDto>> getInbox(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
-            return null;
+            return ResponseEntity.status(401).build();
         }
-
-        SseEmitter emitter = new SseEmitter(30000L); // 30 second timeout
         
-        // Add this connection to the user's connections
-        userConnections.computeIfAbsent(user.getId(), k -> new CopyOnWriteArrayList<>()).add(emitter);
-        
-        // Cleanup on completion or error
-        emitter.onCompletion(() -> removeConnection(user.getId(), emitter));
-        emitter.onError(throwable -> removeConnection(user.getId(), emitter));
-        emitter.onTimeout(() -> removeConnection(user.getId(), emitter));
+        List<ConversationDto> inbox = messageService.getInbox(user.getId(), page, size);
+        return ResponseEntity.ok(inbox);
+    }
 
-        try {
-            emitter.send(SseEmitter.event()
-                .name("connected")
-                .data("Connected to chat stream"));
-        } catch (IOException e) {
-            removeConnection(user.getId(), emitter);
+    // SSE endpoint for real-time notifications; reconnecting clients send Last-Event-ID to get what they missed
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessages(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @CurrentUser User user) {
+        
+        if (user == null) {
+            return null;
         }
 
-        return emitter;
+        return pushHub.subscribe(PushHub.CHAT, user.getId(), lastEventId);
     }
 
     // Get unread message count
     @GetMapping("/unread-count")
     public ResponseEntity<Map<String, Long>> getUnreadCount(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -165,46 +176,17 @@ public class SimpleChatController {
 
     // Mark messages as read
     @PutMapping("/mark-read/{senderId}")
-    public ResponseEntity<Void> markMessagesAsRead(
+    public ResponseEntity<Map<String, Long>> markMessagesAsRead(
             @PathVariable String senderId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @RequestParam(required = false) Long upTo,
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
         
-        messageService.markMessagesAsRead(user.getId(), senderId);
-        return ResponseEntity.ok().build();
-    }
-
-    // Helper method to send SSE notification
-    private void sendSSENotification(String userId, MessageDto message) {
-        List<SseEmitter> connections = userConnections.get(userId);
-        if (connections != null) {
-            connections.removeIf(emitter -> {
-                try {
-                    emitter.send(SseEmitter.event()
-                        .name("message")
-                        .data(message));
-                    return false;
-                } catch (IOException e) {
-                    return true; // Remove failed connection
-                }
-            });
-        }
-    }
-
-    // Helper method to remove connection
-    private void removeConnection(String userId, SseEmitter emitter) {
-        List<SseEmitter> connections = userConnections.get(userId);
-        if (connections != null) {
-            connections.remove(emitter);
-            if (connections.isEmpty()) {
-                userConnections.remove(userId);
-            }
-        }
+        long marked = messageService.markMessagesAsRead(user.getId(), senderId, upTo);
+        return ResponseEntity.ok(Map.of("marked", marked));
     }
 
     // Request DTO
@@ -1,23 +1,31 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
+import com.urutte.dto.CursorPageDto;
 import com.urutte.dto.ThreadDto;
 import com.urutte.exception.ThreadAccessDeniedException;
 import com.urutte.model.ReactionType;
 import com.urutte.model.User;
+import com.urutte.service.MediaIngestService;
 import com.urutte.service.MediaUploadService;
+import com.urutte.service.StreamedUpload;
 import com.urutte.service.ThreadService;
-import com.urutte.service.UserService;
+import com.urutte.service.ThreadViewTracker;
+import com.urutte.service.TrendingWindow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/threads")
@@ -28,10 +36,16 @@ public class ThreadController {
     private ThreadService threadService;
     
     @Autowired
-    private UserService userService;
+    private MediaUploadService mediaUploadService;
     
     @Autowired
-    private MediaUploadService mediaUploadService;
+    private MediaIngestService mediaIngestService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ThreadViewTracker threadViewTracker;
     
     // Create a new thread
     @PostMapping
@@ -40,10 +54,8 @@ public class ThreadController {
             @RequestParam(value = "parentThreadId", required = false) Long parentThreadId,
             @RequestParam(value = "media", required = false) MultipartFile media,
             @RequestParam(value = "replyPermission", required = false, defaultValue = "ANYONE") String replyPermission,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -65,42 +77,43 @@ public class ThreadController {
         }
     }
     
-    // Create a new thread with multiple media files
+    // Create a new thread with multiple media files. The body is read as a stream (the multipart
+    // resolver is lazy), so files go straight to storage and the thread comes back with its media PROCESSING
     @PostMapping("/multiple-media")
     public ResponseEntity<ThreadDto> createThreadWithMultipleMedia(
-            @RequestParam("content") String content,
-            @RequestParam(value = "parentThreadId", required = false) Long parentThreadId,
-            @RequestParam(value = "media", required = false) List<MultipartFile> mediaFiles,
-            @RequestParam(value = "replyPermission", required = false, defaultValue = "ANYONE") String replyPermission,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            HttpServletRequest request,
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
         
+        StreamedUpload upload = null;
         try {
-            List<String> mediaUrls = null;
-            List<String> mediaTypes = null;
+            upload = mediaIngestService.receive(request.getInputStream(), request.getContentType());
             
-            if (mediaFiles != null && !mediaFiles.isEmpty()) {
-                mediaUrls = new java.util.ArrayList<>();
-                mediaTypes = new java.util.ArrayList<>();
-                
-                for (MultipartFile media : mediaFiles) {
-                    if (media != null && !media.isEmpty()) {
-                        String mediaUrl = mediaUploadService.uploadMedia(media);
-                        String mediaType = mediaUploadService.getMediaType(media);
-                        mediaUrls.add(mediaUrl);
-                        mediaTypes.add(mediaType);
-                    }
-                }
+            String content = upload.getField("content");
+            if (content == null) {
+                mediaIngestService.discard(upload);
+                return ResponseEntity.badRequest().build();
             }
+            String parentThreadId = upload.getField("parentThreadId");
+            String replyPermission = upload.getField("replyPermission");
             
-            ThreadDto thread = threadService.createThreadWithMedia(content, user.getId(), parentThreadId, mediaUrls, mediaTypes, replyPermission);
+            ThreadDto thread = threadService.createThreadWithStreamedMedia(content, user.getId(),
+                parentThreadId != null ? Long.valueOf(parentThreadId) : null,
+                upload.getMediaUrls(), upload.getMediaTypes(),
+                replyPermission != null ? replyPermission : "ANYONE");
             return ResponseEntity.ok(thread);
+        } catch (IllegalArgumentException e) {
+            if (upload != null) {
+                mediaIngestService.discard(upload);
+            }
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
+            if (upload != null) {
+                mediaIngestService.discard(upload);
+            }
             return ResponseEntity.status(500).build();
         }
     }
@@ -111,10 +124,8 @@ public class ThreadController {
             @RequestParam("content") String content,
             @RequestParam("quotedThreadId") Long quotedThreadId,
             @RequestParam(value = "media", required = false) MultipartFile media,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -141,14 +152,14 @@ public class ThreadController {
     public ResponseEntity<Page<ThreadDto>> getMainThreads(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user,
+            HttpServletRequest request) {
         
-        User user = getCurrentUser(authHeader, principal);
         String userId = user != null ? user.getId() : null;
         
         try {
             Page<ThreadDto> threads = threadService.getMainThreads(userId, page, size);
+            recordViews(threads.getContent(), userId, request);
             return ResponseEntity.ok(threads);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -160,14 +171,14 @@ public class ThreadController {
     public ResponseEntity<Page<ThreadDto>> getFeed(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user,
+            HttpServletRequest request) {
         
-        User user = getCurrentUser(authHeader, principal);
         String userId = user != null ? user.getId() : null;
         
         try {
             Page<ThreadDto> threads = threadService.getMainThreads(userId, page, size);
+            recordViews(threads.getContent(), userId, request);
             return ResponseEntity.ok(threads);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -178,14 +189,14 @@ public class ThreadController {
     @GetMapping("/{threadId}")
     public ResponseEntity<?> getThreadById(
             @PathVariable Long threadId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user,
+            HttpServletRequest request) {
         
-        User user = getCurrentUser(authHeader, principal);
         String userId = user != null ? user.getId() : null;
         
         try {
             ThreadDto thread = threadService.getThreadById(threadId, userId);
+            threadViewTracker.record(threadId, userId, request.getRemoteAddr(), request.getHeader("User-Agent"));
             return ResponseEntity.ok(thread);
         } catch (ThreadAccessDeniedException e) {
             Map<String, String> errorResponse = new HashMap<>();
@@ -202,10 +213,8 @@ public class ThreadController {
     public ResponseEntity<Page<ThreadDto>> getMyThreads(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -223,10 +232,8 @@ public class ThreadController {
     public ResponseEntity<ThreadDto> editThread(
             @PathVariable Long threadId,
             @RequestParam("content") String content,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -243,10 +250,8 @@ public class ThreadController {
     @GetMapping("/{threadId}/replies")
     public ResponseEntity<List<ThreadDto>> getThreadReplies(
             @PathVariable Long threadId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         String userId = user != null ? user.getId() : null;
         
         try {
@@ -257,14 +262,47 @@ public class ThreadController {
         }
     }
     
+    // Get a thread with its reply tree (replies nested in "replies"), up to depth levels below it
+    // and at most branches replies per node. The tree is written to the response as it is serialized.
+    @GetMapping("/{threadId}/conversation")
+    public ResponseEntity<?> getConversation(
+            @PathVariable Long threadId,
+            @RequestParam(value = "depth", defaultValue = "10") int depth,
+            @RequestParam(value = "branches", defaultValue = "50") int branches,
+            @CurrentUser User user,
+            HttpServletRequest request) {
+        
+        String userId = user != null ? user.getId() : null;
+        
+        try {
+            ThreadDto conversation = threadService.getConversation(threadId, userId, depth, branches);
+            threadViewTracker.record(threadId, userId, request.getRemoteAddr(), request.getHeader("User-Agent"));
+            StreamingResponseBody body = outputStream -> objectMapper.writeValue(outputStream, conversation);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (ThreadAccessDeniedException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "ACCESS_DENIED");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(403).body(errorResponse);
+        } catch (Exception e) {
+            return ResponseEntity.status(404).build();
+        }
+    }
+    
+    // Estimated number of distinct viewers (from the view tracker's sketch)
+    @GetMapping("/{threadId}/views")
+    public ResponseEntity<Map<String, Long>> getThreadViews(@PathVariable Long threadId) {
+        Map<String, Long> response = new HashMap<>();
+        response.put("uniqueViewers", threadViewTracker.estimateUniqueViewers(threadId));
+        return ResponseEntity.ok(response);
+    }
+    
     // Like a thread
     @PostMapping("/{threadId}/like")
     public ResponseEntity<Map<String, Object>> likeThread(
             @PathVariable Long threadId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -285,10 +323,8 @@ public class ThreadController {
     public ResponseEntity<Map<String, Object>> repostThread(
             @PathVariable Long threadId,
             @RequestParam(value = "quoteContent", required = false) String quoteContent,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -308,10 +344,8 @@ public class ThreadController {
     @PostMapping("/{threadId}/bookmark")
     public ResponseEntity<Map<String, Object>> bookmarkThread(
             @PathVariable Long threadId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -332,10 +366,8 @@ public class ThreadController {
     public ResponseEntity<Map<String, Object>> addReaction(
             @PathVariable Long threadId,
             @RequestParam("reactionType") String reactionType,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -357,10 +389,8 @@ public class ThreadController {
     @DeleteMapping("/{threadId}")
     public ResponseEntity<Map<String, String>> deleteThread(
             @PathVariable Long threadId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -382,10 +412,8 @@ public class ThreadController {
             @RequestParam("q") String keyword,
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         String userId = user != null ? user.getId() : null;
         
         try {
@@ -400,10 +428,8 @@ public class ThreadController {
     @GetMapping("/liked")
     public ResponseEntity<List<ThreadDto>> getLikedThreads(
             @RequestParam(value = "limit", defaultValue = "10") int limit,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
@@ -422,10 +448,8 @@ public class ThreadController {
             @PathVariable String hashtag,
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         String userId = user != null ? user.getId() : null;
         
         try {
@@ -441,28 +465,124 @@ public class ThreadController {
     public ResponseEntity<Page<ThreadDto>> getTrendingThreads(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @RequestParam(value = "window", required = false) String window,
+            @CurrentUser User user) {
         
-        User user = getCurrentUser(authHeader, principal);
         String userId = user != null ? user.getId() : null;
         
         try {
-            Page<ThreadDto> threads = threadService.getTrendingThreads(userId, page, size);
+            Page<ThreadDto> threads = threadService.getTrendingThreads(userId, TrendingWindow.fromParam(window), page, size);
             return ResponseEntity.ok(threads);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
     
-    // Helper method to get current user
-    private User getCurrentUser(String authHeader, OidcUser principal) {
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            return userService.getUserFromToken(token);
-        } else if (principal != null) {
-            return userService.getOrCreateUser(principal);
+    // Cursor-paginated variants of the listing endpoints. They take the opaque nextCursor returned
+    // by the previous call (omit it for the first page) and never run a COUNT query.
+    
+    // Get feed by cursor
+    @GetMapping("/feed/cursor")
+    public ResponseEntity<CursorPageDto<ThreadDto>> getFeedByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @CurrentUser User user,
+            HttpServletRequest request) {
+        
+        String userId = user != null ? user.getId() : null;
+        
+        try {
+            CursorPageDto<ThreadDto> threads = threadService.getMainThreadsByCursor(userId, cursor, size);
+            recordViews(threads.getContent(), userId, request);
+            return ResponseEntity.ok(threads);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
         }
-        return null;
+    }
+    
+    // Get user's own threads by cursor
+    @GetMapping("/my-threads/cursor")
+    public ResponseEntity<CursorPageDto<ThreadDto>> getMyThreadsByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @CurrentUser User user) {
+        
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        
+        try {
+            return ResponseEntity.ok(threadService.getUserThreadsByCursor(user.getId(), cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // Search threads by cursor
+    @GetMapping("/search/cursor")
+    public ResponseEntity<CursorPageDto<ThreadDto>> searchThreadsByCursor(
+            @RequestParam("q") String keyword,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @CurrentUser User user) {
+        
+        String userId = user != null ? user.getId() : null;
+        
+        try {
+            return ResponseEntity.ok(threadService.searchThreadsByCursor(keyword, userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // Get threads by hashtag by cursor
+    @GetMapping("/hashtag/{hashtag}/cursor")
+    public ResponseEntity<CursorPageDto<ThreadDto>> getThreadsByHashtagByCursor(
+            @PathVariable String hashtag,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @CurrentUser User user) {
+        
+        String userId = user != null ? user.getId() : null;
+        
+        try {
+            return ResponseEntity.ok(threadService.getThreadsByHashtagByCursor(hashtag, userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // Get trending threads by cursor
+    @GetMapping("/trending/cursor")
+    public ResponseEntity<CursorPageDto<ThreadDto>> getTrendingThreadsByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @CurrentUser User user) {
+        
+        String userId = user != null ? user.getId() : null;
+        
+        try {
+            return ResponseEntity.ok(threadService.getTrendingThreadsByCursor(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // Feed impressions; queued for the view tracker's background writer
+    private void recordViews(List<ThreadDto> threads, String userId, HttpServletRequest request) {
+        threadViewTracker.record(threads.stream().map(ThreadDto::getId).collect(Collectors.toList()),
+            userId, request.getRemoteAddr(), request.getHeader("User-Agent"));
     }
 }
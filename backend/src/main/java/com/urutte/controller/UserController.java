@@ -1,13 +1,12 @@
 package com.urutte.controller;
 
+import com.urutte.config.CurrentUser;
 import com.urutte.dto.UserDto;
 import com.urutte.model.FollowRequest;
 import com.urutte.model.User;
 import com.urutte.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -22,34 +21,18 @@ public class UserController {
     private UserService userService;
 
     @GetMapping("/me")
-    public ResponseEntity<UserDto> getCurrentUser(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
-        
-        // Try token-based auth first
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            User user = userService.getUserFromToken(token);
-            if (user != null) {
-                UserDto userDto = userService.getUserProfile(user.getId(), user.getId());
-                return ResponseEntity.ok(userDto);
-            }
-        }
-        
-        // Fallback to OAuth2
-        if (principal != null) {
-            User user = userService.getOrCreateUser(principal);
-            UserDto userDto = userService.getUserProfile(user.getId(), user.getId());
-            return ResponseEntity.ok(userDto);
+    public ResponseEntity<UserDto> getCurrentUser(@CurrentUser User user) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
         }
         
-        return ResponseEntity.status(401).build();
+        UserDto userDto = userService.getUserProfile(user.getId(), user.getId());
+        return ResponseEntity.ok(userDto);
     }
     
     @PutMapping("/me")
     public ResponseEntity<Map<String, Object>> updateProfile(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal,
+            @CurrentUser User currentUser,
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String username,
             @RequestParam(required = false) String bio,
@@ -63,7 +46,6 @@ public class UserController {
             @RequestParam(required = false) MultipartFile coverImage) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -95,11 +77,9 @@ public class UserController {
     @GetMapping("/{userId}")
     public ResponseEntity<UserDto> getUserProfile(
             @PathVariable String userId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -116,11 +96,9 @@ public class UserController {
     @PostMapping("/{userId}/follow")
     public ResponseEntity<UserDto> followUser(
             @PathVariable String userId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -137,11 +115,9 @@ public class UserController {
     @DeleteMapping("/{userId}/follow")
     public ResponseEntity<UserDto> unfollowUser(
             @PathVariable String userId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -158,11 +134,9 @@ public class UserController {
     @GetMapping("/{userId}/followers")
     public ResponseEntity<List<UserDto>> getFollowers(
             @PathVariable String userId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -179,11 +153,9 @@ public class UserController {
     @GetMapping("/{userId}/following")
     public ResponseEntity<List<UserDto>> getFollowing(
             @PathVariable String userId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -200,11 +172,9 @@ public class UserController {
     @GetMapping("/search")
     public ResponseEntity<List<UserDto>> searchUsers(
             @RequestParam String q,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -221,11 +191,9 @@ public class UserController {
     @GetMapping("/suggestions")
     public ResponseEntity<List<UserDto>> getPeopleYouMayKnow(
             @RequestParam(defaultValue = "5") int limit,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -239,29 +207,11 @@ public class UserController {
         }
     }
     
-    // Helper method to get user from either token or OAuth
-    private User getCurrentUserFromAuth(String authHeader, OidcUser principal) {
-        // Try token-based auth first
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            return userService.getUserFromToken(token);
-        }
-        
-        // Fallback to OAuth2
-        if (principal != null) {
-            return userService.getOrCreateUser(principal);
-        }
-        
-        return null;
-    }
-    
     @GetMapping("/follow-requests")
     public ResponseEntity<List<FollowRequest>> getPendingFollowRequests(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -277,11 +227,9 @@ public class UserController {
 
     @GetMapping("/follow-requests/pending")
     public ResponseEntity<List<FollowRequest>> getPendingFollowRequestsEndpoint(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -298,11 +246,9 @@ public class UserController {
     @PostMapping("/{userId}/follow-request")
     public ResponseEntity<Map<String, Object>> sendFollowRequest(
             @PathVariable String userId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -337,11 +283,9 @@ public class UserController {
     @PostMapping("/follow-requests/{followRequestId}/approve")
     public ResponseEntity<UserDto> approveFollowRequest(
             @PathVariable Long followRequestId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -358,11 +302,9 @@ public class UserController {
     @PostMapping("/follow-requests/{followRequestId}/reject")
     public ResponseEntity<UserDto> rejectFollowRequest(
             @PathVariable Long followRequestId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
-            @AuthenticationPrincipal OidcUser principal) {
+            @CurrentUser User currentUser) {
         
         try {
-            User currentUser = getCurrentUserFromAuth(authHeader, principal);
             if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
@@ -0,0 +1,31 @@
+package com.urutte.dto;
+
+import java.time.LocalDateTime;
+
+// Inbox entry: the other participant, the latest message and what the viewer has not read yet
+public class ConversationDto {
+    private Long id;
+    private UserDto user;
+    private MessageDto lastMessage;
+    private int unreadCount;
+    private LocalDateTime lastMessageAt;
+
+    // Constructors
+    public ConversationDto() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public UserDto getUser() { return user; }
+    public void setUser(UserDto user) { this.user = user; }
+
+    public MessageDto getLastMessage() { return lastMessage; }
+    public void setLastMessage(MessageDto lastMessage) { this.lastMessage = lastMessage; }
+
+    public int getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+}
@@ -0,0 +1,34 @@
+package com.urutte.dto;
+
+import java.util.List;
+
+// One slice of a cursor-paginated listing; pass nextCursor back to fetch the following slice
+public class CursorPageDto<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+    
+    // Constructors
+    public CursorPageDto() {}
+    
+    public CursorPageDto(List<T> content, String nextCursor, boolean hasNext) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+        this.size = content.size();
+    }
+    
+    // Getters and Setters
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+    
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+}
@@ -19,6 +19,24 @@ public class MessageDto {
     // Constructors
     public MessageDto() {}
 
+    // JPQL constructor projection, used where rows must not become managed entities (export)
+    public MessageDto(Long id, String senderId, String senderName, String senderAvatar,
+                      String receiverId, String receiverName, String receiverAvatar,
+                      String content, String messageType, String mediaUrl, boolean isRead, LocalDateTime createdAt) {
+        this.id = id;
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.senderAvatar = senderAvatar;
+        this.receiverId = receiverId;
+        this.receiverName = receiverName;
+        this.receiverAvatar = receiverAvatar;
+        this.content = content;
+        this.messageType = messageType;
+        this.mediaUrl = mediaUrl;
+        this.isRead = isRead;
+        this.createdAt = createdAt;
+    }
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
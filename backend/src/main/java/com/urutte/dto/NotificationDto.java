@@ -14,6 +14,7 @@ public class NotificationDto {
     private Long relatedEntityId;
     private boolean isRead;
     private LocalDateTime createdAt;
+    private int actorCount = 1;
 
     // Constructors
     public NotificationDto() {}
@@ -51,4 +52,7 @@ public class NotificationDto {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public int getActorCount() { return actorCount; }
+    public void setActorCount(int actorCount) { this.actorCount = actorCount; }
 }
@@ -1,5 +1,6 @@
 package com.urutte.dto;
 
+import com.urutte.model.MediaStatus;
 import com.urutte.model.MediaType;
 import java.time.LocalDateTime;
 
@@ -14,7 +15,9 @@ public class ThreadMediaDto {
     private Integer duration; // for video/audio in seconds
     private Integer width;
     private Integer height;
+    private String srcset; // resized copies for <img srcset>, null until processed
     private Integer displayOrder;
+    private MediaStatus status; // PROCESSING until a streamed upload has been checked
     private LocalDateTime createdAt;
     
     // Constructors
@@ -51,6 +54,12 @@ public class ThreadMediaDto {
     public Integer getHeight() { return height; }
     public void setHeight(Integer height) { this.height = height; }
     
+    public String getSrcset() { return srcset; }
+    public void setSrcset(String srcset) { this.srcset = srcset; }
+    
+    public MediaStatus getStatus() { return status; }
+    public void setStatus(MediaStatus status) { this.status = status; }
+    
     public Integer getDisplayOrder() { return displayOrder; }
     public void setDisplayOrder(Integer displayOrder) { this.displayOrder = displayOrder; }
     
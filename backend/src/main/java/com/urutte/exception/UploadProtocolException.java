@@ -0,0 +1,18 @@
+package com.urutte.exception;
+
+// A resumable upload request the server refuses, with the HTTP status the tus protocol prescribes for it
+public class UploadProtocolException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final int status;
+    
+    public UploadProtocolException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+    
+    public int getStatus() {
+        return status;
+    }
+}
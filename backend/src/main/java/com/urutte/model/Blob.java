@@ -0,0 +1,48 @@
+package com.urutte.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "blobs")
+public class Blob {
+
+    // SHA-256 of the content in hex plus the extension, e.g. 9f86d08...a08.jpg
+    @Id
+    @Column(name = "blob_key", length = 80)
+    private String blobKey;
+
+    @Column(name = "size", nullable = false)
+    private Long size;
+
+    // Uploads referring to the blob; the file is deleted some time after this drops to zero
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // When the last reference was released
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+
+    // Constructors
+    public Blob() {}
+
+    // Getters and Setters
+    public String getBlobKey() { return blobKey; }
+    public void setBlobKey(String blobKey) { this.blobKey = blobKey; }
+
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+
+    public Integer getRefCount() { return refCount; }
+    public void setRefCount(Integer refCount) { this.refCount = refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getReleasedAt() { return releasedAt; }
+    public void setReleasedAt(LocalDateTime releasedAt) { this.releasedAt = releasedAt; }
+}
@@ -0,0 +1,82 @@
+package com.urutte.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Direct-message conversation of two users, keyed by the ordered pair (userLowId < userHighId)
+@Entity
+@Table(name = "conversations",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_low_id", "user_high_id"}))
+public class Conversation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_low_id", nullable = false)
+    private String userLowId;
+
+    @Column(name = "user_high_id", nullable = false)
+    private String userHighId;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    // Messages the low / high user has not read yet
+    @Column(name = "low_unread_count", nullable = false)
+    private int lowUnreadCount;
+
+    @Column(name = "high_unread_count", nullable = false)
+    private int highUnreadCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public Conversation() {}
+
+    public static String lowId(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0 ? userId1 : userId2;
+    }
+
+    public static String highId(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0 ? userId2 : userId1;
+    }
+
+    public String getOtherUserId(String userId) {
+        return userLowId.equals(userId) ? userHighId : userLowId;
+    }
+
+    public int getUnreadCount(String userId) {
+        return userLowId.equals(userId) ? lowUnreadCount : highUnreadCount;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserLowId() { return userLowId; }
+    public void setUserLowId(String userLowId) { this.userLowId = userLowId; }
+
+    public String getUserHighId() { return userHighId; }
+    public void setUserHighId(String userHighId) { this.userHighId = userHighId; }
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+
+    public int getLowUnreadCount() { return lowUnreadCount; }
+    public void setLowUnreadCount(int lowUnreadCount) { this.lowUnreadCount = lowUnreadCount; }
+
+    public int getHighUnreadCount() { return highUnreadCount; }
+    public void setHighUnreadCount(int highUnreadCount) { this.highUnreadCount = highUnreadCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
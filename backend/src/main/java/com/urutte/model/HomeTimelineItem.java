@@ -0,0 +1,55 @@
+package com.urutte.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "home_timeline_items",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"owner_id", "thread_id"}),
+       indexes = @Index(name = "idx_home_timeline_owner_created", columnList = "owner_id, created_at DESC, thread_id DESC"))
+public class HomeTimelineItem {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Timeline owner (user ID, or the shared public timeline key)
+    @Column(name = "owner_id", nullable = false)
+    private String ownerId;
+    
+    @Column(name = "thread_id", nullable = false)
+    private Long threadId;
+    
+    @Column(name = "author_id", nullable = false)
+    private String authorId;
+    
+    // Thread creation time, copied so timeline reads never touch the threads table
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "reason", nullable = false, length = 16)
+    private String reason;
+    
+    // Constructors
+    public HomeTimelineItem() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getOwnerId() { return ownerId; }
+    public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+    
+    public Long getThreadId() { return threadId; }
+    public void setThreadId(Long threadId) { this.threadId = threadId; }
+    
+    public String getAuthorId() { return authorId; }
+    public void setAuthorId(String authorId) { this.authorId = authorId; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+}
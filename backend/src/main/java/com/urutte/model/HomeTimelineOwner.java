@@ -0,0 +1,29 @@
+package com.urutte.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Marks a home timeline as backfilled; until then fan-out pushes alone do not make it complete
+@Entity
+@Table(name = "home_timeline_owners")
+public class HomeTimelineOwner {
+    
+    // Timeline owner (user ID, or the shared public timeline key)
+    @Id
+    @Column(name = "owner_id")
+    private String ownerId;
+    
+    @Column(name = "materialized_at", nullable = false)
+    private LocalDateTime materializedAt;
+    
+    // Constructors
+    public HomeTimelineOwner() {}
+    
+    // Getters and Setters
+    public String getOwnerId() { return ownerId; }
+    public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+    
+    public LocalDateTime getMaterializedAt() { return materializedAt; }
+    public void setMaterializedAt(LocalDateTime materializedAt) { this.materializedAt = materializedAt; }
+}
@@ -0,0 +1,8 @@
+package com.urutte.model;
+
+// Lifecycle of an uploaded media file: PROCESSING until its content has been checked in the background
+public enum MediaStatus {
+    PROCESSING,
+    READY,
+    FAILED
+}
@@ -18,6 +18,10 @@ public class Message {
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
+    // See Conversation; history is read by (conversation_id, id)
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
     private String content;
     private String messageType; // text, image, video, file
     private String mediaUrl;
@@ -54,6 +58,9 @@ public class Message {
     public User getReceiver() { return receiver; }
     public void setReceiver(User receiver) { this.receiver = receiver; }
 
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
 
@@ -26,6 +26,10 @@ public class Notification {
     private boolean isRead;
     private LocalDateTime createdAt;
 
+    // Distinct users behind a coalesced notification; fromUser is the most recent of them
+    @Column(name = "actor_count", columnDefinition = "integer default 1")
+    private Integer actorCount = 1;
+
     // Constructors
     public Notification() {
         this.createdAt = LocalDateTime.now();
@@ -73,4 +77,7 @@ public class Notification {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public int getActorCount() { return actorCount != null ? actorCount : 1; }
+    public void setActorCount(Integer actorCount) { this.actorCount = actorCount; }
 }
@@ -0,0 +1,59 @@
+package com.urutte.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Everything up to lastReadId in the scope is read for the user, whatever its is_read flag says
+@Entity
+@Table(name = "read_watermarks",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "scope", "scope_key"}))
+public class ReadWatermark {
+
+    public static final String NOTIFICATIONS = "notifications";
+    public static final String MESSAGES = "messages";
+
+    // Scope key of the notification watermark; message watermarks are keyed by the other user's ID
+    public static final String ALL = "";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "scope", nullable = false, length = 32)
+    private String scope;
+
+    @Column(name = "scope_key", nullable = false)
+    private String scopeKey;
+
+    @Column(name = "last_read_id", nullable = false)
+    private Long lastReadId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public ReadWatermark() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getScope() { return scope; }
+    public void setScope(String scope) { this.scope = scope; }
+
+    public String getScopeKey() { return scopeKey; }
+    public void setScopeKey(String scopeKey) { this.scopeKey = scopeKey; }
+
+    public Long getLastReadId() { return lastReadId; }
+    public void setLastReadId(Long lastReadId) { this.lastReadId = lastReadId; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
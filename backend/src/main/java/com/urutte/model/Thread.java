@@ -10,7 +10,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "threads")
+// idx_threads_root_path (root_thread_id, thread_path varchar_pattern_ops) is created by the
+// V20251020 migration only: an entity index of that name would be created first by ddl-auto
+// as a plain btree, which cannot serve the thread_path LIKE prefix scans
+@Table(name = "threads",
+       indexes = @Index(name = "idx_threads_quoted_thread", columnList = "quoted_thread_id"))
 public class Thread {
     
     @Id
@@ -55,20 +59,22 @@ public class Thread {
     @Column(name = "quote_content", columnDefinition = "TEXT")
     private String quoteContent;
     
-    // Engagement counts
-    @Column(name = "likes_count")
+    // Engagement counts - likes, replies and reposts are only changed through atomic
+    // UPDATE statements (EngagementCounterService), and views by ThreadViewTracker's batched
+    // increments, never by saving the entity
+    @Column(name = "likes_count", updatable = false)
     private Integer likesCount = 0;
     
-    @Column(name = "replies_count")
+    @Column(name = "replies_count", updatable = false)
     private Integer repliesCount = 0;
     
-    @Column(name = "reposts_count")
+    @Column(name = "reposts_count", updatable = false)
     private Integer repostsCount = 0;
     
     @Column(name = "shares_count")
     private Integer sharesCount = 0;
     
-    @Column(name = "views_count")
+    @Column(name = "views_count", updatable = false)
     private Integer viewsCount = 0;
     
     @Column(name = "bookmarks_count")
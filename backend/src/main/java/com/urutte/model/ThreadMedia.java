@@ -42,9 +42,18 @@ public class ThreadMedia {
     @Column(name = "height")
     private Integer height;
     
+    // Comma-separated "url widthw" candidates of the resized copies, filled in by ImageDerivativePipeline
+    @Column(name = "srcset", length = 2000)
+    private String srcset;
+    
     @Column(name = "display_order")
     private Integer displayOrder = 0;
     
+    // PROCESSING while a streamed upload is checked in the background
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private MediaStatus status = MediaStatus.READY;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -89,6 +98,12 @@ public class ThreadMedia {
     public Integer getHeight() { return height; }
     public void setHeight(Integer height) { this.height = height; }
     
+    public String getSrcset() { return srcset; }
+    public void setSrcset(String srcset) { this.srcset = srcset; }
+    
+    public MediaStatus getStatus() { return status; }
+    public void setStatus(MediaStatus status) { this.status = status; }
+    
     public Integer getDisplayOrder() { return displayOrder; }
     public void setDisplayOrder(Integer displayOrder) { this.displayOrder = displayOrder; }
     
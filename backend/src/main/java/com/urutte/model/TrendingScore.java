@@ -0,0 +1,49 @@
+package com.urutte.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "trending_scores",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"board", "item_key"}))
+public class TrendingScore {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Scoreboard name, e.g. THREAD:DAY or HASHTAG:HOUR
+    @Column(name = "board", nullable = false, length = 32)
+    private String board;
+
+    // Thread ID or hashtag
+    @Column(name = "item_key", nullable = false, length = 100)
+    private String itemKey;
+
+    // Decayed score as of scoredAt
+    @Column(name = "score", nullable = false)
+    private Double score;
+
+    @Column(name = "scored_at", nullable = false)
+    private LocalDateTime scoredAt;
+
+    // Constructors
+    public TrendingScore() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getBoard() { return board; }
+    public void setBoard(String board) { this.board = board; }
+
+    public String getItemKey() { return itemKey; }
+    public void setItemKey(String itemKey) { this.itemKey = itemKey; }
+
+    public Double getScore() { return score; }
+    public void setScore(Double score) { this.score = score; }
+
+    public LocalDateTime getScoredAt() { return scoredAt; }
+    public void setScoredAt(LocalDateTime scoredAt) { this.scoredAt = scoredAt; }
+}
@@ -0,0 +1,84 @@
+package com.urutte.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_sessions")
+public class UploadSession {
+
+    // Random UUID, part of the upload URL
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    // Total size announced when the session was created
+    @Column(name = "upload_length", nullable = false)
+    private Long uploadLength;
+
+    // Bytes received so far; chunks must start here
+    @Column(name = "upload_offset", nullable = false)
+    private Long uploadOffset = 0L;
+
+    @Column(name = "filename", length = 255)
+    private String filename;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    // Stored video once all bytes arrived, e.g. videos/<sha256>.mp4
+    @Column(name = "video_path", length = 120)
+    private String videoPath;
+
+    // Lease of the node writing a chunk; no other node writes the upload until it has passed
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public UploadSession() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Long getUploadLength() { return uploadLength; }
+    public void setUploadLength(Long uploadLength) { this.uploadLength = uploadLength; }
+
+    public Long getUploadOffset() { return uploadOffset; }
+    public void setUploadOffset(Long uploadOffset) { this.uploadOffset = uploadOffset; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public String getVideoPath() { return videoPath; }
+    public void setVideoPath(String videoPath) { this.videoPath = videoPath; }
+
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(LocalDateTime lockedUntil) { this.lockedUntil = lockedUntil; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    public boolean isComplete() {
+        return videoPath != null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.urutte.repository;
+
+import com.urutte.model.Conversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+    
+    Optional<Conversation> findByUserLowIdAndUserHighId(String userLowId, String userHighId);
+    
+    // Creates the conversation unless a concurrent first message already did
+    @Modifying
+    @Query(value = "INSERT INTO conversations (user_low_id, user_high_id, low_unread_count, high_unread_count, created_at) " +
+                   "VALUES (:userLowId, :userHighId, 0, 0, now()) ON CONFLICT (user_low_id, user_high_id) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userLowId") String userLowId, @Param("userHighId") String userHighId);
+    
+    // Single-row update on send; the row lock orders concurrent sends to the same conversation
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageId = :messageId, c.lastMessageAt = :sentAt, " +
+           "c.lowUnreadCount = c.lowUnreadCount + :lowDelta, c.highUnreadCount = c.highUnreadCount + :highDelta " +
+           "WHERE c.id = :id")
+    int recordMessage(@Param("id") Long id, @Param("messageId") Long messageId, @Param("sentAt") LocalDateTime sentAt,
+                      @Param("lowDelta") int lowDelta, @Param("highDelta") int highDelta);
+    
+    @Modifying
+    @Query("UPDATE Conversation c SET " +
+           "c.lowUnreadCount = CASE WHEN c.userLowId = :userId THEN " +
+           "(CASE WHEN c.lowUnreadCount > :read THEN c.lowUnreadCount - :read ELSE 0 END) ELSE c.lowUnreadCount END, " +
+           "c.highUnreadCount = CASE WHEN c.userHighId = :userId THEN " +
+           "(CASE WHEN c.highUnreadCount > :read THEN c.highUnreadCount - :read ELSE 0 END) ELSE c.highUnreadCount END " +
+           "WHERE c.id = :id")
+    int recordRead(@Param("id") Long id, @Param("userId") String userId, @Param("read") int read);
+    
+    // Inbox, newest conversation first; backed by the (user_low_id, last_message_at) and
+    // (user_high_id, last_message_at) indexes
+    @Query("SELECT c FROM Conversation c WHERE (c.userLowId = :userId OR c.userHighId = :userId) " +
+           "AND c.lastMessageId IS NOT NULL ORDER BY c.lastMessageAt DESC, c.id DESC")
+    List<Conversation> findInbox(@Param("userId") String userId, Pageable pageable);
+    
+    @Query("SELECT COALESCE(SUM(CASE WHEN c.userLowId = :userId THEN c.lowUnreadCount ELSE c.highUnreadCount END), 0) " +
+           "FROM Conversation c WHERE c.userLowId = :userId OR c.userHighId = :userId")
+    long sumUnreadCount(@Param("userId") String userId);
+}
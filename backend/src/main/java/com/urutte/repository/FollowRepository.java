@@ -28,6 +28,11 @@ public interface FollowRepository extends JpaRepository<Follow, Long> {
     // Count following
     long countByFollower(User follower);
     
+    // Counts by user ID (follow graph fallback)
+    long countByFollowingId(String followingId);
+    
+    long countByFollowerId(String followerId);
+    
     // Check if user follows another user by IDs
     boolean existsByFollowerIdAndFollowingId(String followerId, String followingId);
     
@@ -38,4 +43,12 @@ public interface FollowRepository extends JpaRepository<Follow, Long> {
     // Get following list
     @Query("SELECT f.following FROM Follow f WHERE f.follower.id = :userId")
     List<User> findFollowingByUserId(@Param("userId") String userId);
+    
+    // Get follower IDs (home timeline fan-out)
+    @Query("SELECT f.follower.id FROM Follow f WHERE f.following.id = :userId")
+    List<String> findFollowerIdsByUserId(@Param("userId") String userId);
+    
+    // Get followed user IDs
+    @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId")
+    List<String> findFollowingIdsByUserId(@Param("userId") String userId);
 }
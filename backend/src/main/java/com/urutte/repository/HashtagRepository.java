@@ -2,10 +2,12 @@ package com.urutte.repository;
 
 import com.urutte.model.Hashtag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +17,15 @@ public interface HashtagRepository extends JpaRepository<Hashtag, Long> {
     // Find hashtag by tag name
     Optional<Hashtag> findByTag(String tag);
     
+    // Resolve many tags at once - returns [tag, id] pairs
+    @Query("SELECT h.tag, h.id FROM Hashtag h WHERE h.tag IN :tags")
+    List<Object[]> findIdsByTagIn(@Param("tags") Collection<String> tags);
+    
+    // Bump the usage count of every given hashtag in one statement
+    @Modifying
+    @Query("UPDATE Hashtag h SET h.usageCount = COALESCE(h.usageCount, 0) + 1, h.updatedAt = :now WHERE h.id IN :ids")
+    int incrementUsageCounts(@Param("ids") Collection<Long> ids, @Param("now") java.time.LocalDateTime now);
+    
     // Find hashtags by usage count
     List<Hashtag> findByUsageCountGreaterThanOrderByUsageCountDesc(Integer minUsageCount);
     
@@ -0,0 +1,39 @@
+package com.urutte.repository;
+
+import com.urutte.model.HomeTimelineItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface HomeTimelineItemRepository extends JpaRepository<HomeTimelineItem, Long> {
+    
+    // First page of a timeline
+    @Query("SELECT i FROM HomeTimelineItem i WHERE i.ownerId = :ownerId ORDER BY i.createdAt DESC, i.threadId DESC")
+    List<HomeTimelineItem> findTimeline(@Param("ownerId") String ownerId, Pageable pageable);
+    
+    // Keyset scan of a timeline after a (createdAt, threadId) cursor
+    @Query("SELECT i FROM HomeTimelineItem i WHERE i.ownerId = :ownerId AND " +
+           "(i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.threadId < :threadId)) " +
+           "ORDER BY i.createdAt DESC, i.threadId DESC")
+    List<HomeTimelineItem> findTimelineBefore(@Param("ownerId") String ownerId,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("threadId") Long threadId,
+                                              Pageable pageable);
+    
+    // Remove follow-driven entries when the owner unfollows an author
+    @Modifying
+    @Query("DELETE FROM HomeTimelineItem i WHERE i.ownerId = :ownerId AND i.authorId = :authorId AND i.reason = 'FOLLOW'")
+    int deleteFollowEntries(@Param("ownerId") String ownerId, @Param("authorId") String authorId);
+    
+    // Retention cleanup
+    @Modifying
+    @Query("DELETE FROM HomeTimelineItem i WHERE i.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,35 +1,70 @@
 package com.urutte.repository;
 
+import com.urutte.dto.MessageDto;
 import com.urutte.model.Message;
 import com.urutte.model.User;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    @Query("SELECT m FROM Message m WHERE (m.sender = :user1 AND m.receiver = :user2) OR (m.sender = :user2 AND m.receiver = :user1) ORDER BY m.createdAt ASC")
-    List<Message> findConversationBetweenUsers(User user1, User user2);
+    // Newest first over the (conversation_id, id) index
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender JOIN FETCH m.receiver " +
+           "WHERE m.conversationId = :conversationId ORDER BY m.id DESC")
+    List<Message> findByConversationId(@Param("conversationId") Long conversationId, Pageable pageable);
     
-    @Query("SELECT m FROM Message m WHERE (m.sender = :user1 AND m.receiver = :user2) OR (m.sender = :user2 AND m.receiver = :user1) ORDER BY m.createdAt DESC")
-    Page<Message> findConversationBetweenUsersPaged(User user1, User user2, Pageable pageable);
+    // Keyset page: the messages before beforeId, newest first
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender JOIN FETCH m.receiver " +
+           "WHERE m.conversationId = :conversationId AND m.id < :beforeId ORDER BY m.id DESC")
+    List<Message> findByConversationIdBefore(@Param("conversationId") Long conversationId,
+                                             @Param("beforeId") Long beforeId, Pageable pageable);
     
-    @Query("SELECT DISTINCT m.receiver FROM Message m WHERE m.sender = :user")
-    List<User> findUsersMessagedBy(User user);
+    // Whole history oldest first as DTO rows fetched from a cursor, so neither the result set nor the
+    // persistence context grows with the conversation. Consume within a read-only transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.urutte.dto.MessageDto(m.id, s.id, s.name, s.picture, r.id, r.name, r.picture, " +
+           "m.content, m.messageType, m.mediaUrl, m.isRead, m.createdAt) " +
+           "FROM Message m JOIN m.sender s JOIN m.receiver r WHERE m.conversationId = :conversationId ORDER BY m.id")
+    Stream<MessageDto> streamByConversationId(@Param("conversationId") Long conversationId);
     
-    @Query("SELECT DISTINCT m.sender FROM Message m WHERE m.receiver = :user")
-    List<User> findUsersWhoMessaged(User user);
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender JOIN FETCH m.receiver WHERE m.id IN :ids")
+    List<Message> findWithParticipantsByIdIn(@Param("ids") Collection<Long> ids);
     
-    @Query("SELECT m FROM Message m WHERE m.receiver = :user AND m.isRead = false ORDER BY m.createdAt DESC")
+    // Unread means neither flagged read nor below the receiver's watermark for the conversation
+    @Query("SELECT m FROM Message m WHERE m.receiver = :user AND m.isRead = false " +
+           "AND m.id > COALESCE((SELECT w.lastReadId FROM ReadWatermark w WHERE w.userId = m.receiver.id " +
+           "AND w.scope = 'messages' AND w.scopeKey = m.sender.id), 0) ORDER BY m.createdAt DESC")
     List<Message> findUnreadMessages(User user);
     
+    @Query("SELECT COUNT(m) FROM Message m WHERE m.receiver.id = :userId AND m.isRead = false " +
+           "AND m.id > COALESCE((SELECT w.lastReadId FROM ReadWatermark w WHERE w.userId = :userId " +
+           "AND w.scope = 'messages' AND w.scopeKey = m.sender.id), 0)")
+    long countUnreadByReceiverId(@Param("userId") String userId);
+    
     long countByReceiverAndIsReadFalse(User user);
     
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.receiver.id = :receiverId AND m.sender.id = :senderId")
+    Long findMaxIdFromSender(@Param("receiverId") String receiverId, @Param("senderId") String senderId);
+    
+    // Flagged-unread messages from the sender in (afterId, upToId]
+    @Query("SELECT COUNT(m) FROM Message m WHERE m.receiver.id = :receiverId AND m.sender.id = :senderId " +
+           "AND m.isRead = false AND m.id > :afterId AND m.id <= :upToId")
+    long countUnreadFromSenderInRange(@Param("receiverId") String receiverId, @Param("senderId") String senderId,
+                                      @Param("afterId") long afterId, @Param("upToId") long upToId);
+    
 }
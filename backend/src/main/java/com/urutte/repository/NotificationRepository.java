@@ -5,7 +5,9 @@ import com.urutte.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,6 +18,27 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     List<Notification> findByUserAndIsReadFalseOrderByCreatedAtDesc(User user);
     long countByUserAndIsReadFalse(User user);
     
-    @Query("SELECT n FROM Notification n WHERE n.user = :user AND n.isRead = false ORDER BY n.createdAt DESC")
+    // Unread means neither flagged read nor below the user's notification watermark
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.isRead = false " +
+           "AND n.id > COALESCE((SELECT w.lastReadId FROM ReadWatermark w WHERE w.userId = :userId " +
+           "AND w.scope = 'notifications' AND w.scopeKey = ''), 0)")
+    long countUnreadByUserId(@Param("userId") String userId);
+    
+    @Query("SELECT n FROM Notification n WHERE n.user = :user AND n.isRead = false " +
+           "AND n.id > COALESCE((SELECT w.lastReadId FROM ReadWatermark w WHERE w.userId = n.user.id " +
+           "AND w.scope = 'notifications' AND w.scopeKey = ''), 0) ORDER BY n.createdAt DESC")
     List<Notification> findUnreadNotifications(User user);
+    
+    @Query("SELECT MAX(n.id) FROM Notification n WHERE n.user.id = :userId")
+    Long findMaxIdByUserId(@Param("userId") String userId);
+    
+    // Flagged-unread notifications in (afterId, upToId], i.e. those a watermark move from afterId to upToId reads
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.isRead = false " +
+           "AND n.id > :afterId AND n.id <= :upToId")
+    long countUnreadInRange(@Param("userId") String userId, @Param("afterId") long afterId,
+                            @Param("upToId") long upToId);
+    
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :id AND n.user.id = :userId AND n.isRead = false")
+    int markReadById(@Param("id") Long id, @Param("userId") String userId);
 }
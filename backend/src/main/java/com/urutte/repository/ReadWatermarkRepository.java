@@ -0,0 +1,29 @@
+package com.urutte.repository;
+
+import com.urutte.model.ReadWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReadWatermarkRepository extends JpaRepository<ReadWatermark, Long> {
+    
+    @Query("SELECT w.lastReadId FROM ReadWatermark w WHERE w.userId = :userId AND w.scope = :scope AND w.scopeKey = :scopeKey")
+    Optional<Long> findLastReadId(@Param("userId") String userId, @Param("scope") String scope,
+                                  @Param("scopeKey") String scopeKey);
+    
+    // Moves the watermark forward only; returns 0 when it already was at or past lastReadId
+    @Modifying
+    @Query(value = "INSERT INTO read_watermarks (user_id, scope, scope_key, last_read_id, updated_at) " +
+                   "VALUES (:userId, :scope, :scopeKey, :lastReadId, now()) " +
+                   "ON CONFLICT (user_id, scope, scope_key) DO UPDATE " +
+                   "SET last_read_id = EXCLUDED.last_read_id, updated_at = EXCLUDED.updated_at " +
+                   "WHERE read_watermarks.last_read_id < EXCLUDED.last_read_id",
+           nativeQuery = true)
+    int advance(@Param("userId") String userId, @Param("scope") String scope,
+                @Param("scopeKey") String scopeKey, @Param("lastReadId") Long lastReadId);
+}
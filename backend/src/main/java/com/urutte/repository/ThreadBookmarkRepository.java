@@ -4,8 +4,11 @@ import com.urutte.model.Thread;
 import com.urutte.model.ThreadBookmark;
 import com.urutte.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +21,10 @@ public interface ThreadBookmarkRepository extends JpaRepository<ThreadBookmark,
     // Check if user bookmarked a thread by IDs
     boolean existsByThreadIdAndUserId(Long threadId, String userId);
     
+    // Find which of the given threads a user bookmarked (batch viewer state)
+    @Query("SELECT tb.thread.id FROM ThreadBookmark tb WHERE tb.user.id = :userId AND tb.thread.id IN :threadIds")
+    List<Long> findBookmarkedThreadIds(@Param("userId") String userId, @Param("threadIds") Collection<Long> threadIds);
+    
     // Delete bookmark by user and thread
     void deleteByThreadAndUser(Thread thread, User user);
     
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +30,10 @@ public interface ThreadLikeRepository extends JpaRepository<ThreadLike, Long> {
     // Check if user liked a thread by IDs
     boolean existsByThreadIdAndUserId(Long threadId, String userId);
     
+    // Find which of the given threads a user liked (batch viewer state)
+    @Query("SELECT tl.thread.id FROM ThreadLike tl WHERE tl.user.id = :userId AND tl.thread.id IN :threadIds")
+    List<Long> findLikedThreadIds(@Param("userId") String userId, @Param("threadIds") Collection<Long> threadIds);
+    
     // Find all likes for a thread
     List<ThreadLike> findByThreadOrderByCreatedAtDesc(Thread thread);
     
@@ -5,8 +5,11 @@ import com.urutte.model.ThreadReaction;
 import com.urutte.model.User;
 import com.urutte.model.ReactionType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +22,10 @@ public interface ThreadReactionRepository extends JpaRepository<ThreadReaction,
     // Check if user reacted to a thread by IDs
     boolean existsByThreadIdAndUserId(Long threadId, String userId);
     
+    // Find a user's reactions on the given threads as [threadId, reactionType] pairs (batch viewer state)
+    @Query("SELECT tr.thread.id, tr.reactionType FROM ThreadReaction tr WHERE tr.user.id = :userId AND tr.thread.id IN :threadIds")
+    List<Object[]> findReactionsByUserIdAndThreadIds(@Param("userId") String userId, @Param("threadIds") Collection<Long> threadIds);
+    
     // Delete reaction by user and thread
     void deleteByThreadAndUser(Thread thread, User user);
     
@@ -4,24 +4,35 @@ import com.urutte.model.Thread;
 import com.urutte.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ThreadRepository extends JpaRepository<Thread, Long> {
     
+    // Seek predicates for keyset pagination, newest first or most liked first
+    String SEEK_BY_CREATED_AT = "(t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id))";
+    String SEEK_BY_LIKES = "(t.likesCount < :likesCount OR (t.likesCount = :likesCount AND t.id < :id))";
+    
     // Find threads by user
     Page<Thread> findByUserAndIsDeletedFalseOrderByCreatedAtDesc(User user, Pageable pageable);
     
-    // Find main threads (not replies) - excludes AI content for anonymous users
-    @Query("SELECT t FROM Thread t WHERE t.parentThread IS NULL AND t.isDeleted = false AND t.isPublic = true AND t.user.userType != 'ADMIN' ORDER BY t.createdAt DESC")
+    // Find main threads (not replies) - excludes AI content for anonymous users. Filter and order
+    // match findPublicMainThreadsBefore, so the page and cursor feeds list the same threads
+    @Query("SELECT t FROM Thread t WHERE t.parentThread IS NULL AND t.isDeleted = false AND t.isPublic = true AND t.user.userType != 'ADMIN' ORDER BY t.createdAt DESC, t.id DESC")
     Page<Thread> findByParentThreadIsNullAndIsDeletedFalseAndIsPublicTrueOrderByCreatedAtDesc(Pageable pageable);
     
+    // Threads quoting any of the given threads (their cached snapshots embed the quoted content)
+    @Query("SELECT t.id FROM Thread t WHERE t.quotedThread.id IN :threadIds")
+    List<Long> findIdsQuoting(@Param("threadIds") Collection<Long> threadIds);
+    
     // Find replies to a specific thread
     List<Thread> findByParentThreadAndIsDeletedFalseOrderByCreatedAtAsc(Thread parentThread);
     
@@ -32,6 +43,19 @@ public interface ThreadRepository extends JpaRepository<Thread, Long> {
     // Find all replies in a thread hierarchy
     List<Thread> findByRootThreadAndIsDeletedFalseOrderByThreadPathAsc(Thread rootThread);
     
+    // Conversation loading: one range scan over (root_thread_id, thread_path), parents before children
+    @Query("SELECT t FROM Thread t JOIN FETCH t.user WHERE t.rootThread.id = :rootId AND t.isDeleted = false " +
+           "AND t.threadLevel <= :maxLevel ORDER BY t.threadLevel ASC, t.createdAt ASC, t.id ASC")
+    List<Thread> findConversationByRoot(@Param("rootId") Long rootId, @Param("maxLevel") Integer maxLevel, Pageable pageable);
+    
+    // Conversation below a reply: its children have path = :path, deeper descendants start with ":path."
+    @Query("SELECT t FROM Thread t JOIN FETCH t.user WHERE t.rootThread.id = :rootId AND t.isDeleted = false " +
+           "AND (t.threadPath = :path OR t.threadPath LIKE :pathPrefix) AND t.threadLevel <= :maxLevel " +
+           "ORDER BY t.threadLevel ASC, t.createdAt ASC, t.id ASC")
+    List<Thread> findConversationByPath(@Param("rootId") Long rootId, @Param("path") String path,
+                                        @Param("pathPrefix") String pathPrefix, @Param("maxLevel") Integer maxLevel,
+                                        Pageable pageable);
+    
     // Find threads by hashtag - excludes AI content unless user follows AI
     @Query("SELECT t FROM Thread t JOIN t.hashtags th JOIN th.hashtag h WHERE h.tag = :hashtag AND t.isDeleted = false AND t.isPublic = true AND t.user.userType != 'ADMIN' ORDER BY t.createdAt DESC")
     Page<Thread> findByHashtag(@Param("hashtag") String hashtag, Pageable pageable);
@@ -40,10 +64,6 @@ public interface ThreadRepository extends JpaRepository<Thread, Long> {
     @Query("SELECT t FROM Thread t JOIN t.mentions tm WHERE tm.mentionedUser = :user AND t.isDeleted = false AND t.isPublic = true ORDER BY t.createdAt DESC")
     Page<Thread> findMentionsByUser(@Param("user") User user, Pageable pageable);
     
-    // Find threads by content search - excludes AI content
-    @Query("SELECT t FROM Thread t WHERE t.content LIKE %:keyword% AND t.isDeleted = false AND t.isPublic = true AND t.user.userType != 'ADMIN' ORDER BY t.createdAt DESC")
-    Page<Thread> findByContentContaining(@Param("keyword") String keyword, Pageable pageable);
-    
     // Find threads by user and content
     @Query("SELECT t FROM Thread t WHERE t.user = :user AND t.content LIKE %:keyword% AND t.isDeleted = false ORDER BY t.createdAt DESC")
     Page<Thread> findByUserAndContentContaining(@Param("user") User user, @Param("keyword") String keyword, Pageable pageable);
@@ -136,4 +156,67 @@ public interface ThreadRepository extends JpaRepository<Thread, Long> {
            ") " +
            "ORDER BY CASE WHEN t.user.id = :userId THEN 0 ELSE 1 END, t.createdAt DESC")
     Page<Thread> findMainThreadsForUserWithTopicFilter(@Param("userId") String userId, Pageable pageable);
+    
+    // Home timeline backfill: the personalised part of a user's feed (own threads, followers-only threads
+    // from followed users, mentioned-only threads and AI threads from followed AI users).
+    // Public threads from regular users live in the shared public timeline instead.
+    @Query("SELECT t FROM Thread t WHERE t.parentThread IS NULL AND t.isDeleted = false AND " +
+           "(t.user.id = :userId OR " +
+           "(t.user.userType != 'ADMIN' AND t.isPublic = false AND t.replyPermission = 'FOLLOWERS' AND t.user IN " +
+           "(SELECT f.following FROM Follow f WHERE f.follower.id = :userId)) OR " +
+           "(t.user.userType != 'ADMIN' AND t.isPublic = false AND t.replyPermission = 'MENTIONED_ONLY' AND t.id IN " +
+           "(SELECT tm.thread.id FROM ThreadMention tm WHERE tm.mentionedUser.id = :userId)) OR " +
+           "(t.user.userType = 'ADMIN' AND EXISTS " +
+           "(SELECT 1 FROM Follow f WHERE f.follower.id = :userId AND f.following.id = t.user.id))) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<Thread> findPersonalTimelineThreads(@Param("userId") String userId, Pageable pageable);
+    
+    // Home timeline backfill: threads by an author that only their followers see (used on follow)
+    @Query("SELECT t FROM Thread t WHERE t.user.id = :authorId AND t.parentThread IS NULL AND t.isDeleted = false AND " +
+           "(t.user.userType = 'ADMIN' OR (t.isPublic = false AND t.replyPermission = 'FOLLOWERS')) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<Thread> findFollowerTimelineThreadsByAuthor(@Param("authorId") String authorId, Pageable pageable);
+    
+    // Home timeline backfill: the shared public timeline
+    @Query("SELECT t FROM Thread t WHERE t.parentThread IS NULL AND t.isDeleted = false AND t.isPublic = true AND t.user.userType != 'ADMIN' ORDER BY t.createdAt DESC, t.id DESC")
+    List<Thread> findPublicTimelineThreads(Pageable pageable);
+    
+    // Search index rebuild: threads the public search may show, in ID order after the given ID
+    @Query("SELECT t FROM Thread t JOIN FETCH t.user u WHERE t.id > :afterId AND t.isDeleted = false AND t.isPublic = true AND u.userType != 'ADMIN' ORDER BY t.id")
+    List<Thread> findSearchableThreadsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Keyset variants of the listing queries. They return a Slice, so no COUNT query runs,
+    // and seek past the cursor instead of using OFFSET.
+    
+    @Query("SELECT t FROM Thread t WHERE t.parentThread IS NULL AND t.isDeleted = false AND t.isPublic = true AND t.user.userType != 'ADMIN' AND " +
+           SEEK_BY_CREATED_AT + " ORDER BY t.createdAt DESC, t.id DESC")
+    Slice<Thread> findPublicMainThreadsBefore(@Param("createdAt") java.time.LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    // Same visibility rules as findMainThreadsForUser, ordered newest first
+    @Query("SELECT t FROM Thread t WHERE t.parentThread IS NULL AND t.isDeleted = false AND " +
+           "(" +
+           "t.user.id = :userId OR " +
+           "(t.user.userType != 'ADMIN' AND t.user.id != :userId AND " +
+           "(t.isPublic = true OR " +
+           "(t.isPublic = false AND t.replyPermission = 'FOLLOWERS' AND t.user IN " +
+           "(SELECT f.following FROM Follow f WHERE f.follower.id = :userId)) OR " +
+           "(t.isPublic = false AND t.replyPermission = 'MENTIONED_ONLY' AND t.id IN " +
+           "(SELECT tm.thread.id FROM ThreadMention tm WHERE tm.mentionedUser.id = :userId)))) " +
+           "OR " +
+           "(t.user.userType = 'ADMIN' AND EXISTS " +
+           "(SELECT 1 FROM Follow f WHERE f.follower.id = :userId AND f.following.id = t.user.id))" +
+           ") AND " + SEEK_BY_CREATED_AT + " ORDER BY t.createdAt DESC, t.id DESC")
+    Slice<Thread> findMainThreadsForUserBefore(@Param("userId") String userId, @Param("createdAt") java.time.LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT t FROM Thread t WHERE t.user.id = :userId AND t.isDeleted = false AND " +
+           SEEK_BY_CREATED_AT + " ORDER BY t.createdAt DESC, t.id DESC")
+    Slice<Thread> findByUserIdBefore(@Param("userId") String userId, @Param("createdAt") java.time.LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT t FROM Thread t JOIN t.hashtags th JOIN th.hashtag h WHERE h.tag = :hashtag AND t.isDeleted = false AND t.isPublic = true AND t.user.userType != 'ADMIN' AND " +
+           SEEK_BY_CREATED_AT + " ORDER BY t.createdAt DESC, t.id DESC")
+    Slice<Thread> findByHashtagBefore(@Param("hashtag") String hashtag, @Param("createdAt") java.time.LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT t FROM Thread t WHERE t.createdAt >= :since AND t.isDeleted = false AND t.isPublic = true AND t.user.userType != 'ADMIN' AND " +
+           SEEK_BY_LIKES + " ORDER BY t.likesCount DESC, t.id DESC")
+    Slice<Thread> findTrendingThreadsBefore(@Param("since") java.time.LocalDateTime since, @Param("likesCount") Integer likesCount, @Param("id") Long id, Pageable pageable);
 }
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +31,10 @@ public interface ThreadRepostRepository extends JpaRepository<ThreadRepost, Long
     // Check if user reposted a thread by IDs
     boolean existsByThreadIdAndUserId(Long threadId, String userId);
     
+    // Find which of the given threads a user reposted (batch viewer state)
+    @Query("SELECT tr.thread.id FROM ThreadRepost tr WHERE tr.user.id = :userId AND tr.thread.id IN :threadIds")
+    List<Long> findRepostedThreadIds(@Param("userId") String userId, @Param("threadIds") Collection<Long> threadIds);
+    
     // Find all reposts for a thread
     List<ThreadRepost> findByThreadOrderByCreatedAtDesc(Thread thread);
     
@@ -0,0 +1,18 @@
+package com.urutte.repository;
+
+import com.urutte.model.UploadSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    
+    Optional<UploadSession> findByIdAndUserId(String id, String userId);
+    
+    List<UploadSession> findByExpiresAtBefore(LocalDateTime cutoff, Pageable pageable);
+}
@@ -2,8 +2,11 @@ package com.urutte.repository;
 
 import com.urutte.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +21,10 @@ public interface UserRepository extends JpaRepository<User, String> {
     
     Optional<User> findByUsername(String username);
     
+    // Resolve many usernames at once - returns [username, id] pairs
+    @Query("SELECT u.username, u.id FROM User u WHERE u.username IN :usernames")
+    List<Object[]> findIdsByUsernameIn(@Param("usernames") Collection<String> usernames);
+    
     List<User> findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(String name, String email);
     
     List<User> findByUsernameContainingIgnoreCase(String username);
@@ -31,7 +31,16 @@ public class AiFollowRequestService {
     private UserRepository userRepository;
 
     @Autowired
-    private NotificationService notificationService;
+    private NotificationPipeline notificationPipeline;
+
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+
+    @Autowired
+    private HotDataCache hotDataCache;
+
+    @Autowired
+    private FollowGraph followGraph;
 
     /**
      * Auto-approve follow requests to AI users after 30 minutes
@@ -76,17 +85,21 @@ public class AiFollowRequestService {
                         // Create the follow relationship
                         Follow follow = new Follow(followRequest.getRequester(), followRequest.getTarget());
                         followRepository.save(follow);
+                        homeTimelineService.onFollow(followRequest.getRequester().getId(), followRequest.getTarget().getId());
+                        followGraph.onFollow(followRequest.getRequester().getId(), followRequest.getTarget().getId());
+                        hotDataCache.evictUserCounts(followRequest.getRequester().getId(), followRequest.getTarget().getId());
 
                         // Create notification for the requester
-                        notificationService.createNotification(
+                        notificationPipeline.submit(new NotificationEvent(
                             followRequest.getRequester().getId(),
-                            followRequest.getTarget().getId(),
+                            followRequest.getTarget(),
                             "follow_approved",
                             "Follow Request Auto-Approved",
                             "Your follow request to " + followRequest.getTarget().getName() + " has been automatically approved",
+                            null,
                             "user",
                             null
-                        );
+                        ));
 
                         logger.info("Auto-approved follow request from user {} to AI user", 
                             followRequest.getRequester().getUsername());
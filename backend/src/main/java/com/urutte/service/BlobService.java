@@ -0,0 +1,282 @@
+package com.urutte.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed, reference-counted storage for uploads.
+ *
+ * An upload is hashed with SHA-256 while it streams to a temp file and stored in the BlobStore under
+ * "<sha256>.<ext>", so identical uploads share one file. Every store takes a reference in the blobs
+ * table and release gives one back. A blob left without references is kept for
+ * app.storage.sweep-grace-seconds (a quick re-upload revives it) and then deleted by the sweep,
+ * which locks the row so a concurrent store either waits and recreates the file or is seen first.
+ * References are committed on their own: a rolled-back caller leaks a reference rather than
+ * deleting a file that is in use.
+ */
+@Service
+public class BlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobService.class);
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,8})?");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,8}");
+
+    private static final String ACQUIRE_SQL =
+        "INSERT INTO blobs (blob_key, size, ref_count, created_at) VALUES (?, ?, 1, ?) " +
+        "ON CONFLICT (blob_key) DO UPDATE SET ref_count = blobs.ref_count + 1, released_at = NULL";
+
+    private static final String RELEASE_SQL =
+        "UPDATE blobs SET ref_count = ref_count - 1, " +
+        "released_at = CASE WHEN ref_count = 1 THEN ? ELSE released_at END " +
+        "WHERE blob_key = ? AND ref_count > 0";
+
+    // Rows a store is referencing right now are locked by it and skipped
+    private static final String SWEEP_SELECT_SQL =
+        "SELECT blob_key FROM blobs WHERE ref_count = 0 AND released_at < ? " +
+        "ORDER BY released_at LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String SWEEP_DELETE_SQL = "DELETE FROM blobs WHERE blob_key = ? AND ref_count = 0";
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.storage.temp-dir:./uploads/tmp}")
+    private String tempDir;
+
+    @Value("${app.storage.sweep-grace-seconds:3600}")
+    private long sweepGraceSeconds;
+
+    @Value("${app.storage.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    private TransactionTemplate referenceTransaction;
+
+    private Counter storedCounter;
+    private Counter deduplicatedCounter;
+    private Counter sweptCounter;
+
+    @PostConstruct
+    public void init() {
+        referenceTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        referenceTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        storedCounter = Counter.builder("storage.blobs.stored")
+            .description("Uploads written as a new blob")
+            .register(meterRegistry);
+        deduplicatedCounter = Counter.builder("storage.blobs.deduplicated")
+            .description("Uploads whose content was already stored")
+            .register(meterRegistry);
+        sweptCounter = Counter.builder("storage.blobs.swept")
+            .description("Unreferenced blobs deleted")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Store the stream (closed when done) and take a reference to it; returns the blob key.
+     * The extension, with or without its dot, is kept on the key so the blob is served with the right type.
+     */
+    public String store(InputStream content, String extension) throws IOException {
+        Path directory = Paths.get(tempDir);
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (InputStream in = content; OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            return commit(temp, HexFormat.of().formatHex(digest.digest()) + normalizeExtension(extension), size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Store a file already on disk and take a reference to it; returns the blob key. The file is
+     * read once for its hash and then moved, not copied, into the store (or deleted when the
+     * content is already there). It should sit on the same file system as app.storage.temp-dir.
+     * When storing fails the file is left where it is, so the caller can try again.
+     */
+    public String storeFile(Path file, String extension) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        String key = commit(file, HexFormat.of().formatHex(digest.digest()) + normalizeExtension(extension), size);
+        Files.deleteIfExists(file);
+        return key;
+    }
+
+    private String commit(Path file, String key, long size) throws IOException {
+        // The reference comes first, so a sweep cannot delete the file between the check below and its use
+        referenceTransaction.executeWithoutResult(status ->
+            jdbcTemplate.update(ACQUIRE_SQL, key, size, Timestamp.from(Instant.now())));
+        if (blobStore.putIfAbsent(key, file)) {
+            storedCounter.increment();
+        } else {
+            deduplicatedCounter.increment();
+        }
+        return key;
+    }
+
+    // Give back a reference taken by store, once the caller's transaction has committed
+    public void release(String key) {
+        if (!isKey(key)) {
+            throw new IllegalArgumentException("Not a blob key: " + key);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doRelease(key);
+                }
+            });
+        } else {
+            doRelease(key);
+        }
+    }
+
+    // Release the blob a stored URL or filename points at; false for files stored before the blob store
+    public boolean releaseUrl(String url) {
+        String key = keyOf(url);
+        if (key == null) {
+            return false;
+        }
+        release(key);
+        return true;
+    }
+
+    public String url(String key) {
+        return blobStore.url(key);
+    }
+
+    public InputStream open(String key) throws IOException {
+        if (!isKey(key)) {
+            throw new IllegalArgumentException("Not a blob key: " + key);
+        }
+        return blobStore.open(key);
+    }
+
+    public Optional<Path> localFile(String key) {
+        return isKey(key) ? blobStore.localFile(key) : Optional.empty();
+    }
+
+    @Scheduled(initialDelayString = "${app.storage.sweep-interval-ms:3600000}",
+               fixedDelayString = "${app.storage.sweep-interval-ms:3600000}")
+    public void sweep() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minusSeconds(sweepGraceSeconds));
+        int selected;
+        do {
+            List<String> keys = new ArrayList<>();
+            selected = transactionTemplate.execute(status -> {
+                List<String> candidates = jdbcTemplate.queryForList(SWEEP_SELECT_SQL, String.class, cutoff, sweepBatchSize);
+                for (String key : candidates) {
+                    try {
+                        blobStore.delete(key);
+                        keys.add(key);
+                    } catch (IOException e) {
+                        // Keep the row so the next sweep retries
+                        logger.warn("Failed to delete blob {}", key, e);
+                    }
+                }
+                if (!keys.isEmpty()) {
+                    List<Object[]> args = new ArrayList<>(keys.size());
+                    for (String key : keys) {
+                        args.add(new Object[] { key });
+                    }
+                    jdbcTemplate.batchUpdate(SWEEP_DELETE_SQL, args);
+                }
+                return candidates.size();
+            });
+            sweptCounter.increment(keys.size());
+        } while (selected == sweepBatchSize);
+    }
+
+    // Blob key at the end of a URL or filename, or null when it is not one
+    public static String keyOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        return isKey(name) ? name : null;
+    }
+
+    public static boolean isKey(String name) {
+        return name != null && KEY.matcher(name).matches();
+    }
+
+    private void doRelease(String key) {
+        int updated = jdbcTemplate.update(RELEASE_SQL, Timestamp.from(Instant.now()), key);
+        if (updated == 0) {
+            logger.warn("Released blob {} had no references", key);
+        }
+    }
+
+    static String normalizeExtension(String extension) {
+        if (extension == null) {
+            return "";
+        }
+        String normalized = extension.startsWith(".") ? extension.substring(1) : extension;
+        normalized = normalized.toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(normalized).matches() ? "." + normalized : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
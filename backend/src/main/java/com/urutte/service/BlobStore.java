@@ -0,0 +1,31 @@
+package com.urutte.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage of upload content under content-derived keys ("<sha256>.<ext>"). Keys never change meaning,
+ * so a blob is written once and only ever deleted; reference counting is left to BlobService.
+ *
+ * The implementation is chosen with app.storage.backend: local (files on disk, the default).
+ */
+public interface BlobStore {
+
+    // Move the file in under the key; false, leaving the file alone, when the key is already stored
+    boolean putIfAbsent(String key, Path file) throws IOException;
+
+    boolean exists(String key);
+
+    InputStream open(String key) throws IOException;
+
+    // Remove the blob and anything derived from it (resized copies); no-op when it is absent
+    void delete(String key) throws IOException;
+
+    // Path the blob is served at, relative to the backend's base URL
+    String url(String key);
+
+    // The blob as a local file, for zero-copy serving; empty for remote stores or a missing blob
+    Optional<Path> localFile(String key);
+}
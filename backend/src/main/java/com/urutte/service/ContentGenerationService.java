@@ -37,6 +37,9 @@ public class ContentGenerationService {
     @Autowired
     private ThreadRepository threadRepository;
     
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+    
     @Autowired
     private UserRepository userRepository;
     
@@ -465,6 +468,7 @@ public class ContentGenerationService {
             );
             
             aiGeneratedThreadRepository.save(aiThread);
+            homeTimelineService.onThreadCreated(thread);
             
             logger.info("Generated thread {} for topic {} from news: {}", 
                        thread.getId(), topic.getName(), newsItem.getTitle());
@@ -0,0 +1,56 @@
+package com.urutte.service;
+
+import com.urutte.model.User;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resolves the authenticated user of a request (see @CurrentUser).
+ *
+ * A bearer token takes precedence: its principal comes from TokenVerificationService, which
+ * JwtAuthenticationFilter has already filled for this request. Without one, the OIDC principal of
+ * the session is used. The result, including "no user", is kept as a request attribute, so the
+ * lookup runs at most once per request however many handlers or filters ask for it.
+ */
+@Service
+public class CurrentUserService {
+
+    public static final String REQUEST_ATTRIBUTE = CurrentUserService.class.getName() + ".user";
+
+    // Marks a request already resolved to no user
+    private static final Object ANONYMOUS = new Object();
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TokenVerificationService tokenVerificationService;
+
+    public User resolve(HttpServletRequest request) {
+        Object resolved = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (resolved == null) {
+            User user = lookup(request);
+            request.setAttribute(REQUEST_ATTRIBUTE, user != null ? user : ANONYMOUS);
+            return user;
+        }
+        return resolved instanceof User user ? user : null;
+    }
+
+    private User lookup(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            VerifiedToken verified = tokenVerificationService.verify(authHeader.substring(7));
+            return verified != null ? userService.getAuthenticatedUser(verified.getUserId()) : null;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof OidcUser oidcUser) {
+            return userService.getOrCreateUser(oidcUser);
+        }
+        return null;
+    }
+}
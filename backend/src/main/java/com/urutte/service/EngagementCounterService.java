@@ -0,0 +1,281 @@
+package com.urutte.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind aggregator for thread engagement counters (likes, reposts, replies).
+ *
+ * Request threads add deltas to a per-thread LongAdder instead of loading and saving the Thread row,
+ * so a viral thread no longer serializes every like on one row lock. A scheduled flush drains the
+ * buffer and applies all deltas in one JDBC batch of atomic "count = count + ?" updates.
+ *
+ * The buffer is split into stripes. Writers take a stripe's read lock (shared) while adding; the
+ * flusher takes the write lock only long enough to swap the stripe's map for an empty one, which
+ * guarantees no delta is added to a map after it has been drained.
+ *
+ * The thread_likes, thread_reposts and reply rows remain the source of truth: threads touched since
+ * the last reconciliation have their counters recomputed from those rows periodically. A delta reaches
+ * the buffer only after its row has committed, so a recount can already include a delta that has not
+ * been flushed yet. Threads are therefore recounted only once they have been quiet for a while, and a
+ * thread touched while it is being recounted stays marked, so the next run corrects it.
+ */
+@Service
+public class EngagementCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EngagementCounterService.class);
+
+    private static final int STRIPES = 16;
+
+    private static final String FLUSH_SQL =
+        "UPDATE threads SET " +
+        "likes_count = GREATEST(COALESCE(likes_count, 0) + ?, 0), " +
+        "reposts_count = GREATEST(COALESCE(reposts_count, 0) + ?, 0), " +
+        "replies_count = GREATEST(COALESCE(replies_count, 0) + ?, 0) " +
+        "WHERE id = ?";
+
+    private static final String RECONCILE_SQL =
+        "UPDATE threads t SET " +
+        "likes_count = (SELECT COUNT(*) FROM thread_likes l WHERE l.thread_id = t.id), " +
+        "reposts_count = (SELECT COUNT(*) FROM thread_reposts r WHERE r.thread_id = t.id), " +
+        "replies_count = (SELECT COUNT(*) FROM threads c WHERE c.parent_thread_id = t.id AND c.is_deleted = false) " +
+        "WHERE t.id = ?";
+
+    public enum Counter {
+        LIKES,
+        REPOSTS,
+        REPLIES
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private HotDataCache hotDataCache;
+
+    @Value("${app.engagement.reconcile-quiet-ms:60000}")
+    private long reconcileQuietMs;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    // Threads changed since the last reconciliation run, with the time of their latest change
+    private final ConcurrentHashMap<Long, Long> touchedThreads = new ConcurrentHashMap<>();
+
+    private Timer flushLagTimer;
+    private io.micrometer.core.instrument.Counter flushedRowsCounter;
+
+    public EngagementCounterService() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("engagement.counters.buffer.size", this, EngagementCounterService::bufferedThreadCount)
+            .description("Threads with engagement deltas waiting to be flushed")
+            .register(meterRegistry);
+        flushLagTimer = Timer.builder("engagement.counters.flush.lag")
+            .description("Age of the oldest buffered delta when it was flushed")
+            .register(meterRegistry);
+        flushedRowsCounter = io.micrometer.core.instrument.Counter.builder("engagement.counters.flushed.rows")
+            .description("Thread rows updated by counter flushes")
+            .register(meterRegistry);
+    }
+
+    // Record a counter change once the caller's transaction commits (immediately when there is none)
+    public void increment(Long threadId, Counter counter, long delta) {
+        // Marked before the commit, while the relationship row may still be uncommitted
+        touchedThreads.put(threadId, System.nanoTime());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(threadId, counter, delta);
+                }
+            });
+        } else {
+            add(threadId, counter, delta);
+        }
+    }
+
+    // Deltas not yet flushed, so responses can show up-to-date counts
+    public long pending(Long threadId, Counter counter) {
+        Stripe stripe = stripeFor(threadId);
+        stripe.lock.readLock().lock();
+        try {
+            Deltas deltas = stripe.deltas.get(threadId);
+            return deltas != null ? deltas.get(counter).sum() : 0;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    private boolean hasPending(Long threadId) {
+        return stripeFor(threadId).deltas.containsKey(threadId);
+    }
+
+    public int bufferedThreadCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.deltas.size();
+        }
+        return count;
+    }
+
+    @Scheduled(fixedDelayString = "${app.engagement.flush-interval-ms:1000}")
+    public void flush() {
+        Map<Long, Deltas> drained = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            drained.putAll(stripe.drain());
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(drained.size());
+        long oldestNanos = Long.MAX_VALUE;
+        for (Map.Entry<Long, Deltas> entry : drained.entrySet()) {
+            Deltas deltas = entry.getValue();
+            rows.add(new Object[] {
+                deltas.likes.sum(), deltas.reposts.sum(), deltas.replies.sum(), entry.getKey()
+            });
+            oldestNanos = Math.min(oldestNanos, deltas.createdNanos);
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, rows);
+            // Cached snapshots hold the stored counts, which now include the drained deltas
+            hotDataCache.evictThreads(drained.keySet());
+            flushedRowsCounter.increment(rows.size());
+            flushLagTimer.record(Duration.ofNanos(System.nanoTime() - oldestNanos));
+        } catch (Exception e) {
+            // Put the deltas back so the next flush retries them
+            logger.error("Failed to flush engagement counters for {} threads", rows.size(), e);
+            for (Map.Entry<Long, Deltas> entry : drained.entrySet()) {
+                Deltas deltas = entry.getValue();
+                add(entry.getKey(), Counter.LIKES, deltas.likes.sum());
+                add(entry.getKey(), Counter.REPOSTS, deltas.reposts.sum());
+                add(entry.getKey(), Counter.REPLIES, deltas.replies.sum());
+            }
+        }
+    }
+
+    // Recompute counters of recently active threads from the relationship rows
+    @Scheduled(fixedDelayString = "${app.engagement.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        if (touchedThreads.isEmpty()) {
+            return;
+        }
+        // Threads changed recently or with buffered deltas are left for a later run, otherwise the
+        // next flush would add those deltas on top of counts that already include them. The
+        // conditional remove skips a thread changed since it was read; one changed after it is
+        // marked again and recounted by the next run
+        long quietSince = System.nanoTime() - Duration.ofMillis(reconcileQuietMs).toNanos();
+        List<Long> threadIds = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : touchedThreads.entrySet()) {
+            Long threadId = entry.getKey();
+            long touchedNanos = entry.getValue();
+            if (touchedNanos - quietSince <= 0 && !hasPending(threadId)
+                    && touchedThreads.remove(threadId, touchedNanos)) {
+                threadIds.add(threadId);
+            }
+        }
+        if (threadIds.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(threadIds.size());
+        for (Long threadId : threadIds) {
+            rows.add(new Object[] { threadId });
+        }
+        try {
+            jdbcTemplate.batchUpdate(RECONCILE_SQL, rows);
+            hotDataCache.evictThreads(threadIds);
+            logger.info("Reconciled engagement counters for {} threads", threadIds.size());
+        } catch (Exception e) {
+            logger.error("Failed to reconcile engagement counters", e);
+            for (Long threadId : threadIds) {
+                touchedThreads.putIfAbsent(threadId, quietSince);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void add(Long threadId, Counter counter, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        Stripe stripe = stripeFor(threadId);
+        stripe.lock.readLock().lock();
+        try {
+            stripe.deltas.computeIfAbsent(threadId, id -> new Deltas()).get(counter).add(delta);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    private Stripe stripeFor(Long threadId) {
+        return stripes[Math.floorMod(threadId.hashCode(), STRIPES)];
+    }
+
+    private static class Stripe {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile ConcurrentHashMap<Long, Deltas> deltas = new ConcurrentHashMap<>();
+
+        // Swap in an empty map; once the write lock is released no writer can reach the old one
+        Map<Long, Deltas> drain() {
+            lock.writeLock().lock();
+            try {
+                Map<Long, Deltas> drained = deltas;
+                deltas = new ConcurrentHashMap<>();
+                return drained;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static class Deltas {
+        private final LongAdder likes = new LongAdder();
+        private final LongAdder reposts = new LongAdder();
+        private final LongAdder replies = new LongAdder();
+        private final long createdNanos = System.nanoTime();
+
+        LongAdder get(Counter counter) {
+            switch (counter) {
+                case LIKES:
+                    return likes;
+                case REPOSTS:
+                    return reposts;
+                default:
+                    return replies;
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.urutte.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.apache.commons.io.FilenameUtils;
@@ -9,14 +12,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 public class FileUploadService {
     
+    @Autowired
+    private BlobService blobService;
+    
     @Value("${app.upload.video-dir:./uploads/videos}")
     private String videoUploadDir;
     
@@ -37,46 +42,24 @@ public class FileUploadService {
         // Validate file
         validateVideoFile(file);
         
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(videoUploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = FilenameUtils.getExtension(originalFilename);
-        String filename = UUID.randomUUID().toString() + "." + extension;
-        
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // Store by content; the blob key doubles as the filename
+        String extension = FilenameUtils.getExtension(file.getOriginalFilename());
+        String key = blobService.store(file.getInputStream(), extension);
         
         // Return relative path for database storage
-        return "videos/" + filename;
+        return "videos/" + key;
     }
     
     public String uploadImage(MultipartFile file) throws IOException {
         // Validate file
         validateImageFile(file);
         
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(imageUploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = FilenameUtils.getExtension(originalFilename);
-        String filename = UUID.randomUUID().toString() + "." + extension;
-        
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // Store by content; the blob key doubles as the filename
+        String extension = FilenameUtils.getExtension(file.getOriginalFilename());
+        String key = blobService.store(file.getInputStream(), extension);
         
         // Return relative path for database storage
-        return "images/" + filename;
+        return "images/" + key;
     }
     
     private void validateVideoFile(MultipartFile file) {
@@ -88,18 +71,30 @@ public class FileUploadService {
             throw new IllegalArgumentException("Video file size exceeds 3MB limit");
         }
         
-        String extension = FilenameUtils.getExtension(file.getOriginalFilename());
+        validateVideoFormat(file.getOriginalFilename(), file.getContentType());
+    }
+    
+    // Extension and declared content type of a video, for uploads that do not arrive as a MultipartFile
+    public void validateVideoFormat(String filename, String contentType) {
+        String extension = FilenameUtils.getExtension(filename);
         if (extension == null || !ALLOWED_VIDEO_EXTENSIONS.contains(extension.toLowerCase())) {
             throw new IllegalArgumentException("Invalid video format. Allowed formats: " + ALLOWED_VIDEO_EXTENSIONS);
         }
         
         // Basic content type validation
-        String contentType = file.getContentType();
         if (contentType == null || !contentType.startsWith("video/")) {
             throw new IllegalArgumentException("File is not a video");
         }
     }
     
+    // Store a fully assembled video file (a finished resumable upload); the file is moved, not copied
+    public String storeVideoFile(Path file, String filename) throws IOException {
+        String key = blobService.storeFile(file, FilenameUtils.getExtension(filename));
+        
+        // Return relative path for database storage
+        return "videos/" + key;
+    }
+    
     private void validateImageFile(MultipartFile file) {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Image file is empty");
@@ -121,23 +116,38 @@ public class FileUploadService {
         }
     }
     
-    public byte[] getVideo(String filename) throws IOException {
-        Path filePath = Paths.get(videoUploadDir).resolve(filename);
-        if (!Files.exists(filePath)) {
-            throw new IOException("Video file not found: " + filename);
-        }
-        return Files.readAllBytes(filePath);
+    public MediaFile getVideoFile(String filename) throws IOException {
+        return getMediaFile(videoUploadDir, filename, "video/mp4");
     }
     
-    public byte[] getImage(String filename) throws IOException {
-        Path filePath = Paths.get(imageUploadDir).resolve(filename);
-        if (!Files.exists(filePath)) {
-            throw new IOException("Image file not found: " + filename);
+    public MediaFile getImageFile(String filename) throws IOException {
+        return getMediaFile(imageUploadDir, filename, "image/jpeg");
+    }
+    
+    // Metadata only: the content is streamed by MediaFileSender. Files uploaded before the blob store keep their directory
+    private MediaFile getMediaFile(String directory, String filename, String defaultContentType) throws IOException {
+        Path filePath;
+        if (BlobService.isKey(filename)) {
+            filePath = blobService.localFile(filename)
+                .orElseThrow(() -> new IOException("Media file not found: " + filename));
+        } else {
+            Path root = Paths.get(directory).toAbsolutePath().normalize();
+            filePath = root.resolve(filename).normalize();
+            if (!filePath.startsWith(root) || !Files.isRegularFile(filePath)) {
+                throw new IOException("Media file not found: " + filename);
+            }
         }
-        return Files.readAllBytes(filePath);
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        MediaType contentType = MediaTypeFactory.getMediaType(filename)
+            .orElse(MediaType.parseMediaType(defaultContentType));
+        return new MediaFile(filePath, contentType, attributes.size(), attributes.lastModifiedTime().toMillis());
     }
     
     public void deleteVideo(String filename) throws IOException {
+        // Other posts may share the blob; it is deleted once none refers to it
+        if (blobService.releaseUrl(filename)) {
+            return;
+        }
         Path filePath = Paths.get(videoUploadDir).resolve(filename);
         if (Files.exists(filePath)) {
             Files.delete(filePath);
@@ -145,6 +155,10 @@ public class FileUploadService {
     }
     
     public void deleteImage(String filename) throws IOException {
+        // Other posts may share the blob; it is deleted once none refers to it
+        if (blobService.releaseUrl(filename)) {
+            return;
+        }
         Path filePath = Paths.get(imageUploadDir).resolve(filename);
         if (Files.exists(filePath)) {
             Files.delete(filePath);
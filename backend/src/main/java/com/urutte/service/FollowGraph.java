@@ -0,0 +1,367 @@
+package com.urutte.service;
+
+import com.urutte.repository.FollowRepository;
+import com.urutte.util.SortedIntSet;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the follows table for the read paths: follow checks, follower and following
+ * counts, follower fan-out and mutual-follow counts.
+ *
+ * User IDs are mapped to dense ints and every user keeps its following and followers as SortedIntSets,
+ * so "does A follow B" is a hash lookup and a binary search and counts are array lengths. The graph
+ * is loaded with one streaming scan of follows and reloaded every app.follow-graph.refresh-interval-ms,
+ * which also picks up follows written by other nodes. The follow, unfollow and approve paths of this
+ * node apply their change after commit. Until the first load finishes, and with
+ * app.follow-graph.enabled=false, queries go to FollowRepository.
+ *
+ * Between reloads the graph can lag behind follows written on other nodes, so it is only used where
+ * a stale answer is harmless. Permission checks, such as viewing a followers-only thread, query
+ * FollowRepository.
+ */
+@Service
+public class FollowGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraph.class);
+
+    private static final String SCAN_SQL = "SELECT follower_id, following_id FROM follows";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.follow-graph.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.follow-graph.fetch-size:10000}")
+    private int fetchSize;
+
+    // Null until the first load
+    private volatile Graph graph;
+
+    // Changes applied while a reload scans, replayed onto the new graph; guarded by this
+    private List<Change> pendingChanges;
+
+    private TransactionTemplate scanTransaction;
+
+    @PostConstruct
+    public void init() {
+        // Read-only transaction so the PostgreSQL driver honours the fetch size and streams the scan
+        scanTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        scanTransaction.setReadOnly(true);
+
+        Gauge.builder("follow.graph.users", this, followGraph -> followGraph.graph != null ? followGraph.graph.userCount : 0)
+            .description("Users in the in-memory follow graph")
+            .register(meterRegistry);
+        Gauge.builder("follow.graph.edges", this, followGraph -> followGraph.graph != null ? followGraph.graph.edgeCount : 0)
+            .description("Follow relationships in the in-memory follow graph")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.follow-graph.refresh-interval-ms:300000}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            pendingChanges = new ArrayList<>();
+        }
+
+        Graph loaded;
+        try {
+            Builder builder = new Builder();
+            scanTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SCAN_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (RowCallbackHandler) rs -> builder.add(rs.getString(1), rs.getString(2))));
+            loaded = builder.build();
+        } catch (Exception e) {
+            // Keep serving the previous graph (or the repository) and retry on the next run
+            logger.error("Failed to load the follow graph", e);
+            synchronized (this) {
+                pendingChanges = null;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            for (Change change : pendingChanges) {
+                loaded.apply(change);
+            }
+            pendingChanges = null;
+            graph = loaded;
+        }
+        logger.debug("Loaded follow graph with {} users and {} follows", loaded.userCount, loaded.edgeCount);
+    }
+
+    public boolean isLoaded() {
+        return graph != null;
+    }
+
+    public boolean follows(String followerId, String followingId) {
+        Graph current = graph;
+        if (current == null) {
+            return followRepository.existsByFollowerIdAndFollowingId(followerId, followingId);
+        }
+        Node follower = current.nodes.get(followerId);
+        Node following = current.nodes.get(followingId);
+        return follower != null && following != null && follower.following.contains(following.id);
+    }
+
+    public long countFollowers(String userId) {
+        Graph current = graph;
+        if (current == null) {
+            return followRepository.countByFollowingId(userId);
+        }
+        Node node = current.nodes.get(userId);
+        return node != null ? node.followers.size() : 0;
+    }
+
+    public long countFollowing(String userId) {
+        Graph current = graph;
+        if (current == null) {
+            return followRepository.countByFollowerId(userId);
+        }
+        Node node = current.nodes.get(userId);
+        return node != null ? node.following.size() : 0;
+    }
+
+    public List<String> getFollowerIds(String userId) {
+        Graph current = graph;
+        if (current == null) {
+            return followRepository.findFollowerIdsByUserId(userId);
+        }
+        Node node = current.nodes.get(userId);
+        return node != null ? current.toUserIds(node.followers) : List.of();
+    }
+
+    public Set<String> getFollowingIds(String userId) {
+        Graph current = graph;
+        if (current == null) {
+            return new HashSet<>(followRepository.findFollowingIdsByUserId(userId));
+        }
+        Node node = current.nodes.get(userId);
+        return node != null ? new HashSet<>(current.toUserIds(node.following)) : Set.of();
+    }
+
+    // Users followed by userId who also follow candidateId. Only a ranking signal: 0 until the graph is loaded
+    public int countMutualFollows(String userId, String candidateId) {
+        Graph current = graph;
+        if (current == null) {
+            return 0;
+        }
+        Node user = current.nodes.get(userId);
+        Node candidate = current.nodes.get(candidateId);
+        return user != null && candidate != null ? user.following.intersectionSize(candidate.followers) : 0;
+    }
+
+    // Call after saving the follow; the graph changes when the transaction commits
+    public void onFollow(String followerId, String followingId) {
+        applyAfterCommit(new Change(followerId, followingId, true));
+    }
+
+    // Call after deleting the follow; the graph changes when the transaction commits
+    public void onUnfollow(String followerId, String followingId) {
+        applyAfterCommit(new Change(followerId, followingId, false));
+    }
+
+    private void applyAfterCommit(Change change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private synchronized void apply(Change change) {
+        if (pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+        if (graph != null) {
+            graph.apply(change);
+        }
+    }
+
+    private static class Change {
+        final String followerId;
+        final String followingId;
+        final boolean follow;
+
+        Change(String followerId, String followingId, boolean follow) {
+            this.followerId = followerId;
+            this.followingId = followingId;
+            this.follow = follow;
+        }
+    }
+
+    private static class Node {
+        final int id;
+        // Replaced, never mutated, so readers need no lock
+        volatile SortedIntSet following;
+        volatile SortedIntSet followers;
+
+        Node(int id, SortedIntSet following, SortedIntSet followers) {
+            this.id = id;
+            this.following = following;
+            this.followers = followers;
+        }
+    }
+
+    // Nodes by user ID and user IDs by node ID. Mutated only under the FollowGraph lock
+    private static class Graph {
+        final Map<String, Node> nodes;
+        volatile String[] userIds;
+        volatile int userCount;
+        volatile long edgeCount;
+
+        Graph(Map<String, Node> nodes, String[] userIds, int userCount, long edgeCount) {
+            this.nodes = nodes;
+            this.userIds = userIds;
+            this.userCount = userCount;
+            this.edgeCount = edgeCount;
+        }
+
+        List<String> toUserIds(SortedIntSet ids) {
+            String[] names = userIds;
+            List<String> result = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                result.add(names[ids.get(i)]);
+            }
+            return result;
+        }
+
+        void apply(Change change) {
+            if (change.follow) {
+                Node follower = nodeFor(change.followerId);
+                Node following = nodeFor(change.followingId);
+                if (!follower.following.contains(following.id)) {
+                    follower.following = follower.following.with(following.id);
+                    following.followers = following.followers.with(follower.id);
+                    edgeCount++;
+                }
+            } else {
+                Node follower = nodes.get(change.followerId);
+                Node following = nodes.get(change.followingId);
+                if (follower != null && following != null && follower.following.contains(following.id)) {
+                    follower.following = follower.following.without(following.id);
+                    following.followers = following.followers.without(follower.id);
+                    edgeCount--;
+                }
+            }
+        }
+
+        private Node nodeFor(String userId) {
+            Node node = nodes.get(userId);
+            if (node != null) {
+                return node;
+            }
+            int id = userCount;
+            if (id == userIds.length) {
+                userIds = Arrays.copyOf(userIds, Math.max(16, id * 2));
+            }
+            // Written before the node or any set holding its ID is published
+            userIds[id] = userId;
+            node = new Node(id, SortedIntSet.EMPTY, SortedIntSet.EMPTY);
+            nodes.put(userId, node);
+            userCount = id + 1;
+            return node;
+        }
+    }
+
+    // Collects the scanned edges as int pairs, then cuts them into one sorted array per user and direction
+    private static class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> userIds = new ArrayList<>();
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int edges;
+
+        void add(String followerId, String followingId) {
+            if (followerId == null || followingId == null) {
+                return;
+            }
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = idOf(followerId);
+            to[edges] = idOf(followingId);
+            edges++;
+        }
+
+        Graph build() {
+            int users = userIds.size();
+            int[][] following = new int[users][];
+            int[][] followers = new int[users][];
+            int[] followingCount = new int[users];
+            int[] followerCount = new int[users];
+            for (int e = 0; e < edges; e++) {
+                followingCount[from[e]]++;
+                followerCount[to[e]]++;
+            }
+            for (int u = 0; u < users; u++) {
+                following[u] = new int[followingCount[u]];
+                followers[u] = new int[followerCount[u]];
+            }
+            Arrays.fill(followingCount, 0);
+            Arrays.fill(followerCount, 0);
+            for (int e = 0; e < edges; e++) {
+                following[from[e]][followingCount[from[e]]++] = to[e];
+                followers[to[e]][followerCount[to[e]]++] = from[e];
+            }
+
+            Map<String, Node> nodes = new ConcurrentHashMap<>(Math.max(16, users * 4 / 3 + 1));
+            long edgeCount = 0;
+            for (int u = 0; u < users; u++) {
+                Node node = new Node(u,
+                    SortedIntSet.of(following[u], following[u].length),
+                    SortedIntSet.of(followers[u], followers[u].length));
+                nodes.put(userIds.get(u), node);
+                edgeCount += node.following.size();
+            }
+            return new Graph(nodes, userIds.toArray(new String[Math.max(16, users * 2)]), users, edgeCount);
+        }
+
+        private int idOf(String userId) {
+            Integer id = ids.get(userId);
+            if (id == null) {
+                id = userIds.size();
+                ids.put(userId, id);
+                userIds.add(userId);
+            }
+            return id;
+        }
+    }
+}
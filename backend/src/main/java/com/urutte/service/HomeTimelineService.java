@@ -0,0 +1,188 @@
+package com.urutte.service;
+
+import com.urutte.model.ThreadMention;
+import com.urutte.model.User;
+import com.urutte.model.UserType;
+import com.urutte.repository.ThreadMentionRepository;
+import com.urutte.repository.ThreadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Fan-out-on-write home timelines.
+ *
+ * Public threads from regular users go into one shared public timeline; everything whose visibility
+ * depends on the reader (own threads, followers-only threads, mentioned-only threads and AI threads
+ * from followed AI users) is pushed into each eligible reader's personal timeline when it is written.
+ * A feed read merges the two lists with a keyset scan, so it never runs the findMainThreadsForUser query.
+ *
+ * Timelines are built lazily from the database the first time they are read, and kept current by
+ * the create, follow and unfollow hooks. Without a configured HomeTimelineStore this service is
+ * disabled and ThreadService keeps using the query-based feed.
+ */
+@Service
+@Transactional
+public class HomeTimelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomeTimelineService.class);
+
+    @Autowired(required = false)
+    private HomeTimelineStore homeTimelineStore;
+
+    @Autowired
+    private ThreadRepository threadRepository;
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Autowired
+    private ThreadMentionRepository threadMentionRepository;
+
+    @Value("${app.feed.timeline.capacity:800}")
+    private int capacity;
+
+    public boolean isEnabled() {
+        return homeTimelineStore != null;
+    }
+
+    // Push a newly created main thread into every timeline that may show it
+    public void onThreadCreated(com.urutte.model.Thread thread) {
+        if (!isEnabled() || thread.getParentThread() != null || Boolean.TRUE.equals(thread.getIsDeleted())) {
+            return;
+        }
+
+        User author = thread.getUser();
+
+        // Authors always see their own threads
+        homeTimelineStore.push(List.of(author.getId()), TimelineEntry.of(thread, TimelineEntry.Reason.OWN));
+
+        if (author.getUserType() == UserType.ADMIN) {
+            // AI threads are only shown to users who follow the AI user
+            pushToFollowers(thread);
+        } else if (Boolean.TRUE.equals(thread.getIsPublic())) {
+            homeTimelineStore.push(List.of(HomeTimelineStore.PUBLIC_TIMELINE), TimelineEntry.of(thread, TimelineEntry.Reason.PUBLIC));
+        } else if (thread.getReplyPermission() != null) {
+            switch (thread.getReplyPermission()) {
+                case FOLLOWERS:
+                    pushToFollowers(thread);
+                    break;
+                case MENTIONED_ONLY:
+                    pushToMentionedUsers(thread);
+                    break;
+                default:
+                    // FOLLOWING threads are only shown to their author in the feed
+                    break;
+            }
+        }
+    }
+
+    // Backfill the followed author's follower-only and AI threads into the follower's timeline
+    public void onFollow(String followerId, String followingId) {
+        if (!isEnabled() || !homeTimelineStore.isMaterialized(followerId)) {
+            // Unbuilt timelines pick the new follow up when they are first read
+            return;
+        }
+
+        List<TimelineEntry> entries = threadRepository
+            .findFollowerTimelineThreadsByAuthor(followingId, PageRequest.of(0, capacity)).stream()
+            .map(thread -> TimelineEntry.of(thread, TimelineEntry.Reason.FOLLOW))
+            .collect(Collectors.toList());
+        homeTimelineStore.pushAll(followerId, entries);
+    }
+
+    // Drop entries that were only visible because of the follow
+    public void onUnfollow(String followerId, String followingId) {
+        if (!isEnabled()) {
+            return;
+        }
+        homeTimelineStore.removeFollowEntries(followerId, followingId);
+    }
+
+    // Keyset read of a user's home timeline: up to limit entries older than the cursor, newest first
+    public List<TimelineEntry> read(String userId, LocalDateTime cursorCreatedAt, Long cursorThreadId, int limit) {
+        ensureMaterialized(HomeTimelineStore.PUBLIC_TIMELINE);
+        ensureMaterialized(userId);
+
+        List<TimelineEntry> personal = homeTimelineStore.read(userId, cursorCreatedAt, cursorThreadId, limit);
+        List<TimelineEntry> shared = homeTimelineStore.read(HomeTimelineStore.PUBLIC_TIMELINE, cursorCreatedAt, cursorThreadId, limit);
+
+        return merge(personal, shared, limit);
+    }
+
+    private void pushToFollowers(com.urutte.model.Thread thread) {
+        List<String> followerIds = followGraph.getFollowerIds(thread.getUser().getId());
+        homeTimelineStore.push(followerIds, TimelineEntry.of(thread, TimelineEntry.Reason.FOLLOW));
+    }
+
+    private void pushToMentionedUsers(com.urutte.model.Thread thread) {
+        List<String> mentionedIds = threadMentionRepository.findByThreadOrderByCreatedAtDesc(thread).stream()
+            .map(ThreadMention::getMentionedUser)
+            .map(User::getId)
+            .distinct()
+            .collect(Collectors.toList());
+        homeTimelineStore.push(mentionedIds, TimelineEntry.of(thread, TimelineEntry.Reason.MENTION));
+    }
+
+    private void ensureMaterialized(String ownerId) {
+        if (homeTimelineStore.isMaterialized(ownerId)) {
+            return;
+        }
+
+        PageRequest backfillPage = PageRequest.of(0, capacity);
+        List<TimelineEntry> entries;
+
+        if (HomeTimelineStore.PUBLIC_TIMELINE.equals(ownerId)) {
+            entries = threadRepository.findPublicTimelineThreads(backfillPage).stream()
+                .map(thread -> TimelineEntry.of(thread, TimelineEntry.Reason.PUBLIC))
+                .collect(Collectors.toList());
+        } else {
+            entries = threadRepository.findPersonalTimelineThreads(ownerId, backfillPage).stream()
+                .map(thread -> TimelineEntry.of(thread, reasonFor(thread, ownerId)))
+                .collect(Collectors.toList());
+        }
+
+        homeTimelineStore.pushAll(ownerId, entries);
+        homeTimelineStore.markMaterialized(ownerId);
+        logger.debug("Materialized home timeline {} with {} entries", ownerId, entries.size());
+    }
+
+    private TimelineEntry.Reason reasonFor(com.urutte.model.Thread thread, String ownerId) {
+        if (thread.getUser().getId().equals(ownerId)) {
+            return TimelineEntry.Reason.OWN;
+        }
+        if (thread.getUser().getUserType() != UserType.ADMIN
+                && thread.getReplyPermission() == com.urutte.model.ReplyPermission.MENTIONED_ONLY) {
+            return TimelineEntry.Reason.MENTION;
+        }
+        return TimelineEntry.Reason.FOLLOW;
+    }
+
+    // Merge two newest-first lists, dropping threads that appear in both
+    private List<TimelineEntry> merge(List<TimelineEntry> first, List<TimelineEntry> second, int limit) {
+        List<TimelineEntry> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        Set<Long> seen = new HashSet<>();
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            TimelineEntry next;
+            if (j >= second.size() || (i < first.size() && TimelineEntry.NEWEST_FIRST.compare(first.get(i), second.get(j)) <= 0)) {
+                next = first.get(i++);
+            } else {
+                next = second.get(j++);
+            }
+            if (seen.add(next.getThreadId())) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+}
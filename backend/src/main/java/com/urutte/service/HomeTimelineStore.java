@@ -0,0 +1,36 @@
+package com.urutte.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage backend for materialized home timelines. Each owner has a list of thread references
+ * kept newest first; reads are keyset scans from an optional (createdAt, threadId) cursor.
+ *
+ * The backend is chosen with app.feed.timeline.mode (memory or postgres). When no store is
+ * configured the feed falls back to the ThreadRepository.findMainThreadsForUser query.
+ */
+public interface HomeTimelineStore {
+
+    // Owner key of the shared timeline holding every public thread
+    String PUBLIC_TIMELINE = "__public__";
+
+    // Add an entry to the timelines of all given owners; duplicates are ignored
+    void push(Collection<String> ownerIds, TimelineEntry entry);
+
+    // Add several entries to one owner's timeline; duplicates are ignored
+    void pushAll(String ownerId, Collection<TimelineEntry> entries);
+
+    // Read up to limit entries older than the cursor (or from the top when the cursor is null)
+    List<TimelineEntry> read(String ownerId, LocalDateTime cursorCreatedAt, Long cursorThreadId, int limit);
+
+    // Remove entries that were added because the owner followed the given author
+    void removeFollowEntries(String ownerId, String authorId);
+
+    // True once the owner's timeline has been backfilled; fan-out pushes alone do not count
+    boolean isMaterialized(String ownerId);
+
+    // Record that the backfill of the owner's timeline has run
+    void markMaterialized(String ownerId);
+}
@@ -0,0 +1,216 @@
+package com.urutte.service;
+
+import com.urutte.dto.UserDto;
+import com.urutte.model.User;
+import com.urutte.repository.ThreadRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Typed access to the read-through caches for hot threads and user profiles (see CacheConfig):
+ *   - threadSnapshots: viewer-independent ThreadSnapshot of public threads, by thread ID
+ *   - userSummaries: profile fields of a user (a UserDto without counts or follow state), by user ID
+ *   - userCounts: follower, following and post counts, by user ID
+ *   - authenticatedUsers: User entities of recently authenticated callers, by user ID (this node only)
+ *
+ * Writers call the evict methods. Inside a transaction the entry is evicted immediately and again
+ * after commit. Every thread eviction also bumps a generation counter, and a loader only keeps its
+ * snapshot when no eviction ran while it loaded, so a reader that read the row before a commit
+ * cannot put the old snapshot back after the eviction. Snapshots embed their quoted threads, so
+ * evicting a thread also evicts the threads quoting it.
+ */
+@Service
+public class HotDataCache {
+
+    public static final String THREAD_SNAPSHOTS = "threadSnapshots";
+    public static final String USER_SUMMARIES = "userSummaries";
+    public static final String USER_COUNTS = "userCounts";
+    public static final String AUTHENTICATED_USERS = "authenticatedUsers";
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private static final String[] LAZY_USER_COLLECTIONS = { "posts", "following", "followers", "likes" };
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ThreadRepository threadRepository;
+
+    // Eviction count per stripe of thread IDs; a shared stripe only costs a skipped put
+    private final AtomicLongArray threadGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private Cache threadSnapshots;
+    private Cache userSummaries;
+    private Cache userCounts;
+    private Cache authenticatedUsers;
+
+    @PostConstruct
+    public void initCaches() {
+        threadSnapshots = cacheManager.getCache(THREAD_SNAPSHOTS);
+        userSummaries = cacheManager.getCache(USER_SUMMARIES);
+        userCounts = cacheManager.getCache(USER_COUNTS);
+        authenticatedUsers = cacheManager.getCache(AUTHENTICATED_USERS);
+    }
+
+    // Cached snapshot of a thread, or null when it has to be loaded from the database
+    public ThreadSnapshot getThreadSnapshot(Long threadId) {
+        return threadSnapshots.get(threadId, ThreadSnapshot.class);
+    }
+
+    // Read before loading a thread and pass to putThreadSnapshot
+    public long threadGeneration(Long threadId) {
+        return threadGenerations.get(generationStripe(threadId));
+    }
+
+    // Cache a snapshot loaded after threadGeneration returned generation, unless the thread was evicted since
+    public void putThreadSnapshot(ThreadSnapshot snapshot, long generation) {
+        Long threadId = snapshot.getThreadId();
+        if (threadGeneration(threadId) != generation) {
+            return;
+        }
+        threadSnapshots.put(threadId, snapshot);
+        // An eviction between the check and the put must not leave the snapshot behind
+        if (threadGeneration(threadId) != generation) {
+            threadSnapshots.evict(threadId);
+        }
+    }
+
+    // Content of the thread changed: evict it and every snapshot that embeds it as a quote
+    public void evictThread(Long threadId) {
+        Set<Long> evicted = new HashSet<>();
+        List<Long> current = List.of(threadId);
+        while (!current.isEmpty()) {
+            List<Long> next = new ArrayList<>();
+            for (Long id : current) {
+                if (evicted.add(id)) {
+                    evictThreadNowAndAfterCommit(id);
+                    next.add(id);
+                }
+            }
+            current = next.isEmpty() ? next : threadRepository.findIdsQuoting(next);
+        }
+    }
+
+    // Stored counters changed; quoting snapshots keep their embedded counts until they expire
+    public void evictThreads(Collection<Long> threadIds) {
+        for (Long threadId : threadIds) {
+            evictThreadNowAndAfterCommit(threadId);
+        }
+    }
+
+    // Profile fields of the user, loading the entity only on a miss. The result is shared: callers
+    // that add counts or follow state work on copySummary(...)
+    public UserDto getUserSummary(String userId, Supplier<User> loader) {
+        return userSummaries.get(userId, () -> toSummary(loader.get()));
+    }
+
+    public static UserDto copySummary(UserDto summary) {
+        UserDto copy = new UserDto();
+        BeanUtils.copyProperties(summary, copy);
+        return copy;
+    }
+
+    public UserCounts getUserCounts(String userId, Supplier<UserCounts> loader) {
+        return userCounts.get(userId, loader::get);
+    }
+
+    // Detached copy of the cached entity, or null when it has to be loaded. Every caller gets its own
+    // copy, so a request changing fields of its current user cannot leak them into other requests
+    public User getAuthenticatedUser(String userId) {
+        User cached = authenticatedUsers.get(userId, User.class);
+        return cached != null ? copyUser(cached) : null;
+    }
+
+    public void putAuthenticatedUser(User user) {
+        authenticatedUsers.put(user.getId(), copyUser(user));
+    }
+
+    // Profile fields changed
+    public void evictUser(String userId) {
+        evictNowAndAfterCommit(userSummaries, userId);
+        evictNowAndAfterCommit(userCounts, userId);
+        evictNowAndAfterCommit(authenticatedUsers, userId);
+    }
+
+    // Follows or posts of the users changed
+    public void evictUserCounts(String... userIds) {
+        for (String userId : userIds) {
+            evictNowAndAfterCommit(userCounts, userId);
+        }
+    }
+
+    // Column fields only: the lazy collections belong to the session that loaded the entity and
+    // would be shared by every copy, so copies leave them null
+    private static User copyUser(User user) {
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy, LAZY_USER_COLLECTIONS);
+        return copy;
+    }
+
+    static UserDto toSummary(User user) {
+        UserDto dto = new UserDto();
+        dto.setId(user.getId());
+        dto.setName(user.getName());
+        dto.setEmail(user.getEmail());
+        dto.setUsername(user.getUsername());
+        dto.setPicture(user.getPicture());
+        dto.setCoverPhoto(user.getCoverPhoto());
+        dto.setBio(user.getBio());
+        dto.setLocation(user.getLocation());
+        dto.setWebsite(user.getWebsite());
+        dto.setPhoneNumber(user.getPhoneNumber());
+        dto.setDateOfBirth(user.getDateOfBirth());
+        dto.setGender(user.getGender());
+        dto.setCreatedAt(user.getCreatedAt());
+        dto.setUpdatedAt(user.getUpdatedAt());
+        dto.setVerified(Boolean.TRUE.equals(user.getIsVerified()));
+        dto.setPrivate(Boolean.TRUE.equals(user.getIsPrivate()));
+        dto.setActive(!Boolean.FALSE.equals(user.getIsActive()));
+        return dto;
+    }
+
+    private void evictThreadNowAndAfterCommit(Long threadId) {
+        threadGenerations.incrementAndGet(generationStripe(threadId));
+        threadSnapshots.evict(threadId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    threadGenerations.incrementAndGet(generationStripe(threadId));
+                    threadSnapshots.evict(threadId);
+                }
+            });
+        }
+    }
+
+    private static int generationStripe(Long threadId) {
+        return Math.floorMod(threadId.hashCode(), GENERATION_STRIPES);
+    }
+
+    private void evictNowAndAfterCommit(Cache cache, Object key) {
+        cache.evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.evict(key);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.urutte.service;
+
+import com.urutte.model.MediaType;
+import com.urutte.model.ThreadMedia;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Off-request processing of uploaded thread images.
+ *
+ * Once a thread commits, each IMAGE attachment becomes a job on a bounded worker pool. If the queue
+ * is full the job is skipped and the original keeps being served. A job decodes the upload once.
+ * Large images are decoded with source subsampling, so the reader streams rows into a raster of about
+ * twice the largest derivative width instead of holding the full-resolution image. The job
+ * then writes a resized copy at every app.media.derivatives.widths entry (capped at the source width)
+ * and a square thumbnail: JPEG, or PNG when the image has transparency. Derivatives carry none of
+ * the upload's EXIF or other metadata. Dimensions, file size, thumbnail and srcset are recorded on
+ * thread_media, and the cached thread snapshot is evicted.
+ */
+@Service
+public class ImageDerivativePipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativePipeline.class);
+
+    private static final String UPDATE_MEDIA_SQL =
+        "UPDATE thread_media SET width = ?, height = ?, file_size = ?, thumbnail_url = ?, srcset = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HotDataCache hotDataCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.media.derivatives.widths:320,640,1080}")
+    private String widths;
+
+    @Value("${app.media.derivatives.thumbnail-size:160}")
+    private int thumbnailSize;
+
+    @Value("${app.media.derivatives.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${app.media.derivatives.max-pixels:100000000}")
+    private long maxPixels;
+
+    @Value("${app.media.derivatives.workers:2}")
+    private int workers;
+
+    @Value("${app.media.derivatives.queue-capacity:1000}")
+    private int queueCapacity;
+
+    // Media URLs are relative to the working directory, as returned by LocalBlobStore.url
+    @Value("${app.media.derivatives.base-dir:.}")
+    private String baseDir;
+
+    private int[] targetWidths;
+    private ThreadPoolExecutor executor;
+
+    private Counter processedCounter;
+    private Counter failedCounter;
+    private Counter rejectedCounter;
+    private Timer processingTimer;
+
+    @PostConstruct
+    public void init() {
+        targetWidths = Arrays.stream(widths.split(","))
+            .map(String::trim)
+            .filter(width -> !width.isEmpty())
+            .mapToInt(Integer::parseInt)
+            .sorted()
+            .distinct()
+            .toArray();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                java.lang.Thread thread = new java.lang.Thread(runnable, "image-derivatives-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        Gauge.builder("media.derivatives.queue.depth", executor, pool -> pool.getQueue().size())
+            .description("Image derivative jobs waiting for a worker")
+            .register(meterRegistry);
+        processedCounter = Counter.builder("media.derivatives.processed")
+            .description("Images processed into derivatives")
+            .register(meterRegistry);
+        failedCounter = Counter.builder("media.derivatives.failed")
+            .description("Images that could not be processed")
+            .register(meterRegistry);
+        rejectedCounter = Counter.builder("media.derivatives.rejected")
+            .description("Jobs skipped because the queue was full")
+            .register(meterRegistry);
+        processingTimer = Timer.builder("media.derivatives.duration")
+            .description("Time to decode, resize and encode one image")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Queued jobs are dropped; their images keep being served as uploaded
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Queue the thread's still images once the thread (and so the media IDs) is committed
+    public void submit(com.urutte.model.Thread thread) {
+        List<ThreadMedia> images = thread.getMedia().stream()
+            .filter(media -> media.getMediaType() == MediaType.IMAGE)
+            .filter(media -> !media.getMediaUrl().toLowerCase(Locale.ROOT).endsWith(".gif"))
+            .collect(Collectors.toList());
+        if (images.isEmpty()) {
+            return;
+        }
+
+        Runnable enqueue = () -> {
+            for (ThreadMedia media : images) {
+                enqueue(new Job(media.getId(), thread.getId(), media.getMediaUrl()));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue.run();
+                }
+            });
+        } else {
+            enqueue.run();
+        }
+    }
+
+    // Queue one still image of an already committed thread (streamed uploads, once their content has been checked)
+    public void submit(Long mediaId, Long threadId, String mediaUrl) {
+        if (!mediaUrl.toLowerCase(Locale.ROOT).endsWith(".gif")) {
+            enqueue(new Job(mediaId, threadId, mediaUrl));
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private void enqueue(Job job) {
+        try {
+            executor.execute(() -> process(job));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            logger.warn("Image derivative queue full, serving media {} as uploaded", job.mediaId);
+        }
+    }
+
+    void process(Job job) {
+        long started = System.nanoTime();
+        try {
+            Derivatives derivatives = render(job.mediaUrl);
+            jdbcTemplate.update(UPDATE_MEDIA_SQL, derivatives.width, derivatives.height, derivatives.fileSize,
+                derivatives.thumbnailUrl, derivatives.srcset, job.mediaId);
+            hotDataCache.evictThread(job.threadId);
+            processedCounter.increment();
+        } catch (Exception e) {
+            failedCounter.increment();
+            logger.warn("Failed to create derivatives of media {} ({})", job.mediaId, job.mediaUrl, e);
+        } finally {
+            processingTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Derivatives render(String mediaUrl) throws IOException {
+        Path source = Paths.get(baseDir).resolve(mediaUrl).normalize();
+        int width;
+        int height;
+        BufferedImage decoded;
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                throw new IOException("Cannot open " + source);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source);
+            }
+            ImageReader reader = readers.next();
+            try {
+                // Metadata is never read, so none of it can reach the derivatives
+                reader.setInput(input, true, true);
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image of " + width + "x" + height + " exceeds app.media.derivatives.max-pixels");
+                }
+                // Keep at least twice the largest derivative width and twice the thumbnail on the short side
+                int subsampling = Math.max(1, Math.min(width / (2 * targetWidths[targetWidths.length - 1]),
+                    Math.min(width, height) / (2 * thumbnailSize)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                decoded = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        boolean alpha = decoded.getColorModel().hasAlpha();
+        String format = alpha ? "png" : "jpg";
+        String base = mediaUrl.contains(".") ? mediaUrl.substring(0, mediaUrl.lastIndexOf('.')) : mediaUrl;
+
+        List<String> srcset = new ArrayList<>();
+        int previous = 0;
+        for (int target : targetWidths) {
+            int derivativeWidth = Math.min(target, width);
+            if (derivativeWidth == previous) {
+                continue;
+            }
+            previous = derivativeWidth;
+            int derivativeHeight = Math.max(1, (int) Math.round((double) height * derivativeWidth / width));
+            String url = base + "_w" + derivativeWidth + "." + format;
+            write(scale(decoded, derivativeWidth, derivativeHeight, alpha), format, url);
+            srcset.add(url + " " + derivativeWidth + "w");
+        }
+
+        // Centered square crop
+        int side = Math.min(decoded.getWidth(), decoded.getHeight());
+        BufferedImage square = decoded.getSubimage((decoded.getWidth() - side) / 2, (decoded.getHeight() - side) / 2, side, side);
+        int thumbnailSide = Math.min(thumbnailSize, Math.min(width, height));
+        String thumbnailUrl = base + "_thumb." + format;
+        write(scale(square, thumbnailSide, thumbnailSide, alpha), format, thumbnailUrl);
+
+        return new Derivatives(width, height, Files.size(source), thumbnailUrl, String.join(", ", srcset));
+    }
+
+    // Halve with bilinear filtering until the last step, which keeps the result sharp without aliasing
+    static BufferedImage scale(BufferedImage source, int targetWidth, int targetHeight, boolean alpha) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private void write(BufferedImage image, String format, String url) throws IOException {
+        Path target = Paths.get(baseDir).resolve(url).normalize();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        // Uploads of the same content share a blob and its derivatives, so render aside and rename over
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if ("jpg".equals(format)) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(jpegQuality);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static class Job {
+        final Long mediaId;
+        final Long threadId;
+        final String mediaUrl;
+
+        Job(Long mediaId, Long threadId, String mediaUrl) {
+            this.mediaId = mediaId;
+            this.threadId = threadId;
+            this.mediaUrl = mediaUrl;
+        }
+    }
+
+    private static class Derivatives {
+        final int width;
+        final int height;
+        final long fileSize;
+        final String thumbnailUrl;
+        final String srcset;
+
+        Derivatives(int width, int height, long fileSize, String thumbnailUrl, String srcset) {
+            this.width = width;
+            this.height = height;
+            this.fileSize = fileSize;
+            this.thumbnailUrl = thumbnailUrl;
+            this.srcset = srcset;
+        }
+    }
+}
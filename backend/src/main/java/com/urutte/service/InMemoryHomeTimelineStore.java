@@ -0,0 +1,99 @@
+package com.urutte.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process home timeline store for single-node deployments and local development.
+ * Each timeline is a bounded sorted set; the oldest entries are dropped once it is full.
+ */
+@Component
+@ConditionalOnProperty(name = "app.feed.timeline.mode", havingValue = "memory")
+public class InMemoryHomeTimelineStore implements HomeTimelineStore {
+
+    @Value("${app.feed.timeline.capacity:800}")
+    private int capacity;
+
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+
+    @Override
+    public void push(Collection<String> ownerIds, TimelineEntry entry) {
+        for (String ownerId : ownerIds) {
+            timeline(ownerId).add(Collections.singletonList(entry), capacity);
+        }
+    }
+
+    @Override
+    public void pushAll(String ownerId, Collection<TimelineEntry> entries) {
+        timeline(ownerId).add(entries, capacity);
+    }
+
+    @Override
+    public List<TimelineEntry> read(String ownerId, LocalDateTime cursorCreatedAt, Long cursorThreadId, int limit) {
+        Timeline timeline = timelines.get(ownerId);
+        if (timeline == null) {
+            return Collections.emptyList();
+        }
+        return timeline.read(cursorCreatedAt, cursorThreadId, limit);
+    }
+
+    @Override
+    public void removeFollowEntries(String ownerId, String authorId) {
+        Timeline timeline = timelines.get(ownerId);
+        if (timeline != null) {
+            timeline.removeIf(entry -> entry.getReason() == TimelineEntry.Reason.FOLLOW
+                && entry.getAuthorId().equals(authorId));
+        }
+    }
+
+    @Override
+    public boolean isMaterialized(String ownerId) {
+        Timeline timeline = timelines.get(ownerId);
+        return timeline != null && timeline.materialized;
+    }
+
+    @Override
+    public void markMaterialized(String ownerId) {
+        timeline(ownerId).materialized = true;
+    }
+
+    private Timeline timeline(String ownerId) {
+        return timelines.computeIfAbsent(ownerId, id -> new Timeline());
+    }
+
+    private static class Timeline {
+        private final TreeSet<TimelineEntry> entries = new TreeSet<>(TimelineEntry.NEWEST_FIRST);
+        private volatile boolean materialized;
+
+        synchronized void add(Collection<TimelineEntry> newEntries, int capacity) {
+            entries.addAll(newEntries);
+            while (entries.size() > capacity) {
+                entries.pollLast();
+            }
+        }
+
+        synchronized List<TimelineEntry> read(LocalDateTime cursorCreatedAt, Long cursorThreadId, int limit) {
+            NavigableSet<TimelineEntry> tail = entries;
+            if (cursorCreatedAt != null && cursorThreadId != null) {
+                tail = entries.tailSet(new TimelineEntry(cursorThreadId, null, cursorCreatedAt, null), false);
+            }
+            List<TimelineEntry> result = new ArrayList<>(Math.min(limit, tail.size()));
+            for (TimelineEntry entry : tail) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(entry);
+            }
+            return result;
+        }
+
+        synchronized void removeIf(java.util.function.Predicate<TimelineEntry> predicate) {
+            entries.removeIf(predicate);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.urutte.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Push bus for single-node deployments: events go straight to the listeners of this JVM.
+ */
+@Component
+@ConditionalOnProperty(name = "app.push.bus", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPushBus implements PushBus {
+
+    private final List<Consumer<PushEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(PushEvent event) {
+        for (Consumer<PushEvent> listener : listeners) {
+            listener.accept(event);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<PushEvent> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,299 @@
+package com.urutte.service;
+
+import com.urutte.model.UserType;
+import com.urutte.repository.ThreadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-process inverted index over thread content for tests and single-node deployments.
+ *
+ * Terms are kept in a sorted map so a prefix query is a range scan over the term dictionary.
+ * Matches are ranked with BM25; hashtag and mention filters have their own posting sets.
+ * The index is rebuilt from the database on startup and kept current by the ThreadService hooks.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "memory", matchIfMissing = true)
+public class InMemoryThreadSearchService implements ThreadSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryThreadSearchService.class);
+
+    private static final Pattern HASHTAG_PATTERN = Pattern.compile("#(\\w+)");
+    private static final Pattern MENTION_PATTERN = Pattern.compile("@(\\w+)");
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    @Autowired
+    private ThreadRepository threadRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (threadId -> term frequency)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<String, Set<Long>> hashtagPostings = new HashMap<>();
+    private final Map<String, Set<Long>> mentionPostings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long totalLength;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long afterId = 0;
+        int indexed = 0;
+        List<com.urutte.model.Thread> batch;
+        do {
+            batch = threadRepository.findSearchableThreadsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (com.urutte.model.Thread thread : batch) {
+                index(thread);
+                afterId = thread.getId();
+            }
+            indexed += batch.size();
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        logger.info("Built thread search index with {} threads", indexed);
+    }
+
+    @Override
+    public void index(com.urutte.model.Thread thread) {
+        if (!isSearchable(thread)) {
+            remove(thread.getId());
+            return;
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> tokens = ThreadSearchQuery.tokenize(thread.getContent());
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        Document document = new Document(thread.getCreatedAt(), tokens.size(), frequencies.keySet(),
+            extract(HASHTAG_PATTERN, thread.getContent()), extract(MENTION_PATTERN, thread.getContent()));
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(thread.getId());
+            documents.put(thread.getId(), document);
+            totalLength += document.length;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(thread.getId(), entry.getValue());
+            }
+            for (String hashtag : document.hashtags) {
+                hashtagPostings.computeIfAbsent(hashtag, tag -> new HashSet<>()).add(thread.getId());
+            }
+            for (String mention : document.mentions) {
+                mentionPostings.computeIfAbsent(mention, name -> new HashSet<>()).add(thread.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long threadId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(threadId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> searchByRelevance(ThreadSearchQuery query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = match(query);
+            Comparator<Long> byScore = Comparator.comparing((Long id) -> scores.get(id)).reversed()
+                .thenComparing(newestFirst());
+            return scores.keySet().stream()
+                .sorted(byScore)
+                .skip(offset)
+                .limit(limit)
+                .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> searchByRecency(ThreadSearchQuery query, LocalDateTime cursorCreatedAt, Long cursorThreadId, int limit) {
+        lock.readLock().lock();
+        try {
+            return match(query).keySet().stream()
+                .filter(id -> isBefore(id, cursorCreatedAt, cursorThreadId))
+                .sorted(newestFirst())
+                .limit(limit)
+                .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Score every thread that matches all terms (as prefixes) and all filters
+    private Map<Long, Double> match(ThreadSearchQuery query) {
+        Map<Long, Double> scores = null;
+        if (query.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        double averageLength = documents.isEmpty() ? 1 : (double) totalLength / documents.size();
+        for (String term : query.getTerms()) {
+            Map<Long, Double> termScores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Integer>> entry : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                double idf = idf(entry.getValue().size());
+                for (Map.Entry<Long, Integer> posting : entry.getValue().entrySet()) {
+                    double score = bm25(posting.getValue(), documents.get(posting.getKey()).length, averageLength, idf);
+                    termScores.merge(posting.getKey(), score, Double::sum);
+                }
+            }
+            scores = scores == null ? termScores : intersect(scores, termScores);
+        }
+
+        if (scores == null) {
+            // Filter-only query: start from one filter's posting set, ranking falls back to recency
+            Set<Long> candidates = query.getHashtags().isEmpty()
+                ? mentionPostings.getOrDefault(query.getMentions().iterator().next(), Collections.emptySet())
+                : hashtagPostings.getOrDefault(query.getHashtags().iterator().next(), Collections.emptySet());
+            scores = new HashMap<>();
+            for (Long threadId : candidates) {
+                scores.put(threadId, 0.0);
+            }
+        }
+        for (String hashtag : query.getHashtags()) {
+            scores.keySet().retainAll(hashtagPostings.getOrDefault(hashtag, Collections.emptySet()));
+        }
+        for (String mention : query.getMentions()) {
+            scores.keySet().retainAll(mentionPostings.getOrDefault(mention, Collections.emptySet()));
+        }
+        return scores;
+    }
+
+    private Map<Long, Double> intersect(Map<Long, Double> scores, Map<Long, Double> termScores) {
+        Map<Long, Double> result = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            Double termScore = termScores.get(entry.getKey());
+            if (termScore != null) {
+                result.put(entry.getKey(), entry.getValue() + termScore);
+            }
+        }
+        return result;
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (documents.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private double bm25(int termFrequency, int length, double averageLength, double idf) {
+        double norm = K1 * (1 - B + B * length / averageLength);
+        return idf * termFrequency * (K1 + 1) / (termFrequency + norm);
+    }
+
+    private Comparator<Long> newestFirst() {
+        Comparator<Long> byCreatedAt = Comparator.comparing((Long id) -> documents.get(id).createdAt,
+            Comparator.nullsLast(Comparator.reverseOrder()));
+        return byCreatedAt.thenComparing(Comparator.reverseOrder());
+    }
+
+    private boolean isBefore(Long threadId, LocalDateTime cursorCreatedAt, Long cursorThreadId) {
+        if (cursorCreatedAt == null || cursorThreadId == null) {
+            return true;
+        }
+        LocalDateTime createdAt = documents.get(threadId).createdAt;
+        if (createdAt == null) {
+            return false;
+        }
+        return createdAt.isBefore(cursorCreatedAt) || (createdAt.isEqual(cursorCreatedAt) && threadId < cursorThreadId);
+    }
+
+    private void removeLocked(Long threadId) {
+        Document document = documents.remove(threadId);
+        if (document == null) {
+            return;
+        }
+        totalLength -= document.length;
+        for (String term : document.terms) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(threadId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        for (String hashtag : document.hashtags) {
+            removePosting(hashtagPostings, hashtag, threadId);
+        }
+        for (String mention : document.mentions) {
+            removePosting(mentionPostings, mention, threadId);
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Long>> index, String key, Long threadId) {
+        Set<Long> posting = index.get(key);
+        if (posting != null) {
+            posting.remove(threadId);
+            if (posting.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    // Same visibility rules as the public search: not deleted, public, not written by ADMIN (AI) users
+    private boolean isSearchable(com.urutte.model.Thread thread) {
+        return !Boolean.TRUE.equals(thread.getIsDeleted())
+            && Boolean.TRUE.equals(thread.getIsPublic())
+            && thread.getUser() != null
+            && thread.getUser().getUserType() != UserType.ADMIN;
+    }
+
+    private static Set<String> extract(Pattern pattern, String content) {
+        Set<String> values = new HashSet<>();
+        if (content == null) {
+            return values;
+        }
+        Matcher matcher = pattern.matcher(content);
+        while (matcher.find()) {
+            values.add(matcher.group(1).toLowerCase());
+        }
+        return values;
+    }
+
+    private static class Document {
+        private final LocalDateTime createdAt;
+        private final int length;
+        private final Set<String> terms;
+        private final Set<String> hashtags;
+        private final Set<String> mentions;
+
+        Document(LocalDateTime createdAt, int length, Set<String> terms, Set<String> hashtags, Set<String> mentions) {
+            this.createdAt = createdAt;
+            this.length = length;
+            this.terms = terms;
+            this.hashtags = hashtags;
+            this.mentions = mentions;
+        }
+    }
+}
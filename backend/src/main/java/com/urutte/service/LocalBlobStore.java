@@ -0,0 +1,103 @@
+package com.urutte.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Blob store on the local disk. A blob lives at app.storage.local.root/ab/cd/<key>, where ab and cd
+ * are the first two bytes of its hash, so no directory grows past a few thousand entries. Blobs are
+ * renamed into place, so readers never see a partial file. The root lies under app.upload.dir by
+ * default and is served by the /uploads/** resource handler.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    @Value("${app.storage.local.root:./uploads/blobs}")
+    private String root;
+
+    @Value("${app.storage.local.url-prefix:uploads/blobs/}")
+    private String urlPrefix;
+
+    @Override
+    public boolean putIfAbsent(String key, Path file) throws IOException {
+        Path target = path(key);
+        if (Files.exists(target)) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Different file system: copy next to the target first so the final step is still a rename
+            Path staging = Files.createTempFile(target.getParent(), key, ".tmp");
+            try {
+                Files.copy(file, staging, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(staging);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(path(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(path(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Path target = path(key);
+        Files.deleteIfExists(target);
+        if (!Files.isDirectory(target.getParent())) {
+            return;
+        }
+        // Derivatives are written next to the blob as <hash>_<suffix>
+        try (DirectoryStream<Path> derived = Files.newDirectoryStream(target.getParent(), hash(key) + "_*")) {
+            for (Path file : derived) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Override
+    public String url(String key) {
+        return urlPrefix + shardPath(key);
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        Path target = path(key);
+        return Files.isRegularFile(target) ? Optional.of(target) : Optional.empty();
+    }
+
+    Path path(String key) {
+        return Paths.get(root).resolve(shardPath(key));
+    }
+
+    static String shardPath(String key) {
+        return key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key;
+    }
+
+    private static String hash(String key) {
+        int dot = key.indexOf('.');
+        return dot == -1 ? key : key.substring(0, dot);
+    }
+}
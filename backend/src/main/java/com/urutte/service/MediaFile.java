@@ -0,0 +1,39 @@
+package com.urutte.service;
+
+import org.springframework.http.MediaType;
+
+import java.nio.file.Path;
+
+/**
+ * An uploaded image or video as served over HTTP: the file, its media type and the validators for
+ * conditional and range requests.
+ */
+public class MediaFile {
+
+    private final Path path;
+    private final MediaType contentType;
+    private final long length;
+    private final long lastModified;
+
+    public MediaFile(Path path, MediaType contentType, long length, long lastModified) {
+        this.path = path;
+        this.contentType = contentType;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    public Path getPath() { return path; }
+
+    public String getFilename() { return path.getFileName().toString(); }
+
+    public MediaType getContentType() { return contentType; }
+
+    public long getLength() { return length; }
+
+    public long getLastModified() { return lastModified; }
+
+    // Strong validator: uploads get a fresh name and are never rewritten, so size and mtime identify the content
+    public String getETag() {
+        return "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+    }
+}
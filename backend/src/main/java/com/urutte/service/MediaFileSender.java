@@ -0,0 +1,202 @@
+package com.urutte.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a MediaFile to the response without loading it into memory.
+ *
+ * Conditional requests are answered from the ETag and Last-Modified validators (304, or 412 for
+ * failed preconditions). Range requests get 206 with one range, or multipart/byteranges with
+ * several; If-Range falls back to the full file when the validator no longer matches. Bodies are
+ * copied with FileChannel.transferTo, and a full file or single range of at least
+ * app.media.sendfile-min-bytes is left to Tomcat's sendfile, which copies it from the page cache to
+ * the socket after the handler returns.
+ */
+@Service
+public class MediaFileSender {
+
+    // Request attributes of Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Value("${app.media.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    @Value("${app.media.cache-max-age-seconds:86400}")
+    private long cacheMaxAgeSeconds;
+
+    public void send(MediaFile file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (new ServletWebRequest(request, response).checkNotModified(file.getETag(), file.getLastModified())) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, file.getETag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.getLastModified());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+            CacheControl.maxAge(cacheMaxAgeSeconds, TimeUnit.SECONDS).cachePublic().getHeaderValue());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.inline().filename(file.getFilename(), StandardCharsets.UTF_8).build().toString());
+
+        List<Region> regions;
+        try {
+            regions = requestedRegions(file, request);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.getLength());
+            return;
+        }
+
+        if (regions.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(file.getContentType().toString());
+            sendRegion(file, new Region(0, file.getLength()), request, response);
+        } else if (regions.size() == 1) {
+            Region region = regions.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(file.getContentType().toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, region.contentRange(file.getLength()));
+            sendRegion(file, region, request, response);
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            sendRegions(file, regions, request, response);
+        }
+    }
+
+    // Empty for the whole file; IllegalArgumentException when the ranges cannot be satisfied
+    private List<Region> requestedRegions(MediaFile file, HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(file, request)) {
+            return List.of();
+        }
+
+        long length = file.getLength();
+        List<Region> regions = new ArrayList<>();
+        long total = 0;
+        for (HttpRange range : HttpRange.parseRanges(header)) {
+            long start = range.getRangeStart(length);
+            if (start >= length) {
+                throw new IllegalArgumentException("Range starts beyond the end of the file");
+            }
+            Region region = new Region(start, range.getRangeEnd(length) - start + 1);
+            total += region.length;
+            regions.add(region);
+        }
+        // Overlapping ranges must not turn one request into many copies of the file
+        if (total > length) {
+            throw new IllegalArgumentException("Requested ranges exceed the file length");
+        }
+        return regions;
+    }
+
+    private static boolean ifRangeMatches(MediaFile file, HttpServletRequest request) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(file.getETag());
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == file.getLastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void sendRegion(MediaFile file, Region region, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setContentLengthLong(region.length);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (region.length >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START, region.start);
+            request.setAttribute(SENDFILE_END, region.start + region.length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            transfer(channel, region, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void sendRegions(MediaFile file, List<Region> regions, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        long contentLength = end.length;
+        for (Region region : regions) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                + HttpHeaders.CONTENT_TYPE + ": " + file.getContentType() + "\r\n"
+                + HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(file.getLength()) + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + region.length;
+        }
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            for (int i = 0; i < regions.size(); i++) {
+                out.write(partHeaders.get(i));
+                transfer(channel, regions.get(i), target);
+            }
+        }
+        out.write(end);
+    }
+
+    private static void transfer(FileChannel channel, Region region, WritableByteChannel target) throws IOException {
+        long position = region.start;
+        long remaining = region.length;
+        while (remaining > 0) {
+            long written = channel.transferTo(position, remaining, target);
+            if (written <= 0) {
+                throw new IOException("Media file shrank while it was being sent");
+            }
+            position += written;
+            remaining -= written;
+        }
+    }
+
+    private static class Region {
+        final long start;
+        final long length;
+
+        Region(long start, long length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        String contentRange(long fileLength) {
+            return "bytes " + start + "-" + (start + length - 1) + "/" + fileLength;
+        }
+    }
+}
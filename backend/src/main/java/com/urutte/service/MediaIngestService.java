@@ -0,0 +1,428 @@
+package com.urutte.service;
+
+import com.urutte.model.MediaStatus;
+import com.urutte.model.MediaType;
+import com.urutte.model.ThreadMedia;
+import com.urutte.util.MultipartStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming upload path for thread media.
+ *
+ * receive reads the multipart body itself (the multipart resolver is lazy, so the container has
+ * not spooled it) and streams every file part through a fixed buffer into BlobService, which hashes
+ * it on the way to the blob store's temp directory and renames it into place: one copy per file.
+ * The thread is then created with its media PROCESSING and returned. After commit, verify checks
+ * the files on the app.upload.ingest pool, each file on its own worker: the content must match the
+ * declared type (and images must have a readable header, which also gives their dimensions). A file
+ * that passes becomes READY and images go on to ImageDerivativePipeline; one that fails becomes
+ * FAILED and its blob is released. Media still PROCESSING after a restart or a full queue are
+ * picked up again by recover.
+ */
+@Service
+public class MediaIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaIngestService.class);
+
+    private static final int MAX_FIELD_BYTES = 64 * 1024;
+    private static final int SNIFF_BYTES = 16;
+
+    private static final String READY_SQL =
+        "UPDATE thread_media SET status = 'READY' WHERE id = ? AND status = 'PROCESSING'";
+
+    private static final String READY_IMAGE_SQL =
+        "UPDATE thread_media SET status = 'READY', width = ?, height = ? WHERE id = ? AND status = 'PROCESSING'";
+
+    private static final String FAILED_SQL =
+        "UPDATE thread_media SET status = 'FAILED' WHERE id = ? AND status = 'PROCESSING'";
+
+    private static final String STALE_SQL =
+        "SELECT id, thread_id, media_url, media_type FROM thread_media " +
+        "WHERE status = 'PROCESSING' AND created_at < ? ORDER BY id LIMIT ?";
+
+    @Autowired
+    private BlobService blobService;
+
+    @Autowired
+    private MediaUploadService mediaUploadService;
+
+    @Autowired
+    private ImageDerivativePipeline imageDerivativePipeline;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HotDataCache hotDataCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.servlet.multipart.max-file-size:3MB}")
+    private DataSize maxFileSize;
+
+    @Value("${spring.servlet.multipart.max-request-size:3MB}")
+    private DataSize maxRequestSize;
+
+    @Value("${app.upload.ingest.buffer-size:65536}")
+    private int bufferSize;
+
+    @Value("${app.upload.ingest.workers:4}")
+    private int workers;
+
+    @Value("${app.upload.ingest.queue-capacity:1000}")
+    private int queueCapacity;
+
+    // Media left PROCESSING for this long are checked again by recover
+    @Value("${app.upload.ingest.recovery-age-seconds:120}")
+    private long recoveryAgeSeconds;
+
+    @Value("${app.upload.ingest.recovery-batch-size:200}")
+    private int recoveryBatchSize;
+
+    private ThreadPoolExecutor executor;
+
+    private Counter readyCounter;
+    private Counter failedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                java.lang.Thread thread = new java.lang.Thread(runnable, "media-ingest-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        Gauge.builder("media.ingest.queue.depth", executor, pool -> pool.getQueue().size())
+            .description("Uploaded media waiting to be checked")
+            .register(meterRegistry);
+        readyCounter = Counter.builder("media.ingest.checked")
+            .tag("outcome", "ready")
+            .description("Uploaded media checked in the background")
+            .register(meterRegistry);
+        failedCounter = Counter.builder("media.ingest.checked")
+            .tag("outcome", "failed")
+            .description("Uploaded media checked in the background")
+            .register(meterRegistry);
+        rejectedCounter = Counter.builder("media.ingest.rejected")
+            .description("Checks deferred to recovery because the queue was full")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Unchecked media stay PROCESSING and are recovered after the restart
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Read a multipart/form-data body: text fields are collected, and files sent as "media" are
+     * stored as blobs. On failure the blobs stored so far are released; violations of the type
+     * and size limits are reported as IllegalArgumentException.
+     */
+    public StreamedUpload receive(InputStream body, String contentType) throws IOException {
+        String boundary = MultipartStream.boundaryOf(contentType);
+        if (boundary == null) {
+            throw new IllegalArgumentException("Expected a multipart/form-data request");
+        }
+
+        StreamedUpload upload = new StreamedUpload();
+        MultipartStream multipart = new MultipartStream(
+            new LimitedInputStream(body, maxRequestSize.toBytes(), "Request"), boundary, bufferSize);
+        try {
+            MultipartStream.Part part;
+            while ((part = multipart.nextPart()) != null) {
+                if (!part.isFile()) {
+                    if (part.getName() != null) {
+                        upload.putField(part.getName(), part.readString(MAX_FIELD_BYTES));
+                    }
+                    continue;
+                }
+                // Browsers send an empty part for a file input left blank
+                PushbackInputStream content = new PushbackInputStream(part.getBody(), 1);
+                int first = content.read();
+                if (!"media".equals(part.getName()) || first == -1) {
+                    continue;
+                }
+                content.unread(first);
+                if (!mediaUploadService.isValidMediaType(part.getContentType())) {
+                    throw new IllegalArgumentException("Unsupported media type: " + part.getContentType());
+                }
+                String key = blobService.store(new LimitedInputStream(content, maxFileSize.toBytes(), "File"),
+                    FilenameUtils.getExtension(part.getFilename()));
+                upload.addMedia(blobService.url(key), mediaUploadService.getMediaType(part.getContentType()));
+            }
+        } catch (LimitExceededException e) {
+            discard(upload);
+            throw new IllegalArgumentException(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            discard(upload);
+            throw e;
+        }
+        return upload;
+    }
+
+    // Release the blobs of an upload that did not become a thread
+    public void discard(StreamedUpload upload) {
+        for (String url : upload.getMediaUrls()) {
+            blobService.releaseUrl(url);
+        }
+    }
+
+    // Check the thread's PROCESSING media once the thread (and so the media IDs) is committed. The
+    // media rows get their IDs when the transaction flushes, so the checks are built after commit
+    public void verify(com.urutte.model.Thread thread) {
+        List<ThreadMedia> processing = thread.getMedia().stream()
+            .filter(media -> media.getStatus() == MediaStatus.PROCESSING)
+            .collect(Collectors.toList());
+        if (processing.isEmpty()) {
+            return;
+        }
+
+        Runnable enqueue = () -> {
+            for (ThreadMedia media : processing) {
+                enqueue(new Check(media.getId(), thread.getId(), media.getMediaUrl(), media.getMediaType()));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue.run();
+                }
+            });
+        } else {
+            enqueue.run();
+        }
+    }
+
+    // Queue the checks lost to a restart or a full queue; a media file checked twice is only updated once
+    @Scheduled(initialDelayString = "${app.upload.ingest.recovery-interval-ms:60000}",
+               fixedDelayString = "${app.upload.ingest.recovery-interval-ms:60000}")
+    public void recover() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minusSeconds(recoveryAgeSeconds));
+        List<Check> stale = jdbcTemplate.query(STALE_SQL, (rs, rowNum) -> new Check(rs.getLong("id"),
+            rs.getLong("thread_id"), rs.getString("media_url"), MediaType.valueOf(rs.getString("media_type"))),
+            cutoff, recoveryBatchSize);
+        stale.forEach(this::enqueue);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private void enqueue(Check check) {
+        try {
+            executor.execute(() -> process(check));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+        }
+    }
+
+    void process(Check check) {
+        String key = BlobService.keyOf(check.mediaUrl);
+        int[] dimensions = null;
+        boolean valid = false;
+        if (key != null) {
+            try {
+                valid = looksLike(check.mediaType, readHead(key));
+                if (valid && check.mediaType == MediaType.IMAGE) {
+                    dimensions = readDimensions(key);
+                    valid = dimensions != null;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to check media {} ({})", check.mediaId, check.mediaUrl, e);
+            }
+        }
+
+        if (valid) {
+            int updated = dimensions != null
+                ? jdbcTemplate.update(READY_IMAGE_SQL, dimensions[0], dimensions[1], check.mediaId)
+                : jdbcTemplate.update(READY_SQL, check.mediaId);
+            if (updated == 1) {
+                readyCounter.increment();
+                if (check.mediaType == MediaType.IMAGE) {
+                    imageDerivativePipeline.submit(check.mediaId, check.threadId, check.mediaUrl);
+                }
+            }
+        } else if (jdbcTemplate.update(FAILED_SQL, check.mediaId) == 1) {
+            failedCounter.increment();
+            if (key != null) {
+                blobService.release(key);
+            }
+        }
+        hotDataCache.evictThread(check.threadId);
+    }
+
+    private byte[] readHead(String key) throws IOException {
+        try (InputStream in = blobService.open(key)) {
+            return in.readNBytes(SNIFF_BYTES);
+        }
+    }
+
+    // Width and height from the image header, without decoding the pixels; null when no reader accepts it
+    private int[] readDimensions(String key) throws IOException {
+        try (InputStream in = blobService.open(key); ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[] { reader.getWidth(0), reader.getHeight(0) };
+            } catch (IOException e) {
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Magic numbers of the formats each media type is uploaded in; documents (PDF, text) are not sniffed
+    static boolean looksLike(MediaType type, byte[] head) {
+        switch (type) {
+            case IMAGE:
+            case GIF:
+                return startsWith(head, 0, 0xFF, 0xD8, 0xFF)                      // JPEG
+                    || startsWith(head, 0, 0x89, 'P', 'N', 'G')                   // PNG
+                    || startsWith(head, 0, 'G', 'I', 'F', '8')                    // GIF
+                    || riff(head, "WEBP")
+                    || startsWith(head, 0, 'B', 'M');                             // BMP
+            case VIDEO:
+                return isoMedia(head)                                             // MP4, MOV
+                    || startsWith(head, 0, 0x1A, 0x45, 0xDF, 0xA3)                // WebM, MKV
+                    || riff(head, "AVI ")
+                    || startsWith(head, 0, 'F', 'L', 'V')
+                    || startsWith(head, 0, 0x30, 0x26, 0xB2, 0x75);               // WMV
+            case AUDIO:
+                return startsWith(head, 0, 'I', 'D', '3')                         // MP3 with tags
+                    || (head.length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xE0) == 0xE0) // MPEG frame
+                    || startsWith(head, 0, 'O', 'g', 'g', 'S')
+                    || startsWith(head, 0, 'f', 'L', 'a', 'C')
+                    || riff(head, "WAVE")
+                    || isoMedia(head);                                            // M4A
+            default:
+                return true;
+        }
+    }
+
+    private static boolean isoMedia(byte[] head) {
+        return startsWith(head, 4, 'f', 't', 'y', 'p');
+    }
+
+    private static boolean riff(byte[] head, String format) {
+        return startsWith(head, 0, 'R', 'I', 'F', 'F') && head.length >= 12
+            && new String(head, 8, 4, StandardCharsets.US_ASCII).equals(format);
+    }
+
+    private static boolean startsWith(byte[] head, int offset, int... magic) {
+        if (head.length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static class Check {
+        final Long mediaId;
+        final Long threadId;
+        final String mediaUrl;
+        final MediaType mediaType;
+
+        Check(Long mediaId, Long threadId, String mediaUrl, MediaType mediaType) {
+            this.mediaId = mediaId;
+            this.threadId = threadId;
+            this.mediaUrl = mediaUrl;
+            this.mediaType = mediaType;
+        }
+    }
+
+    private static class LimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    // Fails once more than limit bytes have been read
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private final String what;
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit, String what) {
+            super(in);
+            this.limit = limit;
+            this.what = what;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws LimitExceededException {
+            count += read;
+            if (count > limit) {
+                throw new LimitExceededException(what + " size exceeds the limit of " + limit + " bytes");
+            }
+        }
+    }
+}
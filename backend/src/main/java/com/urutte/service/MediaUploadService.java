@@ -1,20 +1,18 @@
 package com.urutte.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
 
 @Service
 public class MediaUploadService {
 
-    private static final String UPLOAD_DIR = "uploads/";
+    @Autowired
+    private BlobService blobService;
+
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
 
     public String uploadMedia(MultipartFile file) throws IOException {
@@ -26,27 +24,19 @@ public class MediaUploadService {
             throw new IllegalArgumentException("File size exceeds maximum allowed size of 10MB");
         }
 
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(UPLOAD_DIR);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // Generate unique filename
+        // Store by content: the same file uploaded twice is kept once
         String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = getFileExtension(originalFilename);
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-
-        // Save file
-        Path targetLocation = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        String key = blobService.store(file.getInputStream(), getFileExtension(originalFilename));
 
         // Return the relative path for serving
-        return UPLOAD_DIR + uniqueFilename;
+        return blobService.url(key);
     }
 
     public String getMediaType(MultipartFile file) {
-        String contentType = file.getContentType();
+        return getMediaType(file.getContentType());
+    }
+
+    public String getMediaType(String contentType) {
         if (contentType == null) {
             return "unknown";
         }
@@ -1,60 +1,183 @@
 package com.urutte.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urutte.dto.ConversationDto;
+import com.urutte.dto.CursorPageDto;
 import com.urutte.dto.MessageDto;
 import com.urutte.dto.UserDto;
+import com.urutte.model.Conversation;
 import com.urutte.model.Message;
+import com.urutte.model.ReadWatermark;
 import com.urutte.model.User;
+import com.urutte.repository.ConversationRepository;
 import com.urutte.repository.MessageRepository;
+import com.urutte.repository.ReadWatermarkRepository;
 import com.urutte.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class MessageService {
 
+    // Export lines buffered before they are pushed to the client
+    private static final int EXPORT_FLUSH_EVERY = 500;
+
     @Autowired
     private MessageRepository messageRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ReadWatermarkRepository readWatermarkRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
 
     public Message saveMessage(Message message) {
         return messageRepository.save(message);
     }
 
     public List<MessageDto> getConversation(String userId1, String userId2, int page, int size) {
-        User user1 = userRepository.findById(userId1)
-                .orElseThrow(() -> new RuntimeException("User 1 not found"));
-        User user2 = userRepository.findById(userId2)
-                .orElseThrow(() -> new RuntimeException("User 2 not found"));
+        Optional<Conversation> conversation = findConversation(userId1, userId2);
+        if (conversation.isEmpty()) {
+            return new ArrayList<>();
+        }
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Message> messages = messageRepository.findConversationBetweenUsersPaged(user1, user2, pageable);
+        List<Message> messages = messageRepository.findByConversationId(conversation.get().getId(), pageable);
         
-        return messages.getContent()
-                .stream()
-                .map(this::convertToDto)
+        // Each side's watermark decides the read state of the messages it received
+        long readUpTo1 = readUpTo(userId1, userId2);
+        long readUpTo2 = readUpTo(userId2, userId1);
+        return messages.stream()
+                .map(message -> convertToDto(message,
+                        message.getReceiver().getId().equals(userId1) ? readUpTo1 : readUpTo2))
                 .collect(Collectors.toList());
     }
 
+    // Messages before beforeId (the newest when null), newest first; nextCursor is the ID to pass as beforeId next
+    public CursorPageDto<MessageDto> getConversationBefore(String userId1, String userId2, Long beforeId, int size) {
+        Optional<Conversation> conversation = findConversation(userId1, userId2);
+        if (conversation.isEmpty()) {
+            return new CursorPageDto<>(new ArrayList<>(), null, false);
+        }
+        
+        // Read one extra message to know whether another page exists
+        List<Message> messages = messageRepository.findByConversationIdBefore(conversation.get().getId(),
+                beforeId != null ? beforeId : Long.MAX_VALUE, PageRequest.of(0, size + 1));
+        boolean hasNext = messages.size() > size;
+        List<Message> window = hasNext ? messages.subList(0, size) : messages;
+        
+        long readUpTo1 = readUpTo(userId1, userId2);
+        long readUpTo2 = readUpTo(userId2, userId1);
+        List<MessageDto> content = window.stream()
+                .map(message -> convertToDto(message,
+                        message.getReceiver().getId().equals(userId1) ? readUpTo1 : readUpTo2))
+                .collect(Collectors.toList());
+        String nextCursor = hasNext ? String.valueOf(window.get(window.size() - 1).getId()) : null;
+        return new CursorPageDto<>(content, nextCursor, hasNext);
+    }
+
+    // Writes the whole conversation oldest first as NDJSON (one MessageDto per line). Rows are read
+    // from a database cursor and written as they arrive, so memory use does not depend on its length
+    @Transactional(readOnly = true)
+    public long exportConversation(String userId1, String userId2, OutputStream out) throws IOException {
+        Optional<Conversation> conversation = findConversation(userId1, userId2);
+        if (conversation.isEmpty()) {
+            return 0;
+        }
+        
+        long readUpTo1 = readUpTo(userId1, userId2);
+        long readUpTo2 = readUpTo(userId2, userId1);
+        long written = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        try (Stream<MessageDto> messages = messageRepository.streamByConversationId(conversation.get().getId())) {
+            for (MessageDto message : (Iterable<MessageDto>) messages::iterator) {
+                long readUpTo = message.getReceiverId().equals(userId1) ? readUpTo1 : readUpTo2;
+                message.setRead(message.isRead() || message.getId() <= readUpTo);
+                generator.writeObject(message);
+                generator.writeRaw('\n');
+                if (++written % EXPORT_FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        generator.flush();
+        return written;
+    }
+
+    // The user's conversations, most recent first, with the other participant, the last message and
+    // the user's unread count. Three queries per page whatever its size
+    public List<ConversationDto> getInbox(String userId, int page, int size) {
+        List<Conversation> conversations = conversationRepository.findInbox(userId, PageRequest.of(page, size));
+        if (conversations.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<String, User> users = userRepository.findAllById(conversations.stream()
+                        .map(conversation -> conversation.getOtherUserId(userId))
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, Message> lastMessages = messageRepository.findWithParticipantsByIdIn(conversations.stream()
+                        .map(Conversation::getLastMessageId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+        
+        List<ConversationDto> inbox = new ArrayList<>(conversations.size());
+        for (Conversation conversation : conversations) {
+            User other = users.get(conversation.getOtherUserId(userId));
+            if (other == null) {
+                continue;
+            }
+            ConversationDto dto = new ConversationDto();
+            dto.setId(conversation.getId());
+            dto.setUser(convertUserToDto(other));
+            dto.setUnreadCount(conversation.getUnreadCount(userId));
+            dto.setLastMessageAt(conversation.getLastMessageAt());
+            Message lastMessage = lastMessages.get(conversation.getLastMessageId());
+            if (lastMessage != null) {
+                MessageDto messageDto = convertToDto(lastMessage);
+                // Read once its receiver has nothing unread left in the conversation
+                messageDto.setRead(lastMessage.isRead()
+                        || conversation.getUnreadCount(lastMessage.getReceiver().getId()) == 0);
+                dto.setLastMessage(messageDto);
+            }
+            inbox.add(dto);
+        }
+        return inbox;
+    }
+
     public List<UserDto> getConversationPartners(String userId) {
-        // For now, return empty list to avoid Hibernate mapping issues
-        // TODO: Fix the repository queries to avoid ClassCastException
-        return new ArrayList<>();
+        return getInbox(userId, 0, 50).stream()
+                .map(ConversationDto::getUser)
+                .collect(Collectors.toList());
     }
 
     public List<MessageDto> getUnreadMessages(String userId) {
@@ -68,24 +191,37 @@ public class MessageService {
     }
 
     public long getUnreadMessageCount(String userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        return messageRepository.countByReceiverAndIsReadFalse(user);
+        return conversationRepository.sumUnreadCount(userId);
     }
 
-    public void markMessagesAsRead(String userId, String senderId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        User sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new RuntimeException("Sender not found"));
+    // Marks the messages from the sender up to upToId (all when null) read by moving the user's
+    // watermark for the conversation: one row write. Returns the number that became read
+    public long markMessagesAsRead(String userId, String senderId, Long upToId) {
+        Long maxId = messageRepository.findMaxIdFromSender(userId, senderId);
+        if (maxId == null) {
+            return 0;
+        }
+        long upTo = upToId != null ? Math.min(upToId, maxId) : maxId;
+        long readUpTo = readUpTo(userId, senderId);
+        if (upTo <= readUpTo) {
+            return 0;
+        }
         
-        List<Message> unreadMessages = messageRepository.findUnreadMessages(user);
-        unreadMessages.stream()
-                .filter(message -> message.getSender().getId().equals(senderId))
-                .forEach(message -> message.setRead(true));
-        
-        messageRepository.saveAll(unreadMessages);
+        long marked = messageRepository.countUnreadFromSenderInRange(userId, senderId, readUpTo, upTo);
+        if (readWatermarkRepository.advance(userId, ReadWatermark.MESSAGES, senderId, upTo) == 0) {
+            // A concurrent request moved the watermark and accounted for these
+            return 0;
+        }
+        if (marked > 0) {
+            findConversation(userId, senderId)
+                    .ifPresent(conversation -> conversationRepository.recordRead(conversation.getId(), userId, (int) marked));
+        }
+        return marked;
+    }
+
+    // Last message ID from otherUserId that userId has read
+    private long readUpTo(String userId, String otherUserId) {
+        return readWatermarkRepository.findLastReadId(userId, ReadWatermark.MESSAGES, otherUserId).orElse(0L);
     }
 
     public MessageDto sendMessage(String senderId, String receiverId, String content, String messageType, String mediaUrl) {
@@ -94,19 +230,45 @@ public class MessageService {
         User receiver = userRepository.findById(receiverId)
                 .orElseThrow(() -> new RuntimeException("Receiver not found"));
         
+        Conversation conversation = findOrCreateConversation(senderId, receiverId);
         Message message = new Message(sender, receiver, content, messageType, mediaUrl);
+        message.setConversationId(conversation.getId());
         Message savedMessage = messageRepository.save(message);
         
+        // Last message and the receiver's unread count move in one UPDATE of the conversation row
+        boolean receiverIsLow = conversation.getUserLowId().equals(receiverId);
+        conversationRepository.recordMessage(conversation.getId(), savedMessage.getId(), savedMessage.getCreatedAt(),
+                receiverIsLow ? 1 : 0, receiverIsLow ? 0 : 1);
+        
         return convertToDto(savedMessage);
     }
 
+    private Optional<Conversation> findConversation(String userId1, String userId2) {
+        return conversationRepository.findByUserLowIdAndUserHighId(
+                Conversation.lowId(userId1, userId2), Conversation.highId(userId1, userId2));
+    }
+
+    private Conversation findOrCreateConversation(String userId1, String userId2) {
+        Optional<Conversation> conversation = findConversation(userId1, userId2);
+        if (conversation.isPresent()) {
+            return conversation.get();
+        }
+        conversationRepository.insertIfAbsent(Conversation.lowId(userId1, userId2), Conversation.highId(userId1, userId2));
+        return findConversation(userId1, userId2)
+                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+    }
+
     public MessageDto convertToDto(Message message) {
+        return convertToDto(message, 0);
+    }
+
+    private MessageDto convertToDto(Message message, long readUpTo) {
         MessageDto dto = new MessageDto();
         dto.setId(message.getId());
         dto.setContent(message.getContent());
         dto.setMessageType(message.getMessageType());
         dto.setMediaUrl(message.getMediaUrl());
-        dto.setRead(message.isRead());
+        dto.setRead(message.isRead() || message.getId() <= readUpTo);
         dto.setCreatedAt(message.getCreatedAt());
         
         dto.setSenderId(message.getSender().getId());
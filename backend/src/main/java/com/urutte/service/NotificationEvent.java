@@ -0,0 +1,66 @@
+package com.urutte.service;
+
+import com.urutte.model.User;
+
+/**
+ * A notification waiting in the NotificationPipeline.
+ *
+ * Events with an action and a related entity are coalesced per recipient, type and entity: the
+ * single-actor message is used when only one user acted in the window, otherwise
+ * "<latest actor> and N others <action>".
+ */
+public class NotificationEvent {
+
+    private final String recipientId;
+    private final String actorId;
+    private final String actorName;
+    private final String actorPicture;
+    private final String type;
+    private final String title;
+    private final String message;
+    private final String action;
+    private final String relatedEntityType;
+    private final Long relatedEntityId;
+
+    public NotificationEvent(String recipientId, User actor, String type, String title, String message,
+                             String action, String relatedEntityType, Long relatedEntityId) {
+        this.recipientId = recipientId;
+        this.actorId = actor != null ? actor.getId() : null;
+        this.actorName = actor != null ? actor.getName() : null;
+        this.actorPicture = actor != null ? actor.getPicture() : null;
+        this.type = type;
+        this.title = title;
+        this.message = message;
+        this.action = action;
+        this.relatedEntityType = relatedEntityType;
+        this.relatedEntityId = relatedEntityId;
+    }
+
+    // Events with the same key become one notification; null when the event is never coalesced
+    public String getCoalescingKey() {
+        if (action == null || relatedEntityId == null) {
+            return null;
+        }
+        return recipientId + "|" + type + "|" + relatedEntityType + "|" + relatedEntityId;
+    }
+
+    public String getRecipientId() { return recipientId; }
+
+    public String getActorId() { return actorId; }
+
+    public String getActorName() { return actorName; }
+
+    public String getActorPicture() { return actorPicture; }
+
+    public String getType() { return type; }
+
+    public String getTitle() { return title; }
+
+    public String getMessage() { return message; }
+
+    public String getAction() { return action; }
+
+    public String getRelatedEntityType() { return relatedEntityType; }
+
+    public Long getRelatedEntityId() { return relatedEntityId; }
+}
@@ -0,0 +1,267 @@
+package com.urutte.service;
+
+import com.urutte.dto.NotificationDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Asynchronous notification writes.
+ *
+ * Callers submit events; they are queued once the caller's transaction commits and written by a
+ * flush every app.notifications.pipeline.window-ms. A flush coalesces the events of the window by
+ * recipient, type and entity (see NotificationEvent), so a burst of likes on one thread becomes a
+ * single "X and 41 others liked your thread" row, and inserts all rows with one JDBC batch. The rows
+ * are then pushed to the recipients' notification streams and unread counts.
+ *
+ * The queue is bounded; when it is full the submitting thread runs a flush itself, which slows
+ * producers down instead of losing notifications.
+ */
+@Service
+public class NotificationPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPipeline.class);
+
+    private static final String ALLOCATE_IDS_SQL =
+        "SELECT nextval(pg_get_serial_sequence('notifications', 'id')) FROM generate_series(1, ?)";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO notifications (id, user_id, from_user_id, type, title, message, related_entity_type, " +
+        "related_entity_id, is_read, created_at, actor_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, false, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PushHub pushHub;
+
+    @Autowired
+    private UnreadNotificationCounter unreadNotificationCounter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.notifications.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<NotificationEvent> queue;
+
+    private Counter eventsCounter;
+    private Counter rowsCounter;
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        Gauge.builder("notifications.pipeline.queue.depth", this, pipeline -> pipeline.queue.size())
+            .description("Notification events waiting to be written")
+            .register(meterRegistry);
+        eventsCounter = Counter.builder("notifications.pipeline.events")
+            .description("Notification events submitted")
+            .register(meterRegistry);
+        rowsCounter = Counter.builder("notifications.pipeline.rows")
+            .description("Notification rows written after coalescing")
+            .register(meterRegistry);
+        Gauge.builder("notifications.pipeline.coalescing.ratio", this, NotificationPipeline::coalescingRatio)
+            .description("Events per written notification row")
+            .register(meterRegistry);
+    }
+
+    // Queue a notification once the caller's transaction commits (immediately when there is none)
+    public void submit(NotificationEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void enqueue(NotificationEvent event) {
+        eventsCounter.increment();
+        while (!queue.offer(event)) {
+            // A flush that could not write anything leaves the queue full; stop instead of spinning
+            if (flush() == 0 && queue.remainingCapacity() == 0) {
+                logger.warn("Notification queue full, dropping notification for user {}", event.getRecipientId());
+                return;
+            }
+        }
+    }
+
+    private void requeue(List<NotificationEvent> events) {
+        int dropped = 0;
+        for (NotificationEvent event : events) {
+            if (!queue.offer(event)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            logger.warn("Notification queue full, dropped {} notifications", dropped);
+        }
+    }
+
+    // Write what is still queued before the node goes down
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.pipeline.window-ms:2000}")
+    public synchronized int flush() {
+        List<NotificationEvent> events = new ArrayList<>();
+        queue.drainTo(events);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<Group> groups = coalesce(events);
+        List<Long> ids;
+        try {
+            ids = jdbcTemplate.queryForList(ALLOCATE_IDS_SQL, Long.class, groups.size());
+        } catch (DataAccessException e) {
+            // Nothing was written: put the events back for the next flush
+            logger.error("Failed to allocate IDs for {} notifications, retrying next flush", groups.size(), e);
+            requeue(events);
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(groups.size());
+        for (int i = 0; i < groups.size(); i++) {
+            rows.add(groups.get(i).toRow(ids.get(i), now));
+        }
+
+        List<Integer> written = insert(rows);
+        rowsCounter.increment(written.size());
+
+        Map<String, Integer> unreadDeltas = new HashMap<>();
+        for (int i : written) {
+            Group group = groups.get(i);
+            pushHub.publish(PushHub.NOTIFICATIONS, group.latest.getRecipientId(), "notification",
+                group.toDto(ids.get(i), now));
+            unreadDeltas.merge(group.latest.getRecipientId(), 1, Integer::sum);
+        }
+        unreadDeltas.forEach(unreadNotificationCounter::changed);
+        return written.size();
+    }
+
+    static List<Group> coalesce(List<NotificationEvent> events) {
+        Map<String, Group> byKey = new LinkedHashMap<>();
+        List<Group> groups = new ArrayList<>();
+        for (NotificationEvent event : events) {
+            String key = event.getCoalescingKey();
+            Group group = key != null ? byKey.get(key) : null;
+            if (group == null) {
+                group = new Group();
+                groups.add(group);
+                if (key != null) {
+                    byKey.put(key, group);
+                }
+            }
+            group.add(event);
+        }
+        return groups;
+    }
+
+    // Indexes of the rows written; a failing batch (e.g. a recipient deleted meanwhile) is retried row by row
+    private List<Integer> insert(List<Object[]> rows) {
+        List<Integer> written = new ArrayList<>(rows.size());
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            for (int i = 0; i < rows.size(); i++) {
+                written.add(i);
+            }
+        } catch (DataAccessException batchFailure) {
+            for (int i = 0; i < rows.size(); i++) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, rows.get(i));
+                    written.add(i);
+                } catch (DataAccessException e) {
+                    logger.warn("Dropping notification for user {}: {}", rows.get(i)[1], e.getMessage());
+                }
+            }
+        }
+        return written;
+    }
+
+    private double coalescingRatio() {
+        double rows = rowsCounter.count();
+        return rows > 0 ? eventsCounter.count() / rows : 1.0;
+    }
+
+    static class Group {
+        NotificationEvent first;
+        NotificationEvent latest;
+        final Set<String> actorIds = new LinkedHashSet<>();
+
+        void add(NotificationEvent event) {
+            if (first == null) {
+                first = event;
+            }
+            latest = event;
+            if (event.getActorId() != null) {
+                actorIds.add(event.getActorId());
+            }
+        }
+
+        int actorCount() {
+            return Math.max(1, actorIds.size());
+        }
+
+        String message() {
+            int others = actorCount() - 1;
+            if (others == 0) {
+                return latest.getMessage();
+            }
+            return latest.getActorName() + " and " + others + (others == 1 ? " other " : " others ") + latest.getAction();
+        }
+
+        Object[] toRow(Long id, LocalDateTime createdAt) {
+            return new Object[] {
+                id, latest.getRecipientId(), latest.getActorId(), first.getType(), first.getTitle(), message(),
+                first.getRelatedEntityType(), first.getRelatedEntityId(), Timestamp.valueOf(createdAt), actorCount()
+            };
+        }
+
+        NotificationDto toDto(Long id, LocalDateTime createdAt) {
+            NotificationDto dto = new NotificationDto();
+            dto.setId(id);
+            dto.setType(first.getType());
+            dto.setTitle(first.getTitle());
+            dto.setMessage(message());
+            dto.setRelatedEntityType(first.getRelatedEntityType());
+            dto.setRelatedEntityId(first.getRelatedEntityId());
+            dto.setRead(false);
+            dto.setCreatedAt(createdAt);
+            dto.setActorCount(actorCount());
+            dto.setFromUserId(latest.getActorId());
+            dto.setFromUserName(latest.getActorName());
+            dto.setFromUserAvatar(latest.getActorPicture());
+            return dto;
+        }
+    }
+}
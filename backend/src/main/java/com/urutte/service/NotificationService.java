@@ -2,8 +2,10 @@ package com.urutte.service;
 
 import com.urutte.dto.NotificationDto;
 import com.urutte.model.Notification;
+import com.urutte.model.ReadWatermark;
 import com.urutte.model.User;
 import com.urutte.repository.NotificationRepository;
+import com.urutte.repository.ReadWatermarkRepository;
 import com.urutte.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -11,6 +13,8 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
@@ -26,6 +30,14 @@ public class NotificationService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UnreadNotificationCounter unreadNotificationCounter;
+
+    @Autowired
+    private PushHub pushHub;
+
+    @Autowired
+    private ReadWatermarkRepository readWatermarkRepository;
 
     public NotificationDto createNotification(String userId, String fromUserId, String type, 
                                             String title, String message, String relatedEntityType, Long relatedEntityId) {
@@ -41,10 +53,13 @@ public class NotificationService {
         Notification notification = new Notification(user, fromUser, type, title, message, relatedEntityType, relatedEntityId);
         Notification savedNotification = notificationRepository.save(notification);
         
-        NotificationDto dto = convertToDto(savedNotification);
+        NotificationDto dto = convertToDto(savedNotification, 0);
         
-        // Note: Real-time notifications removed with WebSocket support
-        // Notifications will be available via REST API polling
+        // Pushed to the user's notification streams once the notification is committed
+        afterCommit(() -> {
+            pushHub.publish(PushHub.NOTIFICATIONS, userId, "notification", dto);
+            unreadNotificationCounter.changed(userId, 1);
+        });
         
         return dto;
     }
@@ -53,9 +68,10 @@ public class NotificationService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
+        long readUpTo = readUpTo(userId);
         Pageable pageable = PageRequest.of(page, size);
         return notificationRepository.findByUserOrderByCreatedAtDesc(user, pageable)
-                .map(this::convertToDto);
+                .map(notification -> convertToDto(notification, readUpTo));
     }
 
     public List<NotificationDto> getUnreadNotifications(String userId) {
@@ -64,15 +80,13 @@ public class NotificationService {
         
         return notificationRepository.findUnreadNotifications(user)
                 .stream()
-                .map(this::convertToDto)
+                .map(notification -> convertToDto(notification, 0))
                 .collect(Collectors.toList());
     }
 
+    // Served from memory; see UnreadNotificationCounter
     public long getUnreadNotificationCount(String userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        return notificationRepository.countByUserAndIsReadFalse(user);
+        return unreadNotificationCounter.get(userId);
     }
 
     public NotificationDto markAsRead(Long notificationId, String userId) {
@@ -83,22 +97,59 @@ public class NotificationService {
             throw new RuntimeException("Unauthorized");
         }
         
-        notification.setRead(true);
-        Notification savedNotification = notificationRepository.save(notification);
+        // Below the watermark it is read already, whatever its flag says
+        if (notificationId > readUpTo(userId) && notificationRepository.markReadById(notificationId, userId) > 0) {
+            afterCommit(() -> unreadNotificationCounter.changed(userId, -1));
+        }
         
-        return convertToDto(savedNotification);
+        NotificationDto dto = convertToDto(notification, 0);
+        dto.setRead(true);
+        return dto;
     }
 
-    public void markAllAsRead(String userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    // Marks the user's notifications up to upToId (all when null) read by moving the read watermark:
+    // one row write however many notifications there are. Returns the number that became read
+    public long markAllAsRead(String userId, Long upToId) {
+        Long maxId = notificationRepository.findMaxIdByUserId(userId);
+        if (maxId == null) {
+            return 0;
+        }
+        long upTo = upToId != null ? Math.min(upToId, maxId) : maxId;
+        long readUpTo = readUpTo(userId);
+        if (upTo <= readUpTo) {
+            return 0;
+        }
         
-        List<Notification> unreadNotifications = notificationRepository.findByUserAndIsReadFalseOrderByCreatedAtDesc(user);
-        unreadNotifications.forEach(notification -> notification.setRead(true));
-        notificationRepository.saveAll(unreadNotifications);
+        long marked = notificationRepository.countUnreadInRange(userId, readUpTo, upTo);
+        if (readWatermarkRepository.advance(userId, ReadWatermark.NOTIFICATIONS, ReadWatermark.ALL, upTo) == 0) {
+            // A concurrent request moved the watermark and accounted for these
+            return 0;
+        }
+        if (marked > 0) {
+            afterCommit(() -> unreadNotificationCounter.changed(userId, -marked));
+        }
+        return marked;
+    }
+
+    private long readUpTo(String userId) {
+        return readWatermarkRepository.findLastReadId(userId, ReadWatermark.NOTIFICATIONS, ReadWatermark.ALL)
+                .orElse(0L);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
-    private NotificationDto convertToDto(Notification notification) {
+    private NotificationDto convertToDto(Notification notification, long readUpTo) {
         NotificationDto dto = new NotificationDto();
         dto.setId(notification.getId());
         dto.setType(notification.getType());
@@ -106,8 +157,9 @@ public class NotificationService {
         dto.setMessage(notification.getMessage());
         dto.setRelatedEntityType(notification.getRelatedEntityType());
         dto.setRelatedEntityId(notification.getRelatedEntityId());
-        dto.setRead(notification.isRead());
+        dto.setRead(notification.isRead() || notification.getId() <= readUpTo);
         dto.setCreatedAt(notification.getCreatedAt());
+        dto.setActorCount(notification.getActorCount());
         
         if (notification.getFromUser() != null) {
             dto.setFromUserId(notification.getFromUser().getId());
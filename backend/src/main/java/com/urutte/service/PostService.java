@@ -38,11 +38,17 @@ public class PostService {
     private CommentRepository commentRepository;
     
     @Autowired
-    private NotificationService notificationService;
+    private NotificationPipeline notificationPipeline;
     
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private HotDataCache hotDataCache;
+
+    @Autowired
+    private BlobService blobService;
+    
     public PostDto createPost(CreatePostDto createPostDto, String userId) {
         User user = userService.getUserById(userId);
         
@@ -80,6 +86,7 @@ public class PostService {
         }
         
         Post savedPost = postRepository.save(post);
+        hotDataCache.evictUserCounts(userId);
         return convertToDto(savedPost, userId);
     }
     
@@ -103,6 +110,7 @@ public class PostService {
         post.setParentPost(null);
         
         Post savedPost = postRepository.save(post);
+        hotDataCache.evictUserCounts(userId);
         return convertToDto(savedPost, userId);
     }
     
@@ -153,15 +161,16 @@ public class PostService {
             
             // Create notification for post author (if not the same user)
             if (!post.getUser().getId().equals(userId)) {
-                notificationService.createNotification(
+                notificationPipeline.submit(new NotificationEvent(
                     post.getUser().getId(),
-                    userId,
+                    user,
                     "like",
                     "New Like",
                     user.getName() + " liked your post",
+                    "liked your post",
                     "post",
                     postId
-                );
+                ));
             }
         }
         
@@ -183,15 +192,16 @@ public class PostService {
             
             // Create notification for original post author (if not the same user)
             if (!originalPost.getUser().getId().equals(userId)) {
-                notificationService.createNotification(
+                notificationPipeline.submit(new NotificationEvent(
                     originalPost.getUser().getId(),
-                    userId,
+                    user,
                     "repost",
                     "New Repost",
                     user.getName() + " reposted your post",
+                    "reposted your post",
                     "post",
                     postId
-                );
+                ));
             }
         }
         
@@ -289,6 +299,9 @@ public class PostService {
         
         // Finally delete the post itself
         postRepository.delete(post);
+        // The post's media reference is given back once the delete has committed
+        blobService.releaseUrl(post.getMediaUrl());
+        hotDataCache.evictUserCounts(post.getUser().getId());
     }
     
     /**
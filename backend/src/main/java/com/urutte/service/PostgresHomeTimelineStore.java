@@ -0,0 +1,132 @@
+package com.urutte.service;
+
+import com.urutte.model.HomeTimelineItem;
+import com.urutte.repository.HomeTimelineItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Home timeline store backed by the home_timeline_items table, shared by all backend nodes.
+ * Fan-out writes are JDBC batches of INSERT ... ON CONFLICT DO NOTHING so re-delivery is harmless.
+ */
+@Component
+@ConditionalOnProperty(name = "app.feed.timeline.mode", havingValue = "postgres")
+@Transactional
+public class PostgresHomeTimelineStore implements HomeTimelineStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PostgresHomeTimelineStore.class);
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO home_timeline_items (owner_id, thread_id, author_id, created_at, reason) " +
+        "VALUES (?, ?, ?, ?, ?) ON CONFLICT (owner_id, thread_id) DO NOTHING";
+    
+    private static final String IS_MATERIALIZED_SQL =
+        "SELECT EXISTS (SELECT 1 FROM home_timeline_owners WHERE owner_id = ?)";
+    
+    private static final String MARK_MATERIALIZED_SQL =
+        "INSERT INTO home_timeline_owners (owner_id, materialized_at) VALUES (?, ?) ON CONFLICT (owner_id) DO NOTHING";
+    
+    @Autowired
+    private HomeTimelineItemRepository homeTimelineItemRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${app.feed.timeline.retention-days:30}")
+    private int retentionDays;
+    
+    // Owners known to be materialized on this node, so the existence check runs once per owner
+    private final Set<String> materializedOwners = ConcurrentHashMap.newKeySet();
+    
+    @Override
+    public void push(Collection<String> ownerIds, TimelineEntry entry) {
+        if (ownerIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = ownerIds.stream()
+            .map(ownerId -> toRow(ownerId, entry))
+            .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+    
+    @Override
+    public void pushAll(String ownerId, Collection<TimelineEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = entries.stream()
+            .map(entry -> toRow(ownerId, entry))
+            .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<TimelineEntry> read(String ownerId, LocalDateTime cursorCreatedAt, Long cursorThreadId, int limit) {
+        PageRequest pageRequest = PageRequest.of(0, limit);
+        List<HomeTimelineItem> items = (cursorCreatedAt != null && cursorThreadId != null)
+            ? homeTimelineItemRepository.findTimelineBefore(ownerId, cursorCreatedAt, cursorThreadId, pageRequest)
+            : homeTimelineItemRepository.findTimeline(ownerId, pageRequest);
+        
+        return items.stream()
+            .map(item -> new TimelineEntry(item.getThreadId(), item.getAuthorId(), item.getCreatedAt(),
+                TimelineEntry.Reason.valueOf(item.getReason())))
+            .collect(Collectors.toList());
+    }
+    
+    @Override
+    public void removeFollowEntries(String ownerId, String authorId) {
+        homeTimelineItemRepository.deleteFollowEntries(ownerId, authorId);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isMaterialized(String ownerId) {
+        if (materializedOwners.contains(ownerId)) {
+            return true;
+        }
+        // Only the backfill records the owner; fan-out pushes may reach a timeline before it is built
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_MATERIALIZED_SQL, Boolean.class, ownerId))) {
+            materializedOwners.add(ownerId);
+            return true;
+        }
+        return false;
+    }
+    
+    @Override
+    public void markMaterialized(String ownerId) {
+        jdbcTemplate.update(MARK_MATERIALIZED_SQL, ownerId, Timestamp.valueOf(LocalDateTime.now()));
+        materializedOwners.add(ownerId);
+    }
+    
+    // Drop timeline entries past the retention window once a day
+    @Scheduled(cron = "0 30 3 * * *")
+    public void cleanupExpiredEntries() {
+        int deleted = homeTimelineItemRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays));
+        logger.info("Removed {} expired home timeline entries", deleted);
+    }
+    
+    private Object[] toRow(String ownerId, TimelineEntry entry) {
+        return new Object[] {
+            ownerId,
+            entry.getThreadId(),
+            entry.getAuthorId(),
+            Timestamp.valueOf(entry.getCreatedAt()),
+            entry.getReason().name()
+        };
+    }
+}
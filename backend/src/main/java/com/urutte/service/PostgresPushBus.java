@@ -0,0 +1,156 @@
+package com.urutte.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Push bus over PostgreSQL LISTEN/NOTIFY, for deployments with several backend nodes.
+ *
+ * Events are delivered to this node's listeners directly and sent to the other nodes with
+ * pg_notify; notifications from this node are ignored when they come back. A dedicated connection
+ * of the pool listens on the channel and is re-opened when it fails. NOTIFY payloads are limited to
+ * 8000 bytes, so a larger event reaches the other nodes as a "resync" event without data, which
+ * tells the client to reload over REST.
+ */
+@Component
+@ConditionalOnProperty(name = "app.push.bus", havingValue = "postgres")
+public class PostgresPushBus implements PushBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresPushBus.class);
+
+    private static final String CHANNEL = "push_events";
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.push.postgres.poll-ms:500}")
+    private int pollMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<PushEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "push-bus-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listenerThread.interrupt();
+    }
+
+    @Override
+    public void publish(PushEvent event) {
+        deliver(event);
+        try {
+            String payload = encode(event);
+            if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+                payload = encode(new PushEvent(event.getId(), event.getStream(), event.getUserId(), PushHub.RESYNC, null));
+            }
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+        } catch (Exception e) {
+            logger.warn("Failed to send push event {} to other nodes: {}", event.getId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<PushEvent> listener) {
+        listeners.add(listener);
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                logger.info("Listening for push events on channel {}", CHANNEL);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    logger.warn("Push event listener failed, reconnecting: {}", e.getMessage());
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        try {
+            Map<?, ?> message = objectMapper.readValue(payload, Map.class);
+            if (nodeId.equals(message.get("node"))) {
+                return;
+            }
+            deliver(new PushEvent((String) message.get("id"), (String) message.get("stream"),
+                (String) message.get("userId"), (String) message.get("name"), (String) message.get("data")));
+        } catch (Exception e) {
+            logger.warn("Ignoring malformed push event: {}", e.getMessage());
+        }
+    }
+
+    private void deliver(PushEvent event) {
+        for (Consumer<PushEvent> listener : listeners) {
+            listener.accept(event);
+        }
+    }
+
+    private String encode(PushEvent event) throws JsonProcessingException {
+        Map<String, String> message = new HashMap<>();
+        message.put("node", nodeId);
+        message.put("id", event.getId());
+        message.put("stream", event.getStream());
+        message.put("userId", event.getUserId());
+        message.put("name", event.getName());
+        message.put("data", event.getData());
+        return objectMapper.writeValueAsString(message);
+    }
+}
@@ -0,0 +1,112 @@
+package com.urutte.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Thread search backed by PostgreSQL full-text search.
+ *
+ * threads.search_vector is a generated tsvector column over the thread content, so PostgreSQL keeps it
+ * in sync on every insert and edit, and a GIN index answers the @@ match instead of a sequential
+ * LIKE scan. Terms are matched as prefixes ("term:*") and ranked with ts_rank. The column and index
+ * come from db/migration/V20251018__Add_Thread_Search_Vector.sql, which must be applied before
+ * this engine is enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "postgres")
+public class PostgresThreadSearchService implements ThreadSearchService {
+
+    // Privacy and ADMIN-exclusion rules of the public search
+    private static final String BASE_SQL =
+        "SELECT t.id FROM threads t JOIN users u ON u.id = t.user_id " +
+        "WHERE t.is_deleted = false AND t.is_public = true AND u.user_type <> 'ADMIN'";
+    private static final String MATCH_SQL = " AND t.search_vector @@ to_tsquery('simple', ?)";
+    private static final String HASHTAG_SQL =
+        " AND EXISTS (SELECT 1 FROM thread_hashtags th JOIN hashtags h ON h.id = th.hashtag_id " +
+        "WHERE th.thread_id = t.id AND h.tag = ?)";
+    private static final String MENTION_SQL =
+        " AND EXISTS (SELECT 1 FROM thread_mentions tm JOIN users mu ON mu.id = tm.mentioned_user_id " +
+        "WHERE tm.thread_id = t.id AND lower(mu.username) = ?)";
+    private static final String SEEK_SQL = " AND (t.created_at < ? OR (t.created_at = ? AND t.id < ?))";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> searchByRelevance(ThreadSearchQuery query, int offset, int limit) {
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = filteredQuery(query, args);
+        if (query.hasTerms()) {
+            sql.append(" ORDER BY ts_rank(t.search_vector, to_tsquery('simple', ?)) DESC, t.created_at DESC, t.id DESC");
+            args.add(toTsQuery(query));
+        } else {
+            sql.append(" ORDER BY t.created_at DESC, t.id DESC");
+        }
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    @Override
+    public List<Long> searchByRecency(ThreadSearchQuery query, LocalDateTime cursorCreatedAt, Long cursorThreadId, int limit) {
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = filteredQuery(query, args);
+        if (cursorCreatedAt != null && cursorThreadId != null) {
+            sql.append(SEEK_SQL);
+            args.add(Timestamp.valueOf(cursorCreatedAt));
+            args.add(Timestamp.valueOf(cursorCreatedAt));
+            args.add(cursorThreadId);
+        }
+        sql.append(" ORDER BY t.created_at DESC, t.id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    // search_vector is generated by PostgreSQL, so writes need no extra work
+    @Override
+    public void index(com.urutte.model.Thread thread) {
+    }
+
+    @Override
+    public void remove(Long threadId) {
+    }
+
+    private StringBuilder filteredQuery(ThreadSearchQuery query, List<Object> args) {
+        StringBuilder sql = new StringBuilder(BASE_SQL);
+        if (query.hasTerms()) {
+            sql.append(MATCH_SQL);
+            args.add(toTsQuery(query));
+        }
+        for (String hashtag : query.getHashtags()) {
+            sql.append(HASHTAG_SQL);
+            args.add(hashtag);
+        }
+        for (String mention : query.getMentions()) {
+            sql.append(MENTION_SQL);
+            args.add(mention);
+        }
+        return sql;
+    }
+
+    // Tokens only contain letters, digits and underscores, so they cannot inject tsquery operators
+    private String toTsQuery(ThreadSearchQuery query) {
+        return query.getTerms().stream()
+            .map(term -> term + ":*")
+            .collect(Collectors.joining(" & "));
+    }
+}
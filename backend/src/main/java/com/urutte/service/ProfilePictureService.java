@@ -1,6 +1,6 @@
 package com.urutte.service;
 
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -8,19 +8,14 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 public class ProfilePictureService {
 
-    @Value("${app.upload.profile-dir:./uploads/profiles}")
-    private String profileUploadDir;
+    @Autowired
+    private BlobService blobService;
 
     private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "gif", "webp");
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
@@ -34,12 +29,6 @@ public class ProfilePictureService {
         }
 
         try {
-            // Create profile upload directory if it doesn't exist
-            Path uploadPath = Paths.get(profileUploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
             // Download the image
             URL url = new URL(externalUrl);
             try (InputStream in = url.openStream()) {
@@ -49,15 +38,8 @@ public class ProfilePictureService {
                     fileExtension = ".jpg";
                 }
 
-                // Generate unique filename
-                String filename = "profile_" + userId + "_" + UUID.randomUUID().toString() + fileExtension;
-                Path targetPath = uploadPath.resolve(filename);
-
-                // Copy the file
-                Files.copy(in, targetPath, StandardCopyOption.REPLACE_EXISTING);
-
-                // Return the relative path for serving
-                return "profiles/" + filename;
+                // Store by content and return the relative path for serving
+                return blobService.url(blobService.store(in, fileExtension));
             }
         } catch (Exception e) {
             // Log the error but don't fail the user creation
@@ -113,24 +95,11 @@ public class ProfilePictureService {
             throw new IllegalArgumentException("Invalid file type. Only JPG, JPEG, PNG, GIF, and WEBP are allowed.");
         }
         
-        // Create profile upload directory if it doesn't exist
-        Path uploadPath = Paths.get(profileUploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Get file extension
-        String fileExtension = getFileExtension(originalFilename);
-        
-        // Generate unique filename
-        String filename = "profile_" + userId + "_" + UUID.randomUUID().toString() + fileExtension;
-        Path targetPath = uploadPath.resolve(filename);
-        
-        // Save the file
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        // Store by content, so a re-uploaded picture takes no extra space
+        String key = blobService.store(file.getInputStream(), getFileExtension(originalFilename));
         
         // Return the relative path for serving
-        return "profiles/" + filename;
+        return blobService.url(key);
     }
     
     /**
@@ -152,24 +121,11 @@ public class ProfilePictureService {
             throw new IllegalArgumentException("Invalid file type. Only JPG, JPEG, PNG, GIF, and WEBP are allowed.");
         }
         
-        // Create profile upload directory if it doesn't exist
-        Path uploadPath = Paths.get(profileUploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Get file extension
-        String fileExtension = getFileExtension(originalFilename);
-        
-        // Generate unique filename
-        String filename = "cover_" + userId + "_" + UUID.randomUUID().toString() + fileExtension;
-        Path targetPath = uploadPath.resolve(filename);
-        
-        // Save the file
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        // Store by content, so a re-uploaded picture takes no extra space
+        String key = blobService.store(file.getInputStream(), getFileExtension(originalFilename));
         
         // Return the relative path for serving
-        return "profiles/" + filename;
+        return blobService.url(key);
     }
     
     /**
@@ -0,0 +1,18 @@
+package com.urutte.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Delivers push events to the PushHub of every backend node, so a client receives events
+ * whichever node its stream is connected to.
+ *
+ * The implementation is chosen with app.push.bus: memory (single node, the default) or postgres
+ * (LISTEN/NOTIFY on the application database).
+ */
+public interface PushBus {
+
+    // Hand the event to the listeners of all nodes, this one included
+    void publish(PushEvent event);
+
+    void subscribe(Consumer<PushEvent> listener);
+}
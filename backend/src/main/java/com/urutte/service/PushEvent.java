@@ -0,0 +1,32 @@
+package com.urutte.service;
+
+/**
+ * One server-sent event for one user's stream, as carried by the PushBus. The data is already
+ * serialized to JSON so every node writes the same bytes.
+ */
+public class PushEvent {
+
+    private final String id;
+    private final String stream;
+    private final String userId;
+    private final String name;
+    private final String data;
+
+    public PushEvent(String id, String stream, String userId, String name, String data) {
+        this.id = id;
+        this.stream = stream;
+        this.userId = userId;
+        this.name = name;
+        this.data = data;
+    }
+
+    public String getId() { return id; }
+
+    public String getStream() { return stream; }
+
+    public String getUserId() { return userId; }
+
+    public String getName() { return name; }
+
+    public String getData() { return data; }
+}
@@ -0,0 +1,349 @@
+package com.urutte.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Server-sent event streams of signed-in users, one stream per user and stream name (chat,
+ * notifications).
+ *
+ * Publishing never writes to a socket: events go through the PushBus to every node, and each node
+ * puts them on the bounded send queues of its connections, which a small sender pool drains. A
+ * connection whose queue is full is closed as a slow consumer. Clients reconnect with
+ * Last-Event-ID and get the events they missed from a per-user replay buffer, or a "resync" event
+ * when the buffer no longer reaches back that far (reload over REST). Heartbeat comments keep idle
+ * streams open through proxies; the same sweep drops replay buffers of users without connections.
+ */
+@Service
+public class PushHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushHub.class);
+
+    public static final String CHAT = "chat";
+    public static final String NOTIFICATIONS = "notifications";
+    public static final String RESYNC = "resync";
+
+    private static final PushEvent HEARTBEAT = new PushEvent(null, null, null, null, null);
+
+    @Autowired
+    private PushBus pushBus;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.push.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${app.push.replay-size:100}")
+    private int replaySize;
+
+    @Value("${app.push.replay-ttl-seconds:300}")
+    private long replayTtlSeconds;
+
+    @Value("${app.push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMillis;
+
+    @Value("${app.push.sender-threads:4}")
+    private int senderThreads;
+
+    // Node part of event IDs, so IDs from different nodes never collide
+    private final String idPrefix = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private final AtomicLong sequence = new AtomicLong();
+
+    // By stream and user; only changed inside channels.compute, which serializes access per key
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private ExecutorService sender;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "push-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pushBus.subscribe(this::deliver);
+
+        Gauge.builder("push.connections", connectionCount, AtomicInteger::get)
+            .description("Open server-sent event connections on this node")
+            .register(meterRegistry);
+        droppedCounter = Counter.builder("push.dropped")
+            .description("Connections closed because their send queue was full")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+    }
+
+    // Open a stream; lastEventId is the Last-Event-ID header of a reconnecting client
+    public SseEmitter subscribe(String stream, String userId, String lastEventId) {
+        return subscribe(stream, userId, lastEventId, null, null);
+    }
+
+    // Same, starting with a snapshot event (e.g. the current unread count) unless the client resumes
+    // without a gap. The snapshot is loaded outside channels.compute, which only holds the key's bin
+    // lock for in-memory work; events delivered while it loads are replayed after it instead
+    public SseEmitter subscribe(String stream, String userId, String lastEventId,
+                                String snapshotName, Supplier<Object> snapshot) {
+        String key = key(stream, userId);
+        SseEmitter emitter = newEmitter();
+        Connection connection = new Connection(key, emitter, queueCapacity);
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(throwable -> remove(connection));
+
+        // The newest buffered event before the snapshot is loaded, and whether the client can resume
+        String[] mark = new String[1];
+        boolean[] resumable = new boolean[1];
+        channels.computeIfPresent(key, (k, channel) -> {
+            PushEvent last = channel.recent.peekLast();
+            mark[0] = last != null ? last.getId() : null;
+            List<PushEvent> missed = lastEventId != null ? channel.eventsAfter(lastEventId) : null;
+            resumable[0] = missed != null && missed.size() < queueCapacity;
+            return channel;
+        });
+        PushEvent snapshotEvent = snapshot != null && !resumable[0]
+            ? new PushEvent(null, stream, userId, snapshotName, serialize(snapshotName, snapshot.get()))
+            : null;
+
+        connection.offer(new PushEvent(null, stream, userId, "connected", "Connected to " + stream + " stream"));
+        channels.compute(key, (k, channel) -> {
+            if (channel == null) {
+                channel = new Channel();
+            }
+            List<PushEvent> missed = lastEventId != null ? channel.eventsAfter(lastEventId) : null;
+            if (missed != null && missed.size() < queueCapacity) {
+                missed.forEach(connection::offer);
+            } else {
+                if (lastEventId != null) {
+                    connection.offer(resync(stream, userId));
+                }
+                if (snapshotEvent != null) {
+                    connection.offer(snapshotEvent);
+                    channel.eventsSince(mark[0]).forEach(connection::offer);
+                }
+            }
+            channel.connections.add(connection);
+            channel.touch();
+            return channel;
+        });
+        connectionCount.incrementAndGet();
+        schedule(connection);
+        return emitter;
+    }
+
+    // Send an event to all streams of the user, on every node. Strings are sent as they are,
+    // anything else as JSON
+    public void publish(String stream, String userId, String name, Object payload) {
+        pushBus.publish(new PushEvent(idPrefix + "-" + sequence.incrementAndGet(), stream, userId, name,
+            serialize(name, payload)));
+    }
+
+    private String serialize(String name, Object payload) {
+        try {
+            return payload instanceof String text ? text : objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize push event " + name, e);
+        }
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    // PushBus listener: keep the event for replay and queue it for this node's connections
+    void deliver(PushEvent event) {
+        List<Connection> ready = new ArrayList<>();
+        List<Connection> overflowing = new ArrayList<>();
+        channels.compute(key(event.getStream(), event.getUserId()), (k, channel) -> {
+            if (channel == null) {
+                channel = new Channel();
+            }
+            channel.append(event, replaySize);
+            for (Connection connection : channel.connections) {
+                (connection.offer(event) ? ready : overflowing).add(connection);
+            }
+            return channel;
+        });
+        ready.forEach(this::schedule);
+        overflowing.forEach(this::drop);
+    }
+
+    @Scheduled(fixedDelayString = "${app.push.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long idleCutoff = System.nanoTime() - TimeUnit.SECONDS.toNanos(replayTtlSeconds);
+        List<Connection> ready = new ArrayList<>();
+        List<Connection> overflowing = new ArrayList<>();
+        for (String key : channels.keySet()) {
+            channels.computeIfPresent(key, (k, channel) -> {
+                if (channel.connections.isEmpty()) {
+                    return channel.lastActivity - idleCutoff < 0 ? null : channel;
+                }
+                for (Connection connection : channel.connections) {
+                    (connection.offer(HEARTBEAT) ? ready : overflowing).add(connection);
+                }
+                return channel;
+            });
+        }
+        ready.forEach(this::schedule);
+        overflowing.forEach(this::drop);
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(emitterTimeoutMillis);
+    }
+
+    private void schedule(Connection connection) {
+        if (connection.scheduled.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(connection));
+            } catch (RejectedExecutionException e) {
+                connection.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Connection connection) {
+        try {
+            PushEvent event;
+            while (!connection.closed && (event = connection.queue.poll()) != null) {
+                connection.emitter.send(frame(event));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the container reports it too, but stop queueing right now
+            remove(connection);
+            connection.emitter.completeWithError(e);
+        } finally {
+            connection.scheduled.set(false);
+        }
+        if (!connection.closed && !connection.queue.isEmpty()) {
+            schedule(connection);
+        }
+    }
+
+    // Slow consumer: close the stream, the client resumes from Last-Event-ID
+    private void drop(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        remove(connection);
+        connection.queue.clear();
+        droppedCounter.increment();
+        logger.debug("Dropped slow push connection {}", connection.key);
+        connection.emitter.complete();
+    }
+
+    private void remove(Connection connection) {
+        connection.closed = true;
+        channels.computeIfPresent(connection.key, (k, channel) -> {
+            if (channel.connections.remove(connection)) {
+                connectionCount.decrementAndGet();
+            }
+            channel.touch();
+            return channel;
+        });
+    }
+
+    private static SseEmitter.SseEventBuilder frame(PushEvent event) {
+        if (event == HEARTBEAT) {
+            return SseEmitter.event().comment("heartbeat");
+        }
+        SseEmitter.SseEventBuilder frame = SseEmitter.event();
+        if (event.getId() != null) {
+            frame.id(event.getId());
+        }
+        return frame.name(event.getName()).data(event.getData() != null ? event.getData() : "{}");
+    }
+
+    private static PushEvent resync(String stream, String userId) {
+        return new PushEvent(null, stream, userId, RESYNC, null);
+    }
+
+    private static String key(String stream, String userId) {
+        return stream + ":" + userId;
+    }
+
+    private static class Channel {
+        final Deque<PushEvent> recent = new ArrayDeque<>();
+        final List<Connection> connections = new ArrayList<>(2);
+        long lastActivity = System.nanoTime();
+
+        void append(PushEvent event, int capacity) {
+            recent.addLast(event);
+            while (recent.size() > capacity) {
+                recent.removeFirst();
+            }
+            touch();
+        }
+
+        // Events after the given one, or null when it is no longer (or never was) in the buffer
+        List<PushEvent> eventsAfter(String eventId) {
+            List<PushEvent> after = null;
+            for (PushEvent event : recent) {
+                if (after != null) {
+                    after.add(event);
+                } else if (eventId.equals(event.getId())) {
+                    after = new ArrayList<>();
+                }
+            }
+            return after;
+        }
+
+        // Events after the given one, or all buffered events when it is null or no longer buffered
+        List<PushEvent> eventsSince(String eventId) {
+            List<PushEvent> after = eventId != null ? eventsAfter(eventId) : null;
+            return after != null ? after : new ArrayList<>(recent);
+        }
+
+        void touch() {
+            lastActivity = System.nanoTime();
+        }
+    }
+
+    private static class Connection {
+        final String key;
+        final SseEmitter emitter;
+        final BlockingQueue<PushEvent> queue;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closed;
+
+        Connection(String key, SseEmitter emitter, int capacity) {
+            this.key = key;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        // False when the queue is full; events for a closed connection are discarded
+        boolean offer(PushEvent event) {
+            return closed || queue.offer(event);
+        }
+    }
+}
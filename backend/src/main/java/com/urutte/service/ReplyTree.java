@@ -0,0 +1,35 @@
+package com.urutte.service;
+
+import com.urutte.dto.ThreadDto;
+
+import java.util.*;
+
+/**
+ * Assembles a flat list of replies into a nested ThreadDto tree.
+ *
+ * Replies must be ordered parents-first (by thread level), as the conversation queries return them.
+ * Each node keeps at most branchLimit replies, oldest first; replies whose parent was dropped
+ * (over the branch limit, deleted, or cut off by the row cap) are dropped with it.
+ */
+public final class ReplyTree {
+
+    private ReplyTree() {
+    }
+
+    public static ThreadDto assemble(ThreadDto root, List<ThreadDto> replies, int branchLimit) {
+        Map<Long, ThreadDto> attached = new HashMap<>();
+        attached.put(root.getId(), root);
+        root.setReplies(new ArrayList<>());
+
+        for (ThreadDto reply : replies) {
+            ThreadDto parent = attached.get(reply.getParentThreadId());
+            if (parent == null || parent.getReplies().size() >= branchLimit) {
+                continue;
+            }
+            reply.setReplies(new ArrayList<>());
+            parent.getReplies().add(reply);
+            attached.put(reply.getId(), reply);
+        }
+        return root;
+    }
+}
@@ -0,0 +1,340 @@
+package com.urutte.service;
+
+import com.urutte.exception.UploadProtocolException;
+import com.urutte.model.MediaType;
+import com.urutte.model.UploadSession;
+import com.urutte.repository.UploadSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resumable video uploads in the style of tus 1.0 (core protocol with the creation, checksum,
+ * termination and expiration extensions).
+ *
+ * create records a session with the announced length, and the client sends the video as chunks,
+ * each starting at the session's offset. A chunk is written while holding a lease on the session
+ * row (locked_until, app.upload.resumable.lock-seconds), so nodes sharing the upload directory
+ * never write the same part file at once; the offset is read again once the lease is held. The
+ * chunk goes through a fixed buffer straight into the part file at that offset and is checked
+ * against its Upload-Checksum, if it has one. Only then does the offset move. An interrupted chunk
+ * without a checksum keeps the bytes that arrived, so the client resumes from there. Chunks are
+ * capped at app.upload.resumable.max-chunk-bytes, which keeps every request short whatever the
+ * video size. Once the last byte is in, the part file must look like a video and is moved, not
+ * copied, into the blob store. If that fails the part file stays, and an empty chunk at the final
+ * offset runs the completion again. Sessions expire after app.upload.resumable.expiration-hours
+ * and are swept with their part files.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    // Upload-Checksum algorithms and their JCA names
+    private static final Map<String, String> CHECKSUM_ALGORITHMS = Map.of("sha1", "SHA-1", "md5", "MD5", "sha256", "SHA-256");
+
+    private static final String LOCK_SQL =
+        "UPDATE upload_sessions SET locked_until = ? WHERE id = ? AND (locked_until IS NULL OR locked_until < ?)";
+
+    private static final String UNLOCK_SQL = "UPDATE upload_sessions SET locked_until = NULL WHERE id = ?";
+
+    private static final String STATE_SQL = "SELECT upload_offset, video_path FROM upload_sessions WHERE id = ?";
+
+    private static final String ADVANCE_SQL = "UPDATE upload_sessions SET upload_offset = ? WHERE id = ? AND upload_offset = ?";
+
+    private static final String COMPLETE_SQL = "UPDATE upload_sessions SET video_path = ? WHERE id = ? AND video_path IS NULL";
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Part files live next to the blob store's temp files, so completing an upload is a rename
+    @Value("${app.storage.temp-dir:./uploads/tmp}")
+    private String tempDir;
+
+    @Value("${app.upload.resumable.max-bytes:209715200}")
+    private long maxBytes;
+
+    @Value("${app.upload.resumable.max-chunk-bytes:8388608}")
+    private long maxChunkBytes;
+
+    @Value("${app.upload.resumable.expiration-hours:24}")
+    private long expirationHours;
+
+    @Value("${app.upload.resumable.lock-seconds:300}")
+    private long lockSeconds;
+
+    private Counter bytesCounter;
+    private Counter completedCounter;
+
+    @PostConstruct
+    public void init() {
+        bytesCounter = Counter.builder("upload.resumable.bytes")
+            .description("Bytes accepted in resumable upload chunks")
+            .register(meterRegistry);
+        completedCounter = Counter.builder("upload.resumable.completed")
+            .description("Resumable uploads assembled and stored")
+            .register(meterRegistry);
+    }
+
+    public UploadSession create(String userId, long length, String filename, String contentType) {
+        if (length <= 0) {
+            throw new UploadProtocolException(400, "Upload-Length must be positive");
+        }
+        if (length > maxBytes) {
+            throw new UploadProtocolException(413, "Video size exceeds the limit of " + maxBytes + " bytes");
+        }
+        try {
+            fileUploadService.validateVideoFormat(filename, contentType);
+        } catch (IllegalArgumentException e) {
+            throw new UploadProtocolException(415, e.getMessage());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.setUploadLength(length);
+        session.setUploadOffset(0L);
+        session.setFilename(filename);
+        session.setContentType(contentType);
+        session.setCreatedAt(now);
+        session.setExpiresAt(now.plusHours(expirationHours));
+        return uploadSessionRepository.save(session);
+    }
+
+    // The caller's session while it has not expired
+    public UploadSession get(String id, String userId) {
+        return uploadSessionRepository.findByIdAndUserId(id, userId)
+            .filter(session -> session.getExpiresAt().isAfter(LocalDateTime.now()))
+            .orElseThrow(() -> new UploadProtocolException(404, "Upload not found"));
+    }
+
+    /**
+     * Append a chunk at offset, which must be the session's current offset. contentLength (null when
+     * unknown) lets oversized chunks be refused before any byte is read; checksum is the
+     * Upload-Checksum header ("sha1 <base64>") or null. Returns the session with its new offset,
+     * stored as a video once the last byte has arrived. An empty chunk at the final offset completes
+     * an upload whose completion failed.
+     */
+    public UploadSession writeChunk(String id, String userId, long offset, Long contentLength, String checksum,
+            InputStream body) throws IOException {
+        UploadSession session = get(id, userId);
+        MessageDigest digest = null;
+        byte[] expected = null;
+        if (checksum != null) {
+            String[] parts = checksum.trim().split(" ", 2);
+            String algorithm = CHECKSUM_ALGORITHMS.get(parts[0]);
+            if (algorithm == null || parts.length != 2) {
+                throw new UploadProtocolException(400, "Unsupported Upload-Checksum: " + checksum);
+            }
+            try {
+                expected = Base64.getDecoder().decode(parts[1].trim());
+                digest = MessageDigest.getInstance(algorithm);
+            } catch (IllegalArgumentException | NoSuchAlgorithmException e) {
+                throw new UploadProtocolException(400, "Invalid Upload-Checksum: " + checksum);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (jdbcTemplate.update(LOCK_SQL, Timestamp.valueOf(now.plusSeconds(lockSeconds)), id, Timestamp.valueOf(now)) == 0) {
+            throw new UploadProtocolException(409, "Another chunk of this upload is in progress");
+        }
+
+        try {
+            // Another node may have moved the offset before the lease was taken
+            refresh(session);
+            if (offset != session.getUploadOffset()) {
+                throw new UploadProtocolException(409, "Upload-Offset " + offset + " does not match " + session.getUploadOffset());
+            }
+            long limit = Math.min(session.getUploadLength() - offset, maxChunkBytes);
+            if (contentLength != null && contentLength > limit) {
+                throw new UploadProtocolException(413, "Chunk exceeds the limit of " + limit + " bytes");
+            }
+            if (session.isComplete()) {
+                return session;
+            }
+
+            Path part = partFile(id);
+            if (offset > 0 && !Files.exists(part)) {
+                // The bytes before the offset are gone (e.g. the part file was moved but not recorded)
+                uploadSessionRepository.delete(session);
+                throw new UploadProtocolException(410, "Upload data is no longer available");
+            }
+            Files.createDirectories(part.getParent());
+            long written = 0;
+            IOException interruption = null;
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Drop whatever a rejected chunk left beyond the offset
+                if (channel.size() > offset) {
+                    channel.truncate(offset);
+                }
+                channel.position(offset);
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                try {
+                    while ((read = body.read(buffer)) != -1) {
+                        if (written + read > limit) {
+                            channel.truncate(offset);
+                            throw new UploadProtocolException(413, "Chunk exceeds the limit of " + limit + " bytes");
+                        }
+                        if (digest != null) {
+                            digest.update(buffer, 0, read);
+                        }
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                        while (chunk.hasRemaining()) {
+                            channel.write(chunk);
+                        }
+                        written += read;
+                    }
+                } catch (IOException e) {
+                    // The client went away: keep what arrived, unless the chunk was to be verified as a whole
+                    if (digest != null) {
+                        channel.truncate(offset);
+                        throw e;
+                    }
+                    interruption = e;
+                }
+                if (digest != null && !MessageDigest.isEqual(digest.digest(), expected)) {
+                    channel.truncate(offset);
+                    throw new UploadProtocolException(460, "Checksum mismatch");
+                }
+                // The bytes must be on disk before the offset says they are
+                channel.force(false);
+            }
+
+            if (written > 0) {
+                if (jdbcTemplate.update(ADVANCE_SQL, offset + written, id, offset) == 0) {
+                    throw new UploadProtocolException(409, "Upload offset moved concurrently");
+                }
+                session.setUploadOffset(offset + written);
+                bytesCounter.increment(written);
+            }
+            if (interruption != null) {
+                throw interruption;
+            }
+            if (session.getUploadOffset().equals(session.getUploadLength())) {
+                complete(session);
+            }
+            return session;
+        } finally {
+            unlock(id);
+        }
+    }
+
+    // Abandon an upload; a finished one keeps its stored video
+    public void terminate(String id, String userId) throws IOException {
+        UploadSession session = get(id, userId);
+        Files.deleteIfExists(partFile(session.getId()));
+        uploadSessionRepository.delete(session);
+    }
+
+    @Scheduled(initialDelayString = "${app.upload.resumable.sweep-interval-ms:3600000}",
+               fixedDelayString = "${app.upload.resumable.sweep-interval-ms:3600000}")
+    public void sweepExpired() {
+        List<UploadSession> expired;
+        do {
+            expired = uploadSessionRepository.findByExpiresAtBefore(LocalDateTime.now(), PageRequest.of(0, SWEEP_BATCH_SIZE));
+            for (UploadSession session : expired) {
+                try {
+                    Files.deleteIfExists(partFile(session.getId()));
+                } catch (IOException e) {
+                    logger.warn("Failed to delete the part file of upload {}", session.getId(), e);
+                }
+            }
+            uploadSessionRepository.deleteAll(expired);
+        } while (expired.size() == SWEEP_BATCH_SIZE);
+    }
+
+    private void complete(UploadSession session) throws IOException {
+        Path part = partFile(session.getId());
+        byte[] head;
+        try (InputStream in = Files.newInputStream(part)) {
+            head = in.readNBytes(16);
+        }
+        if (!MediaIngestService.looksLike(MediaType.VIDEO, head)) {
+            // Nothing to resume: the content is wrong, not incomplete
+            Files.deleteIfExists(part);
+            uploadSessionRepository.delete(session);
+            throw new UploadProtocolException(415, "Uploaded file is not a video");
+        }
+
+        // A failure here leaves the part file in place for the next attempt
+        String videoPath = fileUploadService.storeVideoFile(part, session.getFilename());
+        boolean recorded = false;
+        try {
+            recorded = jdbcTemplate.update(COMPLETE_SQL, videoPath, session.getId()) == 1;
+        } finally {
+            if (!recorded) {
+                // Completed by an earlier attempt, or not recorded at all: give back this attempt's reference
+                fileUploadService.deleteVideo(videoPath);
+            }
+        }
+        if (recorded) {
+            session.setVideoPath(videoPath);
+            completedCounter.increment();
+        } else {
+            refresh(session);
+        }
+    }
+
+    // Offset and stored video as committed, which other nodes may have changed
+    private void refresh(UploadSession session) {
+        List<UploadSession> found = jdbcTemplate.query(STATE_SQL, (rs, rowNum) -> {
+            session.setUploadOffset(rs.getLong("upload_offset"));
+            session.setVideoPath(rs.getString("video_path"));
+            return session;
+        }, session.getId());
+        if (found.isEmpty()) {
+            throw new UploadProtocolException(404, "Upload not found");
+        }
+    }
+
+    private void unlock(String id) {
+        try {
+            jdbcTemplate.update(UNLOCK_SQL, id);
+        } catch (DataAccessException e) {
+            // The lease runs out by itself
+            logger.warn("Failed to release the lock of upload {}: {}", id, e.getMessage());
+        }
+    }
+
+    private Path partFile(String id) {
+        return Paths.get(tempDir, "resumable", id + ".part");
+    }
+}
@@ -0,0 +1,22 @@
+package com.urutte.service;
+
+import java.time.Duration;
+
+/**
+ * Optional second cache tier shared by all nodes (for example Redis or Memcached).
+ *
+ * When a bean of this type exists, every TwoTierCache consults it on a local miss before loading
+ * from the database, writes loaded values through to it, and forwards evictions to it. Without one
+ * the caches are purely in-process. Values must be serializable by the implementation.
+ */
+public interface SharedCacheStore {
+
+    // Value stored under the key in the named cache, or null when absent
+    Object get(String cacheName, Object key);
+
+    void put(String cacheName, Object key, Object value, Duration ttl);
+
+    void evict(String cacheName, Object key);
+
+    void clear(String cacheName);
+}
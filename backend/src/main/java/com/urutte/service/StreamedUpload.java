@@ -0,0 +1,33 @@
+package com.urutte.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A multipart request read by MediaIngestService: its form fields, and the stored media files as
+ * blob URLs with their media type ("image", "video", ...), in upload order.
+ */
+public class StreamedUpload {
+
+    private final Map<String, String> fields = new HashMap<>();
+    private final List<String> mediaUrls = new ArrayList<>();
+    private final List<String> mediaTypes = new ArrayList<>();
+
+    void putField(String name, String value) {
+        fields.put(name, value);
+    }
+
+    void addMedia(String url, String type) {
+        mediaUrls.add(url);
+        mediaTypes.add(type);
+    }
+
+    // Null when the field was not sent
+    public String getField(String name) { return fields.get(name); }
+
+    public List<String> getMediaUrls() { return mediaUrls; }
+
+    public List<String> getMediaTypes() { return mediaTypes; }
+}
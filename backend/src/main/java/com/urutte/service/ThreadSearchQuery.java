@@ -0,0 +1,79 @@
+package com.urutte.service;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed search request: free-text terms plus #hashtag and @mention filters.
+ *
+ * "spring #java @alice" searches for threads containing words starting with "spring" that are tagged
+ * #java and mention @alice. Every term is matched as a prefix, so partially typed words still match.
+ */
+public class ThreadSearchQuery {
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}_]+");
+    private static final Pattern HASHTAG = Pattern.compile("^#(\\w+)$");
+    private static final Pattern MENTION = Pattern.compile("^@(\\w+)$");
+
+    private final List<String> terms;
+    private final Set<String> hashtags;
+    private final Set<String> mentions;
+
+    public ThreadSearchQuery(List<String> terms, Set<String> hashtags, Set<String> mentions) {
+        this.terms = terms;
+        this.hashtags = hashtags;
+        this.mentions = mentions;
+    }
+
+    public static ThreadSearchQuery parse(String raw) {
+        List<String> terms = new ArrayList<>();
+        Set<String> hashtags = new LinkedHashSet<>();
+        Set<String> mentions = new LinkedHashSet<>();
+
+        if (raw != null) {
+            for (String part : raw.trim().split("\\s+")) {
+                Matcher hashtag = HASHTAG.matcher(part);
+                Matcher mention = MENTION.matcher(part);
+                if (hashtag.matches()) {
+                    // Hashtags are stored lower-cased
+                    hashtags.add(hashtag.group(1).toLowerCase());
+                } else if (mention.matches()) {
+                    mentions.add(mention.group(1).toLowerCase());
+                } else {
+                    for (String term : tokenize(part)) {
+                        if (!terms.contains(term)) {
+                            terms.add(term);
+                        }
+                    }
+                }
+            }
+        }
+        return new ThreadSearchQuery(terms, hashtags, mentions);
+    }
+
+    // Split text into lower-cased word tokens; shared by indexing and querying so both agree
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher matcher = TOKEN.matcher(text.toLowerCase());
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    public boolean isEmpty() {
+        return terms.isEmpty() && hashtags.isEmpty() && mentions.isEmpty();
+    }
+
+    public boolean hasTerms() { return !terms.isEmpty(); }
+
+    public List<String> getTerms() { return terms; }
+
+    public Set<String> getHashtags() { return hashtags; }
+
+    public Set<String> getMentions() { return mentions; }
+}
@@ -0,0 +1,26 @@
+package com.urutte.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Full-text search over threads.
+ *
+ * Implementations only return threads that the public search may show: not deleted, public, and not
+ * written by ADMIN (AI) users. Results are thread IDs; callers load and render the threads.
+ * Selected with app.search.engine: "postgres" (tsvector + GIN index) or "memory" (in-process index).
+ */
+public interface ThreadSearchService {
+
+    // Matching threads, most relevant first (newest first when the query only has filters)
+    List<Long> searchByRelevance(ThreadSearchQuery query, int offset, int limit);
+
+    // Matching threads newest first, strictly older than the (createdAt, id) cursor when one is given
+    List<Long> searchByRecency(ThreadSearchQuery query, LocalDateTime cursorCreatedAt, Long cursorThreadId, int limit);
+
+    // Add or refresh a thread after it was created or edited
+    void index(com.urutte.model.Thread thread);
+
+    // Drop a thread after it was deleted
+    void remove(Long threadId);
+}
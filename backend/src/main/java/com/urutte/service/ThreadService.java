@@ -1,29 +1,40 @@
 package com.urutte.service;
 
+import com.urutte.dto.CursorPageDto;
 import com.urutte.dto.ThreadDto;
 import com.urutte.dto.ThreadMediaDto;
 import com.urutte.dto.ThreadPollDto;
 import com.urutte.dto.PollOptionDto;
+import com.urutte.dto.UserDto;
 import com.urutte.exception.ThreadAccessDeniedException;
 import com.urutte.model.*;
 import com.urutte.repository.*;
+import com.urutte.util.ThreadCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ThreadService {
     
+    // Timeline entries read per round trip when seeking to a page-number position
+    private static final int TIMELINE_SEEK_STEP = 200;
+    
     @Autowired
     private ThreadRepository threadRepository;
     
@@ -49,16 +60,44 @@ public class ThreadService {
     private FollowRepository followRepository;
     
     @Autowired
-    private HashtagRepository hashtagRepository;
+    private UserService userService;
     
     @Autowired
-    private UserService userService;
+    private UserRepository userRepository;
     
     @Autowired
-    private ThreadHashtagRepository threadHashtagRepository;
+    private HomeTimelineService homeTimelineService;
     
     @Autowired
-    private UserRepository userRepository;
+    private EngagementCounterService engagementCounterService;
+    
+    @Autowired
+    private ThreadSearchService threadSearchService;
+    
+    @Autowired
+    private TrendingService trendingService;
+    
+    @Autowired
+    private ThreadTagService threadTagService;
+    
+    @Autowired
+    private HotDataCache hotDataCache;
+    
+    @Autowired
+    private NotificationPipeline notificationPipeline;
+    
+    @Autowired
+    private ImageDerivativePipeline imageDerivativePipeline;
+    
+    @Autowired
+    private MediaIngestService mediaIngestService;
+
+    @Autowired
+    private BlobService blobService;
+    
+    // Upper bound on replies loaded for one conversation request
+    @Value("${app.conversation.max-replies:10000}")
+    private int conversationMaxReplies;
     
     // Create a new thread
     public ThreadDto createThread(String content, String userId, Long parentThreadId, String mediaUrl, String mediaType, String replyPermission) {
@@ -67,6 +106,15 @@ public class ThreadService {
     
     // Create a new thread with multiple media files
     public ThreadDto createThreadWithMedia(String content, String userId, Long parentThreadId, List<String> mediaUrls, List<String> mediaTypes, String replyPermission) {
+        return createThreadWithMedia(content, userId, parentThreadId, mediaUrls, mediaTypes, replyPermission, false);
+    }
+    
+    // Create a new thread with streamed media files, which stay PROCESSING until MediaIngestService has checked them
+    public ThreadDto createThreadWithStreamedMedia(String content, String userId, Long parentThreadId, List<String> mediaUrls, List<String> mediaTypes, String replyPermission) {
+        return createThreadWithMedia(content, userId, parentThreadId, mediaUrls, mediaTypes, replyPermission, true);
+    }
+    
+    private ThreadDto createThreadWithMedia(String content, String userId, Long parentThreadId, List<String> mediaUrls, List<String> mediaTypes, String replyPermission, boolean streamed) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
         
@@ -145,20 +193,30 @@ public class ThreadService {
         
         // If this is a reply, increment the parent thread's replies count
         if (parentThreadId != null) {
-            com.urutte.model.Thread parentThread = threadRepository.findById(parentThreadId).orElse(null);
-            if (parentThread != null) {
-                parentThread.setRepliesCount(parentThread.getRepliesCount() + 1);
-                threadRepository.save(parentThread);
-            }
+            engagementCounterService.increment(parentThreadId, EngagementCounterService.Counter.REPLIES, 1);
+            trendingService.onThreadEvent(thread.getParentThread(), TrendingService.Event.REPLY);
         }
         
         // Add media if provided
         if (mediaUrls != null && !mediaUrls.isEmpty()) {
-            addMultipleMediaToThread(thread, mediaUrls, mediaTypes);
+            addMultipleMediaToThread(thread, mediaUrls, mediaTypes, streamed ? MediaStatus.PROCESSING : MediaStatus.READY);
+            if (streamed) {
+                // Checked in the background, which hands the images on to the derivative pipeline
+                mediaIngestService.verify(thread);
+            } else {
+                imageDerivativePipeline.submit(thread);
+            }
         }
         
         // Process hashtags and mentions
-        processHashtagsAndMentions(thread, content);
+        threadTagService.processHashtagsAndMentions(thread, content);
+        
+        // Fan out to home timelines and index for search once committed (needs the mentions processed above)
+        com.urutte.model.Thread created = thread;
+        afterCommit(() -> {
+            homeTimelineService.onThreadCreated(created);
+            threadSearchService.index(created);
+        });
         
         return convertToDto(thread, userId);
     }
@@ -185,14 +243,37 @@ public class ThreadService {
         // Add media if provided
         if (mediaUrl != null && !mediaUrl.isEmpty()) {
             addMediaToThread(thread, mediaUrl, mediaType);
+            imageDerivativePipeline.submit(thread);
         }
         
         // Process hashtags and mentions
-        processHashtagsAndMentions(thread, content);
+        threadTagService.processHashtagsAndMentions(thread, content);
+        
+        // Fan out to home timelines and index for search once committed
+        com.urutte.model.Thread created = thread;
+        afterCommit(() -> {
+            homeTimelineService.onThreadCreated(created);
+            threadSearchService.index(created);
+        });
         
         return convertToDto(thread, userId);
     }
     
+    // Run an action once the current transaction has committed (immediately when there is none), so
+    // other readers never see a thread that is rolled back
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
     // Get main threads (feed)
     public Page<ThreadDto> getMainThreads(String currentUserId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
@@ -201,6 +282,11 @@ public class ThreadService {
         Page<com.urutte.model.Thread> threads;
         
         if (currentUserId != null && !currentUserId.isEmpty()) {
+            if (homeTimelineService.isEnabled()) {
+                // Read the precomputed home timeline instead of running the feed query
+                return getMainThreadsFromTimeline(currentUserId, page, size);
+            }
+            
             // Get public threads + followers-only threads from users that current user follows
             // Use regular filtering (no topic filtering) to show all regular users' public posts
             threads = threadRepository.findMainThreadsForUser(currentUserId, pageable);
@@ -209,7 +295,58 @@ public class ThreadService {
             threads = threadRepository.findByParentThreadIsNullAndIsDeletedFalseAndIsPublicTrueOrderByCreatedAtDesc(pageable);
         }
         
-        return threads.map(thread -> convertToDto(thread, currentUserId));
+        return convertPageToDto(threads, currentUserId);
+    }
+    
+    // Get a feed page from the materialized home timeline. Page numbers are turned into a keyset
+    // position by seeking past the earlier pages in bounded steps; /feed/cursor avoids the seek entirely
+    private Page<ThreadDto> getMainThreadsFromTimeline(String currentUserId, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        long toSkip = pageable.getOffset();
+        LocalDateTime cursorCreatedAt = null;
+        Long cursorThreadId = null;
+        
+        while (toSkip > 0) {
+            int step = (int) Math.min(toSkip, TIMELINE_SEEK_STEP);
+            List<TimelineEntry> skipped = homeTimelineService.read(currentUserId, cursorCreatedAt, cursorThreadId, step);
+            if (skipped.size() < step) {
+                // The page lies past the end of the timeline
+                return new PageImpl<>(Collections.emptyList(), pageable, pageable.getOffset() - toSkip + skipped.size());
+            }
+            TimelineEntry last = skipped.get(step - 1);
+            cursorCreatedAt = last.getCreatedAt();
+            cursorThreadId = last.getThreadId();
+            toSkip -= step;
+        }
+        
+        // Read one extra entry to know whether another page exists
+        List<TimelineEntry> entries = homeTimelineService.read(currentUserId, cursorCreatedAt, cursorThreadId, size + 1);
+        boolean hasNext = entries.size() > size;
+        List<TimelineEntry> window = hasNext ? entries.subList(0, size) : entries;
+        
+        List<com.urutte.model.Thread> threads = loadThreadsInOrder(window.stream()
+            .map(TimelineEntry::getThreadId)
+            .collect(Collectors.toList()));
+        
+        long total = pageable.getOffset() + window.size() + (hasNext ? 1 : 0);
+        return new PageImpl<>(convertListToDto(threads, currentUserId), pageable, total);
+    }
+    
+    // Load threads by ID keeping the given order, skipping threads deleted since they were indexed
+    private List<com.urutte.model.Thread> loadThreadsInOrder(List<Long> threadIds) {
+        Map<Long, com.urutte.model.Thread> byId = new HashMap<>();
+        for (com.urutte.model.Thread thread : threadRepository.findAllById(threadIds)) {
+            byId.put(thread.getId(), thread);
+        }
+        
+        List<com.urutte.model.Thread> ordered = new ArrayList<>(threadIds.size());
+        for (Long threadId : threadIds) {
+            com.urutte.model.Thread thread = byId.get(threadId);
+            if (thread != null && !Boolean.TRUE.equals(thread.getIsDeleted())) {
+                ordered.add(thread);
+            }
+        }
+        return ordered;
     }
     
     // Get user's own threads
@@ -220,7 +357,7 @@ public class ThreadService {
         
         Page<com.urutte.model.Thread> threads = threadRepository.findByUserAndIsDeletedFalseOrderByCreatedAtDesc(user, pageable);
         
-        return threads.map(thread -> convertToDto(thread, userId));
+        return convertPageToDto(threads, userId);
     }
     
     // Edit a thread
@@ -244,12 +381,28 @@ public class ThreadService {
         
         // Save the updated thread
         thread = threadRepository.save(thread);
+        // Searchable with the new content once it is committed
+        com.urutte.model.Thread edited = thread;
+        afterCommit(() -> threadSearchService.index(edited));
+        hotDataCache.evictThread(threadId);
         
         return convertToDto(thread, userId);
     }
     
-    // Get thread by ID
+    // Get thread by ID. Public threads are served from the snapshot cache when present; only the
+    // viewer's engagement state is loaded per request.
     public ThreadDto getThreadById(Long threadId, String currentUserId) {
+        long generation = hotDataCache.threadGeneration(threadId);
+        ThreadSnapshot snapshot = hotDataCache.getThreadSnapshot(threadId);
+        if (snapshot != null) {
+            if (snapshot.isTrendable()) {
+                trendingService.recordThreadEvent(threadId, TrendingService.Event.VIEW);
+            }
+            ThreadDto dto = snapshot.copyDto();
+            applyLiveState(dto, loadViewerState(quoteChainIds(dto), currentUserId));
+            return dto;
+        }
+        
         com.urutte.model.Thread thread = threadRepository.findById(threadId)
             .orElseThrow(() -> new RuntimeException("Thread not found"));
         
@@ -258,6 +411,22 @@ public class ThreadService {
         }
         
         // Check if user has permission to view this thread
+        checkViewAccess(thread, currentUserId);
+        
+        trendingService.onThreadEvent(thread, TrendingService.Event.VIEW);
+        
+        ThreadDto dto = toSnapshotDto(thread);
+        if (thread.getIsPublic()) {
+            ThreadSnapshot loaded = new ThreadSnapshot(dto, trendingService.isTrendable(thread));
+            hotDataCache.putThreadSnapshot(loaded, generation);
+            dto = loaded.copyDto();
+        }
+        applyLiveState(dto, loadViewerState(List.of(thread), currentUserId));
+        return dto;
+    }
+    
+    // Throw ThreadAccessDeniedException unless the user may view the (possibly non-public) thread
+    private void checkViewAccess(com.urutte.model.Thread thread, String currentUserId) {
         if (!thread.getIsPublic()) {
             if (currentUserId == null || currentUserId.isEmpty()) {
                 throw new ThreadAccessDeniedException("You must be logged in to view this thread");
@@ -293,8 +462,6 @@ public class ThreadService {
                 throw new ThreadAccessDeniedException("You don't have permission to view this thread");
             }
         }
-        
-        return convertToDto(thread, currentUserId);
     }
     
     // Get replies for a thread
@@ -307,9 +474,45 @@ public class ThreadService {
         // Find direct replies to this specific thread (where parentThreadId = threadId)
         List<com.urutte.model.Thread> replies = threadRepository.findByParentThreadIdAndIsDeletedFalseOrderByCreatedAtAsc(threadId);
         
-        return replies.stream()
-            .map(reply -> convertToDto(reply, currentUserId))
-            .collect(Collectors.toList());
+        return convertListToDto(replies, currentUserId);
+    }
+    
+    // Get a thread with its replies nested up to maxDepth levels below it, keeping at most
+    // branchLimit replies per node. The whole subtree is loaded with one range query on
+    // (root_thread_id, thread_path) and the viewer state is loaded once for every node.
+    public ThreadDto getConversation(Long threadId, String currentUserId, int maxDepth, int branchLimit) {
+        com.urutte.model.Thread thread = threadRepository.findById(threadId)
+            .orElseThrow(() -> new RuntimeException("Thread not found"));
+        
+        if (thread.getIsDeleted()) {
+            throw new RuntimeException("Thread not found");
+        }
+        
+        // Replies inherit the visibility of the conversation they belong to
+        com.urutte.model.Thread root = thread.getRootThread() != null ? thread.getRootThread() : thread;
+        checkViewAccess(root, currentUserId);
+        
+        int level = thread.getThreadLevel() != null ? thread.getThreadLevel() : 0;
+        int maxLevel = level + Math.max(0, maxDepth);
+        Pageable cap = PageRequest.of(0, conversationMaxReplies);
+        
+        List<com.urutte.model.Thread> replies;
+        if (thread.getRootThread() == null) {
+            replies = threadRepository.findConversationByRoot(thread.getId(), maxLevel, cap);
+        } else {
+            // Paths hold the ancestor IDs from the root down to the parent
+            String path = thread.getThreadPath() != null
+                ? thread.getThreadPath() + "." + thread.getId()
+                : String.valueOf(thread.getId());
+            replies = threadRepository.findConversationByPath(root.getId(), path, path + ".%", maxLevel, cap);
+        }
+        
+        List<com.urutte.model.Thread> all = new ArrayList<>(replies.size() + 1);
+        all.add(thread);
+        all.addAll(replies);
+        List<ThreadDto> dtos = convertListToDto(all, currentUserId);
+        
+        return ReplyTree.assemble(dtos.get(0), dtos.subList(1, dtos.size()), Math.max(0, branchLimit));
     }
     
     // Like a thread
@@ -326,16 +529,29 @@ public class ThreadService {
             // Unlike
             threadLikeRepository.delete(existingLike.get());
             // Decrement count
-            thread.setLikesCount(Math.max(0, thread.getLikesCount() - 1));
-            threadRepository.save(thread);
+            engagementCounterService.increment(threadId, EngagementCounterService.Counter.LIKES, -1);
+            trendingService.onThreadEvent(thread, TrendingService.Event.UNLIKE);
             return false;
         } else {
             // Like
             ThreadLike like = new ThreadLike(thread, user);
             threadLikeRepository.save(like);
             // Increment count
-            thread.setLikesCount(thread.getLikesCount() + 1);
-            threadRepository.save(thread);
+            engagementCounterService.increment(threadId, EngagementCounterService.Counter.LIKES, 1);
+            trendingService.onThreadEvent(thread, TrendingService.Event.LIKE);
+            // Notify the author; likes arriving together are coalesced into one notification
+            if (!thread.getUser().getId().equals(userId)) {
+                notificationPipeline.submit(new NotificationEvent(
+                    thread.getUser().getId(),
+                    user,
+                    "like",
+                    "New Like",
+                    user.getName() + " liked your thread",
+                    "liked your thread",
+                    "thread",
+                    threadId
+                ));
+            }
             return true;
         }
     }
@@ -354,8 +570,8 @@ public class ThreadService {
             // Unrepost
             threadRepostRepository.delete(existingRepost.get());
             // Decrement count
-            thread.setRepostsCount(Math.max(0, thread.getRepostsCount() - 1));
-            threadRepository.save(thread);
+            engagementCounterService.increment(threadId, EngagementCounterService.Counter.REPOSTS, -1);
+            trendingService.onThreadEvent(thread, TrendingService.Event.UNREPOST);
             return false;
         } else {
             // Repost
@@ -366,8 +582,8 @@ public class ThreadService {
             ThreadRepost repost = new ThreadRepost(thread, user, repostType, quoteContent);
             threadRepostRepository.save(repost);
             // Increment count
-            thread.setRepostsCount(thread.getRepostsCount() + 1);
-            threadRepository.save(thread);
+            engagementCounterService.increment(threadId, EngagementCounterService.Counter.REPOSTS, 1);
+            trendingService.onThreadEvent(thread, TrendingService.Event.REPOST);
             return true;
         }
     }
@@ -436,16 +652,30 @@ public class ThreadService {
         // Soft delete
         thread.setIsDeleted(true);
         threadRepository.save(thread);
+        // A deleted thread is never shown again, so it gives back its media references (after commit)
+        for (ThreadMedia media : thread.getMedia()) {
+            blobService.releaseUrl(media.getMediaUrl());
+        }
+        threadSearchService.remove(threadId);
+        trendingService.removeThread(threadId);
+        hotDataCache.evictThread(threadId);
         
         return true;
     }
     
-    // Search threads
+    // Search threads, most relevant first ("#tag" and "@user" in the keyword act as filters)
     public Page<ThreadDto> searchThreads(String keyword, String currentUserId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<com.urutte.model.Thread> threads = threadRepository.findByContentContaining(keyword, pageable);
+        int offset = (int) pageable.getOffset();
         
-        return threads.map(thread -> convertToDto(thread, currentUserId));
+        // Read one extra hit to know whether another page exists
+        List<Long> hits = threadSearchService.searchByRelevance(ThreadSearchQuery.parse(keyword), offset, size + 1);
+        boolean hasNext = hits.size() > size;
+        List<Long> window = hasNext ? hits.subList(0, size) : hits;
+        
+        List<com.urutte.model.Thread> threads = loadThreadsInOrder(window);
+        long total = offset + window.size() + (hasNext ? 1 : 0);
+        return new PageImpl<>(convertListToDto(threads, currentUserId), pageable, total);
     }
     
     // Get threads by hashtag
@@ -453,16 +683,34 @@ public class ThreadService {
         Pageable pageable = PageRequest.of(page, size);
         Page<com.urutte.model.Thread> threads = threadRepository.findByHashtag(hashtag, pageable);
         
-        return threads.map(thread -> convertToDto(thread, currentUserId));
+        return convertPageToDto(threads, currentUserId);
     }
     
     // Get trending threads
     public Page<ThreadDto> getTrendingThreads(String currentUserId, int page, int size) {
+        return getTrendingThreads(currentUserId, TrendingWindow.DAY, page, size);
+    }
+    
+    // Get trending threads for a window from the in-memory trending scores
+    public Page<ThreadDto> getTrendingThreads(String currentUserId, TrendingWindow window, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        LocalDateTime since = LocalDateTime.now().minusHours(24);
-        Page<com.urutte.model.Thread> threads = threadRepository.findTrendingThreads(since, pageable);
         
-        return threads.map(thread -> convertToDto(thread, currentUserId));
+        if (!trendingService.hasThreadScores(window)) {
+            // No engagement recorded yet (fresh install): fall back to the most liked recent threads
+            LocalDateTime since = LocalDateTime.now().minus(window.getLifetime());
+            Page<com.urutte.model.Thread> threads = threadRepository.findTrendingThreads(since, pageable);
+            return convertPageToDto(threads, currentUserId);
+        }
+        
+        int offset = (int) pageable.getOffset();
+        // Read one extra ID to know whether another page exists
+        List<Long> threadIds = trendingService.getTrendingThreadIds(window, offset, size + 1);
+        boolean hasNext = threadIds.size() > size;
+        List<Long> pageIds = hasNext ? threadIds.subList(0, size) : threadIds;
+        
+        List<com.urutte.model.Thread> threads = loadThreadsInOrder(pageIds);
+        long total = offset + pageIds.size() + (hasNext ? 1 : 0);
+        return new PageImpl<>(convertListToDto(threads, currentUserId), pageable, total);
     }
     
     // Get liked threads by user
@@ -475,9 +723,98 @@ public class ThreadService {
             likedThreads = likedThreads.subList(0, limit);
         }
         
-        return likedThreads.stream()
-                .map(thread -> convertToDto(thread, userId))
-                .collect(Collectors.toList());
+        return convertListToDto(likedThreads, userId);
+    }
+    
+    // Get main threads (feed) after a keyset cursor
+    public CursorPageDto<ThreadDto> getMainThreadsByCursor(String currentUserId, String cursor, int size) {
+        ThreadCursor position = ThreadCursor.decodeCreatedAt(cursor);
+        
+        if (currentUserId != null && !currentUserId.isEmpty()) {
+            if (homeTimelineService.isEnabled()) {
+                return getTimelineByCursor(currentUserId, position, size);
+            }
+            Slice<com.urutte.model.Thread> threads = threadRepository.findMainThreadsForUserBefore(
+                currentUserId, position.getCreatedAt(), position.getId(), PageRequest.of(0, size));
+            return convertSliceToCursorPage(threads, currentUserId, this::createdAtCursor);
+        }
+        
+        Slice<com.urutte.model.Thread> threads = threadRepository.findPublicMainThreadsBefore(
+            position.getCreatedAt(), position.getId(), PageRequest.of(0, size));
+        return convertSliceToCursorPage(threads, currentUserId, this::createdAtCursor);
+    }
+    
+    // Get user's own threads after a keyset cursor
+    public CursorPageDto<ThreadDto> getUserThreadsByCursor(String userId, String cursor, int size) {
+        ThreadCursor position = ThreadCursor.decodeCreatedAt(cursor);
+        Slice<com.urutte.model.Thread> threads = threadRepository.findByUserIdBefore(
+            userId, position.getCreatedAt(), position.getId(), PageRequest.of(0, size));
+        return convertSliceToCursorPage(threads, userId, this::createdAtCursor);
+    }
+    
+    // Search threads after a keyset cursor
+    public CursorPageDto<ThreadDto> searchThreadsByCursor(String keyword, String currentUserId, String cursor, int size) {
+        ThreadCursor position = ThreadCursor.decodeCreatedAt(cursor);
+        List<Long> hits = threadSearchService.searchByRecency(
+            ThreadSearchQuery.parse(keyword), position.getCreatedAt(), position.getId(), size + 1);
+        boolean hasNext = hits.size() > size;
+        
+        List<com.urutte.model.Thread> threads = loadThreadsInOrder(hasNext ? hits.subList(0, size) : hits);
+        return convertSliceToCursorPage(new SliceImpl<>(threads, PageRequest.of(0, size), hasNext),
+            currentUserId, this::createdAtCursor);
+    }
+    
+    // Get threads by hashtag after a keyset cursor
+    public CursorPageDto<ThreadDto> getThreadsByHashtagByCursor(String hashtag, String currentUserId, String cursor, int size) {
+        ThreadCursor position = ThreadCursor.decodeCreatedAt(cursor);
+        Slice<com.urutte.model.Thread> threads = threadRepository.findByHashtagBefore(
+            hashtag, position.getCreatedAt(), position.getId(), PageRequest.of(0, size));
+        return convertSliceToCursorPage(threads, currentUserId, this::createdAtCursor);
+    }
+    
+    // Get trending threads after a (likesCount, id) cursor
+    public CursorPageDto<ThreadDto> getTrendingThreadsByCursor(String currentUserId, String cursor, int size) {
+        ThreadCursor position = ThreadCursor.decodeLikes(cursor);
+        LocalDateTime since = LocalDateTime.now().minusHours(24);
+        Slice<com.urutte.model.Thread> threads = threadRepository.findTrendingThreadsBefore(
+            since, position.getLikesCount(), position.getId(), PageRequest.of(0, size));
+        return convertSliceToCursorPage(threads, currentUserId,
+            thread -> ThreadCursor.ofLikes(thread.getLikesCount(), thread.getId()));
+    }
+    
+    // Keyset read of the materialized home timeline
+    private CursorPageDto<ThreadDto> getTimelineByCursor(String currentUserId, ThreadCursor position, int size) {
+        // Read one extra entry to know whether another page exists
+        List<TimelineEntry> entries = homeTimelineService.read(
+            currentUserId, position.getCreatedAt(), position.getId(), size + 1);
+        boolean hasNext = entries.size() > size;
+        List<TimelineEntry> window = hasNext ? entries.subList(0, size) : entries;
+        
+        List<com.urutte.model.Thread> threads = loadThreadsInOrder(window.stream()
+            .map(TimelineEntry::getThreadId)
+            .collect(Collectors.toList()));
+        
+        // The cursor follows the timeline, so threads deleted since indexing do not stall paging
+        String nextCursor = null;
+        if (hasNext) {
+            TimelineEntry last = window.get(window.size() - 1);
+            nextCursor = ThreadCursor.ofCreatedAt(last.getCreatedAt(), last.getThreadId()).encode();
+        }
+        return new CursorPageDto<>(convertListToDto(threads, currentUserId), nextCursor, hasNext);
+    }
+    
+    private ThreadCursor createdAtCursor(com.urutte.model.Thread thread) {
+        return ThreadCursor.ofCreatedAt(thread.getCreatedAt(), thread.getId());
+    }
+    
+    // Convert a slice of threads and derive the next cursor from its last row
+    private CursorPageDto<ThreadDto> convertSliceToCursorPage(Slice<com.urutte.model.Thread> threads, String currentUserId,
+                                                               Function<com.urutte.model.Thread, ThreadCursor> cursorOf) {
+        List<com.urutte.model.Thread> content = threads.getContent();
+        String nextCursor = threads.hasNext() && !content.isEmpty()
+            ? cursorOf.apply(content.get(content.size() - 1)).encode()
+            : null;
+        return new CursorPageDto<>(convertListToDto(content, currentUserId), nextCursor, threads.hasNext());
     }
     
     // Helper method to add media to thread
@@ -517,7 +854,7 @@ public class ThreadService {
     }
     
     // Helper method to add multiple media files to thread
-    private void addMultipleMediaToThread(com.urutte.model.Thread thread, List<String> mediaUrls, List<String> mediaTypes) {
+    private void addMultipleMediaToThread(com.urutte.model.Thread thread, List<String> mediaUrls, List<String> mediaTypes, MediaStatus status) {
         for (int i = 0; i < mediaUrls.size(); i++) {
             String mediaUrl = mediaUrls.get(i);
             String mediaType = (mediaTypes != null && i < mediaTypes.size()) ? mediaTypes.get(i) : "image";
@@ -554,58 +891,84 @@ public class ThreadService {
             
             ThreadMedia media = new ThreadMedia(thread, type, mediaUrl);
             media.setDisplayOrder(i); // Set display order
+            media.setStatus(status);
             thread.getMedia().add(media);
         }
     }
     
-    // Helper method to process hashtags and mentions
-    private void processHashtagsAndMentions(com.urutte.model.Thread thread, String content) {
-        if (content == null || content.isEmpty()) return;
-        
-        // Process hashtags
-        Pattern hashtagPattern = Pattern.compile("#(\\w+)");
-        Matcher hashtagMatcher = hashtagPattern.matcher(content);
+    // Convert a page of threads, loading the viewer's engagement state for the whole page at once
+    private Page<ThreadDto> convertPageToDto(Page<com.urutte.model.Thread> threads, String currentUserId) {
+        ThreadViewerState viewerState = loadViewerState(threads.getContent(), currentUserId);
+        return threads.map(thread -> convertToDto(thread, viewerState));
+    }
+    
+    // Convert a list of threads, loading the viewer's engagement state for the whole list at once
+    private List<ThreadDto> convertListToDto(List<com.urutte.model.Thread> threads, String currentUserId) {
+        ThreadViewerState viewerState = loadViewerState(threads, currentUserId);
+        return threads.stream()
+            .map(thread -> convertToDto(thread, viewerState))
+            .collect(Collectors.toList());
+    }
+    
+    // Load likes, reposts, bookmarks and reactions of the current user for the given threads
+    // (and any threads they quote) with one query per table
+    ThreadViewerState loadViewerState(Collection<com.urutte.model.Thread> threads, String currentUserId) {
+        if (currentUserId == null || threads.isEmpty()) {
+            return ThreadViewerState.anonymous();
+        }
         
-        while (hashtagMatcher.find()) {
-            String tag = hashtagMatcher.group(1).toLowerCase();
-            Hashtag hashtag = hashtagRepository.findByTag(tag)
-                .orElseGet(() -> {
-                    Hashtag newHashtag = new Hashtag(tag);
-                    return hashtagRepository.save(newHashtag);
-                });
-            
-            hashtag.incrementUsageCount();
-            hashtagRepository.save(hashtag);
-            
-            // Only create the relationship if it doesn't already exist
-            if (!threadHashtagRepository.existsByThreadAndHashtag(thread, hashtag)) {
-                ThreadHashtag threadHashtag = new ThreadHashtag(thread, hashtag);
-                threadHashtagRepository.save(threadHashtag);
+        Set<Long> threadIds = new HashSet<>();
+        for (com.urutte.model.Thread thread : threads) {
+            // Walk the quote chain so nested quoted threads are hydrated from the same batch
+            com.urutte.model.Thread current = thread;
+            while (current != null && threadIds.add(current.getId())) {
+                current = current.getQuotedThread();
             }
         }
+        return loadViewerState(threadIds, currentUserId);
+    }
+    
+    private ThreadViewerState loadViewerState(Set<Long> threadIds, String currentUserId) {
+        if (currentUserId == null || threadIds.isEmpty() || !userRepository.existsById(currentUserId)) {
+            return ThreadViewerState.anonymous();
+        }
         
-        // Process mentions
-        Pattern mentionPattern = Pattern.compile("@(\\w+)");
-        Matcher mentionMatcher = mentionPattern.matcher(content);
+        Set<Long> liked = new HashSet<>(threadLikeRepository.findLikedThreadIds(currentUserId, threadIds));
+        Set<Long> reposted = new HashSet<>(threadRepostRepository.findRepostedThreadIds(currentUserId, threadIds));
+        Set<Long> bookmarked = new HashSet<>(threadBookmarkRepository.findBookmarkedThreadIds(currentUserId, threadIds));
         
-        while (mentionMatcher.find()) {
-            String username = mentionMatcher.group(1);
-            Optional<User> mentionedUser = userRepository.findByUsername(username);
-            
-            if (mentionedUser.isPresent()) {
-                ThreadMention mention = new ThreadMention(
-                    thread, 
-                    mentionedUser.get(), 
-                    mentionMatcher.start(), 
-                    mentionMatcher.end()
-                );
-                threadMentionRepository.save(mention);
-            }
+        Map<Long, ReactionType> reactions = new HashMap<>();
+        for (Object[] row : threadReactionRepository.findReactionsByUserIdAndThreadIds(currentUserId, threadIds)) {
+            reactions.put((Long) row[0], (ReactionType) row[1]);
+        }
+        
+        return new ThreadViewerState(currentUserId, liked, reposted, bookmarked, reactions);
+    }
+    
+    // IDs of a DTO and the threads it quotes
+    private Set<Long> quoteChainIds(ThreadDto dto) {
+        Set<Long> threadIds = new HashSet<>();
+        ThreadDto current = dto;
+        while (current != null && threadIds.add(current.getId())) {
+            current = current.getQuotedThread();
         }
+        return threadIds;
     }
     
-    // Convert Thread entity to DTO
+    // Convert a single Thread entity to DTO
     private ThreadDto convertToDto(com.urutte.model.Thread thread, String currentUserId) {
+        return convertToDto(thread, loadViewerState(List.of(thread), currentUserId));
+    }
+    
+    // Convert Thread entity to DTO using preloaded viewer state
+    private ThreadDto convertToDto(com.urutte.model.Thread thread, ThreadViewerState viewerState) {
+        ThreadDto dto = toSnapshotDto(thread);
+        applyLiveState(dto, viewerState);
+        return dto;
+    }
+    
+    // Viewer-independent DTO with the counters stored on the row - what the snapshot cache holds
+    private ThreadDto toSnapshotDto(com.urutte.model.Thread thread) {
         ThreadDto dto = new ThreadDto();
         
         // Basic thread info
@@ -613,12 +976,13 @@ public class ThreadService {
         dto.setContent(thread.getContent());
         dto.setThreadType(thread.getThreadType());
         
-        // User info
-        dto.setUserId(thread.getUser().getId());
-        dto.setUserName(thread.getUser().getName());
-        dto.setUserEmail(thread.getUser().getEmail());
-        dto.setUserPicture(thread.getUser().getPicture());
-        dto.setIsUserVerified(thread.getUser().getIsVerified());
+        // User info (the cached summary spares initializing the author on a hit)
+        UserDto author = hotDataCache.getUserSummary(thread.getUser().getId(), thread::getUser);
+        dto.setUserId(author.getId());
+        dto.setUserName(author.getName());
+        dto.setUserEmail(author.getEmail());
+        dto.setUserPicture(author.getPicture());
+        dto.setIsUserVerified(author.isVerified());
         
         // Thread hierarchy
         dto.setParentThreadId(thread.getParentThread() != null ? thread.getParentThread().getId() : null);
@@ -630,7 +994,7 @@ public class ThreadService {
         dto.setQuotedThreadId(thread.getQuotedThread() != null ? thread.getQuotedThread().getId() : null);
         dto.setQuoteContent(thread.getQuoteContent());
         
-        // Engagement counts
+        // Engagement counts as stored; unflushed deltas are added by applyLiveState
         dto.setLikesCount(thread.getLikesCount());
         dto.setRepliesCount(thread.getRepliesCount());
         dto.setRepostsCount(thread.getRepostsCount());
@@ -653,25 +1017,13 @@ public class ThreadService {
         dto.setUpdatedAt(thread.getUpdatedAt());
         dto.setEditedAt(thread.getEditedAt());
         
-        // Media
+        // Media; failed uploads are never shown, media still being checked only to the author (see applyLiveState)
         List<ThreadMediaDto> mediaDtos = thread.getMedia().stream()
+            .filter(media -> media.getStatus() != MediaStatus.FAILED)
             .map(this::convertMediaToDto)
             .collect(Collectors.toList());
         dto.setMedia(mediaDtos);
         
-        // User engagement status
-        if (currentUserId != null) {
-            User currentUser = userRepository.findById(currentUserId).orElse(null);
-            if (currentUser != null) {
-                dto.setIsLiked(threadLikeRepository.existsByThreadIdAndUserId(thread.getId(), currentUserId));
-                dto.setIsReposted(threadRepostRepository.existsByThreadIdAndUserId(thread.getId(), currentUserId));
-                dto.setIsBookmarked(threadBookmarkRepository.existsByThreadIdAndUserId(thread.getId(), currentUserId));
-                
-                Optional<ThreadReaction> userReaction = threadReactionRepository.findByThreadAndUser(thread, currentUser);
-                dto.setUserReaction(userReaction.map(ThreadReaction::getReactionType).orElse(null));
-            }
-        }
-        
         // Hashtags and mentions
         List<String> hashtags = thread.getHashtags().stream()
             .map(th -> th.getHashtag().getTag())
@@ -685,12 +1037,40 @@ public class ThreadService {
         
         // Quoted thread
         if (thread.getQuotedThread() != null) {
-            dto.setQuotedThread(convertToDto(thread.getQuotedThread(), currentUserId));
+            dto.setQuotedThread(toSnapshotDto(thread.getQuotedThread()));
         }
         
         return dto;
     }
     
+    // Add engagement deltas that have not been flushed yet and the viewer's engagement status,
+    // down the quote chain. Media that is not READY yet is removed unless the viewer is the author
+    private void applyLiveState(ThreadDto dto, ThreadViewerState viewerState) {
+        for (ThreadDto current = dto; current != null; current = current.getQuotedThread()) {
+            Long id = current.getId();
+            if (current.getMedia() != null && !viewerState.isViewer(current.getUserId())) {
+                current.setMedia(current.getMedia().stream()
+                    .filter(media -> media.getStatus() == MediaStatus.READY)
+                    .collect(Collectors.toList()));
+            }
+            current.setLikesCount(withPending(current.getLikesCount(), id, EngagementCounterService.Counter.LIKES));
+            current.setRepliesCount(withPending(current.getRepliesCount(), id, EngagementCounterService.Counter.REPLIES));
+            current.setRepostsCount(withPending(current.getRepostsCount(), id, EngagementCounterService.Counter.REPOSTS));
+            
+            if (viewerState.isViewerKnown()) {
+                current.setIsLiked(viewerState.isLiked(id));
+                current.setIsReposted(viewerState.isReposted(id));
+                current.setIsBookmarked(viewerState.isBookmarked(id));
+                current.setUserReaction(viewerState.getReaction(id));
+            }
+        }
+    }
+    
+    private Integer withPending(Integer stored, Long threadId, EngagementCounterService.Counter counter) {
+        long count = (stored != null ? stored : 0) + engagementCounterService.pending(threadId, counter);
+        return (int) Math.max(0, count);
+    }
+    
     // Convert ThreadMedia entity to DTO
     private ThreadMediaDto convertMediaToDto(ThreadMedia media) {
         ThreadMediaDto dto = new ThreadMediaDto();
@@ -704,6 +1084,8 @@ public class ThreadService {
         dto.setDuration(media.getDuration());
         dto.setWidth(media.getWidth());
         dto.setHeight(media.getHeight());
+        dto.setSrcset(media.getSrcset());
+        dto.setStatus(media.getStatus());
         dto.setDisplayOrder(media.getDisplayOrder());
         dto.setCreatedAt(media.getCreatedAt());
         return dto;
@@ -0,0 +1,72 @@
+package com.urutte.service;
+
+import com.urutte.dto.ThreadDto;
+import com.urutte.dto.ThreadMediaDto;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Cached, viewer-independent rendering of a public thread: the ThreadDto with the counters stored on
+ * the row, no unflushed deltas and no viewer flags. Readers take a copy and apply those on top.
+ */
+public class ThreadSnapshot {
+
+    private final ThreadDto dto;
+    private final boolean trendable;
+    private final int estimatedBytes;
+
+    public ThreadSnapshot(ThreadDto dto, boolean trendable) {
+        this.dto = dto;
+        this.trendable = trendable;
+        this.estimatedBytes = estimateBytes(dto);
+    }
+
+    // Deep enough copy for callers to set counts and viewer flags (lists are shared and read-only)
+    public ThreadDto copyDto() {
+        return copy(dto);
+    }
+
+    public Long getThreadId() { return dto.getId(); }
+
+    public boolean isTrendable() { return trendable; }
+
+    public int getEstimatedBytes() { return estimatedBytes; }
+
+    private static ThreadDto copy(ThreadDto source) {
+        ThreadDto copy = new ThreadDto();
+        BeanUtils.copyProperties(source, copy);
+        if (source.getQuotedThread() != null) {
+            copy.setQuotedThread(copy(source.getQuotedThread()));
+        }
+        return copy;
+    }
+
+    // Rough heap footprint used as the cache weight: fixed overhead plus two bytes per character
+    private static int estimateBytes(ThreadDto dto) {
+        int bytes = 512 + chars(dto.getContent()) + chars(dto.getQuoteContent()) + chars(dto.getThreadPath())
+            + chars(dto.getUserName()) + chars(dto.getUserEmail()) + chars(dto.getUserPicture());
+        if (dto.getMedia() != null) {
+            for (ThreadMediaDto media : dto.getMedia()) {
+                bytes += 128 + chars(media.getMediaUrl()) + chars(media.getThumbnailUrl()) + chars(media.getAltText())
+                    + chars(media.getSrcset());
+            }
+        }
+        if (dto.getHashtags() != null) {
+            for (String tag : dto.getHashtags()) {
+                bytes += 48 + chars(tag);
+            }
+        }
+        if (dto.getMentions() != null) {
+            for (String mention : dto.getMentions()) {
+                bytes += 48 + chars(mention);
+            }
+        }
+        if (dto.getQuotedThread() != null) {
+            bytes += estimateBytes(dto.getQuotedThread());
+        }
+        return bytes;
+    }
+
+    private static int chars(String value) {
+        return value != null ? value.length() * 2 : 0;
+    }
+}
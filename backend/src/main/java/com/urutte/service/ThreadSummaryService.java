@@ -32,6 +32,12 @@ public class ThreadSummaryService {
     @Autowired
     private ThreadRepository threadRepository;
     
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+    
+    @Autowired
+    private ThreadSearchService threadSearchService;
+    
     @Autowired
     private TopicRepository topicRepository;
     
@@ -127,6 +133,8 @@ public class ThreadSummaryService {
             
             // Save the thread
             Thread savedThread = threadRepository.save(thread);
+            homeTimelineService.onThreadCreated(savedThread);
+            threadSearchService.index(savedThread);
             logger.info("Created summary post {} for topic: {}", postNumber, topic.getName());
             
             return savedThread;
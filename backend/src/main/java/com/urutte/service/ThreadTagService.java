@@ -0,0 +1,144 @@
+package com.urutte.service;
+
+import com.urutte.repository.HashtagRepository;
+import com.urutte.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores the hashtags and mentions of a new thread with a fixed number of statements, however many
+ * tags and mentions the content has:
+ *   - one IN query for known hashtags, plus one batched upsert and one IN query for new ones
+ *   - one UPDATE bumping every tag's usage count
+ *   - one batched insert of thread_hashtags rows
+ *   - one IN query for mentioned usernames and one batched insert of thread_mentions rows
+ */
+@Service
+@Transactional
+public class ThreadTagService {
+
+    private static final Pattern HASHTAG_PATTERN = Pattern.compile("#(\\w+)");
+    private static final Pattern MENTION_PATTERN = Pattern.compile("@(\\w+)");
+
+    private static final String UPSERT_HASHTAG_SQL =
+        "INSERT INTO hashtags (tag, usage_count, created_at, updated_at) VALUES (?, 0, ?, ?) " +
+        "ON CONFLICT (tag) DO NOTHING";
+
+    private static final String INSERT_THREAD_HASHTAG_SQL =
+        "INSERT INTO thread_hashtags (thread_id, hashtag_id, created_at) VALUES (?, ?, ?) " +
+        "ON CONFLICT (thread_id, hashtag_id) DO NOTHING";
+
+    private static final String INSERT_THREAD_MENTION_SQL =
+        "INSERT INTO thread_mentions (thread_id, mentioned_user_id, mention_start, mention_end, created_at) " +
+        "VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void processHashtagsAndMentions(com.urutte.model.Thread thread, String content) {
+        if (content == null || content.isEmpty()) return;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        processHashtags(thread, parseHashtags(content), now);
+        processMentions(thread, content, now);
+    }
+
+    // Distinct lower-cased tags in order of first appearance
+    static Set<String> parseHashtags(String content) {
+        Set<String> tags = new LinkedHashSet<>();
+        Matcher matcher = HASHTAG_PATTERN.matcher(content);
+        while (matcher.find()) {
+            tags.add(matcher.group(1).toLowerCase());
+        }
+        return tags;
+    }
+
+    private void processHashtags(com.urutte.model.Thread thread, Set<String> tags, Timestamp now) {
+        if (tags.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> hashtagIds = toIdMap(hashtagRepository.findIdsByTagIn(tags));
+
+        List<Object[]> missing = new ArrayList<>();
+        for (String tag : tags) {
+            if (!hashtagIds.containsKey(tag)) {
+                missing.add(new Object[] { tag, now, now });
+            }
+        }
+        if (!missing.isEmpty()) {
+            // ON CONFLICT covers tags created concurrently by another thread
+            jdbcTemplate.batchUpdate(UPSERT_HASHTAG_SQL, missing);
+            List<String> missingTags = new ArrayList<>();
+            for (Object[] row : missing) {
+                missingTags.add((String) row[0]);
+            }
+            hashtagIds.putAll(toIdMap(hashtagRepository.findIdsByTagIn(missingTags)));
+        }
+
+        hashtagRepository.incrementUsageCounts(hashtagIds.values(), now.toLocalDateTime());
+
+        List<Object[]> joinRows = new ArrayList<>(hashtagIds.size());
+        for (Long hashtagId : hashtagIds.values()) {
+            joinRows.add(new Object[] { thread.getId(), hashtagId, now });
+        }
+        jdbcTemplate.batchUpdate(INSERT_THREAD_HASHTAG_SQL, joinRows);
+
+        for (String tag : hashtagIds.keySet()) {
+            trendingService.onHashtagUsed(thread, tag);
+        }
+    }
+
+    private void processMentions(com.urutte.model.Thread thread, String content, Timestamp now) {
+        // First occurrence of each username
+        Map<String, int[]> positions = new LinkedHashMap<>();
+        Matcher matcher = MENTION_PATTERN.matcher(content);
+        while (matcher.find()) {
+            positions.putIfAbsent(matcher.group(1), new int[] { matcher.start(), matcher.end() });
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> userIds = new HashMap<>();
+        for (Object[] row : userRepository.findIdsByUsernameIn(positions.keySet())) {
+            userIds.put((String) row[0], (String) row[1]);
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, int[]> entry : positions.entrySet()) {
+            String userId = userIds.get(entry.getKey());
+            if (userId != null) {
+                rows.add(new Object[] { thread.getId(), userId, entry.getValue()[0], entry.getValue()[1], now });
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_THREAD_MENTION_SQL, rows);
+        }
+    }
+
+    private Map<String, Long> toIdMap(List<Object[]> rows) {
+        Map<String, Long> ids = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            ids.put((String) row[0], (Long) row[1]);
+        }
+        return ids;
+    }
+}
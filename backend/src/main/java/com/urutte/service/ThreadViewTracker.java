@@ -0,0 +1,215 @@
+package com.urutte.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urutte.util.BloomFilter;
+import com.urutte.util.Hashes;
+import com.urutte.util.HyperLogLog;
+import com.urutte.util.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Impression tracking for threads.
+ *
+ * Feed and detail requests only put view events on a lock-free ring buffer (full buffer: the view
+ * is dropped and counted). A scheduled writer drains it, drops repeat views of the same viewer and
+ * thread within app.views.dedup-window-seconds using two rotating Bloom filters, batch-inserts the
+ * remaining thread_views rows and adds the per-thread totals to threads.views_count in one batch.
+ *
+ * Every view also goes into a per-thread HyperLogLog, which serves unique-viewer estimates without
+ * counting thread_views rows. Sketches are per node and cover the views since the thread's sketch
+ * was created on this node.
+ */
+@Service
+public class ThreadViewTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadViewTracker.class);
+
+    private static final int USER_AGENT_MAX_LENGTH = 512;
+    private static final int IP_ADDRESS_MAX_LENGTH = 45;
+
+    private static final String INSERT_VIEW_SQL =
+        "INSERT INTO thread_views (thread_id, user_id, ip_address, user_agent, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INCREMENT_VIEWS_SQL =
+        "UPDATE threads SET views_count = COALESCE(views_count, 0) + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.views.buffer-capacity:65536}")
+    private int bufferCapacity;
+
+    @Value("${app.views.dedup-window-seconds:1800}")
+    private long dedupWindowSeconds;
+
+    @Value("${app.views.dedup-expected-views:1000000}")
+    private long dedupExpectedViews;
+
+    @Value("${app.views.dedup-false-positive-rate:0.01}")
+    private double dedupFalsePositiveRate;
+
+    @Value("${app.views.sketch-precision:10}")
+    private int sketchPrecision;
+
+    @Value("${app.views.sketch-max-threads:10000}")
+    private long sketchMaxThreads;
+
+    private MpscRingBuffer<ViewEvent> buffer;
+    private Cache<Long, HyperLogLog> sketches;
+
+    // Writer state, only touched inside flush
+    private BloomFilter currentWindow;
+    private BloomFilter previousWindow;
+    private long windowStartedNanos;
+
+    private Counter droppedCounter;
+    private Counter duplicateCounter;
+    private Counter writtenCounter;
+
+    @PostConstruct
+    public void init() {
+        buffer = new MpscRingBuffer<>(bufferCapacity);
+        sketches = Caffeine.newBuilder()
+            .maximumSize(sketchMaxThreads)
+            .build();
+        currentWindow = newWindow();
+        previousWindow = newWindow();
+        windowStartedNanos = System.nanoTime();
+
+        Gauge.builder("views.buffer.size", this, tracker -> tracker.buffer.size())
+            .description("View events waiting to be written")
+            .register(meterRegistry);
+        droppedCounter = Counter.builder("views.dropped")
+            .description("View events dropped because the buffer was full")
+            .register(meterRegistry);
+        duplicateCounter = Counter.builder("views.duplicates")
+            .description("Repeat views within the dedup window")
+            .register(meterRegistry);
+        writtenCounter = Counter.builder("views.written")
+            .description("thread_views rows written")
+            .register(meterRegistry);
+    }
+
+    // Called on the request path: never blocks and never touches the database
+    public void record(Long threadId, String userId, String ipAddress, String userAgent) {
+        if (threadId == null) {
+            return;
+        }
+        if (!buffer.offer(new ViewEvent(threadId, userId, truncate(ipAddress, IP_ADDRESS_MAX_LENGTH),
+                truncate(userAgent, USER_AGENT_MAX_LENGTH), System.currentTimeMillis()))) {
+            droppedCounter.increment();
+        }
+    }
+
+    public void record(Collection<Long> threadIds, String userId, String ipAddress, String userAgent) {
+        for (Long threadId : threadIds) {
+            record(threadId, userId, ipAddress, userAgent);
+        }
+    }
+
+    // Estimated distinct viewers of the thread seen by this node; 0 when it has no sketch
+    public long estimateUniqueViewers(Long threadId) {
+        HyperLogLog sketch = sketches.getIfPresent(threadId);
+        return sketch != null ? sketch.estimate() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        rotateWindowIfDue();
+
+        List<Object[]> rows = new ArrayList<>();
+        Map<Long, Integer> increments = new HashMap<>();
+        buffer.drain(event -> {
+            long viewerHash = Hashes.hash64(event.viewerKey());
+            sketches.get(event.threadId, id -> new HyperLogLog(sketchPrecision)).add(viewerHash);
+
+            long viewHash = Hashes.mix64(viewerHash ^ Hashes.mix64(event.threadId));
+            if (previousWindow.mightContain(viewHash) || !currentWindow.put(viewHash)) {
+                duplicateCounter.increment();
+                return;
+            }
+            rows.add(new Object[] {
+                event.threadId, event.userId, event.ipAddress, event.userAgent, new Timestamp(event.viewedAtMillis)
+            });
+            increments.merge(event.threadId, 1, Integer::sum);
+        });
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> incrementRows = new ArrayList<>(increments.size());
+        increments.forEach((threadId, views) -> incrementRows.add(new Object[] { views, threadId }));
+        try {
+            jdbcTemplate.batchUpdate(INSERT_VIEW_SQL, rows);
+            jdbcTemplate.batchUpdate(INCREMENT_VIEWS_SQL, incrementRows);
+            writtenCounter.increment(rows.size());
+        } catch (Exception e) {
+            // Views are best effort: a failed batch is logged and dropped rather than retried
+            logger.error("Failed to write {} thread views", rows.size(), e);
+            return 0;
+        }
+        return rows.size();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // A view counts once per window; repeats are caught for between one and two window lengths
+    private void rotateWindowIfDue() {
+        if (System.nanoTime() - windowStartedNanos >= Duration.ofSeconds(dedupWindowSeconds).toNanos()) {
+            previousWindow = currentWindow;
+            currentWindow = newWindow();
+            windowStartedNanos = System.nanoTime();
+        }
+    }
+
+    private BloomFilter newWindow() {
+        return new BloomFilter(dedupExpectedViews, dedupFalsePositiveRate);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static class ViewEvent {
+        final Long threadId;
+        final String userId;
+        final String ipAddress;
+        final String userAgent;
+        final long viewedAtMillis;
+
+        ViewEvent(Long threadId, String userId, String ipAddress, String userAgent, long viewedAtMillis) {
+            this.threadId = threadId;
+            this.userId = userId;
+            this.ipAddress = ipAddress;
+            this.userAgent = userAgent;
+            this.viewedAtMillis = viewedAtMillis;
+        }
+
+        // Signed-in viewers by user ID, anonymous ones by address and browser
+        String viewerKey() {
+            return userId != null ? "u:" + userId : "a:" + ipAddress + "|" + userAgent;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.urutte.service;
+
+import com.urutte.model.ReactionType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The current user's engagement with a page of threads (likes, reposts, bookmarks and reactions),
+ * loaded once per page so that building each ThreadDto is a set lookup instead of a query. It also
+ * carries the viewer's ID, for what only the author may see.
+ */
+public class ThreadViewerState {
+
+    private static final ThreadViewerState ANONYMOUS = new ThreadViewerState(null,
+        Collections.emptySet(), Collections.emptySet(), Collections.emptySet(), Collections.emptyMap());
+
+    private final String viewerId;
+    private final Set<Long> likedThreadIds;
+    private final Set<Long> repostedThreadIds;
+    private final Set<Long> bookmarkedThreadIds;
+    private final Map<Long, ReactionType> reactions;
+
+    public ThreadViewerState(String viewerId, Set<Long> likedThreadIds, Set<Long> repostedThreadIds,
+                             Set<Long> bookmarkedThreadIds, Map<Long, ReactionType> reactions) {
+        this.viewerId = viewerId;
+        this.likedThreadIds = likedThreadIds;
+        this.repostedThreadIds = repostedThreadIds;
+        this.bookmarkedThreadIds = bookmarkedThreadIds;
+        this.reactions = reactions;
+    }
+
+    // State for anonymous or unknown viewers - engagement flags are left unset
+    public static ThreadViewerState anonymous() {
+        return ANONYMOUS;
+    }
+
+    public boolean isViewerKnown() { return viewerId != null; }
+
+    public boolean isViewer(String userId) { return viewerId != null && viewerId.equals(userId); }
+
+    public boolean isLiked(Long threadId) { return likedThreadIds.contains(threadId); }
+
+    public boolean isReposted(Long threadId) { return repostedThreadIds.contains(threadId); }
+
+    public boolean isBookmarked(Long threadId) { return bookmarkedThreadIds.contains(threadId); }
+
+    public ReactionType getReaction(Long threadId) { return reactions.get(threadId); }
+}
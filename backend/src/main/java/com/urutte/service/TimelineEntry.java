@@ -0,0 +1,66 @@
+package com.urutte.service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * A single thread reference in a materialized home timeline. Entries are ordered newest first
+ * by (createdAt, threadId), which is also the keyset used to page through a timeline.
+ */
+public class TimelineEntry {
+
+    // Why the thread is in the owner's timeline - used to undo follow-driven entries on unfollow
+    public enum Reason {
+        OWN,
+        PUBLIC,
+        FOLLOW,
+        MENTION
+    }
+
+    public static final Comparator<TimelineEntry> NEWEST_FIRST = Comparator
+        .comparing(TimelineEntry::getCreatedAt, Comparator.reverseOrder())
+        .thenComparing(TimelineEntry::getThreadId, Comparator.reverseOrder());
+
+    private final Long threadId;
+    private final String authorId;
+    private final LocalDateTime createdAt;
+    private final Reason reason;
+
+    public TimelineEntry(Long threadId, String authorId, LocalDateTime createdAt, Reason reason) {
+        this.threadId = threadId;
+        this.authorId = authorId;
+        this.createdAt = createdAt;
+        this.reason = reason;
+    }
+
+    public static TimelineEntry of(com.urutte.model.Thread thread, Reason reason) {
+        return new TimelineEntry(thread.getId(), thread.getUser().getId(), thread.getCreatedAt(), reason);
+    }
+
+    public Long getThreadId() { return threadId; }
+
+    public String getAuthorId() { return authorId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public Reason getReason() { return reason; }
+
+    // True if this entry comes strictly after the given keyset position in newest-first order
+    public boolean isBefore(LocalDateTime cursorCreatedAt, Long cursorThreadId) {
+        int cmp = createdAt.compareTo(cursorCreatedAt);
+        return cmp < 0 || (cmp == 0 && threadId < cursorThreadId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TimelineEntry)) return false;
+        return Objects.equals(threadId, ((TimelineEntry) o).threadId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(threadId);
+    }
+}
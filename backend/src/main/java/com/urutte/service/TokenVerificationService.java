@@ -0,0 +1,131 @@
+package com.urutte.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.urutte.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Verifies bearer tokens once and remembers the result.
+ *
+ * Verified principals are cached by SHA-256 of the token (the token itself is never kept) until the
+ * cache TTL or the token's own expiry, whichever comes first, so a client sending the same token on
+ * every request pays for one signature check per TTL. JwtAuthenticationFilter publishes the
+ * principal of the current request under REQUEST_ATTRIBUTE; later lookups in the same request
+ * (controllers resolving the current user) reuse it.
+ */
+@Service
+public class TokenVerificationService {
+
+    public static final String REQUEST_ATTRIBUTE = TokenVerificationService.class.getName() + ".principal";
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auth.token-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.auth.token-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<String, VerifiedToken> verified;
+
+    @PostConstruct
+    public void initCache() {
+        long ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        verified = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                    if (token.getExpiresAt() == null) {
+                        return ttlNanos;
+                    }
+                    long untilExpiry = Duration.between(Instant.now(), token.getExpiresAt()).toNanos();
+                    return Math.max(0, Math.min(ttlNanos, untilExpiry));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, token, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "verifiedTokens");
+    }
+
+    // Principal of the token, or null when it is malformed, badly signed or expired
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String tokenHash = hash(token);
+
+        VerifiedToken current = currentRequestToken();
+        if (current != null && current.getTokenHash().equals(tokenHash) && !current.isExpired()) {
+            return current;
+        }
+
+        VerifiedToken cached = verified.getIfPresent(tokenHash);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+
+        try {
+            Claims claims = jwtUtil.parseClaims(token);
+            VerifiedToken result = new VerifiedToken(tokenHash, claims.getSubject(), claims.get("email", String.class),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+            if (result.getUserId() == null) {
+                return null;
+            }
+            verified.put(tokenHash, result);
+            return result;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Principal the authentication filter resolved for the current request, if any
+    public VerifiedToken currentRequestToken() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (VerifiedToken) attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.urutte.service;
+
+import java.util.*;
+
+/**
+ * Exponentially decayed scores for one trending window, bounded to roughly the top K keys.
+ *
+ * Scores use forward decay: an event of weight w at time t is stored as w * e^((t - t0) / tau)
+ * relative to a reference time t0, so stored values never need to be decayed in place and their
+ * order stays valid as time passes. The current score is stored * e^-((now - t0) / tau). When the
+ * exponent grows large the board is rescaled to a new reference time to avoid overflow.
+ *
+ * When the board grows past twice its capacity the lowest scores are evicted, so memory stays
+ * bounded however many keys receive events.
+ */
+public class TrendingScoreboard<K> {
+
+    // Rescale before e^x gets anywhere near double overflow
+    private static final double MAX_EXPONENT = 50;
+
+    private final double lifetimeMillis;
+    private final int capacity;
+
+    private final Map<K, Double> stored = new HashMap<>();
+    private long referenceMillis;
+
+    // Cached ranking, rebuilt on the first read after a change
+    private volatile List<K> ranking = Collections.emptyList();
+    private volatile boolean dirty;
+
+    public TrendingScoreboard(long lifetimeMillis, int capacity, long nowMillis) {
+        this.lifetimeMillis = lifetimeMillis;
+        this.capacity = capacity;
+        this.referenceMillis = nowMillis;
+    }
+
+    public synchronized void add(K key, double weight, long atMillis) {
+        double exponent = (atMillis - referenceMillis) / lifetimeMillis;
+        if (exponent > MAX_EXPONENT) {
+            rescale(atMillis);
+            exponent = 0;
+        }
+        double value = stored.getOrDefault(key, 0.0) + weight * Math.exp(exponent);
+        if (value <= 0) {
+            // Undo events (unlike, unrepost) never push a key below zero
+            stored.remove(key);
+        } else {
+            stored.put(key, value);
+        }
+        dirty = true;
+
+        if (stored.size() > capacity * 2) {
+            trim();
+        }
+    }
+
+    public synchronized void remove(K key) {
+        if (stored.remove(key) != null) {
+            dirty = true;
+        }
+    }
+
+    // Keys ordered by current score, highest first
+    public List<K> top(int offset, int limit) {
+        List<K> current = currentRanking();
+        if (offset >= current.size()) {
+            return Collections.emptyList();
+        }
+        return current.subList(offset, Math.min(current.size(), offset + limit));
+    }
+
+    public synchronized double score(K key, long nowMillis) {
+        Double value = stored.get(key);
+        return value == null ? 0 : value * Math.exp(-(nowMillis - referenceMillis) / lifetimeMillis);
+    }
+
+    // Current (decayed) scores of all keys, used for checkpoints
+    public synchronized Map<K, Double> snapshot(long nowMillis) {
+        double decay = Math.exp(-(nowMillis - referenceMillis) / lifetimeMillis);
+        Map<K, Double> scores = new HashMap<>();
+        for (Map.Entry<K, Double> entry : stored.entrySet()) {
+            scores.put(entry.getKey(), entry.getValue() * decay);
+        }
+        return scores;
+    }
+
+    // Drop keys whose score has decayed below the threshold
+    public synchronized void prune(double threshold, long nowMillis) {
+        double decay = Math.exp(-(nowMillis - referenceMillis) / lifetimeMillis);
+        if (stored.values().removeIf(value -> value * decay < threshold)) {
+            dirty = true;
+        }
+    }
+
+    public synchronized int size() {
+        return stored.size();
+    }
+
+    // Reads between changes return the cached list without locking
+    private List<K> currentRanking() {
+        if (dirty) {
+            synchronized (this) {
+                if (dirty) {
+                    List<K> keys = new ArrayList<>(stored.keySet());
+                    keys.sort((a, b) -> Double.compare(stored.get(b), stored.get(a)));
+                    ranking = Collections.unmodifiableList(new ArrayList<>(keys.subList(0, Math.min(keys.size(), capacity))));
+                    dirty = false;
+                }
+            }
+        }
+        return ranking;
+    }
+
+    private void rescale(long nowMillis) {
+        double decay = Math.exp(-(nowMillis - referenceMillis) / lifetimeMillis);
+        stored.replaceAll((key, value) -> value * decay);
+        referenceMillis = nowMillis;
+    }
+
+    // Keep the top capacity keys
+    private void trim() {
+        List<Map.Entry<K, Double>> entries = new ArrayList<>(stored.entrySet());
+        entries.sort(Map.Entry.<K, Double>comparingByValue().reversed());
+        for (int i = capacity; i < entries.size(); i++) {
+            stored.remove(entries.get(i).getKey());
+        }
+    }
+}
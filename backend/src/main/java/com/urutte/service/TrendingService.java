@@ -0,0 +1,229 @@
+package com.urutte.service;
+
+import com.urutte.model.TrendingScore;
+import com.urutte.model.UserType;
+import com.urutte.repository.TrendingScoreRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Streaming trending engine for threads and hashtags.
+ *
+ * Likes, reposts, replies, views and hashtag uses are fed in as weighted events. Each window
+ * (1h, 24h, 7d) keeps its own exponentially decayed TrendingScoreboard, so trending reads are a
+ * lookup of an in-memory ranking instead of a sort over the threads or hashtags table.
+ *
+ * Scores are checkpointed to trending_scores periodically and on shutdown, and reloaded on startup.
+ * Each node keeps its own scores; the checkpoint of the last node to write wins.
+ */
+@Service
+public class TrendingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingService.class);
+
+    private static final String THREAD_BOARD = "THREAD";
+    private static final String HASHTAG_BOARD = "HASHTAG";
+
+    // Scores below this are dropped at checkpoint time
+    private static final double PRUNE_THRESHOLD = 0.01;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO trending_scores (board, item_key, score, scored_at) VALUES (?, ?, ?, ?)";
+
+    public enum Event {
+        LIKE(1.0),
+        UNLIKE(-1.0),
+        REPOST(2.0),
+        UNREPOST(-2.0),
+        REPLY(1.5),
+        VIEW(0.05);
+
+        private final double weight;
+
+        Event(double weight) {
+            this.weight = weight;
+        }
+
+        public double getWeight() { return weight; }
+    }
+
+    @Autowired
+    private TrendingScoreRepository trendingScoreRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.trending.capacity:1000}")
+    private int capacity;
+
+    @Value("${app.trending.hashtag-weight:1.0}")
+    private double hashtagWeight;
+
+    private final Map<TrendingWindow, TrendingScoreboard<Long>> threadBoards = new EnumMap<>(TrendingWindow.class);
+    private final Map<TrendingWindow, TrendingScoreboard<String>> hashtagBoards = new EnumMap<>(TrendingWindow.class);
+
+    @PostConstruct
+    public void initBoards() {
+        long now = System.currentTimeMillis();
+        for (TrendingWindow window : TrendingWindow.values()) {
+            long lifetime = window.getLifetime().toMillis();
+            threadBoards.put(window, new TrendingScoreboard<>(lifetime, capacity, now));
+            hashtagBoards.put(window, new TrendingScoreboard<>(lifetime, capacity, now));
+        }
+    }
+
+    // Record an engagement event on a thread once the caller's transaction commits
+    public void onThreadEvent(com.urutte.model.Thread thread, Event event) {
+        if (!isTrendable(thread)) {
+            return;
+        }
+        recordThreadEvent(thread.getId(), event);
+    }
+
+    // Same as onThreadEvent, for callers that already checked isTrendable (e.g. on a cached snapshot)
+    public void recordThreadEvent(Long threadId, Event event) {
+        afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            for (TrendingScoreboard<Long> board : threadBoards.values()) {
+                board.add(threadId, event.getWeight(), now);
+            }
+        });
+    }
+
+    // Record a hashtag use by a thread once the caller's transaction commits
+    public void onHashtagUsed(com.urutte.model.Thread thread, String tag) {
+        if (!isTrendable(thread)) {
+            return;
+        }
+        afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            for (TrendingScoreboard<String> board : hashtagBoards.values()) {
+                board.add(tag, hashtagWeight, now);
+            }
+        });
+    }
+
+    public void removeThread(Long threadId) {
+        for (TrendingScoreboard<Long> board : threadBoards.values()) {
+            board.remove(threadId);
+        }
+    }
+
+    // Trending thread IDs for a window, highest score first
+    public List<Long> getTrendingThreadIds(TrendingWindow window, int offset, int limit) {
+        return threadBoards.get(window).top(offset, limit);
+    }
+
+    public List<String> getTrendingHashtags(TrendingWindow window, int limit) {
+        return hashtagBoards.get(window).top(0, limit);
+    }
+
+    public boolean hasThreadScores(TrendingWindow window) {
+        return threadBoards.get(window).size() > 0;
+    }
+
+    public boolean hasHashtagScores(TrendingWindow window) {
+        return hashtagBoards.get(window).size() > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.trending.checkpoint-interval-ms:300000}")
+    public void checkpoint() {
+        long now = System.currentTimeMillis();
+        Timestamp scoredAt = new Timestamp(now);
+        List<Object[]> rows = new ArrayList<>();
+        for (TrendingWindow window : TrendingWindow.values()) {
+            TrendingScoreboard<Long> threadBoard = threadBoards.get(window);
+            threadBoard.prune(PRUNE_THRESHOLD, now);
+            threadBoard.snapshot(now).forEach((threadId, score) ->
+                rows.add(new Object[] { boardName(THREAD_BOARD, window), String.valueOf(threadId), score, scoredAt }));
+
+            TrendingScoreboard<String> hashtagBoard = hashtagBoards.get(window);
+            hashtagBoard.prune(PRUNE_THRESHOLD, now);
+            hashtagBoard.snapshot(now).forEach((tag, score) ->
+                rows.add(new Object[] { boardName(HASHTAG_BOARD, window), tag, score, scoredAt }));
+        }
+
+        try {
+            // Replace the previous checkpoint atomically
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM trending_scores");
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            });
+            logger.debug("Checkpointed {} trending scores", rows.size());
+        } catch (Exception e) {
+            logger.error("Failed to checkpoint trending scores", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        int restored = 0;
+        try {
+            for (TrendingScore row : trendingScoreRepository.findAll()) {
+                long scoredAt = row.getScoredAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                String[] parts = row.getBoard().split(":");
+                TrendingWindow window = TrendingWindow.valueOf(parts[1]);
+                if (THREAD_BOARD.equals(parts[0])) {
+                    threadBoards.get(window).add(Long.valueOf(row.getItemKey()), row.getScore(), scoredAt);
+                } else {
+                    hashtagBoards.get(window).add(row.getItemKey(), row.getScore(), scoredAt);
+                }
+                restored++;
+            }
+            logger.info("Restored {} trending scores", restored);
+        } catch (Exception e) {
+            logger.error("Failed to restore trending scores", e);
+        }
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    // Same rules as the trending queries: public, not deleted, not written by ADMIN (AI) users
+    public boolean isTrendable(com.urutte.model.Thread thread) {
+        return thread != null
+            && thread.getId() != null
+            && Boolean.TRUE.equals(thread.getIsPublic())
+            && !Boolean.TRUE.equals(thread.getIsDeleted())
+            && thread.getUser() != null
+            && thread.getUser().getUserType() != UserType.ADMIN;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String boardName(String board, TrendingWindow window) {
+        return board + ":" + window.name();
+    }
+}
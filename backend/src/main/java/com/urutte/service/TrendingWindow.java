@@ -0,0 +1,38 @@
+package com.urutte.service;
+
+import java.time.Duration;
+
+/**
+ * Trending windows. Each window decays scores exponentially with its length as the mean lifetime,
+ * so an event contributes e^-1 of its weight one window length after it happened.
+ */
+public enum TrendingWindow {
+    HOUR("1h", Duration.ofHours(1)),
+    DAY("24h", Duration.ofHours(24)),
+    WEEK("7d", Duration.ofDays(7));
+
+    private final String param;
+    private final Duration lifetime;
+
+    TrendingWindow(String param, Duration lifetime) {
+        this.param = param;
+        this.lifetime = lifetime;
+    }
+
+    public String getParam() { return param; }
+
+    public Duration getLifetime() { return lifetime; }
+
+    // Parse the "window" request parameter (1h, 24h or 7d); null means the 24h window
+    public static TrendingWindow fromParam(String value) {
+        if (value == null || value.isEmpty()) {
+            return DAY;
+        }
+        for (TrendingWindow window : values()) {
+            if (window.param.equalsIgnoreCase(value) || window.name().equalsIgnoreCase(value)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("Unknown trending window: " + value);
+    }
+}
@@ -0,0 +1,105 @@
+package com.urutte.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Spring Cache backed by a bounded Caffeine cache (L1, W-TinyLFU eviction) with an optional
+ * SharedCacheStore behind it (L2).
+ *
+ * Reads check L1, then L2, then call the loader; whatever is found is kept in L1, and loaded values
+ * are written to L2 as well. Evictions go to both tiers. Other nodes' L1 copies of an evicted entry
+ * are not notified and expire with the L1 TTL, so the TTL bounds cross-node staleness.
+ * Null values are not cached, so loaders must not return null.
+ */
+public class TwoTierCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<Object, Object> local;
+    private final SharedCacheStore shared;
+    private final Duration ttl;
+
+    public TwoTierCache(String name, Cache<Object, Object> local, SharedCacheStore shared, Duration ttl) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.shared = shared;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Cache<Object, Object> getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value == null && shared != null) {
+            value = shared.get(name, key);
+            if (value != null) {
+                local.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) fromStoreValue(local.get(key, k -> {
+            Object value = shared != null ? shared.get(name, k) : null;
+            if (value == null) {
+                value = toStoreValue(load(k, valueLoader));
+                if (shared != null) {
+                    shared.put(name, k, value, ttl);
+                }
+            }
+            return value;
+        }));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object storeValue = toStoreValue(value);
+        local.put(key, storeValue);
+        if (shared != null) {
+            shared.put(name, key, storeValue, ttl);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(key);
+        if (shared != null) {
+            shared.evict(name, key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        if (shared != null) {
+            shared.clear(name);
+        }
+    }
+
+    // Runtime exceptions from the loader (e.g. "User not found") reach the caller unchanged
+    private static <T> T load(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+}
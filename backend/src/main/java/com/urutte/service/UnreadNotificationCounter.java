@@ -0,0 +1,112 @@
+package com.urutte.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urutte.repository.NotificationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unread notification counts kept in memory, so the unread badge (polled or streamed) does not
+ * query the notifications table.
+ *
+ * A count is loaded once and then moved by the deltas of the writes on this node. Every change is
+ * also published on the notifications stream as an "unread" event carrying the delta and the new
+ * count; the other nodes take the count from that event (see onPushEvent), and clients either apply
+ * the delta or take the count. Entries expire after app.notifications.unread-cache.ttl-seconds,
+ * which bounds any drift from concurrent writers on different nodes.
+ */
+@Service
+public class UnreadNotificationCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadNotificationCounter.class);
+
+    public static final String UNREAD_EVENT = "unread";
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private PushHub pushHub;
+
+    @Autowired
+    private PushBus pushBus;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.notifications.unread-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${app.notifications.unread-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Cache<String, AtomicLong> counts;
+
+    @PostConstruct
+    public void initCache() {
+        counts = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, "unreadNotificationCounts");
+        pushBus.subscribe(this::onPushEvent);
+    }
+
+    public long get(String userId) {
+        return counter(userId).get();
+    }
+
+    // Apply a committed change of the user's unread count and push it to the user's streams
+    public void changed(String userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        // A count loaded now already includes the committed change. The cached count never goes
+        // below zero, so a decrement that raced the load cannot leave it negative for later deltas
+        AtomicLong cached = counts.getIfPresent(userId);
+        long count = cached != null ? cached.accumulateAndGet(delta, (current, change) -> Math.max(0, current + change)) : get(userId);
+        pushHub.publish(PushHub.NOTIFICATIONS, userId, UNREAD_EVENT, Map.of("delta", delta, "count", count));
+    }
+
+    public void evict(String userId) {
+        counts.invalidate(userId);
+    }
+
+    private AtomicLong counter(String userId) {
+        return counts.get(userId, id -> new AtomicLong(notificationRepository.countUnreadByUserId(id)));
+    }
+
+    // Counts changed on other nodes: adopt the count of the event if this node has one cached
+    void onPushEvent(PushEvent event) {
+        if (!PushHub.NOTIFICATIONS.equals(event.getStream()) || !UNREAD_EVENT.equals(event.getName())) {
+            return;
+        }
+        AtomicLong cached = counts.getIfPresent(event.getUserId());
+        if (cached == null) {
+            return;
+        }
+        try {
+            Map<?, ?> data = objectMapper.readValue(event.getData(), Map.class);
+            cached.set(((Number) data.get("count")).longValue());
+        } catch (Exception e) {
+            logger.warn("Ignoring malformed unread event {}: {}", event.getId(), e.getMessage());
+            counts.invalidate(event.getUserId());
+        }
+    }
+}
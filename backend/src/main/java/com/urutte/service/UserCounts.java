@@ -0,0 +1,23 @@
+package com.urutte.service;
+
+/**
+ * Follower, following and post counts of a user, cached together so a profile needs no count queries.
+ */
+public class UserCounts {
+
+    private final long followersCount;
+    private final long followingCount;
+    private final long postsCount;
+
+    public UserCounts(long followersCount, long followingCount, long postsCount) {
+        this.followersCount = followersCount;
+        this.followingCount = followingCount;
+        this.postsCount = postsCount;
+    }
+
+    public long getFollowersCount() { return followersCount; }
+
+    public long getFollowingCount() { return followingCount; }
+
+    public long getPostsCount() { return postsCount; }
+}
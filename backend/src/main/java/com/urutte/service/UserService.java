@@ -7,7 +7,6 @@ import com.urutte.repository.FollowRepository;
 import com.urutte.repository.FollowRequestRepository;
 import com.urutte.repository.PostRepository;
 import com.urutte.repository.UserRepository;
-import com.urutte.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.stereotype.Service;
@@ -16,6 +15,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -38,10 +38,22 @@ public class UserService {
     private ProfilePictureService profilePictureService;
     
     @Autowired
-    private NotificationService notificationService;
+    private NotificationPipeline notificationPipeline;
     
     @Autowired
-    private JwtUtil jwtUtil;
+    private TokenVerificationService tokenVerificationService;
+    
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+    
+    @Autowired
+    private HotDataCache hotDataCache;
+    
+    @Autowired
+    private FollowGraph followGraph;
+    
+    @Autowired
+    private BlobService blobService;
     
     public User getOrCreateUser(String userId) {
         return userRepository.findById(userId)
@@ -53,16 +65,24 @@ public class UserService {
             .orElseThrow(() -> new RuntimeException("User not found"));
     }
     
+    // The token is normally already verified by JwtAuthenticationFilter for this request
     public User getUserFromToken(String token) {
-        try {
-            if (jwtUtil.validateToken(token)) {
-                String userId = jwtUtil.extractUserId(token);
-                return userRepository.findById(userId).orElse(null);
-            }
-            return null;
-        } catch (Exception e) {
+        VerifiedToken verified = tokenVerificationService.verify(token);
+        if (verified == null) {
             return null;
         }
+        return getAuthenticatedUser(verified.getUserId());
+    }
+    
+    // User behind a verified principal, from the short-TTL authenticated user cache; null if unknown
+    public User getAuthenticatedUser(String userId) {
+        User cached = hotDataCache.getAuthenticatedUser(userId);
+        if (cached != null) {
+            return cached;
+        }
+        Optional<User> user = userRepository.findById(userId);
+        user.ifPresent(hotDataCache::putAuthenticatedUser);
+        return user.orElse(null);
     }
     
     public UserDto updateUserProfile(String userId, String name, String username, String bio, 
@@ -105,35 +125,52 @@ public class UserService {
         // Handle profile image upload
         if (profileImage != null && !profileImage.isEmpty()) {
             String profileImagePath = profilePictureService.uploadProfileImage(profileImage, userId);
+            // The replaced picture's blob is deleted once nothing else refers to it
+            blobService.releaseUrl(user.getPicture());
             user.setPicture("/" + profileImagePath);
         }
         
         // Handle cover image upload
         if (coverImage != null && !coverImage.isEmpty()) {
             String coverImagePath = profilePictureService.uploadCoverImage(coverImage, userId);
+            blobService.releaseUrl(user.getCoverPhoto());
             user.setCoverPhoto("/" + coverImagePath);
         }
         
         user.setUpdatedAt(java.time.Instant.now());
         user = userRepository.save(user);
+        hotDataCache.evictUser(userId);
         
         return convertToDto(user, userId);
     }
     
+    // Writes the OIDC profile back only when the name, email or picture differ from the stored user,
+    // so repeated requests of a signed-in user are a cache hit and no UPDATE
     public User getOrCreateUser(OidcUser oidcUser) {
         String userId = oidcUser.getSubject();
+        User cached = hotDataCache.getAuthenticatedUser(userId);
+        if (cached != null && !profileChanged(cached, oidcUser)) {
+            return cached;
+        }
+        
         Optional<User> existingUser = userRepository.findById(userId);
         
         if (existingUser.isPresent()) {
             User user = existingUser.get();
+            if (!profileChanged(user, oidcUser)) {
+                hotDataCache.putAuthenticatedUser(user);
+                return user;
+            }
             // Update user info from OAuth
             user.setName(oidcUser.getFullName());
             user.setEmail(oidcUser.getEmail());
             
             // Use default avatar instead of downloading Google profile picture
-            user.setPicture(profilePictureService.generateDefaultAvatar(userId));
+            user.setPicture(oidcPicture(user));
             
-            return userRepository.save(user);
+            user = userRepository.save(user);
+            hotDataCache.evictUser(userId);
+            return user;
         } else {
             // Create new user
             User newUser = new User();
@@ -148,9 +185,24 @@ public class UserService {
         }
     }
     
+    private boolean profileChanged(User user, OidcUser oidcUser) {
+        return !Objects.equals(user.getName(), oidcUser.getFullName())
+            || !Objects.equals(user.getEmail(), oidcUser.getEmail())
+            || !Objects.equals(user.getPicture(), oidcPicture(user));
+    }
+    
+    // Uploaded pictures are kept; users without one get their default avatar
+    private String oidcPicture(User user) {
+        if (user.getPicture() != null && !user.getPicture().isEmpty()) {
+            return user.getPicture();
+        }
+        return profilePictureService.generateDefaultAvatar(user.getId());
+    }
+    
+    // Served from the summary and counts caches; only the follow state is queried per request
     public UserDto getUserProfile(String userId, String currentUserId) {
-        User user = getOrCreateUser(userId);
-        return convertToDto(user, currentUserId);
+        UserDto summary = hotDataCache.getUserSummary(userId, () -> getOrCreateUser(userId));
+        return withCountsAndFollowState(HotDataCache.copySummary(summary), currentUserId);
     }
     
     public UserDto followUser(String userId, String currentUserId) {
@@ -166,6 +218,9 @@ public class UserService {
             // Unfollow: remove the follow relationship
             followRepository.findByFollowerAndFollowing(currentUser, userToFollow)
                 .ifPresent(followRepository::delete);
+            homeTimelineService.onUnfollow(currentUserId, userId);
+            followGraph.onUnfollow(currentUserId, userId);
+            hotDataCache.evictUserCounts(currentUserId, userId);
         } else {
             // Check if there's already a pending follow request
             if (followRequestRepository.existsByRequesterIdAndTargetId(currentUserId, userId)) {
@@ -178,15 +233,16 @@ public class UserService {
                 followRequestRepository.save(followRequest);
                 
                 // Create notification for the target user
-                notificationService.createNotification(
+                notificationPipeline.submit(new NotificationEvent(
                     userToFollow.getId(),
-                    currentUser.getId(),
+                    currentUser,
                     "follow_request",
                     "New Follow Request",
                     currentUser.getName() + " wants to follow you",
+                    null,
                     "user",
                     null // No relatedEntityId needed for user notifications since we have fromUser
-                );
+                ));
             }
         }
         
@@ -209,6 +265,9 @@ public class UserService {
         // Remove the follow relationship
         followRepository.findByFollowerAndFollowing(currentUser, userToUnfollow)
             .ifPresent(followRepository::delete);
+        homeTimelineService.onUnfollow(currentUserId, userId);
+        followGraph.onUnfollow(currentUserId, userId);
+        hotDataCache.evictUserCounts(currentUserId, userId);
         
         return convertToDto(userToUnfollow, currentUserId);
     }
@@ -237,8 +296,7 @@ public class UserService {
     public List<UserDto> getPeopleYouMayKnow(String currentUserId, int limit) {
         // Get users that the current user doesn't follow and is not the current user
         List<User> allUsers = userRepository.findAll();
-        List<User> following = followRepository.findFollowingByUserId(currentUserId);
-        List<String> followingIds = following.stream().map(User::getId).collect(java.util.stream.Collectors.toList());
+        java.util.Set<String> followingIds = followGraph.getFollowingIds(currentUserId);
         
         // Get users who have been rejected within the last 3 months
         java.time.Instant threeMonthsAgo = java.time.Instant.now().minus(90, java.time.temporal.ChronoUnit.DAYS);
@@ -260,6 +318,8 @@ public class UserService {
             .filter(user -> !followingIds.contains(user.getId())) // Not already following
             .filter(user -> !recentlyRejectedIds.contains(user.getId())) // Not recently rejected
             .filter(user -> !pendingRequestIds.contains(user.getId())) // Not already have pending request
+            // Most mutual connections first: followed by more of the people the current user follows
+            .sorted(java.util.Comparator.comparingInt((User user) -> followGraph.countMutualFollows(currentUserId, user.getId())).reversed())
             .limit(limit)
             .collect(java.util.stream.Collectors.toList());
         
@@ -324,17 +384,21 @@ public class UserService {
         // Create the follow relationship
         com.urutte.model.Follow follow = new com.urutte.model.Follow(followRequest.getRequester(), followRequest.getTarget());
         followRepository.save(follow);
+        homeTimelineService.onFollow(followRequest.getRequester().getId(), followRequest.getTarget().getId());
+        followGraph.onFollow(followRequest.getRequester().getId(), followRequest.getTarget().getId());
+        hotDataCache.evictUserCounts(followRequest.getRequester().getId(), followRequest.getTarget().getId());
         
         // Create notification for the requester
-        notificationService.createNotification(
+        notificationPipeline.submit(new NotificationEvent(
             followRequest.getRequester().getId(),
-            followRequest.getTarget().getId(),
+            followRequest.getTarget(),
             "follow_approved",
             "Follow Request Approved",
             followRequest.getTarget().getName() + " approved your follow request",
+            null,
             "user",
             null // No relatedEntityId needed for user notifications since we have fromUser
-        );
+        ));
         
         return convertToDto(followRequest.getRequester(), currentUserId);
     }
@@ -359,35 +423,29 @@ public class UserService {
     }
     
     public UserDto convertToDto(User user, String currentUserId) {
-        UserDto dto = new UserDto();
-        dto.setId(user.getId());
-        dto.setName(user.getName());
-        dto.setEmail(user.getEmail());
-        dto.setUsername(user.getUsername());
-        dto.setPicture(user.getPicture());
-        dto.setCoverPhoto(user.getCoverPhoto());
-        dto.setBio(user.getBio());
-        dto.setLocation(user.getLocation());
-        dto.setWebsite(user.getWebsite());
-        dto.setPhoneNumber(user.getPhoneNumber());
-        dto.setDateOfBirth(user.getDateOfBirth());
-        dto.setGender(user.getGender());
-        dto.setCreatedAt(user.getCreatedAt());
-        dto.setUpdatedAt(user.getUpdatedAt());
-        dto.setVerified(user.getIsVerified());
-        dto.setPrivate(user.getIsPrivate());
-        dto.setActive(user.getIsActive());
-        
+        return withCountsAndFollowState(HotDataCache.toSummary(user), currentUserId);
+    }
+    
+    private UserDto withCountsAndFollowState(UserDto dto, String currentUserId) {
         // Set counts
-        dto.setFollowersCount(followRepository.countByFollowing(user));
-        dto.setFollowingCount(followRepository.countByFollower(user));
-        dto.setPostsCount(postRepository.countByUser(user));
+        UserCounts counts = hotDataCache.getUserCounts(dto.getId(), () -> loadCounts(dto.getId()));
+        dto.setFollowersCount(counts.getFollowersCount());
+        dto.setFollowingCount(counts.getFollowingCount());
+        dto.setPostsCount(counts.getPostsCount());
         
         // Set following status
-        if (currentUserId != null && !currentUserId.equals(user.getId())) {
-            dto.setFollowing(followRepository.existsByFollowerIdAndFollowingId(currentUserId, user.getId()));
+        if (currentUserId != null && !currentUserId.equals(dto.getId())) {
+            dto.setFollowing(followGraph.follows(currentUserId, dto.getId()));
         }
         
         return dto;
     }
+    
+    private UserCounts loadCounts(String userId) {
+        User user = userRepository.getReferenceById(userId);
+        return new UserCounts(
+            followGraph.countFollowers(userId),
+            followGraph.countFollowing(userId),
+            postRepository.countByUser(user));
+    }
 }
@@ -0,0 +1,33 @@
+package com.urutte.service;
+
+import java.time.Instant;
+
+/**
+ * Principal of a bearer token whose signature and expiry have been checked.
+ */
+public class VerifiedToken {
+
+    private final String tokenHash;
+    private final String userId;
+    private final String email;
+    private final Instant expiresAt;
+
+    public VerifiedToken(String tokenHash, String userId, String email, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.userId = userId;
+        this.email = email;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getTokenHash() { return tokenHash; }
+
+    public String getUserId() { return userId; }
+
+    public String getEmail() { return email; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+
+    public boolean isExpired() {
+        return expiresAt != null && !expiresAt.isAfter(Instant.now());
+    }
+}
@@ -0,0 +1,60 @@
+package com.urutte.util;
+
+/**
+ * Fixed-size Bloom filter over 64-bit hashes (see Hashes), sized for an expected number of
+ * insertions and a false-positive rate. Not thread-safe.
+ */
+public class BloomFilter {
+    
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.max(1, (m + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+    
+    // Adds the hash; false when it was (probably) present already
+    public boolean put(long hash) {
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(hash, i);
+            long word = bits[(int) (bit >>> 6)];
+            long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                bits[(int) (bit >>> 6)] = word | mask;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+    
+    public boolean mightContain(long hash) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(hash, i);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Double hashing: the i-th probe is h1 + i * h2
+    private long index(long hash, int i) {
+        long h1 = hash;
+        long h2 = Hashes.mix64(hash ^ 0x9e3779b97f4a7c15L) | 1;
+        return Math.floorMod(h1 + i * h2, bitCount);
+    }
+    
+    public int getHashCount() {
+        return hashCount;
+    }
+    
+    public long getBitCount() {
+        return bitCount;
+    }
+}
@@ -0,0 +1,53 @@
+package com.urutte.util;
+
+/**
+ * HyperLogLog cardinality sketch over 64-bit hashes (see Hashes). 2^precision one-byte registers;
+ * the standard error is about 1.04 / sqrt(2^precision), e.g. 3.3% in 1 KB at precision 10.
+ * Methods are synchronized, the sketch is written by one thread and read by many.
+ */
+public class HyperLogLog {
+    
+    private final int precision;
+    private final byte[] registers;
+    
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+    
+    public synchronized void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Leading zeros of the remaining bits, plus one; the sentinel bit bounds the rank
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+    
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Small cardinalities: linear counting is more accurate
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    public int sizeInBytes() {
+        return registers.length;
+    }
+}
@@ -0,0 +1,70 @@
+package com.urutte.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ *
+ * Producers claim a slot by advancing the tail with a CAS and then publish the element into it;
+ * offer fails instead of blocking when the buffer is full. The consumer drains slots in order and
+ * stops at a claimed slot whose element is not published yet, which the next drain picks up.
+ * Capacity is rounded up to a power of two.
+ */
+public class MpscRingBuffer<E> {
+    
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    
+    // Written by the consumer only
+    private volatile long head;
+    
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+    
+    // False when the buffer is full
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            if (position - head >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                slots.set((int) (position & mask), element);
+                return true;
+            }
+        }
+    }
+    
+    // Consumer side: hand every published element to the consumer, returns how many
+    public int drain(Consumer<E> consumer) {
+        int drained = 0;
+        long position = head;
+        while (true) {
+            int index = (int) (position & mask);
+            E element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            // Clear before moving head, so a producer that sees the new head finds the slot empty
+            slots.lazySet(index, null);
+            head = ++position;
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+    
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+    
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,256 @@
+package com.urutte.util;
+
+import org.springframework.http.ContentDisposition;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Streaming reader for multipart/form-data bodies (RFC 7578).
+ *
+ * Parts are handed out one at a time as an InputStream over the request body, so a part is never
+ * held in memory or spooled by the container: the only buffer is the fixed one given to the
+ * constructor. A part's body must be read (or is skipped) before the next part is returned.
+ */
+public class MultipartStream {
+
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private final InputStream in;
+    // "\r\n--boundary"; the first delimiter has no leading CRLF
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+
+    private PartInputStream current;
+    private boolean finished;
+
+    public MultipartStream(InputStream in, String boundary, int bufferSize) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        if (bufferSize < 2 * delimiter.length + 4) {
+            throw new IllegalArgumentException("Buffer of " + bufferSize + " bytes is too small for the boundary");
+        }
+        this.buffer = new byte[bufferSize];
+    }
+
+    // Boundary parameter of a multipart Content-Type header, or null
+    public static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+                String boundary = trimmed.substring("boundary=".length());
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary.isEmpty() || boundary.length() > 70 ? null : boundary;
+            }
+        }
+        return null;
+    }
+
+    // The next part, or null after the closing delimiter
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (current == null) {
+            // Skip the preamble up to the first delimiter
+            new PartInputStream(2).drain();
+        } else {
+            current.drain();
+        }
+
+        if (readByte() == '-' && readByte() == '-') {
+            finished = true;
+            return null;
+        }
+        // The rest of the delimiter line is transport padding followed by CRLF
+        head--;
+        int b;
+        while ((b = readByte()) != '\n') {
+            if (b != ' ' && b != '\t' && b != '\r') {
+                throw new IOException("Malformed multipart delimiter line");
+            }
+        }
+
+        Part part = readHeaders();
+        current = new PartInputStream(0);
+        part.body = current;
+        return part;
+    }
+
+    private Part readHeaders() throws IOException {
+        Part part = new Part();
+        StringBuilder line = new StringBuilder();
+        int total = 0;
+        while (true) {
+            int b = readByte();
+            if (++total > MAX_HEADER_BYTES) {
+                throw new IOException("Multipart headers exceed " + MAX_HEADER_BYTES + " bytes");
+            }
+            if (b != '\n') {
+                line.append((char) b);
+                continue;
+            }
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(length - 1);
+            }
+            if (line.length() == 0) {
+                return part;
+            }
+            // Header values are UTF-8 in practice (browsers send filenames unescaped)
+            String header = new String(line.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+            int colon = header.indexOf(':');
+            if (colon > 0) {
+                String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = header.substring(colon + 1).trim();
+                if (name.equals("content-disposition")) {
+                    ContentDisposition disposition = ContentDisposition.parse(value);
+                    part.name = disposition.getName();
+                    part.filename = disposition.getFilename();
+                } else if (name.equals("content-type")) {
+                    part.contentType = value;
+                }
+            }
+            line.setLength(0);
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (head == tail && !fill()) {
+            throw new EOFException("Unexpected end of multipart body");
+        }
+        return buffer[head++] & 0xff;
+    }
+
+    // Move the unread bytes to the front and read more behind them; false at end of input
+    private boolean fill() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        if (tail == buffer.length) {
+            return true;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read == -1) {
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    // Position of the delimiter (from offset) in the unread bytes, or -1
+    private int findDelimiter(int offset) {
+        int last = tail - (delimiter.length - offset);
+        outer:
+        for (int i = head; i <= last; i++) {
+            for (int j = offset; j < delimiter.length; j++) {
+                if (buffer[i + j - offset] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    public static class Part {
+        private String name;
+        private String filename;
+        private String contentType;
+        private InputStream body;
+
+        public String getName() { return name; }
+
+        // Null for plain form fields
+        public String getFilename() { return filename; }
+
+        public String getContentType() { return contentType; }
+
+        public boolean isFile() { return filename != null; }
+
+        public InputStream getBody() { return body; }
+
+        // Body of a form field as text; IOException beyond maxBytes
+        public String readString(int maxBytes) throws IOException {
+            byte[] bytes = body.readNBytes(maxBytes + 1);
+            if (bytes.length > maxBytes) {
+                throw new IOException("Form field " + name + " exceeds " + maxBytes + " bytes");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private class PartInputStream extends InputStream {
+        private final int delimiterOffset;
+        private boolean done;
+
+        PartInputStream(int delimiterOffset) {
+            this.delimiterOffset = delimiterOffset;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int read = read(one, 0, 1);
+            return read == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int position = findDelimiter(delimiterOffset);
+                int available;
+                if (position != -1) {
+                    available = position - head;
+                    if (available == 0) {
+                        head += delimiter.length - delimiterOffset;
+                        done = true;
+                        return -1;
+                    }
+                } else {
+                    // Hold back what could be the start of a delimiter split across reads
+                    available = tail - head - (delimiter.length - delimiterOffset - 1);
+                }
+                if (available > 0) {
+                    int count = Math.min(len, available);
+                    System.arraycopy(buffer, head, b, off, count);
+                    head += count;
+                    return count;
+                }
+                if (!fill()) {
+                    throw new EOFException("Multipart body ended inside a part");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+        }
+
+        void drain() throws IOException {
+            byte[] skip = new byte[4096];
+            while (read(skip, 0, skip.length) != -1) {
+                // discard
+            }
+        }
+    }
+}
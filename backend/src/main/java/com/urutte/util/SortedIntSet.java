@@ -0,0 +1,120 @@
+package com.urutte.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of ints kept as a sorted array without duplicates.
+ *
+ * Lookups are binary searches; with and without return a new set (copy on write), so readers never
+ * need a lock. Meant for adjacency lists that are read far more often than they change.
+ */
+public final class SortedIntSet {
+
+    public static final SortedIntSet EMPTY = new SortedIntSet(new int[0]);
+
+    private final int[] values;
+
+    private SortedIntSet(int[] values) {
+        this.values = values;
+    }
+
+    // Takes ownership of the array, which is sorted and deduplicated in place
+    public static SortedIntSet of(int[] values, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(values, 0, length);
+        int size = 1;
+        for (int i = 1; i < length; i++) {
+            if (values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return new SortedIntSet(size == values.length ? values : Arrays.copyOf(values, size));
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public SortedIntSet with(int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return this;
+        }
+        int insertAt = -index - 1;
+        int[] copy = new int[values.length + 1];
+        System.arraycopy(values, 0, copy, 0, insertAt);
+        copy[insertAt] = value;
+        System.arraycopy(values, insertAt, copy, insertAt + 1, values.length - insertAt);
+        return new SortedIntSet(copy);
+    }
+
+    public SortedIntSet without(int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return this;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        int[] copy = new int[values.length - 1];
+        System.arraycopy(values, 0, copy, 0, index);
+        System.arraycopy(values, index + 1, copy, index, values.length - index - 1);
+        return new SortedIntSet(copy);
+    }
+
+    // Merge walk when the sizes are close, binary searches of the smaller set in the larger otherwise
+    public int intersectionSize(SortedIntSet other) {
+        SortedIntSet small = values.length <= other.values.length ? this : other;
+        SortedIntSet large = small == this ? other : this;
+        if (small.values.length == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        int smallLength = small.values.length;
+        int largeLength = large.values.length;
+        if ((long) smallLength * (32 - Integer.numberOfLeadingZeros(largeLength)) < smallLength + largeLength) {
+            int from = 0;
+            for (int value : small.values) {
+                int index = Arrays.binarySearch(large.values, from, largeLength, value);
+                if (index >= 0) {
+                    count++;
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+                if (from == largeLength) {
+                    break;
+                }
+            }
+            return count;
+        }
+
+        int i = 0;
+        int j = 0;
+        while (i < smallLength && j < largeLength) {
+            int a = small.values[i];
+            int b = large.values[j];
+            if (a == b) {
+                count++;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,96 @@
+package com.urutte.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset position in a thread listing, exchanged with clients as an opaque token.
+ *
+ * Two orderings are supported: by (createdAt, id) for chronological listings and by
+ * (likesCount, id) for trending. Tokens are URL-safe base64 of "c|createdAt|id" or "l|likes|id".
+ */
+public class ThreadCursor {
+    
+    // Seek positions that sort before every real row, used for the first page
+    private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
+    private final LocalDateTime createdAt;
+    private final Integer likesCount;
+    private final Long id;
+    
+    private ThreadCursor(LocalDateTime createdAt, Integer likesCount, Long id) {
+        this.createdAt = createdAt;
+        this.likesCount = likesCount;
+        this.id = id;
+    }
+    
+    public static ThreadCursor ofCreatedAt(LocalDateTime createdAt, Long id) {
+        return new ThreadCursor(createdAt, null, id);
+    }
+    
+    public static ThreadCursor ofLikes(Integer likesCount, Long id) {
+        return new ThreadCursor(null, likesCount != null ? likesCount : 0, id);
+    }
+    
+    public static ThreadCursor firstByCreatedAt() {
+        return ofCreatedAt(MAX_CREATED_AT, Long.MAX_VALUE);
+    }
+    
+    public static ThreadCursor firstByLikes() {
+        return ofLikes(Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+    
+    // Decode a chronological cursor; a missing token means the first page
+    public static ThreadCursor decodeCreatedAt(String token) {
+        if (token == null || token.isBlank()) {
+            return firstByCreatedAt();
+        }
+        String[] parts = split(token, "c");
+        try {
+            return ofCreatedAt(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    // Decode a trending cursor; a missing token means the first page
+    public static ThreadCursor decodeLikes(String token) {
+        if (token == null || token.isBlank()) {
+            return firstByLikes();
+        }
+        String[] parts = split(token, "l");
+        try {
+            return ofLikes(Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    public String encode() {
+        String raw = createdAt != null
+            ? "c|" + createdAt + "|" + id
+            : "l|" + likesCount + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String[] split(String token, String expectedKind) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = raw.split("\\|");
+        if (parts.length != 3 || !parts[0].equals(expectedKind)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return parts;
+    }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    
+    public Integer getLikesCount() { return likesCount; }
+    
+    public Long getId() { return id; }
+}
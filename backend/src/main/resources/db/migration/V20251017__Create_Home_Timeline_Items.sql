@@ -0,0 +1,13 @@
+-- Materialized home timelines (app.feed.timeline.mode=postgres)
+CREATE TABLE IF NOT EXISTS home_timeline_items (
+    id BIGSERIAL PRIMARY KEY,
+    owner_id VARCHAR(255) NOT NULL,
+    thread_id BIGINT NOT NULL,
+    author_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    reason VARCHAR(16) NOT NULL,
+    UNIQUE(owner_id, thread_id)
+);
+
+-- Keyset scans read one owner's timeline newest first
+CREATE INDEX IF NOT EXISTS idx_home_timeline_owner_created ON home_timeline_items(owner_id, created_at DESC, thread_id DESC);
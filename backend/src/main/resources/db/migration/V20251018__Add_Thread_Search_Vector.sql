@@ -0,0 +1,7 @@
+-- Full-text search over thread content (app.search.engine=postgres)
+-- The generated column is maintained by PostgreSQL on insert and update
+ALTER TABLE threads ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(content, ''))) STORED;
+
+-- Answers search_vector @@ to_tsquery(...) including prefix (term:*) queries
+CREATE INDEX IF NOT EXISTS idx_threads_search_vector ON threads USING GIN (search_vector);
@@ -0,0 +1,9 @@
+-- Checkpointed trending scores, reloaded on startup by TrendingService
+CREATE TABLE IF NOT EXISTS trending_scores (
+    id BIGSERIAL PRIMARY KEY,
+    board VARCHAR(32) NOT NULL,
+    item_key VARCHAR(100) NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    scored_at TIMESTAMP NOT NULL,
+    UNIQUE(board, item_key)
+);
@@ -0,0 +1,2 @@
+-- Conversation loading scans one root's replies by thread_path prefix (thread_path LIKE '12.34.%')
+CREATE INDEX IF NOT EXISTS idx_threads_root_path ON threads(root_thread_id, thread_path varchar_pattern_ops);
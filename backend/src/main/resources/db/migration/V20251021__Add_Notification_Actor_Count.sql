@@ -0,0 +1,3 @@
+-- Coalesced notifications ("X and 41 others liked your thread") record how many distinct users acted
+ALTER TABLE notifications ADD COLUMN IF NOT EXISTS actor_count INTEGER DEFAULT 1;
+CREATE INDEX IF NOT EXISTS idx_notifications_user_unread ON notifications(user_id, is_read);
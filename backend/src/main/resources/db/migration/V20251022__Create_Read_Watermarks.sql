@@ -0,0 +1,13 @@
+-- Read watermarks: one row per user and notification feed or conversation instead of a flag update per item
+CREATE TABLE IF NOT EXISTS read_watermarks (
+    id BIGSERIAL PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    scope VARCHAR(32) NOT NULL,
+    scope_key VARCHAR(255) NOT NULL,
+    last_read_id BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    UNIQUE(user_id, scope, scope_key)
+);
+
+-- Unread messages of a conversation and its newest message ID
+CREATE INDEX IF NOT EXISTS idx_messages_receiver_sender ON messages(receiver_id, sender_id, id);
@@ -0,0 +1,46 @@
+-- Direct-message conversations keyed by the ordered user pair, with last message and per-participant unread counts
+CREATE TABLE IF NOT EXISTS conversations (
+    id BIGSERIAL PRIMARY KEY,
+    user_low_id VARCHAR(255) NOT NULL,
+    user_high_id VARCHAR(255) NOT NULL,
+    last_message_id BIGINT,
+    last_message_at TIMESTAMP,
+    low_unread_count INTEGER NOT NULL DEFAULT 0,
+    high_unread_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    UNIQUE(user_low_id, user_high_id)
+);
+
+-- Inbox: a user's conversations newest first, from either side of the pair
+CREATE INDEX IF NOT EXISTS idx_conversations_low_last ON conversations(user_low_id, last_message_at DESC);
+CREATE INDEX IF NOT EXISTS idx_conversations_high_last ON conversations(user_high_id, last_message_at DESC);
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS conversation_id BIGINT;
+
+-- Backfill from existing messages; unread counts honour the read watermarks. The pair is ordered
+-- bytewise (COLLATE "C") like Conversation.lowId in Java
+INSERT INTO conversations (user_low_id, user_high_id, last_message_id, last_message_at,
+                           low_unread_count, high_unread_count, created_at)
+SELECT LEAST(m.sender_id COLLATE "C", m.receiver_id COLLATE "C"),
+       GREATEST(m.sender_id COLLATE "C", m.receiver_id COLLATE "C"),
+       MAX(m.id), MAX(m.created_at),
+       COUNT(*) FILTER (WHERE m.receiver_id COLLATE "C" < m.sender_id AND NOT m.is_read
+                        AND m.id > COALESCE(w.last_read_id, 0)),
+       COUNT(*) FILTER (WHERE m.receiver_id COLLATE "C" > m.sender_id AND NOT m.is_read
+                        AND m.id > COALESCE(w.last_read_id, 0)),
+       MIN(m.created_at)
+FROM messages m
+LEFT JOIN read_watermarks w
+       ON w.user_id = m.receiver_id AND w.scope = 'messages' AND w.scope_key = m.sender_id
+GROUP BY LEAST(m.sender_id COLLATE "C", m.receiver_id COLLATE "C"),
+         GREATEST(m.sender_id COLLATE "C", m.receiver_id COLLATE "C")
+ON CONFLICT (user_low_id, user_high_id) DO NOTHING;
+
+UPDATE messages m SET conversation_id = c.id
+FROM conversations c
+WHERE m.conversation_id IS NULL
+  AND c.user_low_id = LEAST(m.sender_id COLLATE "C", m.receiver_id COLLATE "C")
+  AND c.user_high_id = GREATEST(m.sender_id COLLATE "C", m.receiver_id COLLATE "C");
+
+-- Conversation history by keyset on (conversation_id, id)
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_id ON messages(conversation_id, id);
@@ -0,0 +1,2 @@
+-- Resized copies of thread images written by the derivative pipeline ("url 320w, url 640w")
+ALTER TABLE thread_media ADD COLUMN IF NOT EXISTS srcset VARCHAR(2000);
@@ -0,0 +1,11 @@
+-- Content-addressed uploads: one row per stored blob ("<sha256>.<ext>") with the number of references to it.
+-- Rows that dropped to zero references are deleted with their file once released_at is older than the sweep grace period
+CREATE TABLE IF NOT EXISTS blobs (
+    blob_key VARCHAR(80) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    released_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_blobs_released ON blobs(released_at) WHERE ref_count = 0;
@@ -0,0 +1,4 @@
+-- Streamed uploads are attached as PROCESSING and checked in the background (READY or FAILED)
+ALTER TABLE thread_media ADD COLUMN IF NOT EXISTS status VARCHAR(16) NOT NULL DEFAULT 'READY';
+
+CREATE INDEX IF NOT EXISTS idx_thread_media_processing ON thread_media(id) WHERE status = 'PROCESSING';
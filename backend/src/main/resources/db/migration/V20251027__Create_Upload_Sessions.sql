@@ -0,0 +1,14 @@
+-- Resumable (tus-style) video uploads: the announced length, the offset received so far, and the stored video once complete
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    upload_length BIGINT NOT NULL,
+    upload_offset BIGINT NOT NULL,
+    filename VARCHAR(255),
+    content_type VARCHAR(100),
+    video_path VARCHAR(120),
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_expires_at ON upload_sessions(expires_at);
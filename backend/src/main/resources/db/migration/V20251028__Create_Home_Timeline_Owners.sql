@@ -0,0 +1,6 @@
+-- Home timelines whose backfill has run (app.feed.timeline.mode=postgres); a timeline that only
+-- received fan-out pushes has no row here and is backfilled on its first read
+CREATE TABLE IF NOT EXISTS home_timeline_owners (
+    owner_id VARCHAR(255) PRIMARY KEY,
+    materialized_at TIMESTAMP NOT NULL
+);
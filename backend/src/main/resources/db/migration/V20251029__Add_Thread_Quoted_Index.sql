@@ -0,0 +1,2 @@
+-- Editing or deleting a thread evicts the cached snapshots of the threads quoting it
+CREATE INDEX IF NOT EXISTS idx_threads_quoted_thread ON threads(quoted_thread_id);
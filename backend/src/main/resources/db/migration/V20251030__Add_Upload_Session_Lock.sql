@@ -0,0 +1,2 @@
+-- Lease of the node writing a chunk of a resumable upload, so nodes sharing the upload directory never write the same part file
+ALTER TABLE upload_sessions ADD COLUMN IF NOT EXISTS locked_until TIMESTAMP;
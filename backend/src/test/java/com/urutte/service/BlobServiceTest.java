@@ -0,0 +1,144 @@
+package com.urutte.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BlobServiceTest {
+
+    // SHA-256 of "hello"
+    private static final String HELLO_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path dir;
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private LocalBlobStore blobStore;
+    private BlobService blobService;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "root", dir.resolve("blobs").toString());
+        ReflectionTestUtils.setField(blobStore, "urlPrefix", "uploads/blobs/");
+
+        blobService = new BlobService();
+        ReflectionTestUtils.setField(blobService, "blobStore", blobStore);
+        ReflectionTestUtils.setField(blobService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(blobService, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(blobService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(blobService, "tempDir", dir.resolve("tmp").toString());
+        ReflectionTestUtils.setField(blobService, "sweepGraceSeconds", 3600L);
+        ReflectionTestUtils.setField(blobService, "sweepBatchSize", 2);
+        blobService.init();
+    }
+
+    @Test
+    public void identicalUploadsShareOneShardedFile() throws Exception {
+        String first = blobService.store(stream("hello"), ".JPG");
+        String second = blobService.store(stream("hello"), "jpg");
+
+        assertEquals(HELLO_HASH + ".jpg", first);
+        assertEquals(first, second);
+        Path file = dir.resolve("blobs/2c/f2/" + first);
+        assertEquals("hello", Files.readString(file));
+        assertEquals("uploads/blobs/2c/f2/" + first, blobService.url(first));
+        verify(jdbcTemplate, times(2)).update(contains("ON CONFLICT"), eq(first), eq(5L), any());
+        assertEquals(1.0, meterRegistry.counter("storage.blobs.stored").count());
+        assertEquals(1.0, meterRegistry.counter("storage.blobs.deduplicated").count());
+        // Temp files are always cleaned up
+        try (var temps = Files.list(dir.resolve("tmp"))) {
+            assertEquals(0, temps.count());
+        }
+    }
+
+    @Test
+    public void unknownExtensionsAreDropped() throws Exception {
+        assertEquals(HELLO_HASH, blobService.store(stream("hello"), "../x"));
+        assertEquals(HELLO_HASH, blobService.store(stream("hello"), null));
+    }
+
+    @Test
+    public void storeRestoresAFileMissingFromDisk() throws Exception {
+        String key = blobService.store(stream("hello"), "txt");
+        Files.delete(dir.resolve("blobs/2c/f2/" + key));
+
+        blobService.store(stream("hello"), "txt");
+
+        assertTrue(blobStore.exists(key));
+    }
+
+    @Test
+    public void releaseDecrementsOnlyForBlobUrls() {
+        assertTrue(blobService.releaseUrl("/uploads/blobs/2c/f2/" + HELLO_HASH + ".png"));
+        assertFalse(blobService.releaseUrl("/profiles/profile_1_1b4e28ba-2fa1-11d2-883f-0016d3cca427.png"));
+        assertFalse(blobService.releaseUrl(null));
+
+        verify(jdbcTemplate, times(1)).update(startsWith("UPDATE blobs"), any(Object.class), any(Object.class));
+        verify(jdbcTemplate).update(startsWith("UPDATE blobs"), any(), eq(HELLO_HASH + ".png"));
+    }
+
+    @Test
+    public void keyOfAcceptsOnlyBlobKeys() {
+        assertEquals(HELLO_HASH + ".mp4", BlobService.keyOf("videos/" + HELLO_HASH + ".mp4"));
+        assertEquals(HELLO_HASH, BlobService.keyOf(HELLO_HASH));
+        assertNull(BlobService.keyOf("videos/1b4e28ba-2fa1-11d2-883f-0016d3cca427.mp4"));
+        assertNull(BlobService.keyOf(HELLO_HASH.toUpperCase() + ".mp4"));
+        assertNull(BlobService.keyOf("../" + HELLO_HASH.substring(1) + ".mp4"));
+    }
+
+    @Test
+    public void sweepDeletesUnreferencedBlobsWithTheirDerivatives() throws Exception {
+        String key = blobService.store(stream("hello"), "jpg");
+        Path shard = dir.resolve("blobs/2c/f2");
+        Files.writeString(shard.resolve(HELLO_HASH + "_w320.jpg"), "small");
+        Files.writeString(shard.resolve(HELLO_HASH + "_thumb.jpg"), "thumb");
+        Files.writeString(shard.resolve("2cf2other.jpg"), "other");
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(), any())).thenReturn(List.of(key));
+
+        blobService.sweep();
+
+        assertFalse(Files.exists(shard.resolve(key)));
+        assertFalse(Files.exists(shard.resolve(HELLO_HASH + "_w320.jpg")));
+        assertFalse(Files.exists(shard.resolve(HELLO_HASH + "_thumb.jpg")));
+        assertTrue(Files.exists(shard.resolve("2cf2other.jpg")));
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE FROM blobs"), argThat((List<Object[]> args) ->
+            args.size() == 1 && key.equals(args.get(0)[0])));
+        assertEquals(1.0, meterRegistry.counter("storage.blobs.swept").count());
+    }
+
+    @Test
+    public void sweepContinuesWhileBatchesComeBackFull() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(), any()))
+            .thenReturn(List.of("a".repeat(64), "b".repeat(64)))
+            .thenReturn(List.of());
+
+        blobService.sweep();
+
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(String.class), any(), any());
+        assertEquals(2.0, meterRegistry.counter("storage.blobs.swept").count());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
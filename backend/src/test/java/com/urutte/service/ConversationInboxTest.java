@@ -0,0 +1,110 @@
+package com.urutte.service;
+
+import com.urutte.dto.ConversationDto;
+import com.urutte.model.Conversation;
+import com.urutte.model.Message;
+import com.urutte.model.User;
+import com.urutte.repository.ConversationRepository;
+import com.urutte.repository.MessageRepository;
+import com.urutte.repository.ReadWatermarkRepository;
+import com.urutte.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ConversationInboxTest {
+
+    @Mock private MessageRepository messageRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private ReadWatermarkRepository readWatermarkRepository;
+    @Mock private ConversationRepository conversationRepository;
+
+    @InjectMocks
+    private MessageService messageService;
+
+    @Test
+    public void firstMessageCreatesTheConversationAndCountsForTheReceiver() {
+        User alice = user("alice");
+        User bob = user("bob");
+        when(userRepository.findById("bob")).thenReturn(Optional.of(bob));
+        when(userRepository.findById("alice")).thenReturn(Optional.of(alice));
+        when(conversationRepository.findByUserLowIdAndUserHighId("alice", "bob"))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(conversation(7L, "alice", "bob", 0, 0)));
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            message.setId(100L);
+            return message;
+        });
+
+        messageService.sendMessage("bob", "alice", "hi", "text", null);
+
+        verify(conversationRepository).insertIfAbsent("alice", "bob");
+        ArgumentCaptor<Message> saved = ArgumentCaptor.forClass(Message.class);
+        verify(messageRepository).save(saved.capture());
+        assertEquals(7L, saved.getValue().getConversationId());
+        // alice is the low user and the receiver
+        verify(conversationRepository).recordMessage(eq(7L), eq(100L), any(LocalDateTime.class), eq(1), eq(0));
+    }
+
+    @Test
+    public void inboxIsBuiltWithoutPerConversationQueries() {
+        User alice = user("alice");
+        User bob = user("bob");
+        User carol = user("carol");
+        Conversation withBob = conversation(1L, "alice", "bob", 3, 0);
+        withBob.setLastMessageId(11L);
+        Conversation withCarol = conversation(2L, "alice", "carol", 0, 1);
+        withCarol.setLastMessageId(22L);
+        when(conversationRepository.findInbox(eq("alice"), any(Pageable.class))).thenReturn(List.of(withBob, withCarol));
+        when(userRepository.findAllById(anySet())).thenReturn(List.of(bob, carol));
+        when(messageRepository.findWithParticipantsByIdIn(anySet())).thenReturn(List.of(
+            message(11L, bob, alice), message(22L, alice, carol)));
+
+        List<ConversationDto> inbox = messageService.getInbox("alice", 0, 20);
+
+        assertEquals(List.of("bob", "carol"), inbox.stream().map(dto -> dto.getUser().getId()).toList());
+        assertEquals(3, inbox.get(0).getUnreadCount());
+        assertFalse(inbox.get(0).getLastMessage().isRead());
+        assertEquals(0, inbox.get(1).getUnreadCount());
+        // carol has one unread message: the one alice sent last
+        assertFalse(inbox.get(1).getLastMessage().isRead());
+        verify(userRepository, never()).findById(any());
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setName(id);
+        return user;
+    }
+
+    private static Conversation conversation(Long id, String lowId, String highId, int lowUnread, int highUnread) {
+        Conversation conversation = new Conversation();
+        conversation.setId(id);
+        conversation.setUserLowId(lowId);
+        conversation.setUserHighId(highId);
+        conversation.setLowUnreadCount(lowUnread);
+        conversation.setHighUnreadCount(highUnread);
+        return conversation;
+    }
+
+    private static Message message(Long id, User sender, User receiver) {
+        Message message = new Message(sender, receiver, "hi");
+        message.setId(id);
+        return message;
+    }
+}
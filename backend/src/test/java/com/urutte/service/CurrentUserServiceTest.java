@@ -0,0 +1,132 @@
+package com.urutte.service;
+
+import com.urutte.model.User;
+import com.urutte.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CurrentUserServiceTest {
+
+    @Mock private UserRepository userRepository;
+    @Mock private HotDataCache hotDataCache;
+    @Mock private ProfilePictureService profilePictureService;
+    @Mock private TokenVerificationService tokenVerificationService;
+
+    @InjectMocks
+    private UserService userService;
+
+    private CurrentUserService currentUserService;
+
+    @BeforeEach
+    public void setUp() {
+        currentUserService = new CurrentUserService();
+        ReflectionTestUtils.setField(currentUserService, "userService", userService);
+        ReflectionTestUtils.setField(currentUserService, "tokenVerificationService", tokenVerificationService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void bearerUserIsResolvedOncePerRequest() {
+        User user = user("user-1", "User One", "user1@example.com", "/uploads/profiles/user-1.jpg");
+        when(tokenVerificationService.verify("token"))
+            .thenReturn(new VerifiedToken("hash", "user-1", "user1@example.com", Instant.now().plusSeconds(60)));
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer token");
+
+        for (int i = 0; i < 5; i++) {
+            assertSame(user, currentUserService.resolve(request));
+        }
+
+        verify(tokenVerificationService, times(1)).verify("token");
+        verify(userRepository, times(1)).findById("user-1");
+        verify(hotDataCache).putAuthenticatedUser(user);
+    }
+
+    @Test
+    public void anonymousRequestIsResolvedOnce() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assertNull(currentUserService.resolve(request));
+        assertNull(currentUserService.resolve(request));
+
+        assertNotNull(request.getAttribute(CurrentUserService.REQUEST_ATTRIBUTE));
+        verifyNoInteractions(tokenVerificationService, userRepository);
+    }
+
+    @Test
+    public void oidcProfileIsWrittenBackOnlyWhenChanged() {
+        User stored = user("oidc-1", "Jane Doe", "jane@example.com", "/uploads/profiles/oidc-1.jpg");
+        when(userRepository.findById("oidc-1")).thenReturn(Optional.of(stored));
+        signIn(oidcUser("oidc-1", "Jane Doe", "jane@example.com"));
+
+        assertSame(stored, currentUserService.resolve(new MockHttpServletRequest()));
+        verify(userRepository, never()).save(any());
+
+        signIn(oidcUser("oidc-1", "Jane Smith", "jane@example.com"));
+        when(userRepository.save(stored)).thenReturn(stored);
+
+        User updated = currentUserService.resolve(new MockHttpServletRequest());
+
+        assertEquals("Jane Smith", updated.getName());
+        assertEquals("/uploads/profiles/oidc-1.jpg", updated.getPicture());
+        verify(userRepository, times(1)).save(stored);
+        verify(hotDataCache).evictUser("oidc-1");
+    }
+
+    @Test
+    public void cachedOidcUserNeedsNoQuery() {
+        User cached = user("oidc-2", "Sam Roe", "sam@example.com", "/uploads/profiles/oidc-2.jpg");
+        when(hotDataCache.getAuthenticatedUser("oidc-2")).thenReturn(cached);
+        signIn(oidcUser("oidc-2", "Sam Roe", "sam@example.com"));
+
+        assertSame(cached, currentUserService.resolve(new MockHttpServletRequest()));
+
+        verifyNoInteractions(userRepository);
+    }
+
+    private static User user(String id, String name, String email, String picture) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail(email);
+        user.setPicture(picture);
+        return user;
+    }
+
+    private static OidcUser oidcUser(String subject, String name, String email) {
+        OidcUser oidcUser = mock(OidcUser.class);
+        when(oidcUser.getSubject()).thenReturn(subject);
+        when(oidcUser.getFullName()).thenReturn(name);
+        when(oidcUser.getEmail()).thenReturn(email);
+        return oidcUser;
+    }
+
+    private static void signIn(OidcUser oidcUser) {
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(oidcUser, null, List.of()));
+    }
+}
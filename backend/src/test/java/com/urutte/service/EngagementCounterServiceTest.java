@@ -0,0 +1,85 @@
+package com.urutte.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+public class EngagementCounterServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private EngagementCounterService counters;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        counters = new EngagementCounterService();
+        ReflectionTestUtils.setField(counters, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(counters, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(counters, "hotDataCache", mock(HotDataCache.class));
+        counters.registerMetrics();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentLikesAreCoalescedIntoOneRowUpdate() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            pool.execute(() -> counters.increment(7L, EngagementCounterService.Counter.LIKES, 1));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, counters.pending(7L, EngagementCounterService.Counter.LIKES));
+        assertEquals(1, counters.bufferedThreadCount());
+
+        counters.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertEquals(1, rows.getValue().size());
+        assertArrayEquals(new Object[] { 1000L, 0L, 0L, 7L }, rows.getValue().get(0));
+        assertEquals(0, counters.bufferedThreadCount());
+    }
+
+    @Test
+    public void failedFlushKeepsDeltas() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+        counters.increment(3L, EngagementCounterService.Counter.REPOSTS, 2);
+
+        counters.flush();
+
+        assertEquals(2, counters.pending(3L, EngagementCounterService.Counter.REPOSTS));
+    }
+
+    @Test
+    public void recentlyChangedThreadsAreNotRecounted() {
+        ReflectionTestUtils.setField(counters, "reconcileQuietMs", 60_000L);
+        counters.increment(5L, EngagementCounterService.Counter.LIKES, 1);
+        counters.flush();
+
+        // The like row may be counted by a recount while its delta is still on its way to the buffer
+        counters.reconcile();
+        verify(jdbcTemplate, never()).batchUpdate(contains("SELECT COUNT(*)"), anyList());
+
+        ReflectionTestUtils.setField(counters, "reconcileQuietMs", 0L);
+        counters.reconcile();
+        verify(jdbcTemplate).batchUpdate(contains("SELECT COUNT(*)"), anyList());
+
+        // Reconciled threads are not recounted again until they change
+        counters.reconcile();
+        verify(jdbcTemplate).batchUpdate(contains("SELECT COUNT(*)"), anyList());
+    }
+}
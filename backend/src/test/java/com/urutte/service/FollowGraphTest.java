@@ -0,0 +1,117 @@
+package com.urutte.service;
+
+import com.urutte.repository.FollowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class FollowGraphTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private FollowRepository followRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private FollowGraph followGraph;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        followRepository = mock(FollowRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        followGraph = new FollowGraph();
+        ReflectionTestUtils.setField(followGraph, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(followGraph, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(followGraph, "followRepository", followRepository);
+        ReflectionTestUtils.setField(followGraph, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(followGraph, "enabled", true);
+        ReflectionTestUtils.setField(followGraph, "fetchSize", 100);
+        followGraph.init();
+    }
+
+    @Test
+    public void loadedGraphAnswersWithoutTheRepository() throws Exception {
+        scanReturns(
+            "alice", "bob",
+            "alice", "carol",
+            "bob", "carol",
+            "dave", "carol",
+            "dave", "alice",
+            "alice", "bob");
+
+        followGraph.reload();
+
+        assertTrue(followGraph.isLoaded());
+        assertTrue(followGraph.follows("alice", "bob"));
+        assertFalse(followGraph.follows("bob", "alice"));
+        assertFalse(followGraph.follows("alice", "nobody"));
+        assertEquals(3, followGraph.countFollowers("carol"));
+        assertEquals(2, followGraph.countFollowing("alice"));
+        assertEquals(0, followGraph.countFollowers("nobody"));
+        assertEquals(Set.of("alice", "bob", "dave"), Set.copyOf(followGraph.getFollowerIds("carol")));
+        assertEquals(Set.of("bob", "carol"), followGraph.getFollowingIds("alice"));
+        // dave follows alice and carol; of those, alice follows bob
+        assertEquals(1, followGraph.countMutualFollows("dave", "bob"));
+        assertEquals(5.0, meterRegistry.get("follow.graph.edges").gauge().value());
+        verifyNoInteractions(followRepository);
+    }
+
+    @Test
+    public void repositoryAnswersUntilTheGraphIsLoaded() {
+        when(followRepository.existsByFollowerIdAndFollowingId("alice", "bob")).thenReturn(true);
+        when(followRepository.countByFollowingId("bob")).thenReturn(7L);
+
+        assertTrue(followGraph.follows("alice", "bob"));
+        assertEquals(7, followGraph.countFollowers("bob"));
+        assertEquals(0, followGraph.countMutualFollows("alice", "bob"));
+    }
+
+    @Test
+    public void changesDuringAReloadAreNotLost() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn("alice");
+        when(rs.getString(2)).thenReturn("bob");
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            // Committed on this node after the scan read past these rows
+            followGraph.onFollow("carol", "bob");
+            followGraph.onUnfollow("alice", "bob");
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        followGraph.reload();
+
+        assertEquals(List.of("carol"), followGraph.getFollowerIds("bob"));
+        assertFalse(followGraph.follows("alice", "bob"));
+
+        followGraph.onFollow("bob", "carol");
+        assertTrue(followGraph.follows("bob", "carol"));
+        assertEquals(1, followGraph.countFollowing("bob"));
+    }
+
+    private void scanReturns(String... pairs) throws Exception {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < pairs.length; i += 2) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn(pairs[i]);
+                when(rs.getString(2)).thenReturn(pairs[i + 1]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+}
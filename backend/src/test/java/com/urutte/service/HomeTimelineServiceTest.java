@@ -0,0 +1,120 @@
+package com.urutte.service;
+
+import com.urutte.model.ReplyPermission;
+import com.urutte.model.Thread;
+import com.urutte.model.User;
+import com.urutte.model.UserType;
+import com.urutte.repository.ThreadMentionRepository;
+import com.urutte.repository.ThreadRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class HomeTimelineServiceTest {
+
+    @Mock private ThreadRepository threadRepository;
+    @Mock private FollowGraph followGraph;
+    @Mock private ThreadMentionRepository threadMentionRepository;
+    @Spy private InMemoryHomeTimelineStore homeTimelineStore = new InMemoryHomeTimelineStore();
+
+    @InjectMocks
+    private HomeTimelineService homeTimelineService;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(homeTimelineStore, "capacity", 800);
+        ReflectionTestUtils.setField(homeTimelineService, "capacity", 800);
+    }
+
+    @Test
+    public void followersOnlyThreadsReachFollowersAndPublicThreadsReachEveryone() {
+        User author = user("author", UserType.PUBLIC);
+        when(followGraph.getFollowerIds("author")).thenReturn(List.of("follower"));
+
+        homeTimelineService.onThreadCreated(thread(1L, author, true, ReplyPermission.ANYONE, 1));
+        homeTimelineService.onThreadCreated(thread(2L, author, false, ReplyPermission.FOLLOWERS, 2));
+
+        assertEquals(List.of(2L, 1L), readIds("follower"));
+        assertEquals(List.of(1L), readIds("stranger"));
+        assertEquals(List.of(2L, 1L), readIds("author"));
+    }
+
+    @Test
+    public void unfollowRemovesFollowerOnlyEntries() {
+        User author = user("author", UserType.PUBLIC);
+        when(followGraph.getFollowerIds("author")).thenReturn(List.of("follower"));
+        homeTimelineService.onThreadCreated(thread(3L, author, false, ReplyPermission.FOLLOWERS, 1));
+
+        homeTimelineService.onUnfollow("follower", "author");
+
+        assertEquals(List.of(), readIds("follower"));
+    }
+
+    @Test
+    public void keysetReadContinuesAfterCursor() {
+        User author = user("author", UserType.PUBLIC);
+        for (long id = 1; id <= 5; id++) {
+            homeTimelineService.onThreadCreated(thread(id, author, true, ReplyPermission.ANYONE, (int) id));
+        }
+
+        List<TimelineEntry> first = homeTimelineService.read("reader", null, null, 2);
+        TimelineEntry last = first.get(first.size() - 1);
+        List<TimelineEntry> second = homeTimelineService.read("reader", last.getCreatedAt(), last.getThreadId(), 2);
+
+        assertEquals(List.of(5L, 4L), ids(first));
+        assertEquals(List.of(3L, 2L), ids(second));
+    }
+
+    @Test
+    public void timelineReachedByFanOutIsStillBackfilledOnFirstRead() {
+        User author = user("author", UserType.PUBLIC);
+        User older = user("older", UserType.PUBLIC);
+        when(followGraph.getFollowerIds("author")).thenReturn(List.of("follower"));
+        homeTimelineService.onThreadCreated(thread(7L, author, false, ReplyPermission.FOLLOWERS, 5));
+        when(threadRepository.findPersonalTimelineThreads(eq("follower"), any()))
+            .thenReturn(List.of(thread(6L, older, false, ReplyPermission.FOLLOWERS, 1)));
+
+        assertEquals(List.of(7L, 6L), ids(homeTimelineService.read("follower", null, null, 20)));
+    }
+
+    private List<Long> readIds(String userId) {
+        when(threadRepository.findPersonalTimelineThreads(eq(userId), any())).thenReturn(List.of());
+        return ids(homeTimelineService.read(userId, null, null, 20));
+    }
+
+    private List<Long> ids(List<TimelineEntry> entries) {
+        return entries.stream().map(TimelineEntry::getThreadId).collect(Collectors.toList());
+    }
+
+    private User user(String id, UserType type) {
+        User user = new User(id, id, id + "@example.com", null);
+        user.setUserType(type);
+        return user;
+    }
+
+    private Thread thread(Long id, User author, boolean isPublic, ReplyPermission permission, int minutes) {
+        Thread thread = new Thread("content", author);
+        thread.setId(id);
+        thread.setIsPublic(isPublic);
+        thread.setReplyPermission(permission);
+        thread.setCreatedAt(now.plusMinutes(minutes));
+        return thread;
+    }
+}
@@ -0,0 +1,105 @@
+package com.urutte.service;
+
+import com.urutte.dto.ThreadDto;
+import com.urutte.model.User;
+import com.urutte.repository.ThreadRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class HotDataCacheTest {
+
+    private ThreadRepository threadRepository;
+    private HotDataCache hotDataCache;
+
+    @BeforeEach
+    public void setUp() {
+        threadRepository = mock(ThreadRepository.class);
+        when(threadRepository.findIdsQuoting(anyCollection())).thenReturn(List.of());
+        hotDataCache = new HotDataCache();
+        ReflectionTestUtils.setField(hotDataCache, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(hotDataCache, "threadRepository", threadRepository);
+        hotDataCache.initCaches();
+    }
+
+    @Test
+    public void snapshotLoadedBeforeAnEvictionIsNotCached() {
+        long generation = hotDataCache.threadGeneration(1L);
+
+        hotDataCache.evictThreads(List.of(1L));
+        hotDataCache.putThreadSnapshot(snapshot(1L), generation);
+
+        assertNull(hotDataCache.getThreadSnapshot(1L));
+
+        hotDataCache.putThreadSnapshot(snapshot(1L), hotDataCache.threadGeneration(1L));
+        assertNotNull(hotDataCache.getThreadSnapshot(1L));
+    }
+
+    @Test
+    public void snapshotReadDuringAWriteTransactionIsDroppedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            hotDataCache.evictThread(1L);
+            // A reader sees the old row after the immediate eviction but before the commit
+            long generation = hotDataCache.threadGeneration(1L);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            hotDataCache.putThreadSnapshot(snapshot(1L), generation);
+
+            assertNull(hotDataCache.getThreadSnapshot(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void evictingAThreadEvictsTheThreadsQuotingIt() {
+        when(threadRepository.findIdsQuoting(List.of(1L))).thenReturn(List.of(2L));
+        when(threadRepository.findIdsQuoting(List.of(2L))).thenReturn(List.of(3L, 1L));
+        for (long id = 1; id <= 4; id++) {
+            hotDataCache.putThreadSnapshot(snapshot(id), hotDataCache.threadGeneration(id));
+        }
+
+        hotDataCache.evictThread(1L);
+
+        assertNull(hotDataCache.getThreadSnapshot(1L));
+        assertNull(hotDataCache.getThreadSnapshot(2L));
+        assertNull(hotDataCache.getThreadSnapshot(3L));
+        assertNotNull(hotDataCache.getThreadSnapshot(4L));
+    }
+
+    @Test
+    public void cachedUsersLeaveTheLazyCollectionsBehind() {
+        User user = new User("user-1", "User", "user@example.com", null);
+        user.setFollowers(new ArrayList<>());
+        user.setPosts(new ArrayList<>());
+
+        hotDataCache.putAuthenticatedUser(user);
+        User first = hotDataCache.getAuthenticatedUser("user-1");
+        User second = hotDataCache.getAuthenticatedUser("user-1");
+
+        assertEquals("user@example.com", first.getEmail());
+        assertNotSame(first, second);
+        assertNull(first.getFollowers());
+        assertNull(first.getPosts());
+    }
+
+    private static ThreadSnapshot snapshot(Long id) {
+        ThreadDto dto = new ThreadDto();
+        dto.setId(id);
+        dto.setContent("content " + id);
+        return new ThreadSnapshot(dto, true);
+    }
+}
@@ -0,0 +1,171 @@
+package com.urutte.service;
+
+import com.urutte.model.MediaType;
+import com.urutte.model.ThreadMedia;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ImageDerivativePipelineTest {
+
+    @TempDir
+    Path baseDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private HotDataCache hotDataCache;
+    private SimpleMeterRegistry meterRegistry;
+    private ImageDerivativePipeline pipeline;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Files.createDirectories(baseDir.resolve("uploads"));
+        jdbcTemplate = mock(JdbcTemplate.class);
+        hotDataCache = mock(HotDataCache.class);
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = pipeline(2, 100);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        pipeline.stop();
+    }
+
+    @Test
+    public void photoGetsResizedCopiesAndAThumbnailWithoutMetadata() throws Exception {
+        Files.write(baseDir.resolve("uploads/photo.jpg"), withExif(jpeg(2000, 1000)));
+
+        pipeline.process(new ImageDerivativePipeline.Job(5L, 9L, "uploads/photo.jpg"));
+
+        verify(jdbcTemplate).update(anyString(), eq(2000), eq(1000), eq(Files.size(baseDir.resolve("uploads/photo.jpg"))),
+            eq("uploads/photo_thumb.jpg"),
+            eq("uploads/photo_w320.jpg 320w, uploads/photo_w640.jpg 640w, uploads/photo_w1080.jpg 1080w"), eq(5L));
+        verify(hotDataCache).evictThread(9L);
+
+        BufferedImage medium = ImageIO.read(baseDir.resolve("uploads/photo_w640.jpg").toFile());
+        assertEquals(640, medium.getWidth());
+        assertEquals(320, medium.getHeight());
+        BufferedImage thumbnail = ImageIO.read(baseDir.resolve("uploads/photo_thumb.jpg").toFile());
+        assertEquals(160, thumbnail.getWidth());
+        assertEquals(160, thumbnail.getHeight());
+        String bytes = new String(Files.readAllBytes(baseDir.resolve("uploads/photo_w1080.jpg")), StandardCharsets.ISO_8859_1);
+        assertFalse(bytes.contains("Exif"));
+    }
+
+    @Test
+    public void smallTransparentImageIsNotUpscaled() throws Exception {
+        BufferedImage logo = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        ImageIO.write(logo, "png", baseDir.resolve("uploads/logo.png").toFile());
+
+        pipeline.process(new ImageDerivativePipeline.Job(6L, 9L, "uploads/logo.png"));
+
+        verify(jdbcTemplate).update(anyString(), eq(200), eq(100), anyLong(), eq("uploads/logo_thumb.png"),
+            eq("uploads/logo_w200.png 200w"), eq(6L));
+        assertTrue(ImageIO.read(baseDir.resolve("uploads/logo_w200.png").toFile()).getColorModel().hasAlpha());
+        assertEquals(100, ImageIO.read(baseDir.resolve("uploads/logo_thumb.png").toFile()).getWidth());
+    }
+
+    @Test
+    public void unreadableFileIsCountedAndLeftAlone() throws Exception {
+        Files.writeString(baseDir.resolve("uploads/broken.jpg"), "not an image");
+
+        pipeline.process(new ImageDerivativePipeline.Job(7L, 9L, "uploads/broken.jpg"));
+
+        verifyNoInteractions(jdbcTemplate, hotDataCache);
+        assertEquals(1.0, meterRegistry.get("media.derivatives.failed").counter().count());
+    }
+
+    @Test
+    public void fullQueueSkipsJobsInsteadOfBlockingTheRequest() throws Exception {
+        pipeline.stop();
+        pipeline = pipeline(1, 1);
+        Files.write(baseDir.resolve("uploads/photo.jpg"), jpeg(400, 300));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(hotDataCache).evictThread(anyLong());
+
+        pipeline.submit(thread(1L, "uploads/photo.jpg"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pipeline.submit(thread(2L, "uploads/photo.jpg", "uploads/photo.jpg", "uploads/animation.gif"));
+
+        assertEquals(1, pipeline.getQueueDepth());
+        assertEquals(1.0, meterRegistry.get("media.derivatives.rejected").counter().count());
+        release.countDown();
+    }
+
+    private ImageDerivativePipeline pipeline(int workers, int queueCapacity) {
+        ImageDerivativePipeline pipeline = new ImageDerivativePipeline();
+        ReflectionTestUtils.setField(pipeline, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(pipeline, "hotDataCache", hotDataCache);
+        ReflectionTestUtils.setField(pipeline, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(pipeline, "widths", "320,640,1080");
+        ReflectionTestUtils.setField(pipeline, "thumbnailSize", 160);
+        ReflectionTestUtils.setField(pipeline, "jpegQuality", 0.8f);
+        ReflectionTestUtils.setField(pipeline, "maxPixels", 100_000_000L);
+        ReflectionTestUtils.setField(pipeline, "workers", workers);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(pipeline, "baseDir", baseDir.toString());
+        pipeline.init();
+        return pipeline;
+    }
+
+    private static com.urutte.model.Thread thread(Long id, String... mediaUrls) {
+        com.urutte.model.Thread thread = new com.urutte.model.Thread();
+        thread.setId(id);
+        long mediaId = id * 100;
+        for (String mediaUrl : mediaUrls) {
+            ThreadMedia media = new ThreadMedia(thread, MediaType.IMAGE, mediaUrl);
+            media.setId(mediaId++);
+            thread.getMedia().add(media);
+        }
+        return thread;
+    }
+
+    private static byte[] jpeg(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillOval(0, 0, width, height);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    // Insert an APP1 segment such as cameras write (location, device) right after the SOI marker
+    private static byte[] withExif(byte[] jpeg) {
+        byte[] payload = "Exif\0\0GPS 52.37N 4.89E".getBytes(StandardCharsets.ISO_8859_1);
+        int length = payload.length + 2;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.write(payload, 0, payload.length);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+package com.urutte.service;
+
+import com.urutte.model.Thread;
+import com.urutte.model.User;
+import com.urutte.model.UserType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryThreadSearchServiceTest {
+
+    private final InMemoryThreadSearchService searchService = new InMemoryThreadSearchService();
+    private final LocalDateTime now = LocalDateTime.now();
+    private final User author = user("author", UserType.PUBLIC);
+
+    @Test
+    public void termsMatchAsPrefixesAndRankByRelevance() {
+        searchService.index(thread(1L, author, "spring spring spring boot", true, 1));
+        searchService.index(thread(2L, author, "a long post that mentions spring once among many other words", true, 2));
+        searchService.index(thread(3L, author, "nothing relevant here", true, 3));
+
+        assertEquals(List.of(1L, 2L), search("spr"));
+        assertEquals(List.of(1L), search("spring boo"));
+    }
+
+    @Test
+    public void hashtagAndMentionFiltersNarrowResults() {
+        searchService.index(thread(1L, author, "release notes #Java with @alice", true, 1));
+        searchService.index(thread(2L, author, "release notes #kotlin", true, 2));
+
+        assertEquals(List.of(1L), search("release #java"));
+        assertEquals(List.of(1L), search("@Alice"));
+        assertEquals(List.of(2L), search("#kotlin"));
+    }
+
+    @Test
+    public void privateAdminAndDeletedThreadsAreNotSearchable() {
+        searchService.index(thread(1L, author, "visible post", true, 1));
+        searchService.index(thread(2L, author, "private post", false, 2));
+        searchService.index(thread(3L, user("ai", UserType.ADMIN), "ai post", true, 3));
+        searchService.index(thread(4L, author, "deleted post", true, 4));
+        searchService.remove(4L);
+
+        assertEquals(List.of(1L), search("post"));
+    }
+
+    @Test
+    public void editedContentReplacesOldTerms() {
+        Thread thread = thread(1L, author, "first draft", true, 1);
+        searchService.index(thread);
+        thread.setContent("final version");
+        searchService.index(thread);
+
+        assertTrue(search("draft").isEmpty());
+        assertEquals(List.of(1L), search("final"));
+    }
+
+    @Test
+    public void recencySearchContinuesAfterCursor() {
+        for (long id = 1; id <= 4; id++) {
+            searchService.index(thread(id, author, "news item " + id, true, (int) id));
+        }
+        ThreadSearchQuery query = ThreadSearchQuery.parse("news");
+
+        List<Long> first = searchService.searchByRecency(query, null, null, 2);
+        List<Long> second = searchService.searchByRecency(query, now.plusMinutes(3), 3L, 2);
+
+        assertEquals(List.of(4L, 3L), first);
+        assertEquals(List.of(2L, 1L), second);
+    }
+
+    private List<Long> search(String keyword) {
+        return searchService.searchByRelevance(ThreadSearchQuery.parse(keyword), 0, 20);
+    }
+
+    private User user(String id, UserType type) {
+        User user = new User(id, id, id + "@example.com", null);
+        user.setUserType(type);
+        return user;
+    }
+
+    private Thread thread(Long id, User author, String content, boolean isPublic, int minutes) {
+        Thread thread = new Thread(content, author);
+        thread.setId(id);
+        thread.setIsPublic(isPublic);
+        thread.setCreatedAt(now.plusMinutes(minutes));
+        return thread;
+    }
+}
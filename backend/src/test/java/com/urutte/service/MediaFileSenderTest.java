@@ -0,0 +1,143 @@
+package com.urutte.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MediaFileSenderTest {
+
+    @TempDir
+    Path directory;
+
+    private MediaFileSender sender;
+    private MediaFile video;
+    private byte[] content;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        sender = new MediaFileSender();
+        ReflectionTestUtils.setField(sender, "sendfileMinBytes", 49152L);
+        ReflectionTestUtils.setField(sender, "cacheMaxAgeSeconds", 60L);
+
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path path = Files.write(directory.resolve("clip.mp4"), content);
+        video = new MediaFile(path, MediaType.parseMediaType("video/mp4"), content.length, 1_700_000_000_000L);
+    }
+
+    @Test
+    public void wholeFileIsSentWithValidators() throws Exception {
+        MockHttpServletResponse response = send(request());
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+        assertEquals(1000, response.getContentLengthLong());
+        assertEquals(video.getETag(), response.getHeader("ETag"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("video/mp4", response.getContentType());
+    }
+
+    @Test
+    public void singleRangeIsPartialContent() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=100-199");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/1000", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200), response.getContentAsByteArray());
+    }
+
+    @Test
+    public void severalRangesAreSentAsByteranges() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=0-9,-10");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        assertEquals(response.getContentAsByteArray().length, response.getContentLengthLong());
+        String body = new String(response.getContentAsByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains("Content-Range: bytes 0-9/1000\r\n\r\n"
+            + new String(Arrays.copyOfRange(content, 0, 10), StandardCharsets.ISO_8859_1)));
+        assertTrue(body.contains("Content-Range: bytes 990-999/1000\r\n\r\n"
+            + new String(Arrays.copyOfRange(content, 990, 1000), StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void matchingETagIsNotModified() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("If-None-Match", video.getETag());
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void staleIfRangeGetsTheWholeFile() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=100-199");
+        request.addHeader("If-Range", "\"old\"");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1000, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void unsatisfiableOrAmplifyingRangesAreRejected() throws Exception {
+        MockHttpServletRequest beyondEnd = request();
+        beyondEnd.addHeader("Range", "bytes=1000-");
+        MockHttpServletResponse response = send(beyondEnd);
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */1000", response.getHeader("Content-Range"));
+
+        MockHttpServletRequest overlapping = request();
+        overlapping.addHeader("Range", "bytes=0-799,0-799");
+        assertEquals(416, send(overlapping).getStatus());
+    }
+
+    @Test
+    public void largeBodiesAreLeftToSendfile() throws Exception {
+        ReflectionTestUtils.setField(sender, "sendfileMinBytes", 100L);
+        MockHttpServletRequest request = request();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=500-");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(500L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(1000L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(500, response.getContentLengthLong());
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        sender.send(video, request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/upload/videos/clip.mp4");
+    }
+}
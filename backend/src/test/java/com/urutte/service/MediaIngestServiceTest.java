@@ -0,0 +1,271 @@
+package com.urutte.service;
+
+import com.urutte.model.MediaStatus;
+import com.urutte.model.MediaType;
+import com.urutte.model.ThreadMedia;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MediaIngestServiceTest {
+
+    private static final String BOUNDARY = "xyzzy";
+    private static final String KEY = "ab".repeat(32) + ".png";
+
+    private BlobService blobService;
+    private ImageDerivativePipeline imageDerivativePipeline;
+    private JdbcTemplate jdbcTemplate;
+    private HotDataCache hotDataCache;
+    private MediaIngestService service;
+    private final List<byte[]> stored = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        blobService = mock(BlobService.class);
+        when(blobService.store(any(), anyString())).thenAnswer(invocation -> {
+            try (InputStream in = invocation.getArgument(0)) {
+                stored.add(in.readAllBytes());
+            }
+            return String.format("%064x", stored.size()) + "." + invocation.getArgument(1);
+        });
+        when(blobService.url(anyString())).thenAnswer(invocation -> "uploads/blobs/" + invocation.getArgument(0));
+        when(blobService.releaseUrl(anyString())).thenReturn(true);
+        imageDerivativePipeline = mock(ImageDerivativePipeline.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        hotDataCache = mock(HotDataCache.class);
+
+        service = new MediaIngestService();
+        ReflectionTestUtils.setField(service, "blobService", blobService);
+        ReflectionTestUtils.setField(service, "mediaUploadService", new MediaUploadService());
+        ReflectionTestUtils.setField(service, "imageDerivativePipeline", imageDerivativePipeline);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "hotDataCache", hotDataCache);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxFileSize", DataSize.ofKilobytes(10));
+        ReflectionTestUtils.setField(service, "maxRequestSize", DataSize.ofKilobytes(30));
+        ReflectionTestUtils.setField(service, "bufferSize", 128);
+        ReflectionTestUtils.setField(service, "workers", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        service.stop();
+    }
+
+    @Test
+    public void fieldsAreCollectedAndFilesStoredInOrder() throws Exception {
+        byte[] photo = png(30, 20);
+        byte[] body = body(
+            field("content", "look at this"),
+            file("media", "a.PNG", "image/png", photo),
+            file("media", "", "application/octet-stream", new byte[0]),
+            file("media", "b.mp4", "video/mp4", "....ftypisom".getBytes(StandardCharsets.US_ASCII)),
+            field("replyPermission", "FOLLOWERS"));
+
+        StreamedUpload upload = service.receive(new ByteArrayInputStream(body), "multipart/form-data; boundary=" + BOUNDARY);
+
+        assertEquals("look at this", upload.getField("content"));
+        assertEquals("FOLLOWERS", upload.getField("replyPermission"));
+        assertNull(upload.getField("parentThreadId"));
+        assertEquals(List.of("image", "video"), upload.getMediaTypes());
+        assertEquals(2, upload.getMediaUrls().size());
+        assertTrue(upload.getMediaUrls().get(0).endsWith(".PNG"));
+        assertArrayEquals(photo, stored.get(0));
+    }
+
+    @Test
+    public void unsupportedTypeReleasesWhatWasStored() throws Exception {
+        byte[] body = body(
+            file("media", "a.png", "image/png", png(4, 4)),
+            file("media", "run.sh", "application/x-sh", "echo".getBytes(StandardCharsets.US_ASCII)));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> service.receive(new ByteArrayInputStream(body), "multipart/form-data; boundary=" + BOUNDARY));
+
+        verify(blobService).releaseUrl(startsWith("uploads/blobs/"));
+    }
+
+    @Test
+    public void oversizedFileIsRejected() throws Exception {
+        byte[] body = body(file("media", "big.png", "image/png", new byte[11 * 1024]));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> service.receive(new ByteArrayInputStream(body), "multipart/form-data; boundary=" + BOUNDARY));
+    }
+
+    @Test
+    public void oversizedRequestIsRejected() throws Exception {
+        byte[] body = body(
+            file("media", "1.png", "image/png", new byte[9 * 1024]),
+            file("media", "2.png", "image/png", new byte[9 * 1024]),
+            file("media", "3.png", "image/png", new byte[9 * 1024]),
+            file("media", "4.png", "image/png", new byte[9 * 1024]));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> service.receive(new ByteArrayInputStream(body), "multipart/form-data; boundary=" + BOUNDARY));
+
+        verify(blobService, times(3)).releaseUrl(anyString());
+    }
+
+    @Test
+    public void nonMultipartBodyIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> service.receive(new ByteArrayInputStream(new byte[0]), "application/json"));
+    }
+
+    @Test
+    public void validImageBecomesReadyWithItsDimensionsAndGetsDerivatives() throws Exception {
+        when(blobService.open(KEY)).thenAnswer(invocation -> new ByteArrayInputStream(png(300, 200)));
+        when(jdbcTemplate.update(contains("'READY', width"), any(Object.class), any(Object.class), any(Object.class))).thenReturn(1);
+
+        service.process(new MediaIngestService.Check(7L, 3L, "uploads/blobs/ab/ab/" + KEY, MediaType.IMAGE));
+
+        verify(jdbcTemplate).update(contains("'READY', width"), eq(300), eq(200), eq(7L));
+        verify(imageDerivativePipeline).submit(7L, 3L, "uploads/blobs/ab/ab/" + KEY);
+        verify(hotDataCache).evictThread(3L);
+        verify(blobService, never()).release(anyString());
+    }
+
+    @Test
+    public void contentNotMatchingItsTypeFailsAndReleasesTheBlob() throws Exception {
+        String key = "cd".repeat(32) + ".mp4";
+        when(blobService.open(key)).thenAnswer(invocation -> new ByteArrayInputStream("#!/bin/sh\necho hi".getBytes(StandardCharsets.US_ASCII)));
+        when(jdbcTemplate.update(contains("'FAILED'"), any(Object.class))).thenReturn(1);
+
+        service.process(new MediaIngestService.Check(8L, 3L, "uploads/blobs/cd/cd/" + key, MediaType.VIDEO));
+
+        verify(jdbcTemplate).update(contains("'FAILED'"), eq(8L));
+        verify(blobService).release(key);
+        verifyNoInteractions(imageDerivativePipeline);
+    }
+
+    @Test
+    public void alreadyCheckedMediaIsNotProcessedAgain() throws Exception {
+        when(blobService.open(KEY)).thenAnswer(invocation -> new ByteArrayInputStream(png(10, 10)));
+
+        service.process(new MediaIngestService.Check(7L, 3L, "uploads/blobs/ab/ab/" + KEY, MediaType.IMAGE));
+
+        verifyNoInteractions(imageDerivativePipeline);
+    }
+
+    @Test
+    public void verifyChecksOnlyProcessingMedia() throws Exception {
+        when(blobService.open(KEY)).thenAnswer(invocation -> new ByteArrayInputStream(png(10, 10)));
+        com.urutte.model.Thread thread = new com.urutte.model.Thread();
+        thread.setId(3L);
+        thread.getMedia().add(media(1L, thread, MediaStatus.READY));
+        thread.getMedia().add(media(2L, thread, MediaStatus.PROCESSING));
+
+        service.verify(thread);
+        service.stop();
+
+        verify(jdbcTemplate).update(contains("'READY', width"), eq(10), eq(10), eq(2L));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object.class), any(Object.class), eq(1L));
+    }
+
+    @Test
+    public void verifyTakesTheMediaIdsAssignedByTheFlush() throws Exception {
+        when(blobService.open(KEY)).thenAnswer(invocation -> new ByteArrayInputStream(png(10, 10)));
+        com.urutte.model.Thread thread = new com.urutte.model.Thread();
+        thread.setId(3L);
+        ThreadMedia media = media(null, thread, MediaStatus.PROCESSING);
+        thread.getMedia().add(media);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.verify(thread);
+            // The cascaded insert runs at flush, before commit
+            media.setId(5L);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        service.stop();
+
+        verify(jdbcTemplate).update(contains("'READY', width"), eq(10), eq(10), eq(5L));
+    }
+
+    @Test
+    public void magicNumbersAreMatchedPerMediaType() {
+        assertTrue(MediaIngestService.looksLike(MediaType.IMAGE, bytes(0xFF, 0xD8, 0xFF, 0xE0)));
+        assertTrue(MediaIngestService.looksLike(MediaType.IMAGE, "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(MediaIngestService.looksLike(MediaType.IMAGE, "<svg".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(MediaIngestService.looksLike(MediaType.VIDEO, "\0\0\0\u0018ftypmp42".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(MediaIngestService.looksLike(MediaType.VIDEO, bytes(0x1A, 0x45, 0xDF, 0xA3)));
+        assertFalse(MediaIngestService.looksLike(MediaType.VIDEO, "RIFF\0\0\0\0WAVE".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(MediaIngestService.looksLike(MediaType.AUDIO, "ID3\u0004".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(MediaIngestService.looksLike(MediaType.AUDIO, "RIFF\0\0\0\0WAVE".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(MediaIngestService.looksLike(MediaType.DOCUMENT, new byte[0]));
+    }
+
+    private static ThreadMedia media(Long id, com.urutte.model.Thread thread, MediaStatus status) {
+        ThreadMedia media = new ThreadMedia(thread, MediaType.IMAGE, "uploads/blobs/ab/ab/" + KEY);
+        media.setId(id);
+        media.setStatus(status);
+        return media;
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static byte[] field(String name, String value) {
+        return part("form-data; name=\"" + name + "\"", null, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] file(String name, String filename, String contentType, byte[] content) {
+        return part("form-data; name=\"" + name + "\"; filename=\"" + filename + "\"", contentType, content);
+    }
+
+    private static byte[] part(String disposition, String contentType, byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String headers = "--" + BOUNDARY + "\r\nContent-Disposition: " + disposition + "\r\n"
+            + (contentType != null ? "Content-Type: " + contentType + "\r\n" : "") + "\r\n";
+        out.writeBytes(headers.getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(content);
+        out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static byte[] body(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        out.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+}
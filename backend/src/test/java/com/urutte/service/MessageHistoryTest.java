@@ -0,0 +1,119 @@
+package com.urutte.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.urutte.dto.CursorPageDto;
+import com.urutte.dto.MessageDto;
+import com.urutte.model.Conversation;
+import com.urutte.model.Message;
+import com.urutte.model.ReadWatermark;
+import com.urutte.model.User;
+import com.urutte.repository.ConversationRepository;
+import com.urutte.repository.MessageRepository;
+import com.urutte.repository.ReadWatermarkRepository;
+import com.urutte.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageHistoryTest {
+
+    @Mock private MessageRepository messageRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private ReadWatermarkRepository readWatermarkRepository;
+    @Mock private ConversationRepository conversationRepository;
+
+    @InjectMocks
+    private MessageService messageService;
+
+    private final User alice = user("alice");
+    private final User bob = user("bob");
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(messageService, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        Conversation conversation = new Conversation();
+        conversation.setId(5L);
+        conversation.setUserLowId("alice");
+        conversation.setUserHighId("bob");
+        when(conversationRepository.findByUserLowIdAndUserHighId("alice", "bob")).thenReturn(Optional.of(conversation));
+        when(readWatermarkRepository.findLastReadId("alice", ReadWatermark.MESSAGES, "bob")).thenReturn(Optional.of(2L));
+        when(readWatermarkRepository.findLastReadId("bob", ReadWatermark.MESSAGES, "alice")).thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void historyIsPagedByMessageId() {
+        when(messageRepository.findByConversationIdBefore(5L, 40L, PageRequest.of(0, 3)))
+            .thenReturn(List.of(message(39L, bob, alice), message(38L, alice, bob), message(37L, bob, alice)));
+        when(messageRepository.findByConversationIdBefore(5L, 38L, PageRequest.of(0, 3)))
+            .thenReturn(List.of(message(37L, bob, alice)));
+
+        CursorPageDto<MessageDto> first = messageService.getConversationBefore("alice", "bob", 40L, 2);
+        assertEquals(List.of(39L, 38L), first.getContent().stream().map(MessageDto::getId).toList());
+        assertTrue(first.isHasNext());
+        assertEquals("38", first.getNextCursor());
+
+        CursorPageDto<MessageDto> last = messageService.getConversationBefore("alice", "bob", 38L, 2);
+        assertEquals(List.of(37L), last.getContent().stream().map(MessageDto::getId).toList());
+        assertFalse(last.isHasNext());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    public void exportWritesOneJsonLinePerMessageAndClosesTheCursor() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<MessageDto> rows = LongStream.rangeClosed(1, 1200)
+            .mapToObj(id -> row(id, id % 2 == 0 ? bob : alice, id % 2 == 0 ? alice : bob))
+            .onClose(() -> closed.set(true));
+        when(messageRepository.streamByConversationId(5L)).thenReturn(rows);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(1200, messageService.exportConversation("alice", "bob", out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1200, lines.length);
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        MessageDto second = mapper.readValue(lines[1], MessageDto.class);
+        assertEquals(2L, second.getId());
+        // Received by alice and at her watermark
+        assertTrue(second.isRead());
+        assertFalse(mapper.readValue(lines[3], MessageDto.class).isRead());
+        assertTrue(closed.get());
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setName(id);
+        return user;
+    }
+
+    private static Message message(Long id, User sender, User receiver) {
+        Message message = new Message(sender, receiver, "hi");
+        message.setId(id);
+        return message;
+    }
+
+    private static MessageDto row(long id, User sender, User receiver) {
+        return new MessageDto(id, sender.getId(), sender.getName(), null, receiver.getId(), receiver.getName(), null,
+            "message " + id, "text", null, false, LocalDateTime.of(2025, 10, 1, 12, 0));
+    }
+}
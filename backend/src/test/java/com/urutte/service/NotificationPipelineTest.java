@@ -0,0 +1,142 @@
+package com.urutte.service;
+
+import com.urutte.dto.NotificationDto;
+import com.urutte.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationPipelineTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PushHub pushHub;
+    private UnreadNotificationCounter unreadNotificationCounter;
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationPipeline pipeline;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        pushHub = mock(PushHub.class);
+        unreadNotificationCounter = mock(UnreadNotificationCounter.class);
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new NotificationPipeline();
+        ReflectionTestUtils.setField(pipeline, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(pipeline, "pushHub", pushHub);
+        ReflectionTestUtils.setField(pipeline, "unreadNotificationCounter", unreadNotificationCounter);
+        ReflectionTestUtils.setField(pipeline, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 100);
+        pipeline.init();
+
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), anyInt())).thenAnswer(invocation ->
+            LongStream.rangeClosed(1, invocation.<Integer>getArgument(2)).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void likesOnOneThreadBecomeOneRow() {
+        for (int i = 1; i <= 42; i++) {
+            pipeline.submit(like("author", user("user-" + i, "User " + i), 7L));
+        }
+        pipeline.submit(like("author", user("user-42", "User 42"), 7L));
+        pipeline.submit(like("author", user("user-1", "User 1"), 8L));
+        assertEquals(44, pipeline.getQueueDepth());
+
+        assertEquals(2, pipeline.flush());
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        Object[] aggregated = rows.getValue().get(0);
+        assertEquals("User 42 and 41 others liked your thread", aggregated[5]);
+        assertEquals(7L, aggregated[7]);
+        assertEquals(42, aggregated[9]);
+        assertEquals("User 1 liked your thread", rows.getValue().get(1)[5]);
+
+        ArgumentCaptor<NotificationDto> pushed = ArgumentCaptor.forClass(NotificationDto.class);
+        verify(pushHub, times(2)).publish(eq(PushHub.NOTIFICATIONS), eq("author"), eq("notification"), pushed.capture());
+        assertEquals(42, pushed.getAllValues().get(0).getActorCount());
+        verify(unreadNotificationCounter).changed("author", 2);
+
+        assertEquals(0, pipeline.getQueueDepth());
+        assertEquals(22.0, meterRegistry.get("notifications.pipeline.coalescing.ratio").gauge().value());
+    }
+
+    @Test
+    public void eventsWithoutEntityAreNotCoalesced() {
+        pipeline.submit(new NotificationEvent("target", user("a", "A"), "follow_request", "New Follow Request",
+            "A wants to follow you", null, "user", null));
+        pipeline.submit(new NotificationEvent("target", user("b", "B"), "follow_request", "New Follow Request",
+            "B wants to follow you", null, "user", null));
+
+        assertEquals(2, pipeline.flush());
+        verify(unreadNotificationCounter).changed("target", 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedBatchFallsBackToSingleRows() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataIntegrityViolationException("fk"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+            .thenThrow(new DataIntegrityViolationException("recipient deleted"))
+            .thenReturn(1);
+        pipeline.submit(like("deleted", user("a", "A"), 1L));
+        pipeline.submit(like("author", user("a", "A"), 2L));
+
+        assertEquals(1, pipeline.flush());
+        verify(unreadNotificationCounter).changed("author", 1);
+        verify(unreadNotificationCounter, never()).changed(eq("deleted"), anyLong());
+    }
+
+    @Test
+    public void fullQueueIsFlushedByTheSubmitter() {
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 2);
+        pipeline.init();
+
+        for (int i = 0; i < 3; i++) {
+            pipeline.submit(like("author-" + i, user("a", "A"), 1L));
+        }
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        assertEquals(1, pipeline.getQueueDepth());
+    }
+
+    @Test
+    public void eventsAreKeptWhenIdAllocationFails() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), anyInt()))
+            .thenThrow(new QueryTimeoutException("sequence"))
+            .thenReturn(List.of(1L));
+        pipeline.submit(like("author", user("a", "A"), 1L));
+
+        assertEquals(0, pipeline.flush());
+        assertEquals(1, pipeline.getQueueDepth());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        assertEquals(1, pipeline.flush());
+        verify(unreadNotificationCounter).changed("author", 1);
+    }
+
+    private static NotificationEvent like(String recipientId, User actor, Long threadId) {
+        return new NotificationEvent(recipientId, actor, "like", "New Like", actor.getName() + " liked your thread",
+            "liked your thread", "thread", threadId);
+    }
+
+    private static User user(String id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        return user;
+    }
+}
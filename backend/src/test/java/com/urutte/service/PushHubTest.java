@@ -0,0 +1,206 @@
+package com.urutte.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two hubs on one InMemoryPushBus stand in for two backend nodes.
+ */
+public class PushHubTest {
+
+    private final InMemoryPushBus bus = new InMemoryPushBus();
+    private final List<PushHub> hubs = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        hubs.forEach(PushHub::stop);
+    }
+
+    @Test
+    public void eventsReachConnectionsOnOtherNodes() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        PushHub nodeA = hub(256, () -> new RecordingEmitter());
+        PushHub nodeB = hub(256, () -> emitter);
+
+        nodeB.subscribe(PushHub.CHAT, "user-1", null);
+        nodeA.publish(PushHub.CHAT, "user-1", "message", Map.of("content", "hello"));
+        nodeA.publish(PushHub.CHAT, "user-2", "message", Map.of("content", "not for user-1"));
+
+        emitter.await(2);
+        assertTrue(emitter.frames.get(0).contains("event:connected"));
+        assertTrue(emitter.frames.get(1).contains("event:message"));
+        assertTrue(emitter.frames.get(1).contains("data:{\"content\":\"hello\"}"));
+        Thread.sleep(100);
+        assertEquals(2, emitter.frames.size());
+    }
+
+    @Test
+    public void reconnectWithLastEventIdReplaysMissedEvents() throws Exception {
+        Deque<RecordingEmitter> emitters = new ArrayDeque<>();
+        PushHub hub = hub(256, () -> emitters.peekLast());
+
+        emitters.add(new RecordingEmitter());
+        hub.subscribe(PushHub.CHAT, "user-1", null);
+        hub.publish(PushHub.CHAT, "user-1", "message", "first");
+        emitters.peekLast().await(2);
+        String firstId = eventId(emitters.peekLast().frames.get(1));
+        hub.publish(PushHub.CHAT, "user-1", "message", "second");
+        hub.publish(PushHub.CHAT, "user-1", "message", "third");
+
+        emitters.add(new RecordingEmitter());
+        hub.subscribe(PushHub.CHAT, "user-1", firstId);
+        RecordingEmitter resumed = emitters.peekLast();
+        resumed.await(3);
+        assertEquals(List.of("connected", "second", "third"), resumed.frames.stream()
+            .map(frame -> frame.contains("event:connected") ? "connected" : data(frame))
+            .collect(Collectors.toList()));
+
+        emitters.add(new RecordingEmitter());
+        hub.subscribe(PushHub.CHAT, "user-1", "unknown-id");
+        emitters.peekLast().await(2);
+        assertTrue(emitters.peekLast().frames.get(1).contains("event:" + PushHub.RESYNC));
+    }
+
+    @Test
+    public void snapshotIsSentUnlessTheClientResumesWithoutGap() throws Exception {
+        Deque<RecordingEmitter> emitters = new ArrayDeque<>();
+        PushHub hub = hub(256, () -> emitters.peekLast());
+
+        emitters.add(new RecordingEmitter());
+        hub.subscribe(PushHub.NOTIFICATIONS, "user-1", null, "unread", () -> Map.of("count", 3));
+        hub.publish(PushHub.NOTIFICATIONS, "user-1", "unread", Map.of("delta", 1, "count", 4));
+        RecordingEmitter first = emitters.peekLast();
+        first.await(3);
+        assertEquals("{\"count\":3}", data(first.frames.get(1)));
+        String lastId = eventId(first.frames.get(2));
+
+        emitters.add(new RecordingEmitter());
+        hub.subscribe(PushHub.NOTIFICATIONS, "user-1", lastId, "unread", () -> Map.of("count", 4));
+        Thread.sleep(100);
+        assertEquals(1, emitters.peekLast().frames.size());
+    }
+
+    @Test
+    public void eventsPublishedWhileTheSnapshotLoadsFollowIt() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        PushHub hub = hub(256, () -> emitter);
+        hub.publish(PushHub.NOTIFICATIONS, "user-1", "unread", "{\"count\":1}");
+
+        hub.subscribe(PushHub.NOTIFICATIONS, "user-1", null, "unread", () -> {
+            hub.publish(PushHub.NOTIFICATIONS, "user-1", "unread", "{\"count\":2}");
+            return Map.of("count", 1);
+        });
+
+        emitter.await(3);
+        assertEquals(List.of("{\"count\":1}", "{\"count\":2}"),
+            List.of(data(emitter.frames.get(1)), data(emitter.frames.get(2))));
+        Thread.sleep(100);
+        assertEquals(3, emitter.frames.size());
+    }
+
+    @Test
+    public void slowConsumerIsDroppedWithoutBlockingPublishers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(builder);
+            }
+        };
+        PushHub hub = hub(4, () -> slow);
+        hub.subscribe(PushHub.CHAT, "user-1", null);
+        assertEquals(1, hub.getConnectionCount());
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            hub.publish(PushHub.CHAT, "user-1", "message", "event " + i);
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000);
+
+        assertTrue(slow.completed);
+        assertEquals(0, hub.getConnectionCount());
+        release.countDown();
+    }
+
+    private PushHub hub(int queueCapacity, Supplier<SseEmitter> emitters) {
+        PushHub hub = new PushHub() {
+            @Override
+            SseEmitter newEmitter() {
+                return emitters.get();
+            }
+        };
+        ReflectionTestUtils.setField(hub, "pushBus", bus);
+        ReflectionTestUtils.setField(hub, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(hub, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(hub, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(hub, "replaySize", 100);
+        ReflectionTestUtils.setField(hub, "replayTtlSeconds", 300L);
+        ReflectionTestUtils.setField(hub, "emitterTimeoutMillis", 0L);
+        ReflectionTestUtils.setField(hub, "senderThreads", 2);
+        hub.start();
+        hubs.add(hub);
+        return hub;
+    }
+
+    private static String eventId(String frame) {
+        return field(frame, "id:");
+    }
+
+    private static String data(String frame) {
+        return field(frame, "data:");
+    }
+
+    private static String field(String frame, String prefix) {
+        return Arrays.stream(frame.split("\n"))
+            .filter(line -> line.startsWith(prefix))
+            .map(line -> line.substring(prefix.length()))
+            .findFirst()
+            .orElse(null);
+    }
+
+    // Captures the wire text of every frame instead of writing to a response
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> frames = new CopyOnWriteArrayList<>();
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                text.append(part.getData());
+            }
+            frames.add(text.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        void await(int frameCount) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (frames.size() < frameCount && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(frames.size() >= frameCount, "expected " + frameCount + " frames, got " + frames);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.urutte.service;
+
+import com.urutte.dto.MessageDto;
+import com.urutte.model.Conversation;
+import com.urutte.model.Message;
+import com.urutte.model.ReadWatermark;
+import com.urutte.model.User;
+import com.urutte.repository.ConversationRepository;
+import com.urutte.repository.MessageRepository;
+import com.urutte.repository.NotificationRepository;
+import com.urutte.repository.ReadWatermarkRepository;
+import com.urutte.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReadWatermarkTest {
+
+    @Mock private NotificationRepository notificationRepository;
+    @Mock private MessageRepository messageRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private ReadWatermarkRepository readWatermarkRepository;
+    @Mock private ConversationRepository conversationRepository;
+    @Mock private UnreadNotificationCounter unreadNotificationCounter;
+    @Mock private PushHub pushHub;
+
+    @InjectMocks
+    private NotificationService notificationService;
+
+    @InjectMocks
+    private MessageService messageService;
+
+    @Test
+    public void markAllNotificationsReadMovesTheWatermarkOnly() {
+        when(notificationRepository.findMaxIdByUserId("user-1")).thenReturn(500L);
+        when(readWatermarkRepository.findLastReadId("user-1", ReadWatermark.NOTIFICATIONS, ReadWatermark.ALL))
+            .thenReturn(Optional.of(100L));
+        when(notificationRepository.countUnreadInRange("user-1", 100L, 500L)).thenReturn(37L);
+        when(readWatermarkRepository.advance("user-1", ReadWatermark.NOTIFICATIONS, ReadWatermark.ALL, 500L))
+            .thenReturn(1);
+
+        assertEquals(37, notificationService.markAllAsRead("user-1", null));
+
+        verify(unreadNotificationCounter).changed("user-1", -37);
+        verify(notificationRepository, never()).saveAll(any());
+        verify(notificationRepository, never()).save(any());
+    }
+
+    @Test
+    public void watermarkNeverMovesBackwards() {
+        when(notificationRepository.findMaxIdByUserId("user-1")).thenReturn(500L);
+        when(readWatermarkRepository.findLastReadId("user-1", ReadWatermark.NOTIFICATIONS, ReadWatermark.ALL))
+            .thenReturn(Optional.of(300L));
+
+        assertEquals(0, notificationService.markAllAsRead("user-1", 200L));
+
+        verify(readWatermarkRepository, never()).advance(any(), any(), any(), any());
+        verifyNoInteractions(unreadNotificationCounter);
+    }
+
+    @Test
+    public void conversationIsMarkedReadUpToTheGivenMessage() {
+        when(messageRepository.findMaxIdFromSender("user-1", "user-2")).thenReturn(90L);
+        when(readWatermarkRepository.findLastReadId("user-1", ReadWatermark.MESSAGES, "user-2"))
+            .thenReturn(Optional.empty());
+        when(messageRepository.countUnreadFromSenderInRange("user-1", "user-2", 0L, 60L)).thenReturn(12L);
+        when(readWatermarkRepository.advance("user-1", ReadWatermark.MESSAGES, "user-2", 60L)).thenReturn(1);
+        when(conversationRepository.findByUserLowIdAndUserHighId("user-1", "user-2"))
+            .thenReturn(Optional.of(conversation(3L)));
+
+        assertEquals(12, messageService.markMessagesAsRead("user-1", "user-2", 60L));
+
+        verify(conversationRepository).recordRead(3L, "user-1", 12);
+        verify(messageRepository, never()).saveAll(any());
+    }
+
+    @Test
+    public void messagesBelowTheReceiversWatermarkAreRead() {
+        User me = user("user-1");
+        User other = user("user-2");
+        when(conversationRepository.findByUserLowIdAndUserHighId("user-1", "user-2"))
+            .thenReturn(Optional.of(conversation(3L)));
+        when(readWatermarkRepository.findLastReadId("user-1", ReadWatermark.MESSAGES, "user-2"))
+            .thenReturn(Optional.of(10L));
+        when(readWatermarkRepository.findLastReadId("user-2", ReadWatermark.MESSAGES, "user-1"))
+            .thenReturn(Optional.of(5L));
+        when(messageRepository.findByConversationId(eq(3L), any(Pageable.class)))
+            .thenReturn(List.of(
+                message(11L, other, me), message(10L, other, me), message(6L, me, other), message(5L, me, other)));
+
+        List<MessageDto> messages = messageService.getConversation("user-1", "user-2", 0, 20);
+
+        assertEquals(List.of(false, true, false, true), messages.stream().map(MessageDto::isRead).toList());
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static Conversation conversation(Long id) {
+        Conversation conversation = new Conversation();
+        conversation.setId(id);
+        conversation.setUserLowId("user-1");
+        conversation.setUserHighId("user-2");
+        return conversation;
+    }
+
+    private static Message message(Long id, User sender, User receiver) {
+        Message message = new Message(sender, receiver, "hi");
+        message.setId(id);
+        return message;
+    }
+}
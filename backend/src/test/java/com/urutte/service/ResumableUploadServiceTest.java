@@ -0,0 +1,299 @@
+package com.urutte.service;
+
+import com.urutte.exception.UploadProtocolException;
+import com.urutte.model.UploadSession;
+import com.urutte.repository.UploadSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ResumableUploadServiceTest {
+
+    private static final String USER = "user-1";
+
+    @TempDir
+    Path dir;
+
+    private UploadSessionRepository repository;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private ResumableUploadService service;
+    private UploadSession session;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(UploadSessionRepository.class);
+        when(repository.save(any(UploadSession.class))).thenAnswer(invocation -> {
+            session = invocation.getArgument(0);
+            return session;
+        });
+        when(repository.findByIdAndUserId(anyString(), eq(USER))).thenAnswer(invocation ->
+            Optional.ofNullable(session).filter(s -> s.getId().equals(invocation.getArgument(0))));
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(startsWith("UPDATE upload_sessions SET upload_offset"), any(Object.class), any(Object.class), any(Object.class)))
+            .thenReturn(1);
+        when(jdbcTemplate.update(startsWith("UPDATE upload_sessions SET locked_until"), any(Object.class), any(Object.class), any(Object.class)))
+            .thenReturn(1);
+        when(jdbcTemplate.update(startsWith("UPDATE upload_sessions SET video_path"), any(Object.class), any(Object.class)))
+            .thenReturn(1);
+        when(jdbcTemplate.query(startsWith("SELECT upload_offset"), ArgumentMatchers.<RowMapper<UploadSession>>any(), any(Object.class)))
+            .thenAnswer(invocation -> List.of(session));
+        meterRegistry = new SimpleMeterRegistry();
+
+        LocalBlobStore blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "root", dir.resolve("blobs").toString());
+        ReflectionTestUtils.setField(blobStore, "urlPrefix", "uploads/blobs/");
+        BlobService blobService = new BlobService();
+        ReflectionTestUtils.setField(blobService, "blobStore", blobStore);
+        ReflectionTestUtils.setField(blobService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(blobService, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(blobService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(blobService, "tempDir", dir.resolve("tmp").toString());
+        blobService.init();
+        FileUploadService fileUploadService = new FileUploadService();
+        ReflectionTestUtils.setField(fileUploadService, "blobService", blobService);
+
+        service = new ResumableUploadService();
+        ReflectionTestUtils.setField(service, "uploadSessionRepository", repository);
+        ReflectionTestUtils.setField(service, "fileUploadService", fileUploadService);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "tempDir", dir.resolve("tmp").toString());
+        ReflectionTestUtils.setField(service, "maxBytes", 1024L * 1024);
+        ReflectionTestUtils.setField(service, "maxChunkBytes", 40_000L);
+        ReflectionTestUtils.setField(service, "expirationHours", 24L);
+        ReflectionTestUtils.setField(service, "lockSeconds", 300L);
+        service.init();
+    }
+
+    @Test
+    public void chunksAreAssembledInPlaceAndMovedIntoTheBlobStore() throws Exception {
+        byte[] video = video(100_000);
+        UploadSession created = service.create(USER, video.length, "clip.MP4", "video/mp4");
+
+        service.writeChunk(created.getId(), USER, 0, 40_000L, null, slice(video, 0, 40_000));
+        service.writeChunk(created.getId(), USER, 40_000, null, checksum("sha256", video, 40_000, 80_000), slice(video, 40_000, 80_000));
+        assertFalse(session.isComplete());
+        UploadSession done = service.writeChunk(created.getId(), USER, 80_000, 20_000L, checksum("sha1", video, 80_000, 100_000),
+            slice(video, 80_000, 100_000));
+
+        String key = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(video)) + ".mp4";
+        assertEquals("videos/" + key, done.getVideoPath());
+        assertEquals(100_000L, done.getUploadOffset());
+        assertArrayEquals(video, Files.readAllBytes(dir.resolve("blobs/" + key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key)));
+        assertFalse(Files.exists(dir.resolve("tmp/resumable/" + created.getId() + ".part")));
+        verify(jdbcTemplate).update(contains("SET upload_offset"), eq(100_000L), eq(created.getId()), eq(80_000L));
+        verify(jdbcTemplate).update(contains("SET video_path"), eq("videos/" + key), eq(created.getId()));
+        assertEquals(100_000.0, meterRegistry.counter("upload.resumable.bytes").count());
+        assertEquals(1.0, meterRegistry.counter("upload.resumable.completed").count());
+    }
+
+    @Test
+    public void chunkAtTheWrongOffsetIsAConflict() throws Exception {
+        byte[] video = video(1000);
+        UploadSession created = service.create(USER, video.length, "clip.mp4", "video/mp4");
+
+        UploadProtocolException e = assertThrows(UploadProtocolException.class,
+            () -> service.writeChunk(created.getId(), USER, 10, null, null, slice(video, 10, 1000)));
+
+        assertEquals(409, e.getStatus());
+        verify(jdbcTemplate, never()).update(contains("SET upload_offset"), any(Object.class), any(Object.class), any(Object.class));
+    }
+
+    @Test
+    public void checksumMismatchDropsTheChunkSoItCanBeResent() throws Exception {
+        byte[] video = video(1000);
+        UploadSession created = service.create(USER, video.length, "clip.mp4", "video/mp4");
+        service.writeChunk(created.getId(), USER, 0, null, null, slice(video, 0, 500));
+
+        UploadProtocolException e = assertThrows(UploadProtocolException.class,
+            () -> service.writeChunk(created.getId(), USER, 500, null, checksum("md5", video, 0, 500), slice(video, 500, 1000)));
+
+        assertEquals(460, e.getStatus());
+        assertEquals(500L, session.getUploadOffset());
+        assertEquals(500, Files.size(dir.resolve("tmp/resumable/" + created.getId() + ".part")));
+
+        service.writeChunk(created.getId(), USER, 500, null, checksum("md5", video, 500, 1000), slice(video, 500, 1000));
+        assertTrue(session.isComplete());
+    }
+
+    @Test
+    public void interruptedChunkKeepsTheBytesThatArrived() throws Exception {
+        byte[] video = video(1000);
+        UploadSession created = service.create(USER, video.length, "clip.mp4", "video/mp4");
+
+        assertThrows(IOException.class,
+            () -> service.writeChunk(created.getId(), USER, 0, 1000L, null, new Disconnecting(slice(video, 0, 1000), 300)));
+
+        assertEquals(300L, session.getUploadOffset());
+        verify(jdbcTemplate).update(contains("SET upload_offset"), eq(300L), eq(created.getId()), eq(0L));
+
+        service.writeChunk(created.getId(), USER, 300, null, null, slice(video, 300, 1000));
+        assertTrue(session.isComplete());
+    }
+
+    @Test
+    public void oversizedChunksAreRefused() throws Exception {
+        byte[] video = video(100_000);
+        UploadSession created = service.create(USER, video.length, "clip.mp4", "video/mp4");
+
+        // Announced too big, then sent too big without a Content-Length
+        assertEquals(413, assertThrows(UploadProtocolException.class,
+            () -> service.writeChunk(created.getId(), USER, 0, 50_000L, null, slice(video, 0, 50_000))).getStatus());
+        assertEquals(413, assertThrows(UploadProtocolException.class,
+            () -> service.writeChunk(created.getId(), USER, 0, null, null, slice(video, 0, 50_000))).getStatus());
+
+        assertEquals(0L, session.getUploadOffset());
+        assertEquals(0, Files.size(dir.resolve("tmp/resumable/" + created.getId() + ".part")));
+    }
+
+    @Test
+    public void failedCompletionKeepsThePartFileForAnEmptyRetry() throws Exception {
+        byte[] video = video(1000);
+        UploadSession created = service.create(USER, video.length, "clip.mp4", "video/mp4");
+        when(jdbcTemplate.update(startsWith("INSERT INTO blobs"), any(Object.class), any(Object.class), any(Object.class)))
+            .thenThrow(new QueryTimeoutException("blobs"))
+            .thenReturn(1);
+
+        assertThrows(QueryTimeoutException.class,
+            () -> service.writeChunk(created.getId(), USER, 0, null, null, slice(video, 0, 1000)));
+        assertEquals(1000L, session.getUploadOffset());
+        assertFalse(session.isComplete());
+        assertEquals(1000, Files.size(dir.resolve("tmp/resumable/" + created.getId() + ".part")));
+
+        UploadSession done = service.writeChunk(created.getId(), USER, 1000, 0L, null, new ByteArrayInputStream(new byte[0]));
+
+        assertTrue(done.isComplete());
+        assertFalse(Files.exists(dir.resolve("tmp/resumable/" + created.getId() + ".part")));
+        verify(jdbcTemplate, times(2)).update(contains("SET locked_until = NULL"), eq(created.getId()));
+    }
+
+    @Test
+    public void completionThatLostTheRaceReleasesItsBlobReference() throws Exception {
+        byte[] video = video(1000);
+        UploadSession created = service.create(USER, video.length, "clip.mp4", "video/mp4");
+        when(jdbcTemplate.update(startsWith("UPDATE upload_sessions SET video_path"), any(Object.class), any(Object.class)))
+            .thenReturn(0);
+
+        service.writeChunk(created.getId(), USER, 0, null, null, slice(video, 0, 1000));
+
+        String key = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(video)) + ".mp4";
+        verify(jdbcTemplate).update(startsWith("UPDATE blobs SET ref_count = ref_count - 1"), any(Object.class), eq(key));
+        assertEquals(0.0, meterRegistry.counter("upload.resumable.completed").count());
+    }
+
+    @Test
+    public void chunkIsRefusedWhileAnotherNodeHoldsTheLease() throws Exception {
+        byte[] video = video(1000);
+        UploadSession created = service.create(USER, video.length, "clip.mp4", "video/mp4");
+        when(jdbcTemplate.update(startsWith("UPDATE upload_sessions SET locked_until"), any(Object.class), any(Object.class), any(Object.class)))
+            .thenReturn(0);
+
+        assertEquals(409, assertThrows(UploadProtocolException.class,
+            () -> service.writeChunk(created.getId(), USER, 0, null, null, slice(video, 0, 1000))).getStatus());
+
+        assertFalse(Files.exists(dir.resolve("tmp/resumable/" + created.getId() + ".part")));
+        verify(jdbcTemplate, never()).update(contains("SET locked_until = NULL"), any(Object.class));
+    }
+
+    @Test
+    public void completedUploadThatIsNotAVideoIsDiscarded() throws Exception {
+        byte[] script = "#!/bin/sh\necho not a video\n".getBytes(StandardCharsets.US_ASCII);
+        UploadSession created = service.create(USER, script.length, "clip.mp4", "video/mp4");
+
+        UploadProtocolException e = assertThrows(UploadProtocolException.class,
+            () -> service.writeChunk(created.getId(), USER, 0, null, null, new ByteArrayInputStream(script)));
+
+        assertEquals(415, e.getStatus());
+        verify(repository).delete(created);
+        assertFalse(Files.exists(dir.resolve("tmp/resumable/" + created.getId() + ".part")));
+    }
+
+    @Test
+    public void creationChecksSizeAndFormat() {
+        assertEquals(413, assertThrows(UploadProtocolException.class,
+            () -> service.create(USER, 2L * 1024 * 1024, "clip.mp4", "video/mp4")).getStatus());
+        assertEquals(415, assertThrows(UploadProtocolException.class,
+            () -> service.create(USER, 100, "notes.txt", "text/plain")).getStatus());
+        assertEquals(400, assertThrows(UploadProtocolException.class,
+            () -> service.create(USER, 0, "clip.mp4", "video/mp4")).getStatus());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void expiredOrForeignSessionsAreNotFound() throws Exception {
+        UploadSession created = service.create(USER, 1000, "clip.mp4", "video/mp4");
+
+        assertEquals(404, assertThrows(UploadProtocolException.class, () -> service.get(created.getId(), "someone-else")).getStatus());
+        session.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        assertEquals(404, assertThrows(UploadProtocolException.class, () -> service.get(created.getId(), USER)).getStatus());
+    }
+
+    // An MP4 header followed by random bytes
+    private static byte[] video(int length) {
+        byte[] video = new byte[length];
+        new Random(length).nextBytes(video);
+        byte[] header = "\0\0\0\u0018ftypmp42".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(header, 0, video, 0, header.length);
+        return video;
+    }
+
+    private static InputStream slice(byte[] bytes, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(bytes, from, to));
+    }
+
+    private static String checksum(String algorithm, byte[] bytes, int from, int to) throws Exception {
+        String name = algorithm.equals("sha1") ? "SHA-1" : algorithm.equals("md5") ? "MD5" : "SHA-256";
+        MessageDigest digest = MessageDigest.getInstance(name);
+        digest.update(bytes, from, to - from);
+        return algorithm + " " + Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    // Fails after a number of bytes, like a dropped connection
+    private static class Disconnecting extends FilterInputStream {
+        private int remaining;
+
+        Disconnecting(InputStream in, int bytes) {
+            super(in);
+            this.remaining = bytes;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                throw new IOException("Connection reset");
+            }
+            int read = super.read(b, off, Math.min(len, remaining));
+            remaining -= read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.urutte.service;
+
+import com.urutte.dto.ThreadDto;
+import com.urutte.model.Thread;
+import com.urutte.model.User;
+import com.urutte.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Loads a 5,000-reply conversation with the tree loader and with recursive per-level fetching
+ * (getThreadReplies on every node, as clients did before), counting repository round trips.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ThreadServiceConversationTest {
+
+    private static final int REPLY_COUNT = 5000;
+
+    @Mock private ThreadRepository threadRepository;
+    @Mock private ThreadLikeRepository threadLikeRepository;
+    @Mock private ThreadRepostRepository threadRepostRepository;
+    @Mock private ThreadBookmarkRepository threadBookmarkRepository;
+    @Mock private ThreadReactionRepository threadReactionRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private EngagementCounterService engagementCounterService;
+    @Mock private TrendingService trendingService;
+    @Mock private HotDataCache hotDataCache;
+    @Mock private NotificationPipeline notificationPipeline;
+    @Mock private ImageDerivativePipeline imageDerivativePipeline;
+    @Mock private MediaIngestService mediaIngestService;
+    @Mock private BlobService blobService;
+
+    @InjectMocks
+    private ThreadService threadService;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private Thread root;
+    private List<Thread> replies;
+    private Map<Long, List<Thread>> childrenByParent;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(threadService, "conversationMaxReplies", 10000);
+        buildConversation();
+
+        lenient().when(hotDataCache.getUserSummary(anyString(), any()))
+            .thenAnswer(invocation -> HotDataCache.toSummary(invocation.<Supplier<User>>getArgument(1).get()));
+        lenient().when(userRepository.existsById("viewer")).thenReturn(true);
+        lenient().when(threadRepository.findById(root.getId())).thenReturn(Optional.of(root));
+        lenient().when(threadRepository.findConversationByRoot(eq(root.getId()), anyInt(), any()))
+            .thenAnswer(invocation -> {
+                int maxLevel = invocation.getArgument(1);
+                return replies.stream().filter(reply -> reply.getThreadLevel() <= maxLevel).toList();
+            });
+        lenient().when(threadRepository.existsById(anyLong())).thenReturn(true);
+        lenient().when(threadRepository.findByParentThreadIdAndIsDeletedFalseOrderByCreatedAtAsc(anyLong()))
+            .thenAnswer(invocation -> childrenByParent.getOrDefault(invocation.<Long>getArgument(0), List.of()));
+    }
+
+    @Test
+    public void treeLoaderUsesConstantRoundTripsOnLargeConversation() {
+        ThreadDto tree = threadService.getConversation(root.getId(), "viewer", 100, 10000);
+        long treeCalls = roundTrips();
+
+        clearInvocations();
+        int recursiveCount = fetchRecursively(root.getId());
+        long recursiveCalls = roundTrips();
+
+        assertEquals(REPLY_COUNT, countReplies(tree));
+        assertEquals(REPLY_COUNT, recursiveCount);
+        assertTrue(treeCalls <= 8, "tree loader made " + treeCalls + " round trips");
+        assertTrue(recursiveCalls > REPLY_COUNT, "recursive fetch made " + recursiveCalls + " round trips");
+    }
+
+    @Test
+    public void depthAndBranchLimitsTrimTheTree() {
+        ThreadDto tree = threadService.getConversation(root.getId(), "viewer", 1, 3);
+
+        assertEquals(3, tree.getReplies().size());
+        assertTrue(tree.getReplies().stream().allMatch(reply -> reply.getReplies().isEmpty()));
+    }
+
+    private int fetchRecursively(Long threadId) {
+        int count = 0;
+        for (ThreadDto reply : threadService.getThreadReplies(threadId, "viewer")) {
+            count += 1 + fetchRecursively(reply.getId());
+        }
+        return count;
+    }
+
+    private int countReplies(ThreadDto node) {
+        int count = 0;
+        for (ThreadDto reply : node.getReplies()) {
+            count += 1 + countReplies(reply);
+        }
+        return count;
+    }
+
+    private long roundTrips() {
+        return Mockito.mockingDetails(threadRepository).getInvocations().size()
+            + Mockito.mockingDetails(threadLikeRepository).getInvocations().size()
+            + Mockito.mockingDetails(threadRepostRepository).getInvocations().size()
+            + Mockito.mockingDetails(threadBookmarkRepository).getInvocations().size()
+            + Mockito.mockingDetails(threadReactionRepository).getInvocations().size()
+            + Mockito.mockingDetails(userRepository).getInvocations().size();
+    }
+
+    private void clearInvocations() {
+        Mockito.<Object>clearInvocations(threadRepository, threadLikeRepository, threadRepostRepository,
+            threadBookmarkRepository, threadReactionRepository, userRepository);
+    }
+
+    // Each reply answers a random earlier node, so the tree is both wide and deep
+    private void buildConversation() {
+        User author = new User("author", "Author", "author@example.com", null);
+        root = thread(1L, author, null, 0);
+        replies = new ArrayList<>();
+        childrenByParent = new HashMap<>();
+
+        List<Thread> nodes = new ArrayList<>();
+        nodes.add(root);
+        Random random = new Random(42);
+        for (long id = 2; id <= REPLY_COUNT + 1; id++) {
+            Thread parent = nodes.get(random.nextInt(nodes.size()));
+            Thread reply = thread(id, author, parent, (int) id);
+            nodes.add(reply);
+            replies.add(reply);
+            childrenByParent.computeIfAbsent(parent.getId(), key -> new ArrayList<>()).add(reply);
+        }
+        // Parents first, as the conversation query orders them
+        replies.sort(Comparator.comparing(Thread::getThreadLevel).thenComparing(Thread::getId));
+    }
+
+    private Thread thread(Long id, User author, Thread parent, int minutes) {
+        Thread thread = new Thread("reply " + id, author);
+        thread.setId(id);
+        thread.setIsPublic(true);
+        thread.setCreatedAt(now.plusMinutes(minutes));
+        if (parent == null) {
+            thread.setThreadLevel(0);
+        } else {
+            thread.setParentThread(parent);
+            thread.setRootThread(root);
+            thread.setThreadLevel(parent.getThreadLevel() + 1);
+            thread.setThreadPath(parent.getThreadPath() != null
+                ? parent.getThreadPath() + "." + parent.getId()
+                : String.valueOf(parent.getId()));
+        }
+        return thread;
+    }
+}
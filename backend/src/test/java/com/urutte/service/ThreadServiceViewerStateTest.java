@@ -0,0 +1,283 @@
+package com.urutte.service;
+
+import com.urutte.dto.ThreadDto;
+import com.urutte.dto.ThreadMediaDto;
+import com.urutte.exception.ThreadAccessDeniedException;
+import com.urutte.model.MediaStatus;
+import com.urutte.model.MediaType;
+import com.urutte.model.ReactionType;
+import com.urutte.model.ReplyPermission;
+import com.urutte.model.Thread;
+import com.urutte.model.ThreadMedia;
+import com.urutte.model.User;
+import com.urutte.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts repository calls made while rendering a feed page - the number of
+ * queries must not grow with the page size.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ThreadServiceViewerStateTest {
+
+    @Mock private ThreadRepository threadRepository;
+    @Mock private ThreadLikeRepository threadLikeRepository;
+    @Mock private ThreadRepostRepository threadRepostRepository;
+    @Mock private ThreadBookmarkRepository threadBookmarkRepository;
+    @Mock private ThreadReactionRepository threadReactionRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private HomeTimelineService homeTimelineService;
+    @Mock private EngagementCounterService engagementCounterService;
+    @Mock private ThreadSearchService threadSearchService;
+    @Mock private TrendingService trendingService;
+    @Mock private ThreadTagService threadTagService;
+    @Mock private HotDataCache hotDataCache;
+    @Mock private NotificationPipeline notificationPipeline;
+    @Mock private FollowRepository followRepository;
+    @Mock private ImageDerivativePipeline imageDerivativePipeline;
+    @Mock private MediaIngestService mediaIngestService;
+    @Mock private BlobService blobService;
+
+    @InjectMocks
+    private ThreadService threadService;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(hotDataCache.getUserSummary(anyString(), any()))
+            .thenAnswer(invocation -> HotDataCache.toSummary(invocation.<Supplier<User>>getArgument(1).get()));
+    }
+
+    @Test
+    public void feedPageQueryCountIsConstant() {
+        long smallPage = countQueriesForPage(1);
+        long largePage = countQueriesForPage(100);
+
+        assertEquals(smallPage, largePage);
+    }
+
+    @Test
+    public void viewerStateIsHydratedFromBatch() {
+        List<Thread> threads = buildThreads(3);
+        Thread quoted = buildThread(999L);
+        threads.get(0).setQuotedThread(quoted);
+        stubPage(threads);
+
+        when(userRepository.existsById("viewer")).thenReturn(true);
+        when(threadLikeRepository.findLikedThreadIds(eq("viewer"), anyCollection())).thenReturn(List.of(1L, 999L));
+        when(threadRepostRepository.findRepostedThreadIds(eq("viewer"), anyCollection())).thenReturn(List.of(2L));
+        when(threadBookmarkRepository.findBookmarkedThreadIds(eq("viewer"), anyCollection())).thenReturn(List.of());
+        when(threadReactionRepository.findReactionsByUserIdAndThreadIds(eq("viewer"), anyCollection()))
+            .thenReturn(Collections.singletonList(new Object[] { 3L, ReactionType.LOVE }));
+
+        List<ThreadDto> dtos = threadService.getMainThreads("viewer", 0, 20).getContent();
+
+        assertTrue(dtos.get(0).getIsLiked());
+        assertTrue(dtos.get(0).getQuotedThread().getIsLiked());
+        assertTrue(dtos.get(1).getIsReposted());
+        assertFalse(dtos.get(1).getIsLiked());
+        assertEquals(ReactionType.LOVE, dtos.get(2).getUserReaction());
+        assertNull(dtos.get(0).getUserReaction());
+    }
+
+    @Test
+    public void anonymousViewerRunsNoEngagementQueries() {
+        stubAnonymousPage(buildThreads(20));
+
+        List<ThreadDto> dtos = threadService.getMainThreads(null, 0, 20).getContent();
+
+        assertEquals(20, dtos.size());
+        assertNull(dtos.get(0).getIsLiked());
+        Mockito.verifyNoInteractions(threadLikeRepository, threadRepostRepository,
+            threadBookmarkRepository, threadReactionRepository);
+    }
+
+    @Test
+    public void cachedSnapshotIsServedWithoutLoadingTheThread() {
+        Thread thread = buildThread(5L);
+        thread.setIsPublic(true);
+        thread.setLikesCount(3);
+        when(threadRepository.findById(5L)).thenReturn(Optional.of(thread));
+        when(userRepository.existsById("viewer")).thenReturn(true);
+        when(threadLikeRepository.findLikedThreadIds(eq("viewer"), anyCollection())).thenReturn(List.of(5L));
+        when(engagementCounterService.pending(5L, EngagementCounterService.Counter.LIKES)).thenReturn(2L);
+
+        ThreadDto loaded = threadService.getThreadById(5L, "viewer");
+
+        ArgumentCaptor<ThreadSnapshot> snapshot = ArgumentCaptor.forClass(ThreadSnapshot.class);
+        verify(hotDataCache).putThreadSnapshot(snapshot.capture(), anyLong());
+        when(hotDataCache.getThreadSnapshot(5L)).thenReturn(snapshot.getValue());
+        Mockito.clearInvocations(threadRepository);
+
+        ThreadDto cached = threadService.getThreadById(5L, "viewer");
+
+        Mockito.verifyNoInteractions(threadRepository);
+        assertEquals(5, loaded.getLikesCount());
+        assertEquals(5, cached.getLikesCount());
+        assertTrue(cached.getIsLiked());
+        assertEquals("content 5", cached.getContent());
+        // The snapshot keeps the stored count so later reads do not add the deltas twice
+        assertEquals(3, snapshot.getValue().copyDto().getLikesCount());
+    }
+
+    @Test
+    public void followersOnlyThreadIsCheckedAgainstTheFollowsTable() {
+        Thread thread = buildThread(6L);
+        thread.setIsPublic(false);
+        thread.setReplyPermission(ReplyPermission.FOLLOWERS);
+        when(threadRepository.findById(6L)).thenReturn(Optional.of(thread));
+        when(followRepository.existsByFollowerIdAndFollowingId("viewer", "author-6")).thenReturn(true);
+        when(followRepository.existsByFollowerIdAndFollowingId("stranger", "author-6")).thenReturn(false);
+        lenient().when(userRepository.existsById(anyString())).thenReturn(true);
+
+        assertEquals(6L, threadService.getThreadById(6L, "viewer").getId());
+        assertThrows(ThreadAccessDeniedException.class, () -> threadService.getThreadById(6L, "stranger"));
+    }
+
+    @Test
+    public void mediaIsShownOnceItIsReady() {
+        Thread thread = buildThread(7L);
+        thread.setIsPublic(true);
+        for (MediaStatus status : MediaStatus.values()) {
+            ThreadMedia media = new ThreadMedia(thread, MediaType.IMAGE, "/api/upload/blobs/" + status + ".jpg");
+            media.setStatus(status);
+            thread.getMedia().add(media);
+        }
+        when(threadRepository.findById(7L)).thenReturn(Optional.of(thread));
+        lenient().when(userRepository.existsById(anyString())).thenReturn(true);
+
+        List<MediaStatus> forAuthor = threadService.getThreadById(7L, "author-7").getMedia().stream()
+            .map(ThreadMediaDto::getStatus).toList();
+        List<MediaStatus> forOthers = threadService.getThreadById(7L, "viewer").getMedia().stream()
+            .map(ThreadMediaDto::getStatus).toList();
+
+        assertEquals(List.of(MediaStatus.PROCESSING, MediaStatus.READY), forAuthor);
+        assertEquals(List.of(MediaStatus.READY), forOthers);
+    }
+
+    @Test
+    public void deletedThreadReleasesItsMedia() {
+        Thread thread = buildThread(8L);
+        thread.getMedia().add(new ThreadMedia(thread, MediaType.IMAGE, "/api/upload/blobs/a.jpg"));
+        thread.getMedia().add(new ThreadMedia(thread, MediaType.VIDEO, "/api/upload/blobs/b.mp4"));
+        when(threadRepository.findById(8L)).thenReturn(Optional.of(thread));
+
+        assertTrue(threadService.deleteThread(8L, "author-8"));
+
+        assertTrue(thread.getIsDeleted());
+        verify(blobService).releaseUrl("/api/upload/blobs/a.jpg");
+        verify(blobService).releaseUrl("/api/upload/blobs/b.mp4");
+    }
+
+    @Test
+    public void newThreadIsFannedOutAndIndexedAfterCommit() {
+        User author = new User("author-1", "Author 1", "author1@example.com", null);
+        when(userRepository.findById("author-1")).thenReturn(Optional.of(author));
+        when(threadRepository.save(any(Thread.class))).thenAnswer(invocation -> {
+            Thread saved = invocation.getArgument(0);
+            saved.setId(11L);
+            return saved;
+        });
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            threadService.createThread("hello", "author-1", null, null, null, "ANYONE");
+            Mockito.verifyNoInteractions(homeTimelineService, threadSearchService);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(homeTimelineService).onThreadCreated(argThat(thread -> thread.getId() == 11L));
+        verify(threadSearchService).index(argThat(thread -> thread.getId() == 11L));
+    }
+
+    @Test
+    public void timelinePageSeeksWithTheKeysetCursor() {
+        LocalDateTime now = LocalDateTime.now();
+        List<TimelineEntry> timeline = new ArrayList<>();
+        for (long id = 10; id >= 1; id--) {
+            timeline.add(new TimelineEntry(id, "author-" + id, now.minusMinutes(10 - id), TimelineEntry.Reason.PUBLIC));
+        }
+        when(homeTimelineService.isEnabled()).thenReturn(true);
+        when(homeTimelineService.read(eq("viewer"), isNull(), isNull(), eq(6))).thenReturn(timeline.subList(0, 6));
+        TimelineEntry sixth = timeline.get(5);
+        when(homeTimelineService.read(eq("viewer"), eq(sixth.getCreatedAt()), eq(sixth.getThreadId()), eq(4)))
+            .thenReturn(timeline.subList(6, 10));
+        when(threadRepository.findAllById(List.of(4L, 3L, 2L))).thenReturn(List.of(buildThread(2L), buildThread(3L), buildThread(4L)));
+        when(userRepository.existsById("viewer")).thenReturn(true);
+
+        Page<ThreadDto> page = threadService.getMainThreads("viewer", 2, 3);
+
+        assertEquals(List.of(4L, 3L, 2L), page.getContent().stream().map(ThreadDto::getId).toList());
+        assertTrue(page.hasNext());
+        Mockito.verify(homeTimelineService, Mockito.times(2)).read(eq("viewer"), any(), any(), anyInt());
+    }
+
+    private long countQueriesForPage(int size) {
+        Mockito.<Object>clearInvocations(threadRepository, threadLikeRepository, threadRepostRepository,
+            threadBookmarkRepository, threadReactionRepository, userRepository);
+        stubPage(buildThreads(size));
+        when(userRepository.existsById("viewer")).thenReturn(true);
+
+        threadService.getMainThreads("viewer", 0, size);
+
+        return invocations(threadRepository) + invocations(threadLikeRepository)
+            + invocations(threadRepostRepository) + invocations(threadBookmarkRepository)
+            + invocations(threadReactionRepository) + invocations(userRepository);
+    }
+
+    private long invocations(Object mock) {
+        return Mockito.mockingDetails(mock).getInvocations().size();
+    }
+
+    private void stubPage(List<Thread> threads) {
+        Page<Thread> page = new PageImpl<>(threads, PageRequest.of(0, Math.max(1, threads.size())), threads.size());
+        when(threadRepository.findMainThreadsForUser(eq("viewer"), any())).thenReturn(page);
+    }
+
+    private void stubAnonymousPage(List<Thread> threads) {
+        Page<Thread> page = new PageImpl<>(threads, PageRequest.of(0, threads.size()), threads.size());
+        when(threadRepository.findByParentThreadIsNullAndIsDeletedFalseAndIsPublicTrueOrderByCreatedAtDesc(any()))
+            .thenReturn(page);
+    }
+
+    private List<Thread> buildThreads(int count) {
+        List<Thread> threads = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            threads.add(buildThread(id));
+        }
+        return threads;
+    }
+
+    private Thread buildThread(Long id) {
+        User author = new User("author-" + id, "Author " + id, "author" + id + "@example.com", null);
+        Thread thread = new Thread("content " + id, author);
+        thread.setId(id);
+        return thread;
+    }
+}
@@ -0,0 +1,86 @@
+package com.urutte.service;
+
+import com.urutte.model.Thread;
+import com.urutte.model.User;
+import com.urutte.repository.HashtagRepository;
+import com.urutte.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ThreadTagServiceTest {
+
+    @Mock private HashtagRepository hashtagRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private TrendingService trendingService;
+    @Mock private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ThreadTagService threadTagService;
+
+    @Test
+    public void parsesDistinctLowerCasedTags() {
+        assertEquals(Set.of("java", "spring"), ThreadTagService.parseHashtags("#Java and #spring and #JAVA"));
+    }
+
+    @Test
+    public void statementCountDoesNotGrowWithTagCount() {
+        StringBuilder content = new StringBuilder();
+        List<Object[]> known = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            content.append("#tag").append(i).append(' ');
+            if (i < 5) {
+                known.add(new Object[] { "tag" + i, (long) i });
+            }
+        }
+        content.append("@alice @bob @alice");
+
+        List<Object[]> created = new ArrayList<>();
+        for (int i = 5; i < 10; i++) {
+            created.add(new Object[] { "tag" + i, (long) i });
+        }
+        when(hashtagRepository.findIdsByTagIn(anyCollection())).thenReturn(known).thenReturn(created);
+        when(userRepository.findIdsByUsernameIn(anyCollection()))
+            .thenReturn(Collections.singletonList(new Object[] { "alice", "user-alice" }));
+
+        threadTagService.processHashtagsAndMentions(thread(), content.toString());
+
+        verify(hashtagRepository, times(2)).findIdsByTagIn(anyCollection());
+        verify(hashtagRepository, times(1)).incrementUsageCounts(anyCollection(), any());
+        verify(userRepository, times(1)).findIdsByUsernameIn(anyCollection());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), batches.capture());
+        assertEquals(5, batches.getAllValues().get(0).size());   // missing hashtags
+        assertEquals(10, batches.getAllValues().get(1).size());  // thread_hashtags rows
+        assertEquals(1, batches.getAllValues().get(2).size());   // one mention row for alice
+    }
+
+    @Test
+    public void contentWithoutTagsRunsNoStatements() {
+        threadTagService.processHashtagsAndMentions(thread(), "plain text");
+
+        verifyNoInteractions(hashtagRepository, userRepository, jdbcTemplate);
+    }
+
+    private Thread thread() {
+        Thread thread = new Thread("content", new User("author", "Author", "author@example.com", null));
+        thread.setId(1L);
+        return thread;
+    }
+}
@@ -0,0 +1,93 @@
+package com.urutte.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ThreadViewTrackerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private ThreadViewTracker tracker;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = tracker(1024);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void repeatViewsAreWrittenOnceAndCountsAreAggregated() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 400; i++) {
+            String userId = "user-" + (i % 100);
+            pool.execute(() -> tracker.record(List.of(1L, 2L), userId, "10.0.0.1", "test"));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(200, tracker.flush());
+
+        ArgumentCaptor<List<Object[]>> increments = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO thread_views"), argThat((List<Object[]> rows) -> rows.size() == 200));
+        verify(jdbcTemplate).batchUpdate(contains("views_count"), increments.capture());
+        assertEquals(2, increments.getValue().size());
+        increments.getValue().forEach(row -> assertEquals(100, row[0]));
+        assertEquals(600, meterRegistry.get("views.duplicates").counter().count());
+
+        long estimate = tracker.estimateUniqueViewers(1L);
+        assertTrue(Math.abs(estimate - 100) <= 5, "estimate " + estimate);
+
+        // Still inside the window
+        tracker.record(1L, "user-1", "10.0.0.1", "test");
+        assertEquals(0, tracker.flush());
+    }
+
+    @Test
+    public void anonymousViewersAreToldApartByAddressAndAgent() {
+        tracker.record(1L, null, "10.0.0.1", "firefox");
+        tracker.record(1L, null, "10.0.0.1", "firefox");
+        tracker.record(1L, null, "10.0.0.2", "firefox");
+
+        assertEquals(2, tracker.flush());
+    }
+
+    @Test
+    public void fullBufferDropsViewsInsteadOfBlocking() {
+        ThreadViewTracker small = tracker(4);
+        for (long threadId = 1; threadId <= 10; threadId++) {
+            small.record(threadId, "user-1", null, null);
+        }
+
+        assertEquals(6, meterRegistry.get("views.dropped").counter().count());
+        assertEquals(4, small.flush());
+    }
+
+    private ThreadViewTracker tracker(int capacity) {
+        ThreadViewTracker tracker = new ThreadViewTracker();
+        ReflectionTestUtils.setField(tracker, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(tracker, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(tracker, "bufferCapacity", capacity);
+        ReflectionTestUtils.setField(tracker, "dedupWindowSeconds", 1800L);
+        ReflectionTestUtils.setField(tracker, "dedupExpectedViews", 10000L);
+        ReflectionTestUtils.setField(tracker, "dedupFalsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(tracker, "sketchPrecision", 10);
+        ReflectionTestUtils.setField(tracker, "sketchMaxThreads", 100L);
+        tracker.init();
+        return tracker;
+    }
+}
@@ -0,0 +1,81 @@
+package com.urutte.service;
+
+import com.urutte.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class TokenVerificationServiceTest {
+
+    private JwtUtil jwtUtil;
+    private TokenVerificationService tokens;
+
+    @BeforeEach
+    public void setUp() {
+        jwtUtil = spy(jwtUtil(86400000L));
+        tokens = new TokenVerificationService();
+        ReflectionTestUtils.setField(tokens, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(tokens, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tokens, "maxSize", 100L);
+        ReflectionTestUtils.setField(tokens, "ttlSeconds", 300L);
+        tokens.initCache();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void tokenIsParsedOnceAcrossRequests() {
+        String token = jwtUtil.generateToken("user-1", "user1@example.com");
+
+        for (int i = 0; i < 100; i++) {
+            VerifiedToken verified = tokens.verify(token);
+            assertEquals("user-1", verified.getUserId());
+            assertEquals("user1@example.com", verified.getEmail());
+        }
+
+        verify(jwtUtil, times(1)).parseClaims(anyString());
+    }
+
+    @Test
+    public void requestPrincipalIsReusedWithoutCacheLookup() {
+        String token = jwtUtil.generateToken("user-2", "user2@example.com");
+        VerifiedToken published = tokens.verify(token);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(TokenVerificationService.REQUEST_ATTRIBUTE, published);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertSame(published, tokens.currentRequestToken());
+        assertSame(published, tokens.verify(token));
+    }
+
+    @Test
+    public void invalidAndExpiredTokensAreRejected() {
+        String tampered = jwtUtil.generateToken("user-3", "user3@example.com") + "x";
+        String expired = jwtUtil(-1000L).generateToken("user-3", "user3@example.com");
+
+        assertNull(tokens.verify(tampered));
+        assertNull(tokens.verify(expired));
+        assertNull(tokens.verify("not-a-jwt"));
+        assertNull(tokens.verify(null));
+    }
+
+    private static JwtUtil jwtUtil(long expirationMillis) {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", "test-secret-key-that-is-long-enough");
+        ReflectionTestUtils.setField(util, "expiration", expirationMillis);
+        util.init();
+        return util;
+    }
+}
@@ -0,0 +1,70 @@
+package com.urutte.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrendingScoreboardTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void recentEventsOutrankOlderOnesOfTheSameWeight() {
+        TrendingScoreboard<Long> board = new TrendingScoreboard<>(HOUR, 10, 0);
+        for (int i = 0; i < 5; i++) {
+            board.add(1L, 1.0, 0);
+        }
+        for (int i = 0; i < 3; i++) {
+            board.add(2L, 1.0, 3 * HOUR);
+        }
+
+        assertEquals(List.of(2L, 1L), board.top(0, 10));
+        assertEquals(5 * Math.exp(-3), board.score(1L, 3 * HOUR), 1e-9);
+    }
+
+    @Test
+    public void scoresSurviveRescaling() {
+        TrendingScoreboard<String> board = new TrendingScoreboard<>(HOUR, 10, 0);
+        board.add("old", 1.0, 0);
+        // Far enough ahead to force a rescale of the reference time
+        board.add("new", 1.0, 60 * HOUR);
+
+        assertEquals(List.of("new", "old"), board.top(0, 10));
+        assertEquals(1.0, board.score("new", 60 * HOUR), 1e-9);
+    }
+
+    @Test
+    public void undoEventsNeverGoBelowZero() {
+        TrendingScoreboard<Long> board = new TrendingScoreboard<>(HOUR, 10, 0);
+        board.add(1L, 1.0, 0);
+        board.add(1L, -2.0, 0);
+
+        assertTrue(board.top(0, 10).isEmpty());
+        assertEquals(0, board.size());
+    }
+
+    @Test
+    public void boardStaysBoundedAndKeepsTheHighestScores() {
+        TrendingScoreboard<Long> board = new TrendingScoreboard<>(HOUR, 3, 0);
+        for (long id = 1; id <= 100; id++) {
+            board.add(id, id, 0);
+        }
+
+        assertTrue(board.size() <= 6);
+        assertEquals(List.of(100L, 99L, 98L), board.top(0, 10));
+    }
+
+    @Test
+    public void pruneDropsDecayedKeys() {
+        TrendingScoreboard<Long> board = new TrendingScoreboard<>(HOUR, 10, 0);
+        board.add(1L, 1.0, 0);
+        board.add(2L, 1.0, 10 * HOUR);
+
+        board.prune(0.01, 10 * HOUR);
+
+        assertEquals(List.of(2L), board.top(0, 10));
+    }
+}
@@ -0,0 +1,90 @@
+package com.urutte.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TwoTierCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    @Test
+    public void loaderRunsOncePerKeyAndMetricsCountHitsAndMisses() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Cache<Object, Object> local = Caffeine.newBuilder().maximumSize(100).recordStats().build();
+        CaffeineCacheMetrics.monitor(registry, local, "userCounts");
+        TwoTierCache cache = new TwoTierCache("userCounts", local, null, TTL);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value", cache.get("key", () -> {
+                loads.incrementAndGet();
+                return "value";
+            }));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(9.0, registry.get("cache.gets").tag("cache", "userCounts").tag("result", "hit")
+            .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "userCounts").tag("result", "miss")
+            .functionCounter().count());
+    }
+
+    @Test
+    public void sharedTierIsReadBeforeLoadingAndWrittenAfter() {
+        SharedCacheStore shared = mock(SharedCacheStore.class);
+        when(shared.get("threadSnapshots", 1L)).thenReturn("from-l2");
+        TwoTierCache cache = new TwoTierCache("threadSnapshots", Caffeine.newBuilder().build(), shared, TTL);
+
+        assertEquals("from-l2", cache.get(1L, () -> "loaded"));
+        assertEquals("loaded", cache.get(2L, () -> "loaded"));
+
+        verify(shared).put("threadSnapshots", 2L, "loaded", TTL);
+        verify(shared, never()).put(eq("threadSnapshots"), eq(1L), any(), any());
+
+        cache.evict(1L);
+        verify(shared).evict("threadSnapshots", 1L);
+        when(shared.get("threadSnapshots", 1L)).thenReturn(null);
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    public void weightBoundEvictsEntries() {
+        Cache<Object, Object> local = Caffeine.newBuilder()
+            .maximumWeight(10_000)
+            .weigher((Object key, Object value) -> ((String) value).length())
+            .executor(Runnable::run)
+            .build();
+        TwoTierCache cache = new TwoTierCache("userSummaries", local, null, TTL);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "x".repeat(1000));
+        }
+        local.cleanUp();
+
+        assertTrue(local.policy().eviction().orElseThrow().weightedSize().orElseThrow() <= 10_000);
+        assertTrue(local.estimatedSize() <= 10);
+    }
+
+    @Test
+    public void loaderExceptionsReachTheCaller() {
+        TwoTierCache cache = new TwoTierCache("userSummaries", Caffeine.newBuilder().build(), null, TTL);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> cache.get("missing", () -> { throw new RuntimeException("User not found"); }));
+
+        assertEquals("User not found", error.getMessage());
+        assertNull(cache.get("missing"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.urutte.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urutte.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UnreadNotificationCounterTest {
+
+    private NotificationRepository notificationRepository;
+    private PushHub pushHub;
+    private UnreadNotificationCounter counter;
+
+    @BeforeEach
+    public void setUp() {
+        notificationRepository = mock(NotificationRepository.class);
+        pushHub = mock(PushHub.class);
+        counter = new UnreadNotificationCounter();
+        ReflectionTestUtils.setField(counter, "notificationRepository", notificationRepository);
+        ReflectionTestUtils.setField(counter, "pushHub", pushHub);
+        ReflectionTestUtils.setField(counter, "pushBus", new InMemoryPushBus());
+        ReflectionTestUtils.setField(counter, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(counter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(counter, "maxSize", 1000L);
+        ReflectionTestUtils.setField(counter, "ttlSeconds", 600L);
+        counter.initCache();
+    }
+
+    @Test
+    public void countIsLoadedOnceAndMovedByDeltas() {
+        when(notificationRepository.countUnreadByUserId("user-1")).thenReturn(3L);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(3, counter.get("user-1"));
+        }
+        counter.changed("user-1", 1);
+        counter.changed("user-1", -4);
+
+        assertEquals(0, counter.get("user-1"));
+        verify(notificationRepository, times(1)).countUnreadByUserId("user-1");
+        verify(pushHub).publish(PushHub.NOTIFICATIONS, "user-1", UnreadNotificationCounter.UNREAD_EVENT,
+            Map.of("delta", 1L, "count", 4L));
+        verify(pushHub).publish(PushHub.NOTIFICATIONS, "user-1", UnreadNotificationCounter.UNREAD_EVENT,
+            Map.of("delta", -4L, "count", 0L));
+    }
+
+    @Test
+    public void changeOfAnUncachedUserIsNotCountedTwice() {
+        // The committed notification is already in the loaded count
+        when(notificationRepository.countUnreadByUserId("user-2")).thenReturn(5L);
+
+        counter.changed("user-2", 1);
+
+        assertEquals(5, counter.get("user-2"));
+        verify(pushHub).publish(PushHub.NOTIFICATIONS, "user-2", UnreadNotificationCounter.UNREAD_EVENT,
+            Map.of("delta", 1L, "count", 5L));
+    }
+
+    @Test
+    public void cachedCountStopsAtZero() {
+        when(notificationRepository.countUnreadByUserId("user-4")).thenReturn(1L);
+        assertEquals(1, counter.get("user-4"));
+
+        counter.changed("user-4", -3);
+        counter.changed("user-4", 1);
+
+        assertEquals(1, counter.get("user-4"));
+    }
+
+    @Test
+    public void countsFromOtherNodesAreAdopted() {
+        when(notificationRepository.countUnreadByUserId("user-3")).thenReturn(2L);
+        assertEquals(2, counter.get("user-3"));
+
+        counter.onPushEvent(new PushEvent("n1-1", PushHub.NOTIFICATIONS, "user-3",
+            UnreadNotificationCounter.UNREAD_EVENT, "{\"delta\":1,\"count\":7}"));
+        counter.onPushEvent(new PushEvent("n1-2", PushHub.CHAT, "user-3", "message", "{}"));
+
+        assertEquals(7, counter.get("user-3"));
+        verify(notificationRepository, times(1)).countUnreadByUserId("user-3");
+    }
+}
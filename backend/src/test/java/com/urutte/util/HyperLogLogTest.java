@@ -0,0 +1,23 @@
+package com.urutte.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void estimateIsWithinTheStandardErrorBound() {
+        for (int cardinality : new int[] { 10, 1_000, 100_000 }) {
+            HyperLogLog sketch = new HyperLogLog(10);
+            for (int i = 0; i < cardinality; i++) {
+                // Every value twice: duplicates must not count
+                sketch.add(Hashes.hash64("viewer-" + i));
+                sketch.add(Hashes.hash64("viewer-" + i));
+            }
+            double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+            // Three standard errors at precision 10
+            assertTrue(error < 0.1, cardinality + " estimated as " + sketch.estimate());
+        }
+    }
+}
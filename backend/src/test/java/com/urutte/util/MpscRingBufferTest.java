@@ -0,0 +1,60 @@
+package com.urutte.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MpscRingBufferTest {
+
+    @Test
+    public void everyAcceptedElementIsDrainedOnce() throws Exception {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(64);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Integer> drained = new ArrayList<>();
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 4; p++) {
+            int base = p * 10_000;
+            producers.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (buffer.offer(base + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        producers.shutdown();
+        while (!producers.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            buffer.drain(drained::add);
+        }
+        buffer.drain(drained::add);
+
+        assertEquals(accepted.get(), drained.size());
+        Set<Integer> unique = new HashSet<>(drained);
+        assertEquals(drained.size(), unique.size());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void offerFailsWhenFull() {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer("e" + i));
+        }
+        assertFalse(buffer.offer("e4"));
+
+        List<String> drained = new ArrayList<>();
+        assertEquals(4, buffer.drain(drained::add));
+        assertEquals(List.of("e0", "e1", "e2", "e3"), drained);
+        assertTrue(buffer.offer("e5"));
+    }
+}
@@ -0,0 +1,142 @@
+package com.urutte.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultipartStreamTest {
+
+    private static final String BOUNDARY = "----formdata-x1y2z3";
+
+    @Test
+    public void fieldsAndFilesAreReadInOrder() throws Exception {
+        byte[] photo = random(100_000, 1);
+        byte[] clip = random(30_000, 2);
+        byte[] body = body(
+            "preamble that clients may send\r\n",
+            part("form-data; name=\"content\"", null, "hello é"),
+            part("form-data; name=\"media\"; filename=\"a.jpg\"", "image/jpeg", photo),
+            part("form-data; name=\"media\"; filename=\"bé.mp4\"", "video/mp4", clip));
+
+        // Tiny buffer and reads of a few bytes exercise delimiters split across refills
+        MultipartStream stream = new MultipartStream(new Trickle(new ByteArrayInputStream(body)), BOUNDARY, 64);
+
+        MultipartStream.Part content = stream.nextPart();
+        assertEquals("content", content.getName());
+        assertFalse(content.isFile());
+        assertEquals("hello é", content.readString(100));
+
+        MultipartStream.Part first = stream.nextPart();
+        assertEquals("media", first.getName());
+        assertEquals("a.jpg", first.getFilename());
+        assertEquals("image/jpeg", first.getContentType());
+        assertArrayEquals(photo, first.getBody().readAllBytes());
+
+        MultipartStream.Part second = stream.nextPart();
+        assertEquals("bé.mp4", second.getFilename());
+        assertArrayEquals(clip, second.getBody().readAllBytes());
+
+        assertNull(stream.nextPart());
+        assertNull(stream.nextPart());
+    }
+
+    @Test
+    public void bodyContainingAlmostTheDelimiterIsKeptIntact() throws Exception {
+        byte[] tricky = ("x\r\n--" + BOUNDARY.substring(0, BOUNDARY.length() - 1) + "\r\n--\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] body = body("", part("form-data; name=\"media\"; filename=\"t.bin\"", "application/octet-stream", tricky));
+
+        MultipartStream stream = new MultipartStream(new Trickle(new ByteArrayInputStream(body)), BOUNDARY, 64);
+
+        assertArrayEquals(tricky, stream.nextPart().getBody().readAllBytes());
+        assertNull(stream.nextPart());
+    }
+
+    @Test
+    public void unreadPartsAreSkipped() throws Exception {
+        byte[] body = body("",
+            part("form-data; name=\"media\"; filename=\"a.jpg\"", "image/jpeg", random(5000, 3)),
+            part("form-data; name=\"content\"", null, "after"));
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY, 256);
+
+        assertTrue(stream.nextPart().isFile());
+        assertEquals("after", stream.nextPart().readString(100));
+        assertNull(stream.nextPart());
+    }
+
+    @Test
+    public void truncatedBodyFails() {
+        byte[] body = body("", part("form-data; name=\"media\"; filename=\"a.jpg\"", "image/jpeg", random(5000, 4)));
+        byte[] truncated = new byte[body.length - 40];
+        System.arraycopy(body, 0, truncated, 0, truncated.length);
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(truncated), BOUNDARY, 256);
+
+        assertThrows(EOFException.class, () -> stream.nextPart().getBody().readAllBytes());
+    }
+
+    @Test
+    public void oversizedFieldIsRejected() throws Exception {
+        byte[] body = body("", part("form-data; name=\"content\"", null, "x".repeat(200)));
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY, 256);
+
+        assertThrows(IOException.class, () -> stream.nextPart().readString(100));
+    }
+
+    @Test
+    public void boundaryIsTakenFromTheContentType() {
+        assertEquals("abc", MultipartStream.boundaryOf("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartStream.boundaryOf("multipart/form-data; charset=utf-8; boundary=\"a b\""));
+        assertNull(MultipartStream.boundaryOf("application/json"));
+        assertNull(MultipartStream.boundaryOf("multipart/form-data"));
+        assertNull(MultipartStream.boundaryOf(null));
+    }
+
+    private static byte[] part(String disposition, String contentType, Object content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String headers = "--" + BOUNDARY + "\r\nContent-Disposition: " + disposition + "\r\n"
+            + (contentType != null ? "Content-Type: " + contentType + "\r\n" : "") + "\r\n";
+        out.writeBytes(headers.getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(content instanceof byte[] ? (byte[]) content : ((String) content).getBytes(StandardCharsets.UTF_8));
+        out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static byte[] body(String preamble, byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(preamble.getBytes(StandardCharsets.US_ASCII));
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        out.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    // Hands out at most 7 bytes per read, like a slow socket
+    private static class Trickle extends FilterInputStream {
+        Trickle(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 7));
+        }
+    }
+}
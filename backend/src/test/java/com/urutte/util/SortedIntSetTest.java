@@ -0,0 +1,60 @@
+package com.urutte.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedIntSetTest {
+
+    @Test
+    public void behavesLikeASet() {
+        Random random = new Random(42);
+        SortedIntSet set = SortedIntSet.EMPTY;
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            int value = random.nextInt(500);
+            if (random.nextBoolean()) {
+                set = set.with(value);
+                expected.add(value);
+            } else {
+                set = set.without(value);
+                expected.remove(value);
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (int value = 0; value < 500; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        for (int i = 1; i < set.size(); i++) {
+            assertTrue(set.get(i - 1) < set.get(i));
+        }
+    }
+
+    @Test
+    public void intersectionSizeMatchesForSimilarAndSkewedSizes() {
+        Random random = new Random(7);
+        for (int smallSize : new int[] { 0, 3, 200, 1000 }) {
+            int[] small = random.ints(smallSize, 0, 5000).toArray();
+            int[] large = random.ints(1000, 0, 5000).toArray();
+            Set<Integer> expected = new HashSet<>();
+            for (int value : small) {
+                expected.add(value);
+            }
+            Set<Integer> largeValues = new HashSet<>();
+            for (int value : large) {
+                largeValues.add(value);
+            }
+            expected.retainAll(largeValues);
+
+            SortedIntSet a = SortedIntSet.of(small, small.length);
+            SortedIntSet b = SortedIntSet.of(large, large.length);
+            assertEquals(expected.size(), a.intersectionSize(b));
+            assertEquals(expected.size(), b.intersectionSize(a));
+        }
+    }
+}
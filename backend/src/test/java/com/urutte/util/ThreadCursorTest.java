@@ -0,0 +1,43 @@
+package com.urutte.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThreadCursorTest {
+
+    @Test
+    public void createdAtCursorRoundTrips() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000);
+        String token = ThreadCursor.ofCreatedAt(createdAt, 42L).encode();
+
+        ThreadCursor decoded = ThreadCursor.decodeCreatedAt(token);
+
+        assertEquals(createdAt, decoded.getCreatedAt());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    public void likesCursorRoundTrips() {
+        ThreadCursor decoded = ThreadCursor.decodeLikes(ThreadCursor.ofLikes(17, 9L).encode());
+
+        assertEquals(17, decoded.getLikesCount());
+        assertEquals(9L, decoded.getId());
+    }
+
+    @Test
+    public void missingCursorStartsAtFirstPage() {
+        assertEquals(Long.MAX_VALUE, ThreadCursor.decodeCreatedAt(null).getId());
+        assertEquals(Integer.MAX_VALUE, ThreadCursor.decodeLikes("").getLikesCount());
+    }
+
+    @Test
+    public void malformedOrMismatchedCursorIsRejected() {
+        String likesToken = ThreadCursor.ofLikes(1, 1L).encode();
+
+        assertThrows(IllegalArgumentException.class, () -> ThreadCursor.decodeCreatedAt("not-a-cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> ThreadCursor.decodeCreatedAt(likesToken));
+    }
+}